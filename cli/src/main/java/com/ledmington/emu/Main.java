@@ -17,14 +17,23 @@
  */
 package com.ledmington.emu;
 
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.ledmington.cmdline.CommandLineParser;
 import com.ledmington.cmdline.ParsedArguments;
+import com.ledmington.emu.config.EmulatorConfig;
+import com.ledmington.emu.config.EmulatorConfigBuilder;
+import com.ledmington.mem.MemoryController;
 import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
 import com.ledmington.utils.BitUtils;
 import com.ledmington.utils.MiniLogger;
 
@@ -34,10 +43,13 @@ public final class Main {
 	private static final PrintWriter out = System.console() == null
 			? new PrintWriter(System.out, false, StandardCharsets.UTF_8)
 			: System.console().writer();
+	private static final PrintWriter err = new PrintWriter(System.err, true, StandardCharsets.UTF_8);
 
 	/** Sentinel default for the numeric/address options below: means "not provided on the command line". */
 	private static final String UNSET = "";
 
+	private static final EmulatorConfig DEFAULTS = EmulatorConfig.getDefault();
+
 	private static final CommandLineParser PARSER = CommandLineParser.builder()
 			.programName("emu")
 			.description("CPU emulator")
@@ -47,6 +59,12 @@ public final class Main {
 			.addBoolean("v", null, "Errors, warnings and info messages are reported.", false)
 			.addBoolean("vv", null, "All messages are reported.", false)
 			.addBoolean("V", "version", "Prints the version of the emulator and exits.", false)
+			.addBoolean(
+					null,
+					"sync-log",
+					"Writes each log message immediately, instead of from a background thread (slower with -v and"
+							+ " -vv).",
+					false)
 			.group("Memory options")
 			.addString(
 					null,
@@ -58,26 +76,26 @@ public final class Main {
 					null,
 					"stack-size",
 					"Number of bytes to allocate for the stack. Accepts only integers, or forms like '1KB', '2MiB',"
-							+ " '3Gb', '4Tib'. Default: " + EmulatorConstants.getStackSize() + " bytes ("
-							+ EmulatorConstants.getStackSize() / 1_048_576L + " MiB).",
+							+ " '3Gb', '4Tib'. Default: " + DEFAULTS.getStackSize() + " bytes ("
+							+ DEFAULTS.getStackSize() / 1_048_576L + " MiB).",
 					UNSET)
 			.addString(
 					null,
 					"base-address",
 					"Memory location where to load the executable file as hexadecimal 64-bits. Default: "
-							+ String.format("0x%x", EmulatorConstants.getBaseAddress()) + ".",
+							+ String.format("0x%x", DEFAULTS.getBaseAddress()) + ".",
 					UNSET)
 			.addString(
 					null,
 					"base-stack-address",
 					"The address of the base of the stack. Default: "
-							+ String.format("0x%x", EmulatorConstants.getBaseStackAddress()) + ".",
+							+ String.format("0x%x", DEFAULTS.getBaseStackAddress()) + ".",
 					UNSET)
 			.addString(
 					null,
 					"base-stack-value",
 					"The value to put at the base of the stack. Default: "
-							+ String.format("0x%x", EmulatorConstants.getBaseStackValue()) + ".",
+							+ String.format("0x%x", DEFAULTS.getBaseStackValue()) + ".",
 					UNSET)
 			.addBoolean(
 					null,
@@ -88,10 +106,74 @@ public final class Main {
 			.addBoolean(null, "no-check-mem-perm", "Disables the above.", false)
 			.addBoolean(null, "check-mem-init", "Breaks when reading uninitialized memory locations (default).", false)
 			.addBoolean(null, "no-check-mem-init", "Disables the above.", false)
+			.group("Loader options")
+			.addString(
+					null,
+					"sysroot",
+					"Directory to be used as the root of the filesystem when looking for the shared libraries needed"
+							+ " by dynamically-linked programs. Default: '" + DEFAULTS.getSysroot() + "'.",
+					UNSET)
 			.group("CPU options")
 			.addBoolean(
 					null, "check-instructions", "Checks that disassembled instructions are correct (default).", false)
 			.addBoolean(null, "no-check-instructions", "Disables the above.", false)
+			.addString(
+					null,
+					"jit-threshold",
+					"Number of executions after which a block of code is compiled to JVM bytecode, 0 to always"
+							+ " interpret. Ignored while tracing or profiling. Default: " + DEFAULTS.getJitThreshold()
+							+ ".",
+					UNSET)
+			.addBoolean(
+					null,
+					"macro-fusion",
+					"Executes common pairs of instructions, like CMP followed by a conditional jump, as single"
+							+ " superinstructions (default).",
+					false)
+			.addBoolean(null, "no-macro-fusion", "Disables the above.", false)
+			.addString(
+					null,
+					"aot-cache",
+					"Directory where the blocks of the executable are translated ahead of time and persisted, so that"
+							+ " later runs of the same executable skip warm-up. Ignored when the JIT is disabled. The"
+							+ " translations are loaded as trusted code: the directory must not be writable by anyone"
+							+ " else.",
+					UNSET)
+			.group("Tracing options")
+			.addString(null, "trace", "Records a binary trace of every executed instruction into the given file.", UNSET)
+			.addString(null, "print-trace", "Prints the given binary trace file and exits.", UNSET)
+			.group("Profiling options")
+			.addBoolean(
+					null,
+					"stats",
+					"Prints the emulator counters (instructions per second, page faults, permission checks, ...)"
+							+ " every second and at the end of the execution.",
+					false)
+			.addString(
+					null,
+					"profile",
+					"Counts executed instructions and writes the hottest opcodes, functions, basic blocks and"
+							+ " instructions into the given file.",
+					UNSET)
+			.addString(
+					null,
+					"profile-stacks",
+					"Counts executed instructions per call stack and writes them into the given file, in the collapsed"
+							+ " format used by flame graph tools.",
+					UNSET)
+			.group("Batch options")
+			.addBoolean(
+					null,
+					"batch",
+					"Runs each FILE as a separate program without arguments, concurrently inside this process, and"
+							+ " prints one line for each of them.",
+					false)
+			.addString(
+					null,
+					"jobs",
+					"Maximum number of programs running at the same time in batch mode. Default: the number of"
+							+ " processors.",
+					UNSET)
 			.addPositional("FILE", "The ELF executable file to emulate.")
 			.build();
 
@@ -115,10 +197,21 @@ public final class Main {
 			return;
 		}
 
+		final String traceToPrint = parsed.get("print-trace").asString();
+		if (!UNSET.equals(traceToPrint)) {
+			printTrace(traceToPrint);
+			System.exit(0);
+			return;
+		}
+
 		applyLoggingLevel(parsed);
-		applyMemoryChecks(parsed);
-		applyMemoryInitializer(parsed.get("mem-init").asString());
-		applyNumericOptions(parsed);
+		MiniLogger.setAsync(!parsed.get("sync-log").asBoolean());
+		final EmulatorConfigBuilder configBuilder = EmulatorConfig.builder();
+		applyMemoryChecks(parsed, configBuilder);
+		applyCpuOptions(parsed, configBuilder);
+		applyMemoryInitializer(parsed.get("mem-init").asString(), configBuilder);
+		applyNumericOptions(parsed, configBuilder);
+		final EmulatorConfig config = configBuilder.build();
 
 		final List<String> positional = parsed.positionalArguments();
 		if (positional.isEmpty()) {
@@ -127,19 +220,64 @@ public final class Main {
 			System.exit(-1);
 			return;
 		}
+		if (parsed.get("batch").asBoolean()) {
+			final String jobs = parsed.get("jobs").asString();
+			final int exitCode = runBatch(
+					config,
+					UNSET.equals(jobs) ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(jobs),
+					positional);
+			MiniLogger.flush();
+			System.exit(exitCode);
+			return;
+		}
 		final String filename = positional.get(0);
 		final String[] innerArgs = positional.subList(1, positional.size()).toArray(new String[0]);
 
 		logger.info("Executing %s", positional.stream().map(s -> "'" + s + "'").collect(Collectors.joining(" ")));
 
+		final String traceFile = parsed.get("trace").asString();
+		final String profileFile = parsed.get("profile").asString();
+		final String stacksFile = parsed.get("profile-stacks").asString();
+		final TraceWriter tracer = UNSET.equals(traceFile) ? null : TraceWriter.toFile(Path.of(traceFile));
+		final Profiler profiler = UNSET.equals(profileFile) && UNSET.equals(stacksFile) ? null : new Profiler();
+		final X86CpuBuilder cpu = X86Cpu.builder();
+		if (tracer != null) {
+			cpu.tracer(tracer);
+		}
+		if (profiler != null) {
+			cpu.profiler(profiler);
+		}
+
+		final PagedMemory ram = new PagedMemory(config.newMemoryInitializer());
+		final ExecutionContext context = Emu.getDefaultExecutionContext(cpu, ram, config);
+		final Metrics metrics = new Metrics((X86Cpu) context.cpu(), (MemoryController) context.memory(), ram);
+		final Thread statsDumper = parsed.get("stats").asBoolean() ? startStatsDumper(metrics) : null;
+
+		final Emu emu = new Emu(context, config);
 		try {
-			final Emu emu = new Emu(Emu.getDefaultExecutionContext());
 			emu.loadRunAndUnload(filename, innerArgs);
 		} catch (final Throwable t) {
 			logger.error(t);
+			if (tracer != null) {
+				tracer.close();
+			}
+			MiniLogger.flush();
 			out.flush();
 			System.exit(-1);
 		}
+		if (statsDumper != null) {
+			statsDumper.interrupt();
+			err.printf(
+					"[stats] %,.0f instructions/s on average, %s%n", metrics.instructionsPerSecond(), metrics.snapshot());
+		}
+		if (tracer != null) {
+			tracer.close();
+			logger.info("Recorded %,d instructions into '%s'", tracer.getRecordCount(), traceFile);
+		}
+		if (profiler != null) {
+			writeProfile(profiler, emu.getSymbolizer(), profileFile, stacksFile);
+		}
+		MiniLogger.flush();
 		out.flush();
 	}
 
@@ -155,59 +293,85 @@ public final class Main {
 		}
 	}
 
-	private static void applyMemoryChecks(final ParsedArguments parsed) {
+	private static void applyMemoryChecks(final ParsedArguments parsed, final EmulatorConfigBuilder config) {
 		// Disabling wins over enabling when both are passed, for the same reason as applyLoggingLevel above.
 		if (parsed.get("check-mem-perm").asBoolean()) {
-			EmulatorConstants.shouldBreakOnWrongPermissions(true);
+			config.breakOnWrongPermissions(true);
 		}
 		if (parsed.get("no-check-mem-perm").asBoolean()) {
-			EmulatorConstants.shouldBreakOnWrongPermissions(false);
+			config.breakOnWrongPermissions(false);
 		}
 		if (parsed.get("check-mem-init").asBoolean()) {
-			EmulatorConstants.shouldBreakWhenReadingUninitializedMemory(true);
+			config.breakWhenReadingUninitializedMemory(true);
 		}
 		if (parsed.get("no-check-mem-init").asBoolean()) {
-			EmulatorConstants.shouldBreakWhenReadingUninitializedMemory(false);
+			config.breakWhenReadingUninitializedMemory(false);
 		}
 		if (parsed.get("check-instructions").asBoolean()) {
-			EmulatorConstants.shouldCheckInstructions(true);
+			config.checkInstructions(true);
 		}
 		if (parsed.get("no-check-instructions").asBoolean()) {
-			EmulatorConstants.shouldCheckInstructions(false);
+			config.checkInstructions(false);
+		}
+	}
+
+	private static void applyCpuOptions(final ParsedArguments parsed, final EmulatorConfigBuilder config) {
+		// Disabling wins over enabling here as well
+		if (parsed.get("macro-fusion").asBoolean()) {
+			config.macroFusion(true);
+		}
+		if (parsed.get("no-macro-fusion").asBoolean()) {
+			config.macroFusion(false);
 		}
 	}
 
 	@SuppressWarnings("PMD.AvoidLiteralsInIfCondition")
-	private static void applyMemoryInitializer(final String memInit) {
+	private static void applyMemoryInitializer(final String memInit, final EmulatorConfigBuilder config) {
 		if ("zero".equals(memInit)) {
-			EmulatorConstants.setMemoryInitializer(MemoryInitializer.zero());
+			config.memoryInitializer(MemoryInitializer::zero);
 		} else if ("random".equals(memInit)) {
-			EmulatorConstants.setMemoryInitializer(MemoryInitializer.random());
+			config.memoryInitializer(MemoryInitializer::random);
 		} else {
-			EmulatorConstants.setMemoryInitializer(MemoryInitializer.of(parseHexByte(memInit)));
+			final byte value = parseHexByte(memInit);
+			config.memoryInitializer(() -> MemoryInitializer.of(value));
 		}
 	}
 
-	private static void applyNumericOptions(final ParsedArguments parsed) {
+	private static void applyNumericOptions(final ParsedArguments parsed, final EmulatorConfigBuilder config) {
 		final String stackSize = parsed.get("stack-size").asString();
 		if (!UNSET.equals(stackSize)) {
-			EmulatorConstants.setStackSize(
+			config.stackSize(
 					stackSize.chars().allMatch(Character::isDigit) ? Long.parseLong(stackSize) : parseBytes(stackSize));
 		}
 
 		final String baseAddress = parsed.get("base-address").asString();
 		if (!UNSET.equals(baseAddress)) {
-			EmulatorConstants.setBaseAddress(parseHexLong(baseAddress));
+			config.baseAddress(parseHexLong(baseAddress));
 		}
 
 		final String baseStackAddress = parsed.get("base-stack-address").asString();
 		if (!UNSET.equals(baseStackAddress)) {
-			EmulatorConstants.setBaseStackAddress(parseHexLong(baseStackAddress));
+			config.baseStackAddress(parseHexLong(baseStackAddress));
 		}
 
 		final String baseStackValue = parsed.get("base-stack-value").asString();
 		if (!UNSET.equals(baseStackValue)) {
-			EmulatorConstants.setBaseStackValue(parseHexLong(baseStackValue));
+			config.baseStackValue(parseHexLong(baseStackValue));
+		}
+
+		final String sysroot = parsed.get("sysroot").asString();
+		if (!UNSET.equals(sysroot)) {
+			config.sysroot(Path.of(sysroot));
+		}
+
+		final String jitThreshold = parsed.get("jit-threshold").asString();
+		if (!UNSET.equals(jitThreshold)) {
+			config.jitThreshold(Integer.parseInt(jitThreshold));
+		}
+
+		final String aotCache = parsed.get("aot-cache").asString();
+		if (!UNSET.equals(aotCache)) {
+			config.translationCacheDirectory(Path.of(aotCache));
 		}
 	}
 
@@ -252,6 +416,81 @@ public final class Main {
 		};
 	}
 
+	private static int runBatch(final EmulatorConfig config, final int jobs, final List<String> filenames) {
+		final List<BatchResult> results;
+		try {
+			results = new BatchRunner(config, jobs, Long.MAX_VALUE)
+					.run(filenames.stream().map(BatchJob::of).toList());
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+		int failures = 0;
+		for (final BatchResult r : results) {
+			out.printf(
+					"%s %s exit=%d instructions=%,d time=%,d ms%s%n",
+					r.isSuccess() ? "OK  " : "FAIL",
+					r.job().filename(),
+					r.exitCode(),
+					r.instructions(),
+					TimeUnit.NANOSECONDS.toMillis(r.elapsedNanos()),
+					r.fault().map(e -> " fault=" + e).orElse(""));
+			if (!r.isSuccess()) {
+				failures++;
+			}
+		}
+		out.printf("%,d programs, %,d failed%n", results.size(), failures);
+		out.flush();
+		return failures == 0 ? 0 : 1;
+	}
+
+	private static Thread startStatsDumper(final Metrics metrics) {
+		final long periodMillis = 1_000L;
+		return Thread.ofPlatform().name("emu-stats").daemon().start(() -> {
+			MetricsSnapshot previous = metrics.snapshot();
+			while (!Thread.currentThread().isInterrupted()) {
+				try {
+					Thread.sleep(periodMillis);
+				} catch (final InterruptedException e) {
+					return;
+				}
+				final MetricsSnapshot current = metrics.snapshot();
+				err.printf(
+						"[stats] %,.0f instructions/s, %s%n", current.instructionsPerSecondSince(previous), current);
+				previous = current;
+			}
+		});
+	}
+
+	private static void writeProfile(
+			final Profiler profiler, final Symbolizer symbolizer, final String profileFile, final String stacksFile) {
+		final int maxEntries = 25;
+		try {
+			if (!UNSET.equals(profileFile)) {
+				Files.writeString(
+						Path.of(profileFile),
+						profiler.getHotSpotReport(symbolizer, maxEntries),
+						StandardCharsets.UTF_8);
+			}
+			if (!UNSET.equals(stacksFile)) {
+				Files.writeString(Path.of(stacksFile), profiler.getCollapsedStacks(symbolizer), StandardCharsets.UTF_8);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void printTrace(final String filename) {
+		final TraceReader reader = TraceReader.fromFile(Path.of(filename));
+		final StringBuilder line = new StringBuilder();
+		while (reader.next()) {
+			line.setLength(0);
+			reader.format(line);
+			out.println(line);
+		}
+		out.flush();
+	}
+
 	private static void printHelp() {
 		out.println(PARSER.helpMessage());
 		out.flush();
@@ -0,0 +1,85 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Timeout;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ledmington.emu.config.EmulatorConfig;
+import com.ledmington.utils.MiniLogger;
+
+/**
+ * Emulates the end-to-end test executables with and without macro-fusion. The JIT compiler is disabled, since compiled
+ * blocks do not go through the interpreter at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Timeout(time = 10)
+public class Fusing {
+
+	static {
+		MiniLogger.setMinimumLevel(MiniLogger.LoggingLevel.ERROR);
+	}
+
+	@Param({"do_nothing.static", "do_nothing.dynamic", "small.x"})
+	public String executable;
+
+	@Param({"true", "false"})
+	public boolean macroFusion;
+
+	private String path;
+	private EmulatorConfig config;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final Path file = Path.of("src", "test", "resources", "generated", executable)
+				.normalize()
+				.toAbsolutePath();
+		if (!Files.isRegularFile(file)) {
+			throw new IllegalStateException(String.format(
+					"File '%s' not found: did you forget to run './gradlew :core:generateEndToEndTestFiles'?", file));
+		}
+		path = file.toString();
+		config = EmulatorConfig.getDefault().toBuilder()
+				.jitThreshold(0)
+				.macroFusion(macroFusion)
+				.build();
+	}
+
+	@Benchmark
+	public void emulate() {
+		new Emu(Emu.getDefaultExecutionContext(config), config).loadRunAndUnload(path);
+	}
+}
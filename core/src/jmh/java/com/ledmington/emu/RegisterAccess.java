@@ -0,0 +1,119 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Timeout;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ledmington.cpu.x86.GeneralPurposeRegister;
+import com.ledmington.cpu.x86.Register16;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.cpu.x86.Register8;
+import com.ledmington.utils.BitUtils;
+import com.ledmington.utils.MiniLogger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Timeout(time = 5)
+public class RegisterAccess {
+
+	static {
+		MiniLogger.setMinimumLevel(MiniLogger.LoggingLevel.ERROR);
+	}
+
+	private static final int MOVES = 1024;
+
+	private final X86RegisterFile rf = new X86RegisterFile();
+	private GeneralPurposeRegister[] sources;
+	private GeneralPurposeRegister[] destinations;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final List<List<GeneralPurposeRegister>> bySize = List.of(
+				List.of(Register8.values()),
+				List.of(Register16.values()),
+				List.of(Register32.values()),
+				List.of(Register64.values()));
+		final Random rng = new Random(42L);
+		sources = new GeneralPurposeRegister[MOVES];
+		destinations = new GeneralPurposeRegister[MOVES];
+		for (int i = 0; i < MOVES; i++) {
+			final List<GeneralPurposeRegister> regs = bySize.get(rng.nextInt(bySize.size()));
+			sources[i] = regs.get(rng.nextInt(regs.size()));
+			destinations[i] = regs.get(rng.nextInt(regs.size()));
+		}
+		for (final Register64 r : Register64.values()) {
+			rf.set(r, rng.nextLong());
+		}
+	}
+
+	private long get(final GeneralPurposeRegister r) {
+		return switch (r) {
+			case Register8 r8 -> BitUtils.asLong(rf.get(r8));
+			case Register16 r16 -> BitUtils.asLong(rf.get(r16));
+			case Register32 r32 -> BitUtils.asLong(rf.get(r32));
+			case Register64 r64 -> rf.get(r64);
+		};
+	}
+
+	private void set(final GeneralPurposeRegister r, final long v) {
+		switch (r) {
+			case Register8 r8 -> rf.set(r8, BitUtils.asByte(v));
+			case Register16 r16 -> rf.set(r16, BitUtils.asShort(v));
+			case Register32 r32 -> rf.set(r32, BitUtils.asInt(v));
+			case Register64 r64 -> rf.set(r64, v);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MOVES)
+	public void enumSwitch(final Blackhole bh) {
+		for (int i = 0; i < MOVES; i++) {
+			set(destinations[i], get(sources[i]));
+		}
+		bh.consume(rf.get(Register64.RAX));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MOVES)
+	public void descriptor(final Blackhole bh) {
+		for (int i = 0; i < MOVES; i++) {
+			rf.set(destinations[i].descriptor(), rf.get(sources[i].descriptor()));
+		}
+		bh.consume(rf.get(Register64.RAX));
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Timeout;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.x86.GeneralInstruction;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+import com.ledmington.utils.MiniLogger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Timeout(time = 5)
+public class Tracing {
+
+	static {
+		MiniLogger.setMinimumLevel(MiniLogger.LoggingLevel.ERROR);
+	}
+
+	private static final long CODE_ADDRESS = 0x1000L;
+	private static final long STACK_TOP = 0x100000L;
+	private static final long STACK_SIZE = 0x1000L;
+	private static final int REPETITIONS = 64;
+	private static final int INSTRUCTIONS = REPETITIONS * 4;
+
+	private X86Cpu untracedCpu;
+	private X86Cpu tracedCpu;
+	private TraceWriter tracer;
+
+	private static X86Cpu newCpu(final TraceWriter tracer) {
+		final Instruction[] block = {
+			new GeneralInstruction(Opcode.PUSH, Register64.RBX),
+			new GeneralInstruction(Opcode.ADD, Register64.RAX, new Immediate((byte) 1)),
+			new GeneralInstruction(Opcode.POP, Register64.RBX),
+			new GeneralInstruction(Opcode.SUB, Register64.RCX, Register64.RAX)
+		};
+		final Instruction[] code = new Instruction[INSTRUCTIONS];
+		for (int i = 0; i < REPETITIONS; i++) {
+			System.arraycopy(block, 0, code, i * block.length, block.length);
+		}
+		final byte[] hex = InstructionEncoder.toHex(false, code);
+
+		final MemoryController mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), false, false);
+		mem.initialize(new MemoryAddress(CODE_ADDRESS), hex);
+		final RegisterFile rf = new X86RegisterFile();
+		rf.set(Register64.RSP, STACK_TOP);
+		final X86CpuBuilder builder =
+				X86Cpu.builder().memory(mem).registerFile(rf).stackTop(STACK_TOP).stackSize(STACK_SIZE);
+		if (tracer != null) {
+			builder.tracer(tracer);
+		}
+		return builder.build();
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		untracedCpu = newCpu(null);
+		tracer = new TraceWriter(Channels.newChannel(OutputStream.nullOutputStream()));
+		tracedCpu = newCpu(tracer);
+	}
+
+	@TearDown(Level.Trial)
+	public void teardown() {
+		tracer.close();
+	}
+
+	private static void run(final X86Cpu cpu) {
+		cpu.setInstructionPointer(CODE_ADDRESS);
+		for (int i = 0; i < INSTRUCTIONS; i++) {
+			cpu.executeOne();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INSTRUCTIONS)
+	public void untraced() {
+		run(untracedCpu);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INSTRUCTIONS)
+	public void traced() {
+		run(tracedCpu);
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A guest program to be run by a {@link BatchRunner}.
+ *
+ * @param filename The path of the ELF executable file.
+ * @param arguments The command-line arguments, excluding the name of the program.
+ */
+public record BatchJob(String filename, List<String> arguments) {
+
+	/**
+	 * Creates a new BatchJob.
+	 *
+	 * @param filename The path of the ELF executable file.
+	 * @param arguments The command-line arguments, excluding the name of the program.
+	 */
+	public BatchJob {
+		Objects.requireNonNull(filename, "Null filename.");
+		arguments = List.copyOf(arguments);
+	}
+
+	/**
+	 * Creates a new BatchJob with the given arguments.
+	 *
+	 * @param filename The path of the ELF executable file.
+	 * @param arguments The command-line arguments, excluding the name of the program.
+	 * @return A new BatchJob.
+	 */
+	public static BatchJob of(final String filename, final String... arguments) {
+		return new BatchJob(filename, List.of(arguments));
+	}
+}
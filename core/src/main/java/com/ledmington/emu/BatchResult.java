@@ -0,0 +1,67 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The outcome of a single {@link BatchJob}.
+ *
+ * @param job The job which was run.
+ * @param reason Why the execution stopped: {@link StopReason#HALTED} if the program exited,
+ *     {@link StopReason#BUDGET_EXHAUSTED} if it ran out of instructions or {@link StopReason#FAULT} if it could not be
+ *     loaded or executed.
+ * @param exitCode The code passed to the exit syscall, meaningful only when the program halted.
+ * @param instructions The number of instructions executed.
+ * @param elapsedNanos The wall-clock time spent loading and running the program, in nanoseconds.
+ * @param fault The exception which stopped the program, if any.
+ */
+public record BatchResult(
+		BatchJob job,
+		StopReason reason,
+		long exitCode,
+		long instructions,
+		long elapsedNanos,
+		Optional<RuntimeException> fault) {
+
+	/**
+	 * Creates a new BatchResult.
+	 *
+	 * @param job The job which was run.
+	 * @param reason Why the execution stopped.
+	 * @param exitCode The code passed to the exit syscall.
+	 * @param instructions The number of instructions executed.
+	 * @param elapsedNanos The wall-clock time spent, in nanoseconds.
+	 * @param fault The exception which stopped the program, if any.
+	 */
+	public BatchResult {
+		Objects.requireNonNull(job, "Null job.");
+		Objects.requireNonNull(reason, "Null reason.");
+		Objects.requireNonNull(fault, "Null fault.");
+	}
+
+	/**
+	 * Checks whether the program exited with code 0.
+	 *
+	 * @return True if the program exited successfully, false otherwise.
+	 */
+	public boolean isSuccess() {
+		return reason == StopReason.HALTED && exitCode == 0L;
+	}
+}
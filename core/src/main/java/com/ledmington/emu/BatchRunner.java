@@ -0,0 +1,179 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import com.ledmington.emu.config.EmulatorConfig;
+import com.ledmington.utils.MiniLogger;
+
+/**
+ * Runs many independent guest programs concurrently inside the same JVM, one virtual thread each, avoiding the startup
+ * cost of one process per program. Each program gets its own memory, CPU and loader, all configured with the same
+ * {@link EmulatorConfig}.
+ */
+public final class BatchRunner {
+
+	private static final MiniLogger logger = MiniLogger.getLogger("batch");
+
+	/**
+	 * How many instructions a program executes before yielding, so that more programs than carrier threads all make
+	 * progress.
+	 */
+	private static final long INSTRUCTIONS_PER_SLICE = 1L << 16;
+
+	private final EmulatorConfig config;
+	private final int maxConcurrentJobs;
+	private final long maxInstructionsPerJob;
+
+	/**
+	 * Creates a new BatchRunner.
+	 *
+	 * @param config The configuration of every emulator.
+	 * @param maxConcurrentJobs The maximum number of programs loaded in memory at the same time.
+	 * @param maxInstructionsPerJob The maximum number of instructions each program can execute before being stopped.
+	 */
+	public BatchRunner(final EmulatorConfig config, final int maxConcurrentJobs, final long maxInstructionsPerJob) {
+		this.config = Objects.requireNonNull(config, "Null config.");
+		if (maxConcurrentJobs < 1) {
+			throw new IllegalArgumentException(
+					String.format("Invalid maximum number of concurrent jobs: %,d.", maxConcurrentJobs));
+		}
+		if (maxInstructionsPerJob < 0L) {
+			throw new IllegalArgumentException(
+					String.format("Invalid maximum number of instructions: %,d.", maxInstructionsPerJob));
+		}
+		this.maxConcurrentJobs = maxConcurrentJobs;
+		this.maxInstructionsPerJob = maxInstructionsPerJob;
+	}
+
+	/**
+	 * Creates a new BatchRunner which runs as many programs at the same time as there are processors, without any limit
+	 * on the number of instructions.
+	 *
+	 * @param config The configuration of every emulator.
+	 */
+	public BatchRunner(final EmulatorConfig config) {
+		this(config, Runtime.getRuntime().availableProcessors(), Long.MAX_VALUE);
+	}
+
+	/**
+	 * Runs all the given jobs and waits for them to complete.
+	 *
+	 * @param jobs The programs to be run.
+	 * @return The results, in the same order as the jobs.
+	 * @throws InterruptedException If the calling thread is interrupted while waiting.
+	 */
+	public List<BatchResult> run(final List<BatchJob> jobs) throws InterruptedException {
+		Objects.requireNonNull(jobs);
+		// Bounds how many emulated memories are alive at the same time
+		final Semaphore permits = new Semaphore(maxConcurrentJobs);
+		final List<Future<BatchResult>> futures = new ArrayList<>(jobs.size());
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (final BatchJob job : jobs) {
+				Objects.requireNonNull(job);
+				futures.add(executor.submit(() -> {
+					permits.acquire();
+					try {
+						return runOne(job);
+					} finally {
+						permits.release();
+					}
+				}));
+			}
+		}
+
+		final List<BatchResult> results = new ArrayList<>(futures.size());
+		for (final Future<BatchResult> f : futures) {
+			try {
+				results.add(f.get());
+			} catch (final ExecutionException e) {
+				// runOne never throws
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Loads, runs and unloads a single job on the calling thread.
+	 *
+	 * @param job The program to be run.
+	 * @return The result.
+	 */
+	@SuppressWarnings("PMD.AvoidCatchingGenericException")
+	public BatchResult runOne(final BatchJob job) {
+		Objects.requireNonNull(job);
+		final long start = System.nanoTime();
+		final ExecutionContext context = Emu.getDefaultExecutionContext(config);
+		final X86Cpu cpu = (X86Cpu) context.cpu();
+		final Emu emu = new Emu(context, config);
+		try {
+			emu.load(job.filename(), job.arguments().toArray(new String[0]));
+		} catch (final RuntimeException e) {
+			logger.warning("Could not load '%s': %s", job.filename(), e);
+			return new BatchResult(job, StopReason.FAULT, 0L, 0L, System.nanoTime() - start, Optional.of(e));
+		}
+
+		cpu.turnOn();
+		long remaining = maxInstructionsPerJob;
+		RuntimeException unloadFault = null;
+		StopReason reason;
+		Optional<RuntimeException> fault;
+		try {
+			do {
+				final long before = cpu.getInstructionsRetired();
+				reason = cpu.execute(Math.min(remaining, INSTRUCTIONS_PER_SLICE));
+				remaining -= cpu.getInstructionsRetired() - before;
+				Thread.yield();
+			} while ((reason == StopReason.BUDGET_EXHAUSTED || reason == StopReason.BREAKPOINT) && remaining > 0L);
+			fault = reason == StopReason.FAULT ? cpu.getLastFault() : Optional.empty();
+		} finally {
+			// Runs the finalizers, just like Emu.loadRunAndUnload does
+			try {
+				emu.unload();
+			} catch (final RuntimeException e) {
+				logger.warning("Could not unload '%s': %s", job.filename(), e);
+				unloadFault = e;
+			}
+		}
+
+		if (unloadFault != null && fault.isEmpty()) {
+			// A failing finalizer is reported like a failing load, unless the program itself already faulted
+			reason = StopReason.FAULT;
+			fault = Optional.of(unloadFault);
+		}
+
+		return new BatchResult(
+				job, reason, cpu.getExitCode(), cpu.getInstructionsRetired(), System.nanoTime() - start, fault);
+	}
+
+	@Override
+	public String toString() {
+		return "BatchRunner(config=" + config + ";maxConcurrentJobs=" + maxConcurrentJobs + ";maxInstructionsPerJob="
+				+ maxInstructionsPerJob + ")";
+	}
+}
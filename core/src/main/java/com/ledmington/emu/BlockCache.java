@@ -0,0 +1,357 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.mem.Memory;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+
+/**
+ * The second execution tier of the CPU. Counts how many times each block is entered and, once a block becomes hot,
+ * compiles it with the {@link BlockCompiler}. Blocks which cannot be compiled are remembered so that no further attempt
+ * is made.
+ *
+ * <p>Compiled blocks are chained: once a block has run, its successor is found through links kept in the block itself
+ * instead of looking up RIP again. Blocks ending with a direct jump or by falling through are linked to their (at most
+ * two) successors the first time each one is reached. Blocks ending with an indirect jump or call keep a small cache of
+ * the last targets reached from them. Calls push the block they return to on a shadow stack, which returns pop and
+ * check against the actual return address, falling back to the cache of the returning block when the guest does not
+ * return where it was called from.
+ *
+ * <p>Each compiled block remembers the version of the memory permissions it was compiled with. When the permissions
+ * or the mappings change, only the blocks overlapping the changed ranges are dropped, and their code is checked for
+ * execute permission again while being recompiled; the others just move to the new version. Links to a dropped block
+ * need not be removed, since every block is checked before being entered. Blocks lying on writable memory also keep a
+ * copy of their code, which is compared with the memory every time they are entered, so that code which modifies
+ * itself is recompiled.
+ *
+ * <p>Instances of this class are not thread-safe: each CPU owns its own.
+ */
+final class BlockCache {
+
+	private static final int RECENT_BLOCKS = 1024;
+	private static final int DIRECT_LINKS = 2;
+	private static final int INDIRECT_TARGETS = 4;
+	private static final int SHADOW_STACK_SIZE = 64;
+
+	/** The maximum number of blocks run in a row, so that the CPU still notices when it is stopped. */
+	private static final int MAX_CHAIN_LENGTH = 256;
+
+	private static final class Block {
+		private final long address;
+		private int executions = 0;
+		private CompiledBlock code = null;
+		private int length = 0;
+		private BlockCompiler.Exit exit = null;
+		private long end = 0L;
+		private Block[] links = null;
+		private int nextLink = 0;
+		private boolean uncompilable = false;
+		private long version = 0L;
+		private byte[] snapshot = null;
+
+		Block(final long address) {
+			this.address = address;
+		}
+
+		void install(final BlockCompiler.Result result, final long version, final byte[] snapshot) {
+			this.version = version;
+			this.snapshot = snapshot;
+			code = result.block();
+			length = result.length();
+			exit = result.exit();
+			end = result.end();
+			links = new Block
+					[exit == BlockCompiler.Exit.INDIRECT_JUMP
+									|| exit == BlockCompiler.Exit.INDIRECT_CALL
+									|| exit == BlockCompiler.Exit.RETURN
+							? INDIRECT_TARGETS
+							: DIRECT_LINKS];
+		}
+
+		/** Forgets the compiled code, which will be compiled again once the block becomes hot. */
+		void uninstall() {
+			code = null;
+			executions = 0;
+			links = null;
+			nextLink = 0;
+			snapshot = null;
+		}
+	}
+
+	private final MemoryController mem;
+	private final int threshold;
+	private final boolean checkInstructions;
+	private final Block[] recent = new Block[RECENT_BLOCKS];
+	private final Map<Long, Block> blocks = new HashMap<>();
+	private final Block[] shadowStack = new Block[SHADOW_STACK_SIZE];
+	private int shadowStackTop = 0;
+	private long compiledBlocks = 0L;
+	private long chainedBlocks = 0L;
+	private long invalidations = 0L;
+	private TranslationCache translations = null;
+	private byte[] scratch = new byte[0];
+
+	/**
+	 * Creates a new BlockCache.
+	 *
+	 * @param mem The memory to read the instructions from.
+	 * @param threshold The number of executions after which a block is compiled.
+	 * @param checkInstructions When enabled, the instructions are checked before being compiled.
+	 */
+	BlockCache(final MemoryController mem, final int threshold, final boolean checkInstructions) {
+		this.mem = Objects.requireNonNull(mem);
+		if (threshold < 1) {
+			throw new IllegalArgumentException(String.format("Invalid JIT threshold: %,d.", threshold));
+		}
+		this.threshold = threshold;
+		this.checkInstructions = checkInstructions;
+	}
+
+	/**
+	 * Returns a new, empty BlockCache with the same parameters, to be used by another thread.
+	 *
+	 * @return A new BlockCache.
+	 */
+	BlockCache forThread() {
+		final BlockCache copy = new BlockCache(mem, threshold, checkInstructions);
+		copy.translations = translations;
+		return copy;
+	}
+
+	/**
+	 * Uses the blocks translated ahead of time in the given cache, which are compiled as soon as they are executed.
+	 *
+	 * @param translations The translation cache.
+	 */
+	void setTranslationCache(final TranslationCache translations) {
+		this.translations = Objects.requireNonNull(translations);
+	}
+
+	private Block lookup(final long address) {
+		final int slot = (int) (address ^ (address >>> 10)) & (RECENT_BLOCKS - 1);
+		final Block cached = recent[slot];
+		if (cached != null && cached.address == address) {
+			return cached;
+		}
+		final Block block = blocks.computeIfAbsent(address, this::newBlock);
+		recent[slot] = block;
+		return block;
+	}
+
+	private Block newBlock(final long address) {
+		final Block block = new Block(address);
+		if (translations != null) {
+			final long version = mem.getPermissionsVersion();
+			final BlockCompiler.Result result = translations.get(address);
+			if (result != null) {
+				install(block, result, version);
+			}
+		}
+		return block;
+	}
+
+	/**
+	 * Installs the given compiled code in the given block, unless it does not lie entirely on executable memory.
+	 *
+	 * @return True if the code was installed, false otherwise.
+	 */
+	private boolean install(final Block block, final BlockCompiler.Result result, final long version) {
+		final MemoryAddress start = new MemoryAddress(block.address);
+		final long length = result.end() - block.address;
+		if (mem.getExecutableBytes(start, length) != length) {
+			return false;
+		}
+		byte[] snapshot = null;
+		if (mem.isAnyWritable(start, length)) {
+			snapshot = new byte[(int) length];
+			mem.fetchCode(start, snapshot, 0, snapshot.length);
+		}
+		block.install(result, version, snapshot);
+		compiledBlocks++;
+		return true;
+	}
+
+	/**
+	 * Checks that the code of the given compiled block still matches the memory, dropping it when the permissions or
+	 * the mappings of its range changed or when its code did.
+	 *
+	 * @return True if the block can be run, false otherwise.
+	 */
+	private boolean isCurrent(final Block block) {
+		final long version = mem.getPermissionsVersion();
+		if (block.version != version) {
+			if (mem.hasChangedSince(block.version, new MemoryAddress(block.address), block.end - block.address)) {
+				block.uninstall();
+				invalidations++;
+				return false;
+			}
+			block.version = version;
+		}
+		final byte[] snapshot = block.snapshot;
+		if (snapshot != null) {
+			if (scratch.length < snapshot.length) {
+				scratch = new byte[snapshot.length];
+			}
+			mem.fetchCode(new MemoryAddress(block.address), scratch, 0, snapshot.length);
+			if (!Arrays.equals(snapshot, 0, snapshot.length, scratch, 0, snapshot.length)) {
+				block.uninstall();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Returns the block starting at the given address, going through the links of the given one first. */
+	private Block successor(final Block from, final long address) {
+		final Block[] links = from.links;
+		for (final Block b : links) {
+			if (b != null && b.address == address) {
+				return b;
+			}
+		}
+		final Block b = lookup(address);
+		links[from.nextLink] = b;
+		from.nextLink = (from.nextLink + 1) % links.length;
+		return b;
+	}
+
+	/** Returns the block where execution continues after the given one has run. */
+	private Block next(final Block from, final long rip) {
+		switch (from.exit) {
+			case CALL, INDIRECT_CALL -> {
+				// Overflowing the shadow stack overwrites the oldest return, which will just miss
+				shadowStack[shadowStackTop] = successor(from, from.end);
+				shadowStackTop = (shadowStackTop + 1) % SHADOW_STACK_SIZE;
+			}
+			case RETURN -> {
+				shadowStackTop = (shadowStackTop + SHADOW_STACK_SIZE - 1) % SHADOW_STACK_SIZE;
+				final Block expected = shadowStack[shadowStackTop];
+				shadowStack[shadowStackTop] = null;
+				if (expected != null && expected.address == rip) {
+					return expected;
+				}
+			}
+			case DIRECT, INDIRECT_JUMP -> {}
+		}
+		return successor(from, rip);
+	}
+
+	/** Returns true if the given block can be run, compiling it if it has just become hot. */
+	private boolean isCompiled(final Block block) {
+		if (block.code != null) {
+			return true;
+		}
+		final long version = mem.getPermissionsVersion();
+		if (block.uncompilable && block.version != version) {
+			// The code may have become executable since the last attempt
+			block.uncompilable = false;
+			block.executions = 0;
+		}
+		if (block.uncompilable || ++block.executions < threshold) {
+			return false;
+		}
+		final BlockCompiler.Result result = BlockCompiler.compile(mem, block.address, checkInstructions);
+		if (result == null || !install(block, result, version)) {
+			block.uncompilable = true;
+			block.version = version;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Runs the compiled block starting at the current RIP, if there is one and it fits in the given budget, followed by
+	 * the compiled blocks chained to it.
+	 *
+	 * @param rf The register file of the CPU.
+	 * @param memory The memory of the CPU.
+	 * @param stackBottom The lowest address of the stack.
+	 * @param stackTop The highest address of the stack.
+	 * @param budget The maximum number of instructions which can be executed.
+	 * @param retired The counter of retired instructions, updated after each block so that it is right even on faults.
+	 * @return The number of instructions executed, or 0 if the interpreter must execute the next instruction.
+	 */
+	long run(
+			final X86RegisterFile rf,
+			final Memory memory,
+			final long stackBottom,
+			final long stackTop,
+			final long budget,
+			final LongAdder retired) {
+		Block block = lookup(rf.get(Register64.RIP));
+		if (!isCompiled(block)) {
+			return 0L;
+		}
+		long executed = 0L;
+		for (int i = 0; i < MAX_CHAIN_LENGTH; i++) {
+			// Blocks which are not compiled yet are counted when the CPU comes back here, not while chaining
+			if (block.code == null || block.length > budget - executed || !isCurrent(block)) {
+				break;
+			}
+			block.code.run(rf, memory, stackBottom, stackTop);
+			retired.add(block.length);
+			executed += block.length;
+			if (i > 0) {
+				chainedBlocks++;
+			}
+			block = next(block, rf.get(Register64.RIP));
+		}
+		return executed;
+	}
+
+	/**
+	 * Returns the number of blocks compiled so far.
+	 *
+	 * @return The number of compiled blocks.
+	 */
+	long getCompiledBlocks() {
+		return compiledBlocks;
+	}
+
+	/**
+	 * Returns the number of blocks entered directly from the previous one, without going back to the CPU.
+	 *
+	 * @return The number of chained blocks.
+	 */
+	long getChainedBlocks() {
+		return chainedBlocks;
+	}
+
+	/**
+	 * Returns the number of compiled blocks dropped because the permissions or the mappings of their memory changed.
+	 *
+	 * @return The number of invalidations.
+	 */
+	long getInvalidations() {
+		return invalidations;
+	}
+
+	@Override
+	public String toString() {
+		return "BlockCache(threshold=" + threshold + ";blocks=" + blocks.size() + ";compiledBlocks=" + compiledBlocks
+				+ ";chainedBlocks=" + chainedBlocks + ";invalidations=" + invalidations + ")";
+	}
+}
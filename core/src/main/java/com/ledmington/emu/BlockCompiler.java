@@ -0,0 +1,1230 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static java.lang.constant.ConstantDescs.CD_Object;
+import static java.lang.constant.ConstantDescs.CD_boolean;
+import static java.lang.constant.ConstantDescs.CD_byte;
+import static java.lang.constant.ConstantDescs.CD_int;
+import static java.lang.constant.ConstantDescs.CD_long;
+import static java.lang.constant.ConstantDescs.CD_short;
+import static java.lang.constant.ConstantDescs.CD_void;
+import static java.lang.constant.ConstantDescs.INIT_NAME;
+import static java.lang.constant.ConstantDescs.MTD_void;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.Label;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import com.ledmington.cpu.InstructionChecker;
+import com.ledmington.cpu.InstructionDecoder;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.IndirectOperand;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.Operand;
+import com.ledmington.cpu.x86.PointerSize;
+import com.ledmington.cpu.x86.Register;
+import com.ledmington.cpu.x86.Register16;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.cpu.x86.Register8;
+import com.ledmington.cpu.x86.SegmentRegister;
+import com.ledmington.mem.Memory;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.utils.MiniLogger;
+import com.ledmington.utils.ReadOnlyByteBuffer;
+import com.ledmington.utils.SuppressFBWarnings;
+
+/**
+ * Translates a guest basic block into a hidden class implementing {@link CompiledBlock}, using the ClassFile API.
+ *
+ * <p>The guest registers touched by the block live in JVM locals for the whole block: they are loaded from the
+ * {@link X86RegisterFile} on entry and spilled back on exit. An exception handler covering the whole block spills them
+ * as well, so that a faulting instruction leaves the registers exactly as the interpreter would. Translation stops at
+ * the first control-flow instruction or at the first instruction this compiler does not support, which is then
+ * executed by the interpreter.
+ *
+ * <p>A compiled block does not check whether its own code is still valid: the {@link BlockCache} does, before entering
+ * it. A block is dropped when the permissions or the mappings of its range have changed since it was compiled (see
+ * {@link com.ledmington.mem.MemoryController#hasChangedSince(long, com.ledmington.mem.MemoryAddress, long)}) and, if
+ * it lies on writable memory, when its code no longer matches the snapshot taken while compiling it.
+ */
+@SuppressWarnings({"PMD.CouplingBetweenObjects", "PMD.TooManyMethods", "PMD.CyclomaticComplexity"})
+final class BlockCompiler {
+
+	/** The maximum number of instructions inside a single block. */
+	static final int MAX_BLOCK_LENGTH = 64;
+
+	private static final MiniLogger logger = MiniLogger.getLogger("jit");
+
+	private static final ClassDesc CD_BLOCK = ClassDesc.of(CompiledBlock.class.getName());
+	private static final ClassDesc CD_REGISTERS = ClassDesc.of(X86RegisterFile.class.getName());
+	private static final ClassDesc CD_RUNTIME = ClassDesc.of(JitRuntime.class.getName());
+	private static final ClassDesc CD_MEMORY = ClassDesc.of(Memory.class.getName());
+	private static final MethodTypeDesc MTD_RUN =
+			MethodTypeDesc.of(CD_void, CD_REGISTERS, CD_MEMORY, CD_long, CD_long);
+
+	private static final Map<Opcode, Integer> CONDITION_CODES = Map.ofEntries(
+			Map.entry(Opcode.JO, 0),
+			Map.entry(Opcode.JNO, 1),
+			Map.entry(Opcode.JB, 2),
+			Map.entry(Opcode.JAE, 3),
+			Map.entry(Opcode.JE, 4),
+			Map.entry(Opcode.JNE, 5),
+			Map.entry(Opcode.JBE, 6),
+			Map.entry(Opcode.JA, 7),
+			Map.entry(Opcode.JS, 8),
+			Map.entry(Opcode.JNS, 9),
+			Map.entry(Opcode.JP, 10),
+			Map.entry(Opcode.JNP, 11),
+			Map.entry(Opcode.JL, 12),
+			Map.entry(Opcode.JGE, 13),
+			Map.entry(Opcode.JLE, 14),
+			Map.entry(Opcode.JG, 15));
+	private static final int CC_NE = 5;
+
+	// Local variable slots of the generated run method
+	private static final int RF = 1;
+	private static final int MEM = 2;
+	private static final int STACK_BOTTOM = 3;
+	private static final int STACK_TOP = 5;
+	private static final int FIRST_GPR = 7;
+	private static final int FLAGS = FIRST_GPR + 2 * 16;
+	private static final int RIP = FLAGS + 2;
+	private static final int TMP = RIP + 2;
+	private static final int EXCEPTION = TMP + 2;
+
+	private static final long LOW_32_BITS = 0xffffffffL;
+	private static final int RSP = 4;
+	private static final int RBP = 5;
+	private static final int RCX = 2;
+
+	/** How execution leaves a compiled block. */
+	enum Exit {
+		/** By falling through or through a direct jump: the next address is one of at most two fixed ones. */
+		DIRECT,
+		/** Through a call to a fixed address. */
+		CALL,
+		/** Through a call to an address computed at run time. */
+		INDIRECT_CALL,
+		/** Through a jump to an address computed at run time. */
+		INDIRECT_JUMP,
+		/** Through a return. */
+		RETURN
+	}
+
+	/**
+	 * The result of a compilation.
+	 *
+	 * @param block The compiled block.
+	 * @param length The number of guest instructions inside the block.
+	 * @param exit How execution leaves the block.
+	 * @param end The address right after the last instruction of the block, which is the return address of a call.
+	 */
+	record Result(CompiledBlock block, int length, Exit exit, long end) {}
+
+	/**
+	 * A block translated into a class file which has not been loaded yet.
+	 *
+	 * @param bytes The class file.
+	 * @param length The number of guest instructions inside the block.
+	 * @param exit How execution leaves the block.
+	 * @param end The address right after the last instruction of the block.
+	 * @param successors The addresses where execution may continue after the block, when they are statically known.
+	 */
+	@SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "Translations are never modified after being created.")
+	@SuppressFBWarnings(
+			value = "EI_EXPOSE_REP2",
+			justification = "Translations are never modified after being created.")
+	record Translation(byte[] bytes, int length, Exit exit, long end, long[] successors) {}
+
+	private final long start;
+	private final List<Consumer<CodeBuilder>> steps = new ArrayList<>();
+	private int usedRegisters = 0;
+	private int writtenRegisters = 0;
+	private boolean usesFlags = false;
+	private boolean writesFlags = false;
+
+	private BlockCompiler(final long start) {
+		this.start = start;
+	}
+
+	/** Decodes the instructions directly from memory, without touching the registers of the CPU. */
+	private static final class CodeReader implements ReadOnlyByteBuffer {
+
+		private final MemoryController mem;
+		private long position;
+
+		CodeReader(final MemoryController mem, final long position) {
+			this.mem = mem;
+			this.position = position;
+		}
+
+		@Override
+		public boolean isLittleEndian() {
+			return false;
+		}
+
+		@Override
+		public void setEndianness(final boolean isLittleEndian) {
+			throw new UnsupportedOperationException("CodeReader does not allow to change the endianness");
+		}
+
+		@Override
+		public long getAlignment() {
+			return 1L;
+		}
+
+		@Override
+		public void setAlignment(final long newAlignment) {
+			throw new UnsupportedOperationException("CodeReader does not allow to change the byte alignment");
+		}
+
+		@Override
+		public void setPosition(final long newPosition) {
+			this.position = newPosition;
+		}
+
+		@Override
+		public long getPosition() {
+			return position;
+		}
+
+		@Override
+		public byte read() {
+			return mem.readCode(new MemoryAddress(position));
+		}
+
+		@Override
+		public String toString() {
+			return "CodeReader(position=" + position + ')';
+		}
+	}
+
+	/**
+	 * Compiles the block starting at the given address.
+	 *
+	 * @param mem The memory to read the instructions from.
+	 * @param address The address of the first instruction.
+	 * @param checkInstructions When enabled, the instructions are checked before being compiled.
+	 * @return The compiled block, or null if not even its first instruction can be compiled.
+	 */
+	static Result compile(final MemoryController mem, final long address, final boolean checkInstructions) {
+		final Translation t = translate(mem, address, checkInstructions);
+		return t == null ? null : define(address, t);
+	}
+
+	/**
+	 * Translates the block starting at the given address into a class file, without loading it.
+	 *
+	 * @param mem The memory to read the instructions from.
+	 * @param address The address of the first instruction.
+	 * @param checkInstructions When enabled, the instructions are checked before being translated.
+	 * @return The translated block, or null if not even its first instruction can be translated.
+	 */
+	@SuppressWarnings("PMD.AvoidCatchingGenericException")
+	static Translation translate(final MemoryController mem, final long address, final boolean checkInstructions) {
+		Objects.requireNonNull(mem);
+		final BlockCompiler compiler = new BlockCompiler(address);
+		final CodeReader reader = new CodeReader(mem, address);
+		final List<Long> successors = new ArrayList<>();
+		Instruction last = null;
+		long end = address;
+		while (compiler.steps.size() < MAX_BLOCK_LENGTH) {
+			final Instruction inst;
+			try {
+				inst = InstructionDecoder.fromHex(reader);
+				if (checkInstructions) {
+					InstructionChecker.check(inst);
+				}
+			} catch (final RuntimeException e) {
+				// Let the interpreter raise the error, if this instruction is ever reached
+				break;
+			}
+			if (!compiler.add(inst, reader.getPosition())) {
+				if (!endsExecution(inst.opcode())) {
+					// The interpreter executes this one and then continues right after it
+					successors.add(reader.getPosition());
+				}
+				break;
+			}
+			last = inst;
+			end = reader.getPosition();
+			if (isTerminator(inst.opcode())) {
+				if (inst.hasFirstOperand() && inst.firstOperand() instanceof final Immediate imm) {
+					successors.add(end + signExtend(imm));
+				}
+				break;
+			}
+		}
+		if (last == null) {
+			return null;
+		}
+		if (last.opcode() != Opcode.JMP && last.opcode() != Opcode.RET) {
+			successors.add(end);
+		}
+		try {
+			return new Translation(
+					compiler.generate(),
+					compiler.steps.size(),
+					exit(last),
+					end,
+					successors.stream().mapToLong(Long::longValue).toArray());
+		} catch (final RuntimeException e) {
+			logger.warning("Could not translate block at 0x%016x: %s", address, e);
+			return null;
+		}
+	}
+
+	private static Exit exit(final Instruction last) {
+		final boolean direct = last.hasFirstOperand() && last.firstOperand() instanceof Immediate;
+		return switch (last.opcode()) {
+			case CALL -> direct ? Exit.CALL : Exit.INDIRECT_CALL;
+			case JMP -> direct ? Exit.DIRECT : Exit.INDIRECT_JUMP;
+			case RET -> Exit.RETURN;
+			default -> Exit.DIRECT;
+		};
+	}
+
+	/**
+	 * Loads a block translated by {@link #translate(MemoryController, long, boolean)}.
+	 *
+	 * @param address The address of the first instruction.
+	 * @param t The translated block. Its successors are not needed.
+	 * @return The compiled block, or null if it could not be loaded.
+	 */
+	@SuppressWarnings("PMD.AvoidCatchingGenericException")
+	static Result define(final long address, final Translation t) {
+		try {
+			final Class<?> cls = MethodHandles.lookup().defineHiddenClass(t.bytes(), true).lookupClass();
+			logger.debug("Compiled %,d instruction(s) at 0x%016x", t.length(), address);
+			return new Result(
+					(CompiledBlock) cls.getDeclaredConstructor().newInstance(), t.length(), t.exit(), t.end());
+		} catch (final ReflectiveOperationException | RuntimeException | LinkageError e) {
+			logger.warning("Could not compile block at 0x%016x: %s", address, e);
+			return null;
+		}
+	}
+
+	private static boolean endsExecution(final Opcode opcode) {
+		return opcode == Opcode.JMP || opcode == Opcode.RET || opcode == Opcode.HLT || opcode == Opcode.UD2;
+	}
+
+	private static boolean isTerminator(final Opcode opcode) {
+		return opcode == Opcode.JMP
+				|| opcode == Opcode.CALL
+				|| opcode == Opcode.RET
+				|| CONDITION_CODES.containsKey(opcode);
+	}
+
+	private byte[] generate() {
+		final ClassDesc name = ClassDesc.of(BlockCompiler.class.getPackageName(), String.format("Block_%016x", start));
+		return ClassFile.of().build(name, clb -> {
+			clb.withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC);
+			clb.withInterfaceSymbols(CD_BLOCK);
+			clb.withMethodBody(INIT_NAME, MTD_void, ClassFile.ACC_PUBLIC, cb -> {
+				cb.aload(0);
+				cb.invokespecial(CD_Object, INIT_NAME, MTD_void);
+				cb.return_();
+			});
+			clb.withMethodBody("run", MTD_RUN, ClassFile.ACC_PUBLIC, this::generateRun);
+		});
+	}
+
+	private void generateRun(final CodeBuilder cb) {
+		for (int i = 0; i < 16; i++) {
+			if ((usedRegisters & (1 << i)) != 0) {
+				cb.aload(RF);
+				cb.loadConstant(i);
+				cb.invokevirtual(CD_REGISTERS, "getGpr", MethodTypeDesc.of(CD_long, CD_int));
+				cb.lstore(FIRST_GPR + 2 * i);
+			}
+		}
+		if (usesFlags) {
+			cb.aload(RF);
+			cb.invokevirtual(CD_REGISTERS, "getRFlags", MethodTypeDesc.of(CD_long));
+			cb.lstore(FLAGS);
+		}
+		cb.loadConstant(start);
+		cb.lstore(RIP);
+
+		final Label tryStart = cb.newLabel();
+		final Label tryEnd = cb.newLabel();
+		final Label handler = cb.newLabel();
+		cb.labelBinding(tryStart);
+		for (final Consumer<CodeBuilder> step : steps) {
+			step.accept(cb);
+		}
+		cb.labelBinding(tryEnd);
+		spill(cb);
+		cb.return_();
+
+		cb.labelBinding(handler);
+		cb.astore(EXCEPTION);
+		spill(cb);
+		cb.aload(EXCEPTION);
+		cb.athrow();
+		cb.exceptionCatchAll(tryStart, tryEnd, handler);
+	}
+
+	private void spill(final CodeBuilder cb) {
+		for (int i = 0; i < 16; i++) {
+			if ((writtenRegisters & (1 << i)) != 0) {
+				cb.aload(RF);
+				cb.loadConstant(i);
+				cb.lload(FIRST_GPR + 2 * i);
+				cb.invokevirtual(CD_REGISTERS, "setGpr", MethodTypeDesc.of(CD_void, CD_int, CD_long));
+			}
+		}
+		if (writesFlags) {
+			cb.aload(RF);
+			cb.lload(FLAGS);
+			cb.invokevirtual(CD_REGISTERS, "setRFlags", MethodTypeDesc.of(CD_void, CD_long));
+		}
+		cb.aload(RF);
+		cb.lload(RIP);
+		cb.invokevirtual(CD_REGISTERS, "setRip", MethodTypeDesc.of(CD_void, CD_long));
+	}
+
+	private static void invokeRuntime(final CodeBuilder cb, final String name, final MethodTypeDesc type) {
+		cb.invokestatic(CD_RUNTIME, name, type);
+	}
+
+	private static int slot(final int gpr) {
+		return FIRST_GPR + 2 * gpr;
+	}
+
+	/** Returns the index of the given 64-bit register inside the register file, or -1 for RIP. */
+	private static int index(final Register64 r) {
+		return switch (r) {
+			case RAX -> 0;
+			case RBX -> 1;
+			case RCX -> 2;
+			case RDX -> 3;
+			case RSP -> 4;
+			case RBP -> 5;
+			case RSI -> 6;
+			case RDI -> 7;
+			case RIP -> -1;
+			default -> 8 + r.ordinal() - Register64.R8.ordinal();
+		};
+	}
+
+	/** Returns the index of the given 32-bit register inside the register file, or -1 for EIP. */
+	private static int index(final Register32 r) {
+		return switch (r) {
+			case EAX -> 0;
+			case EBX -> 1;
+			case ECX -> 2;
+			case EDX -> 3;
+			case ESP -> 4;
+			case EBP -> 5;
+			case ESI -> 6;
+			case EDI -> 7;
+			case EIP -> -1;
+			default -> 8 + r.ordinal() - Register32.R8D.ordinal();
+		};
+	}
+
+	/** Returns the index of the given 16-bit register inside the register file. */
+	private static int index(final Register16 r) {
+		return switch (r) {
+			case AX -> 0;
+			case BX -> 1;
+			case CX -> 2;
+			case DX -> 3;
+			case SP -> 4;
+			case BP -> 5;
+			case SI -> 6;
+			case DI -> 7;
+			default -> 8 + r.ordinal() - Register16.R8W.ordinal();
+		};
+	}
+
+	private int read(final int gpr) {
+		usedRegisters |= 1 << gpr;
+		return slot(gpr);
+	}
+
+	private int write(final int gpr) {
+		usedRegisters |= 1 << gpr;
+		writtenRegisters |= 1 << gpr;
+		return slot(gpr);
+	}
+
+	private void readFlags() {
+		usesFlags = true;
+	}
+
+	private void writeFlags() {
+		usesFlags = true;
+		writesFlags = true;
+	}
+
+	/**
+	 * Adds the given instruction to the block.
+	 *
+	 * @param inst The instruction.
+	 * @param next The address of the instruction right after this one.
+	 * @return False if the instruction cannot be compiled, in which case the block is left untouched.
+	 */
+	private boolean add(final Instruction inst, final long next) {
+		if (inst.hasPrefix()) {
+			// LOCK and REP need the interpreter
+			return false;
+		}
+		final int usedBefore = usedRegisters;
+		final int writtenBefore = writtenRegisters;
+		final boolean usesFlagsBefore = usesFlags;
+		final boolean writesFlagsBefore = writesFlags;
+		final Consumer<CodeBuilder> body = translate(inst, next);
+		if (body == null) {
+			usedRegisters = usedBefore;
+			writtenRegisters = writtenBefore;
+			usesFlags = usesFlagsBefore;
+			writesFlags = writesFlagsBefore;
+			return false;
+		}
+		steps.add(cb -> {
+			// A fault leaves RIP after the faulting instruction, like in the interpreter
+			cb.loadConstant(next);
+			cb.lstore(RIP);
+			body.accept(cb);
+		});
+		return true;
+	}
+
+	@SuppressWarnings("PMD.NcssCount")
+	private Consumer<CodeBuilder> translate(final Instruction inst, final long next) {
+		final Operand op1 = inst.hasFirstOperand() ? inst.firstOperand() : null;
+		final Operand op2 = inst.hasSecondOperand() ? inst.secondOperand() : null;
+		return switch (inst.opcode()) {
+			case NOP, ENDBR64 -> _ -> {};
+			case MOV -> translateMov(op1, op2, next);
+			case MOVABS ->
+				op1 instanceof final Register64 r && op2 instanceof final Immediate imm && imm.bits() == 64
+						? storeLong(r, constant(imm.asLong()))
+						: null;
+			case MOVSXD -> op1 instanceof final Register64 r ? storeLong(r, longValue(op2, next)) : null;
+			case MOVZX -> op1 instanceof final Register32 r ? storeInt(r, intValueZX(op2, next)) : null;
+			case LEA -> translateLea(op1, op2, next);
+			case ADD -> translateArithmetic(op1, op2, true);
+			case SUB -> translateArithmetic(op1, op2, false);
+			case AND -> translateLogic(op1, op2, false, true);
+			case XOR -> translateLogic(op1, op2, true, true);
+			case TEST -> translateLogic(op1, op2, false, false);
+			case CMP -> translateCmp(op1, op2, next);
+			case SHR, SAR, SHL -> translateShift(inst.opcode(), op1, op2);
+			case PUSH -> translatePush(op1);
+			case POP -> op1 instanceof final Register64 r && index(r) >= 0 ? pop(write(index(r))) : null;
+			case LEAVE -> {
+				final int rsp = write(RSP);
+				final int rbp = write(RBP);
+				final Consumer<CodeBuilder> pop = pop(rbp);
+				yield cb -> {
+					cb.lload(rbp);
+					cb.lstore(rsp);
+					pop.accept(cb);
+				};
+			}
+			case CMOVNE -> translateCmovne(op1, op2);
+			case XCHG -> translateXchg(op1, op2);
+			case JMP -> op1 instanceof final Immediate imm ? jumpTo(next + signExtend(imm)) : jumpTo(op1, next);
+			case CALL -> translateCall(op1, next);
+			case RET -> op1 == null ? pop(RIP) : null;
+			default -> translateConditionalJump(inst.opcode(), op1, next);
+		};
+	}
+
+	private Consumer<CodeBuilder> translateMov(final Operand op1, final Operand op2, final long next) {
+		if (op1 instanceof final Register64 r) {
+			return storeLong(r, longValue(op2, next));
+		}
+		if (op1 instanceof final Register32 r1) {
+			return switch (op2) {
+				case Register32 r2 -> storeInt(r1, intValue(r2));
+				case Immediate imm when imm.bits() == 32 -> storeInt(r1, cb -> cb.loadConstant(imm.asInt()));
+				case IndirectOperand io -> storeInt(r1, readMemory(io, next, 4));
+				default -> null;
+			};
+		}
+		if (op1 instanceof final IndirectOperand io) {
+			final Consumer<CodeBuilder> address = address(io, next);
+			final Consumer<CodeBuilder> value;
+			final String writer;
+			final ClassDesc type;
+			switch (op2) {
+				case Register64 r when index(r) >= 0 -> {
+					value = load(r);
+					writer = "write8";
+					type = CD_long;
+				}
+				case Register32 r when index(r) >= 0 -> {
+					value = intValue(r);
+					writer = "write4";
+					type = CD_int;
+				}
+				case Register16 r -> {
+					final int slot = read(index(r));
+					value = cb -> {
+						cb.lload(slot);
+						cb.l2i();
+						cb.i2s();
+					};
+					writer = "write2";
+					type = CD_short;
+				}
+				case Immediate imm when imm.bits() == 32 -> {
+					value = cb -> cb.loadConstant(imm.asInt());
+					writer = "write4";
+					type = CD_int;
+				}
+				default -> {
+					return null;
+				}
+			}
+			if (address == null || value == null) {
+				return null;
+			}
+			return cb -> {
+				cb.aload(MEM);
+				address.accept(cb);
+				value.accept(cb);
+				invokeRuntime(cb, writer, MethodTypeDesc.of(CD_void, CD_MEMORY, CD_long, type));
+			};
+		}
+		return null;
+	}
+
+	private Consumer<CodeBuilder> translateLea(final Operand op1, final Operand op2, final long next) {
+		if (!(op2 instanceof final IndirectOperand io)) {
+			return null;
+		}
+		final Consumer<CodeBuilder> address = address(io, next);
+		if (address == null) {
+			return null;
+		}
+		return switch (op1) {
+			case Register64 r -> storeLong(r, address);
+			case Register32 r ->
+				storeInt(r, cb -> {
+					address.accept(cb);
+					cb.l2i();
+				});
+			default -> null;
+		};
+	}
+
+	private Consumer<CodeBuilder> translateArithmetic(final Operand op1, final Operand op2, final boolean isAdd) {
+		final String flagsHelper = isAdd ? "addFlags" : "subFlags";
+		if (op1 instanceof final Register64 r1 && index(r1) >= 0) {
+			if (op2 instanceof final Register64 r2 && index(r2) >= 0) {
+				final int s1 = write(index(r1));
+				final int s2 = read(index(r2));
+				writeFlags();
+				return cb -> {
+					cb.lload(FLAGS);
+					cb.lload(s1);
+					cb.lload(s2);
+					invokeRuntime(cb, flagsHelper, MethodTypeDesc.of(CD_long, CD_long, CD_long, CD_long));
+					cb.lstore(FLAGS);
+					cb.lload(s1);
+					cb.lload(s2);
+					if (isAdd) {
+						cb.ladd();
+					} else {
+						cb.lsub();
+					}
+					cb.lstore(s1);
+				};
+			}
+			if (op2 instanceof final Immediate imm && (imm.bits() == 8 || imm.bits() == 32)) {
+				// Immediate forms only update ZF, PF and SF, like in the interpreter
+				final long value = signExtend(imm);
+				final int s1 = write(index(r1));
+				writeFlags();
+				return cb -> {
+					cb.lload(s1);
+					cb.loadConstant(value);
+					if (isAdd) {
+						cb.ladd();
+					} else {
+						cb.lsub();
+					}
+					cb.dup2();
+					cb.lstore(s1);
+					logicFlags(cb);
+				};
+			}
+			return null;
+		}
+		if (op1 instanceof final Register32 r1 && index(r1) >= 0) {
+			if (op2 instanceof final Register32 r2 && index(r2) >= 0) {
+				final Consumer<CodeBuilder> a = intValue(r1);
+				final Consumer<CodeBuilder> b = intValue(r2);
+				writeFlags();
+				return storeInt(r1, cb -> {
+					cb.lload(FLAGS);
+					a.accept(cb);
+					b.accept(cb);
+					invokeRuntime(cb, flagsHelper, MethodTypeDesc.of(CD_long, CD_long, CD_int, CD_int));
+					cb.lstore(FLAGS);
+					a.accept(cb);
+					b.accept(cb);
+					if (isAdd) {
+						cb.iadd();
+					} else {
+						cb.isub();
+					}
+				});
+			}
+			if (isAdd && op2 instanceof final Immediate imm && (imm.bits() == 8 || imm.bits() == 32)) {
+				final int value = (int) signExtend(imm);
+				final Consumer<CodeBuilder> a = intValue(r1);
+				writeFlags();
+				return storeInt(r1, cb -> {
+					a.accept(cb);
+					cb.loadConstant(value);
+					cb.iadd();
+					cb.dup();
+					cb.i2l();
+					logicFlags(cb);
+				});
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Translates AND, XOR and TEST. Only AND has immediate forms in the interpreter; TEST does not store its result.
+	 */
+	private Consumer<CodeBuilder> translateLogic(
+			final Operand op1, final Operand op2, final boolean isXor, final boolean store) {
+		final boolean immediate = store
+				&& !isXor
+				&& op2 instanceof final Immediate imm
+				&& (imm.bits() == 8 || imm.bits() == 32);
+		if (op1 instanceof final Register64 r1
+				&& index(r1) >= 0
+				&& (immediate || op2 instanceof final Register64 r2 && index(r2) >= 0)) {
+			final Consumer<CodeBuilder> a = load(r1);
+			final Consumer<CodeBuilder> b = immediate ? constant(signExtend((Immediate) op2)) : load((Register64) op2);
+			writeFlags();
+			final Consumer<CodeBuilder> result = cb -> {
+				a.accept(cb);
+				b.accept(cb);
+				if (isXor) {
+					cb.lxor();
+				} else {
+					cb.land();
+				}
+				if (store) {
+					cb.dup2();
+				}
+				logicFlags(cb);
+			};
+			return store ? storeLong(r1, result) : result;
+		}
+		if (op1 instanceof final Register32 r1
+				&& index(r1) >= 0
+				&& (immediate || op2 instanceof final Register32 r2 && index(r2) >= 0)) {
+			final Consumer<CodeBuilder> a = intValue(r1);
+			final Consumer<CodeBuilder> b =
+					immediate ? constant((int) signExtend((Immediate) op2)) : intValue((Register32) op2);
+			writeFlags();
+			final Consumer<CodeBuilder> result = cb -> {
+				a.accept(cb);
+				b.accept(cb);
+				if (isXor) {
+					cb.ixor();
+				} else {
+					cb.iand();
+				}
+				if (store) {
+					cb.dup();
+				}
+				cb.i2l();
+				logicFlags(cb);
+			};
+			return store ? storeInt(r1, result) : result;
+		}
+		return null;
+	}
+
+	private Consumer<CodeBuilder> translateCmp(final Operand op1, final Operand op2, final long next) {
+		final Consumer<CodeBuilder> a = longValue(op1, next);
+		final Consumer<CodeBuilder> b = longValue(op2, next);
+		if (a == null || b == null) {
+			return null;
+		}
+		writeFlags();
+		return cb -> {
+			cb.lload(FLAGS);
+			a.accept(cb);
+			b.accept(cb);
+			invokeRuntime(cb, "subFlags", MethodTypeDesc.of(CD_long, CD_long, CD_long, CD_long));
+			cb.lstore(FLAGS);
+		};
+	}
+
+	private Consumer<CodeBuilder> translateShift(final Opcode opcode, final Operand op1, final Operand op2) {
+		if (opcode == Opcode.SHL) {
+			if (!(op1 instanceof final Register64 r && index(r) >= 0 && op2 == Register8.CL)) {
+				return null;
+			}
+			final int rcx = read(RCX);
+			writeFlags();
+			final int s = write(index(r));
+			return cb -> {
+				cb.lload(s);
+				cb.lload(rcx);
+				cb.l2i();
+				cb.lshl();
+				cb.dup2();
+				cb.lstore(s);
+				logicFlags(cb);
+			};
+		}
+		if (!(op2 instanceof final Immediate imm && (imm.bits() == 8 || imm.bits() == 32))) {
+			return null;
+		}
+		final int count = (int) signExtend(imm);
+		if (op1 instanceof final Register64 r && index(r) >= 0) {
+			final int s = write(index(r));
+			writeFlags();
+			return cb -> {
+				cb.lload(s);
+				cb.loadConstant(count);
+				if (opcode == Opcode.SHR) {
+					cb.lushr();
+				} else {
+					cb.lshr();
+				}
+				cb.dup2();
+				cb.lstore(s);
+				logicFlags(cb);
+			};
+		}
+		if (opcode == Opcode.SHR && op1 instanceof final Register32 r && index(r) >= 0) {
+			final Consumer<CodeBuilder> x = intValue(r);
+			writeFlags();
+			return storeInt(r, cb -> {
+				x.accept(cb);
+				cb.loadConstant(count);
+				cb.iushr();
+				cb.dup();
+				cb.i2l();
+				logicFlags(cb);
+			});
+		}
+		return null;
+	}
+
+	private Consumer<CodeBuilder> translatePush(final Operand op) {
+		final Consumer<CodeBuilder> value =
+				switch (op) {
+					case Register64 r when index(r) >= 0 -> load(r);
+					case Immediate imm -> constant(signExtend(imm));
+					default -> null;
+				};
+		return value == null ? null : push(value);
+	}
+
+	private Consumer<CodeBuilder> translateCall(final Operand op, final long next) {
+		if (op instanceof final Immediate imm) {
+			final Consumer<CodeBuilder> push = push(constant(next));
+			final Consumer<CodeBuilder> jump = jumpTo(next + signExtend(imm));
+			return cb -> {
+				push.accept(cb);
+				jump.accept(cb);
+			};
+		}
+		final Consumer<CodeBuilder> target = indirectTarget(op, next);
+		if (target == null) {
+			return null;
+		}
+		final Consumer<CodeBuilder> push = push(constant(next));
+		return cb -> {
+			// The target is computed before pushing, so it sees the old RSP
+			target.accept(cb);
+			push.accept(cb);
+			cb.lstore(RIP);
+		};
+	}
+
+	/** Returns the code pushing the absolute target of an indirect JMP or CALL, or null if it is not supported. */
+	private Consumer<CodeBuilder> indirectTarget(final Operand op, final long next) {
+		return switch (op) {
+			case Register64 r when index(r) >= 0 -> load(r);
+			case IndirectOperand io when io.getPointerSize() == PointerSize.QWORD_PTR -> longValue(io, next);
+			case null, default -> null;
+		};
+	}
+
+	private Consumer<CodeBuilder> jumpTo(final Operand op, final long next) {
+		final Consumer<CodeBuilder> target = indirectTarget(op, next);
+		if (target == null) {
+			return null;
+		}
+		return cb -> {
+			target.accept(cb);
+			cb.lstore(RIP);
+		};
+	}
+
+	private Consumer<CodeBuilder> translateCmovne(final Operand op1, final Operand op2) {
+		if (!(op1 instanceof final Register64 r1
+				&& index(r1) >= 0
+				&& op2 instanceof final Register64 r2
+				&& index(r2) >= 0)) {
+			return null;
+		}
+		final int s1 = write(index(r1));
+		final int s2 = read(index(r2));
+		readFlags();
+		return cb -> {
+			final Label skip = cb.newLabel();
+			cb.lload(FLAGS);
+			cb.loadConstant(CC_NE);
+			invokeRuntime(cb, "condition", MethodTypeDesc.of(CD_boolean, CD_long, CD_int));
+			cb.ifeq(skip);
+			cb.lload(s2);
+			cb.lstore(s1);
+			cb.labelBinding(skip);
+		};
+	}
+
+	private Consumer<CodeBuilder> translateXchg(final Operand op1, final Operand op2) {
+		if (op1 instanceof final Register64 r1
+				&& index(r1) >= 0
+				&& op2 instanceof final Register64 r2
+				&& index(r2) >= 0) {
+			final int s1 = write(index(r1));
+			final int s2 = write(index(r2));
+			return cb -> {
+				cb.lload(s1);
+				cb.lstore(TMP);
+				cb.lload(s2);
+				cb.lstore(s1);
+				cb.lload(TMP);
+				cb.lstore(s2);
+			};
+		}
+		if (op1 instanceof final Register32 r1
+				&& index(r1) >= 0
+				&& op2 instanceof final Register32 r2
+				&& index(r2) >= 0) {
+			final Consumer<CodeBuilder> a = intValue(r1);
+			final Consumer<CodeBuilder> b = intValue(r2);
+			final Consumer<CodeBuilder> first = storeInt(r1, b);
+			final Consumer<CodeBuilder> second = storeInt(r2, cb -> {
+				cb.lload(TMP);
+				cb.l2i();
+			});
+			return cb -> {
+				a.accept(cb);
+				cb.i2l();
+				cb.lstore(TMP);
+				first.accept(cb);
+				second.accept(cb);
+			};
+		}
+		return null;
+	}
+
+	private Consumer<CodeBuilder> translateConditionalJump(final Opcode opcode, final Operand op, final long next) {
+		final Integer cc = CONDITION_CODES.get(opcode);
+		if (cc == null || !(op instanceof final Immediate imm)) {
+			return null;
+		}
+		final long target = next + signExtend(imm);
+		readFlags();
+		return cb -> {
+			final Label notTaken = cb.newLabel();
+			cb.lload(FLAGS);
+			cb.loadConstant(cc);
+			invokeRuntime(cb, "condition", MethodTypeDesc.of(CD_boolean, CD_long, CD_int));
+			cb.ifeq(notTaken);
+			cb.loadConstant(target);
+			cb.lstore(RIP);
+			cb.labelBinding(notTaken);
+		};
+	}
+
+	/** Pushes the value produced by the given code, updating RSP before writing like the interpreter. */
+	private Consumer<CodeBuilder> push(final Consumer<CodeBuilder> value) {
+		final int rsp = write(RSP);
+		return cb -> {
+			value.accept(cb);
+			cb.lstore(TMP);
+			cb.lload(rsp);
+			cb.lload(STACK_BOTTOM);
+			invokeRuntime(cb, "push", MethodTypeDesc.of(CD_long, CD_long, CD_long));
+			cb.lstore(rsp);
+			cb.aload(MEM);
+			cb.lload(rsp);
+			cb.lload(TMP);
+			invokeRuntime(cb, "write8", MethodTypeDesc.of(CD_void, CD_MEMORY, CD_long, CD_long));
+		};
+	}
+
+	/** Pops the top of the stack into the given local slot, updating RSP after reading like the interpreter. */
+	private Consumer<CodeBuilder> pop(final int destination) {
+		final int rsp = write(RSP);
+		return cb -> {
+			cb.lload(rsp);
+			cb.lload(STACK_TOP);
+			invokeRuntime(cb, "pop", MethodTypeDesc.of(CD_void, CD_long, CD_long));
+			cb.aload(MEM);
+			cb.lload(rsp);
+			invokeRuntime(cb, "read8", MethodTypeDesc.of(CD_long, CD_MEMORY, CD_long));
+			cb.lstore(TMP);
+			cb.lload(rsp);
+			cb.loadConstant(8L);
+			cb.ladd();
+			cb.lstore(rsp);
+			cb.lload(TMP);
+			cb.lstore(destination);
+		};
+	}
+
+	private static Consumer<CodeBuilder> jumpTo(final long target) {
+		return cb -> {
+			cb.loadConstant(target);
+			cb.lstore(RIP);
+		};
+	}
+
+	/** Updates the flags from the (sign-extended) long result on top of the stack, consuming it. */
+	private static void logicFlags(final CodeBuilder cb) {
+		cb.lstore(TMP);
+		cb.lload(FLAGS);
+		cb.lload(TMP);
+		invokeRuntime(cb, "logicFlags", MethodTypeDesc.of(CD_long, CD_long, CD_long));
+		cb.lstore(FLAGS);
+	}
+
+	private static Consumer<CodeBuilder> constant(final long value) {
+		return cb -> cb.loadConstant(value);
+	}
+
+	private static Consumer<CodeBuilder> constant(final int value) {
+		return cb -> cb.loadConstant(value);
+	}
+
+	private Consumer<CodeBuilder> load(final Register64 r) {
+		final int slot = read(index(r));
+		return cb -> cb.lload(slot);
+	}
+
+	private Consumer<CodeBuilder> intValue(final Register32 r) {
+		final int slot = read(index(r));
+		return cb -> {
+			cb.lload(slot);
+			cb.l2i();
+		};
+	}
+
+	private Consumer<CodeBuilder> storeLong(final Register64 r, final Consumer<CodeBuilder> value) {
+		if (value == null || index(r) < 0) {
+			return null;
+		}
+		final int slot = write(index(r));
+		return cb -> {
+			value.accept(cb);
+			cb.lstore(slot);
+		};
+	}
+
+	/** Stores the int produced by the given code, zero-extending it like any write to a 32-bit register. */
+	private Consumer<CodeBuilder> storeInt(final Register32 r, final Consumer<CodeBuilder> value) {
+		if (value == null || index(r) < 0) {
+			return null;
+		}
+		final int slot = write(index(r));
+		return cb -> {
+			value.accept(cb);
+			cb.i2l();
+			cb.loadConstant(LOW_32_BITS);
+			cb.land();
+			cb.lstore(slot);
+		};
+	}
+
+	/** Returns the code pushing the given operand sign-extended to a long, like the interpreter's getAsLongSX. */
+	private Consumer<CodeBuilder> longValue(final Operand op, final long next) {
+		return switch (op) {
+			case Register64 r when index(r) < 0 -> constant(next);
+			case Register64 r -> load(r);
+			case Register32 r when index(r) >= 0 -> {
+				final Consumer<CodeBuilder> value = intValue(r);
+				yield cb -> {
+					value.accept(cb);
+					cb.i2l();
+				};
+			}
+			case Immediate imm -> constant(signExtend(imm));
+			case IndirectOperand io -> {
+				final Consumer<CodeBuilder> value =
+						switch (io.getPointerSize()) {
+							case BYTE_PTR -> readMemory(io, next, 1);
+							case WORD_PTR -> readMemory(io, next, 2);
+							case DWORD_PTR -> readMemory(io, next, 4);
+							case QWORD_PTR -> readMemory(io, next, 8);
+							default -> null;
+						};
+				if (value == null || io.getPointerSize() == PointerSize.QWORD_PTR) {
+					yield value;
+				}
+				yield cb -> {
+					value.accept(cb);
+					cb.i2l();
+				};
+			}
+			case null, default -> null;
+		};
+	}
+
+	/** Returns the code pushing the given operand zero-extended to an int, like the interpreter's getAsIntZX. */
+	private Consumer<CodeBuilder> intValueZX(final Operand op, final long next) {
+		final int mask;
+		final Consumer<CodeBuilder> value;
+		switch (op) {
+			case Register16 r -> {
+				mask = 0xffff;
+				final int slot = read(index(r));
+				value = cb -> {
+					cb.lload(slot);
+					cb.l2i();
+				};
+			}
+			case IndirectOperand io when io.getPointerSize() == PointerSize.BYTE_PTR -> {
+				mask = 0xff;
+				value = readMemory(io, next, 1);
+			}
+			case IndirectOperand io when io.getPointerSize() == PointerSize.WORD_PTR -> {
+				mask = 0xffff;
+				value = readMemory(io, next, 2);
+			}
+			case null, default -> {
+				return null;
+			}
+		}
+		if (value == null) {
+			return null;
+		}
+		return cb -> {
+			value.accept(cb);
+			cb.loadConstant(mask);
+			cb.iand();
+		};
+	}
+
+	/** Returns the code reading the given number of bytes at the given operand. Bytes and shorts are left as ints. */
+	private Consumer<CodeBuilder> readMemory(final IndirectOperand io, final long next, final int size) {
+		final Consumer<CodeBuilder> address = address(io, next);
+		if (address == null) {
+			return null;
+		}
+		final String reader = "read" + size;
+		final ClassDesc type =
+				switch (size) {
+					case 1 -> CD_byte;
+					case 2 -> CD_short;
+					case 4 -> CD_int;
+					default -> CD_long;
+				};
+		return cb -> {
+			cb.aload(MEM);
+			address.accept(cb);
+			invokeRuntime(cb, reader, MethodTypeDesc.of(type, CD_MEMORY, CD_long));
+		};
+	}
+
+	/** Returns the code pushing the address of the given operand, like the interpreter's computeIndirectOperand. */
+	private Consumer<CodeBuilder> address(final IndirectOperand io, final long next) {
+		if (io.hasSegment() && (io.getSegment() == SegmentRegister.FS || io.getSegment() == SegmentRegister.GS)) {
+			// The FS and GS bases live in the register file only: leave these operands to the interpreter
+			return null;
+		}
+		final Consumer<CodeBuilder> base = io.hasBase() ? addressComponent(io.getBase(), next) : constant(0L);
+		final Consumer<CodeBuilder> index = io.hasIndex() ? addressComponent(io.getIndex(), next) : null;
+		if (base == null || (io.hasIndex() && index == null)) {
+			return null;
+		}
+		final long scale = io.hasScale() ? io.getScale() : 1L;
+		final long displacement = io.hasDisplacement() ? io.getDisplacement() : 0L;
+		return cb -> {
+			base.accept(cb);
+			if (index != null) {
+				index.accept(cb);
+				if (scale != 1L) {
+					cb.loadConstant(scale);
+					cb.lmul();
+				}
+				cb.ladd();
+			}
+			if (displacement != 0L) {
+				cb.loadConstant(displacement);
+				cb.ladd();
+			}
+		};
+	}
+
+	private Consumer<CodeBuilder> addressComponent(final Register r, final long next) {
+		return switch (r) {
+			case Register64 r64 when index(r64) < 0 -> constant(next);
+			case Register64 r64 -> load(r64);
+			case Register32 r32 when index(r32) < 0 -> constant(next & LOW_32_BITS);
+			case Register32 r32 -> {
+				final int slot = read(index(r32));
+				yield cb -> {
+					cb.lload(slot);
+					cb.loadConstant(LOW_32_BITS);
+					cb.land();
+				};
+			}
+			default -> null;
+		};
+	}
+
+	@SuppressWarnings("PMD.UnnecessaryCast")
+	private static long signExtend(final Immediate imm) {
+		return switch (imm.bits()) {
+			case 8 -> (long) imm.asByte();
+			case 16 -> (long) imm.asShort();
+			case 32 -> (long) imm.asInt();
+			default -> imm.asLong();
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "BlockCompiler(start=" + String.format("0x%016x", start) + ";instructions=" + steps.size() + ")";
+	}
+}
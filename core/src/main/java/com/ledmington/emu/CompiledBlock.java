@@ -0,0 +1,38 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import com.ledmington.mem.Memory;
+
+/**
+ * A guest basic block translated into JVM bytecode by the {@link BlockCompiler}. Implementations are hidden classes,
+ * which HotSpot compiles to host machine code like any other hot method.
+ */
+interface CompiledBlock {
+
+	/**
+	 * Executes the whole block. On return, RIP points to the next instruction to be executed. If an instruction faults,
+	 * the registers reflect the state at the fault (like the interpreter) and the exception is propagated.
+	 *
+	 * @param rf The registers of the guest.
+	 * @param mem The memory of the guest.
+	 * @param stackBottom The lowest address of the stack.
+	 * @param stackTop The highest address of the stack.
+	 */
+	void run(X86RegisterFile rf, Memory mem, long stackBottom, long stackTop);
+}
@@ -0,0 +1,255 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.LongUnaryOperator;
+
+import com.ledmington.elf.ELF;
+import com.ledmington.elf.section.rel.RelocationAddendEntry;
+import com.ledmington.elf.section.sym.SymbolTableEntry;
+import com.ledmington.elf.section.sym.SymbolTableEntryBinding;
+import com.ledmington.elf.section.sym.SymbolTableEntryType;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.utils.MiniLogger;
+
+/**
+ * An in-emulator dynamic loader: it finds the libraries needed by a dynamically-linked executable inside a sysroot,
+ * maps them (through a {@link SharedLibraryCache}, so that each library is parsed and relocated only once) and binds
+ * the symbols they import, emulating what the interpreter (usually ld-linux-x86-64.so.2) would do before jumping to
+ * the entry point.
+ *
+ * <p>Libraries are placed at deterministic addresses, so that their cached images can be reused across runs. The
+ * global lookup scope is the executable followed by its libraries in breadth-first order. Thread-local storage is not
+ * supported: TLS relocations are resolved as if there was a single module with an empty static TLS block.
+ */
+final class DynamicLinker {
+
+	/** The address where the first shared library is placed. */
+	static final long LIBRARY_BASE = 0x0000_7f00_0000_0000L;
+
+	private static final MiniLogger logger = MiniLogger.getLogger("dyn-linker");
+	private static final long LIBRARY_ALIGNMENT = 0x20_0000L;
+	private static final List<String> SEARCH_PATHS =
+			List.of("lib64", "usr/lib64", "lib/x86_64-linux-gnu", "usr/lib/x86_64-linux-gnu", "lib", "usr/lib");
+
+	private record Definition(DynamicObject object, int index) {}
+
+	private final MemoryController mem;
+	private final SharedLibraryCache cache;
+	private final Path sysroot;
+	private final LongUnaryOperator resolverCaller;
+	private final List<DynamicObject> scope = new ArrayList<>();
+	private final Map<Long, Long> resolvedFunctions = new HashMap<>();
+	private final DynamicObject.Words words = new DynamicObject.Words() {
+		@Override
+		public long read(final long address) {
+			return mem.read8(new MemoryAddress(address));
+		}
+
+		@Override
+		public void write(final long address, final long value) {
+			mem.initialize(new MemoryAddress(address), value);
+		}
+	};
+
+	/**
+	 * Creates a new DynamicLinker.
+	 *
+	 * @param mem The memory where to map the libraries.
+	 * @param cache The cache of the already-relocated libraries.
+	 * @param sysroot The directory to be used as the root of the filesystem when looking for libraries.
+	 * @param resolverCaller Executes the GNU indirect function resolver at the given address and returns its result.
+	 */
+	DynamicLinker(
+			final MemoryController mem,
+			final SharedLibraryCache cache,
+			final Path sysroot,
+			final LongUnaryOperator resolverCaller) {
+		this.mem = Objects.requireNonNull(mem);
+		this.cache = Objects.requireNonNull(cache);
+		this.sysroot = Objects.requireNonNull(sysroot);
+		this.resolverCaller = Objects.requireNonNull(resolverCaller);
+	}
+
+	/**
+	 * Maps all the libraries needed by the given executable, which must be already loaded in memory, and applies all
+	 * the relocations of the executable and of the libraries.
+	 *
+	 * @param executable The executable.
+	 * @param baseAddress The address where the executable has been loaded.
+	 * @return The libraries, in load order.
+	 * @throws IOException If a needed library cannot be found or read.
+	 */
+	List<DynamicObject> link(final ELF executable, final long baseAddress) throws IOException {
+		final DynamicObject exe = DynamicObject.executable("<main>", executable, baseAddress);
+		scope.add(exe);
+
+		final Queue<String> toLoad = new ArrayDeque<>(exe.getNeeded());
+		final Set<String> seen = new HashSet<>(exe.getNeeded());
+		long nextBase = LIBRARY_BASE;
+		while (!toLoad.isEmpty()) {
+			final String name = toLoad.remove();
+			final DynamicObject lib = cache.get(find(name), nextBase);
+			logger.debug("Mapping '%s' at 0x%016x-0x%016x", name, lib.getBase(), lib.getEnd());
+			map(lib);
+			scope.add(lib);
+			nextBase = (lib.getEnd() + LIBRARY_ALIGNMENT - 1L) & -LIBRARY_ALIGNMENT;
+			for (final String dep : lib.getNeeded()) {
+				if (seen.add(dep)) {
+					toLoad.add(dep);
+				}
+			}
+		}
+
+		// The libraries have their relative relocations already applied by the cache
+		exe.applyRelativeRelocations(words);
+
+		for (final DynamicObject obj : scope) {
+			for (final RelocationAddendEntry rae : obj.getSymbolicRelocations()) {
+				relocate(obj, rae);
+			}
+		}
+
+		return Collections.unmodifiableList(scope.subList(1, scope.size()));
+	}
+
+	private Path find(final String name) throws IOException {
+		if (name.indexOf('/') >= 0) {
+			final Path p = sysroot.resolve(name.startsWith("/") ? name.substring(1) : name);
+			if (Files.isRegularFile(p)) {
+				return p;
+			}
+		} else {
+			for (final String dir : SEARCH_PATHS) {
+				final Path p = sysroot.resolve(dir).resolve(name);
+				if (Files.isRegularFile(p)) {
+					return p;
+				}
+			}
+		}
+		throw new NoSuchFileException(name, null, "Shared library not found inside sysroot '" + sysroot + "'");
+	}
+
+	private void map(final DynamicObject lib) {
+		for (final DynamicObject.Segment s : lib.getSegments()) {
+			final MemoryAddress start = new MemoryAddress(s.address());
+			try {
+				// Mapped copy-on-write: the cached image is never modified
+				mem.map(start, s.image().length, MemorySegment.ofArray(s.image()), false);
+			} catch (final UnsupportedOperationException e) {
+				mem.initialize(start, s.image());
+			}
+			mem.setPermissions(start, s.image().length, s.readable(), s.writeable(), s.executable());
+		}
+	}
+
+	private void relocate(final DynamicObject obj, final RelocationAddendEntry rae) {
+		final long p = obj.getBase() + rae.offset();
+		switch (rae.type()) {
+			case R_X86_64_IRELATIVE -> words.write(p, callResolver(obj.getBase() + rae.addend()));
+			case R_X86_64_DTPMOD64 -> words.write(p, 1L);
+			case R_X86_64_64 -> words.write(p, symbolAddress(obj, rae) + rae.addend());
+			case R_X86_64_GLOB_DAT, R_X86_64_JUMP_SLOT -> words.write(p, symbolAddress(obj, rae));
+			case R_X86_64_PC32 ->
+				mem.initialize(new MemoryAddress(p), (int) (symbolAddress(obj, rae) + rae.addend() - p));
+			case R_X86_64_DTPOFF64 -> {
+				final Definition def = resolve(obj, rae.symbolTableIndex(), false);
+				words.write(p, (def == null ? 0L : def.object().getSymbol(def.index()).value()) + rae.addend());
+			}
+			case R_X86_64_TPOFF64 -> {
+				logger.warning("Thread-local storage is not supported: ignoring relocation at 0x%016x", p);
+				words.write(p, 0L);
+			}
+			case R_X86_64_COPY -> copy(obj, rae, p);
+			default ->
+				logger.warning(
+						"Ignoring unsupported relocation %s at 0x%016x in '%s'", rae.type(), p, obj.getName());
+		}
+	}
+
+	private void copy(final DynamicObject obj, final RelocationAddendEntry rae, final long p) {
+		// The executable owns the copy: the original definition must be looked for in the libraries only
+		final Definition def = resolve(obj, rae.symbolTableIndex(), true);
+		if (def == null) {
+			return;
+		}
+		final SymbolTableEntry ste = def.object().getSymbol(def.index());
+		final byte[] content = new byte[Math.toIntExact(ste.size())];
+		mem.read(new MemoryAddress(def.object().getBase() + ste.value()), content, 0, content.length);
+		mem.initialize(new MemoryAddress(p), content);
+	}
+
+	private long symbolAddress(final DynamicObject obj, final RelocationAddendEntry rae) {
+		if (rae.symbolTableIndex() == 0) {
+			return 0L;
+		}
+		final Definition def = resolve(obj, rae.symbolTableIndex(), false);
+		if (def == null) {
+			return 0L;
+		}
+		final SymbolTableEntry ste = def.object().getSymbol(def.index());
+		final long address = def.object().getBase() + ste.value();
+		return ste.info().getType() == SymbolTableEntryType.STT_GNU_IFUNC ? callResolver(address) : address;
+	}
+
+	private long callResolver(final long resolver) {
+		return resolvedFunctions.computeIfAbsent(resolver, resolverCaller::applyAsLong);
+	}
+
+	private Definition resolve(final DynamicObject obj, final int symbolIndex, final boolean skipRequester) {
+		final SymbolTableEntry ste = obj.getSymbol(symbolIndex);
+		if (ste.info().getBinding() == SymbolTableEntryBinding.STB_LOCAL && ste.sectionTableIndex() != 0) {
+			return new Definition(obj, symbolIndex);
+		}
+		final String name = obj.getSymbolName(symbolIndex);
+		for (final DynamicObject candidate : scope) {
+			if (skipRequester && candidate == obj) {
+				continue;
+			}
+			final int idx = candidate.lookup(name, candidate == obj);
+			if (idx >= 0) {
+				return new Definition(candidate, idx);
+			}
+		}
+		if (ste.info().getBinding() != SymbolTableEntryBinding.STB_WEAK) {
+			logger.warning("Undefined symbol '%s' needed by '%s'", name, obj.getName());
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "DynamicLinker(sysroot=" + sysroot + ";scope=" + scope.size() + ")";
+	}
+}
@@ -0,0 +1,478 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.ledmington.elf.ELF;
+import com.ledmington.elf.PHTEntry;
+import com.ledmington.elf.PHTEntryType;
+import com.ledmington.elf.section.DynamicSection;
+import com.ledmington.elf.section.DynamicTableEntry;
+import com.ledmington.elf.section.Section;
+import com.ledmington.elf.section.SectionHeaderFlags;
+import com.ledmington.elf.section.StringTableSection;
+import com.ledmington.elf.section.gnu.GnuHashSection;
+import com.ledmington.elf.section.gnu.GnuVersionSection;
+import com.ledmington.elf.section.rel.RelativeRelocationSection;
+import com.ledmington.elf.section.rel.RelocationAddendEntry;
+import com.ledmington.elf.section.rel.RelocationAddendEntryType;
+import com.ledmington.elf.section.rel.RelocationAddendSection;
+import com.ledmington.elf.section.sym.DynamicSymbolTableSection;
+import com.ledmington.elf.section.sym.SymbolTableEntry;
+import com.ledmington.elf.section.sym.SymbolTableEntryBinding;
+import com.ledmington.utils.SuppressFBWarnings;
+
+/**
+ * A dynamically-linked ELF object (the main executable or a shared library) placed at a fixed base address, as seen by
+ * the {@link DynamicLinker}.
+ *
+ * <p>The loadable segments of a shared library are kept as page-aligned images with all the relative relocations
+ * already applied, so that the same images can be mapped again without parsing or relocating anything. The images are
+ * never modified after construction: instances of this class can be shared among threads.
+ */
+final class DynamicObject {
+
+	private static final long PAGE_SIZE = 4096L;
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	/** The bit of a .gnu.version entry telling that the symbol cannot be bound from other objects. */
+	private static final short VERSYM_HIDDEN = (short) 0x8000;
+
+	/**
+	 * A loadable segment ready to be mapped.
+	 *
+	 * @param address The (page-aligned) address of the first byte of the image.
+	 * @param image The content of the segment, a whole number of pages.
+	 * @param readable True if the segment can be read.
+	 * @param writeable True if the segment can be written.
+	 * @param executable True if the segment can be executed.
+	 */
+	record Segment(long address, byte[] image, boolean readable, boolean writeable, boolean executable) {
+
+		boolean contains(final long addr) {
+			return addr >= address && addr - address <= image.length - 8L;
+		}
+	}
+
+	/** Reads and writes 64-bit words of the emulated address space. */
+	interface Words {
+
+		/**
+		 * Reads the 64-bit word at the given address.
+		 *
+		 * @param address The address of the word.
+		 * @return The word.
+		 */
+		long read(long address);
+
+		/**
+		 * Writes the 64-bit word at the given address.
+		 *
+		 * @param address The address of the word.
+		 * @param value The word.
+		 */
+		void write(long address, long value);
+	}
+
+	private final String name;
+	private final long base;
+	private final List<String> needed = new ArrayList<>();
+	private final List<Segment> segments = new ArrayList<>();
+	private final List<RelocationAddendEntry> relative = new ArrayList<>();
+	private final List<RelocationAddendEntry> symbolic = new ArrayList<>();
+	private final List<RelativeRelocationSection> relr = new ArrayList<>();
+	private final DynamicSymbolTableSection dynsym;
+	private final StringTableSection dynstr;
+	private final GnuHashSection gnuHash;
+	private final GnuVersionSection versions;
+	private long init = 0L;
+	private long initArray = 0L;
+	private long initArraySize = 0L;
+	private long fini = 0L;
+	private long finiArray = 0L;
+	private long finiArraySize = 0L;
+
+	private DynamicObject(final String name, final ELF elf, final long base) {
+		this.name = Objects.requireNonNull(name);
+		this.base = base;
+
+		DynamicSymbolTableSection symbols = null;
+		StringTableSection strings = null;
+		GnuHashSection hash = null;
+		GnuVersionSection vers = null;
+		DynamicSection dynamic = null;
+		for (int i = 0; i < elf.getSectionTableLength(); i++) {
+			final Section sec = elf.getSection(i);
+			switch (sec) {
+				case DynamicSymbolTableSection dst -> symbols = dst;
+				case StringTableSection sts when ".dynstr".equals(sts.getName()) -> strings = sts;
+				case GnuHashSection ghs -> hash = ghs;
+				case GnuVersionSection gvs -> vers = gvs;
+				case DynamicSection ds -> dynamic = ds;
+				case RelocationAddendSection ras
+						when ras.header().getFlags().contains(SectionHeaderFlags.SHF_ALLOC) -> {
+					for (int j = 0; j < ras.getRelocationAddendTableLength(); j++) {
+						final RelocationAddendEntry rae = ras.getRelocationAddendEntry(j);
+						if (rae.type() == RelocationAddendEntryType.R_X86_64_RELATIVE) {
+							relative.add(rae);
+						} else if (rae.type() != RelocationAddendEntryType.R_X86_64_NONE) {
+							symbolic.add(rae);
+						}
+					}
+				}
+				case RelativeRelocationSection rrs -> relr.add(rrs);
+				default -> {
+					// Not needed for dynamic linking
+				}
+			}
+		}
+		this.dynsym = symbols;
+		this.dynstr = strings;
+		this.gnuHash = hash;
+		this.versions = vers;
+
+		if (dynamic != null) {
+			readDynamicSection(dynamic);
+		}
+	}
+
+	private void readDynamicSection(final DynamicSection dynamic) {
+		for (int i = 0; i < dynamic.getTableLength(); i++) {
+			final DynamicTableEntry dte = dynamic.getEntry(i);
+			switch (dte.getTag()) {
+				case DT_NEEDED -> {
+					if (dynstr != null) {
+						needed.add(dynstr.getString((int) dte.getContent()));
+					}
+				}
+				case DT_INIT -> init = dte.getContent();
+				case DT_INIT_ARRAY -> initArray = dte.getContent();
+				case DT_INIT_ARRAYSZ -> initArraySize = dte.getContent();
+				case DT_FINI -> fini = dte.getContent();
+				case DT_FINI_ARRAY -> finiArray = dte.getContent();
+				case DT_FINI_ARRAYSZ -> finiArraySize = dte.getContent();
+				default -> {
+					// Not needed for dynamic linking
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the view of the main executable, which has already been loaded in memory.
+	 *
+	 * @param name The name of the executable.
+	 * @param elf The parsed executable.
+	 * @param base The address where the executable has been loaded.
+	 * @return A new DynamicObject without segment images.
+	 */
+	static DynamicObject executable(final String name, final ELF elf, final long base) {
+		return new DynamicObject(name, elf, base);
+	}
+
+	/**
+	 * Creates the view of a shared library, building the images of its loadable segments and applying all its relative
+	 * relocations to them.
+	 *
+	 * @param name The name of the library.
+	 * @param elf The parsed library.
+	 * @param file The raw bytes of the library.
+	 * @param base The address where the library is going to be mapped.
+	 * @return A new DynamicObject, ready to be mapped.
+	 */
+	static DynamicObject library(final String name, final ELF elf, final byte[] file, final long base) {
+		final DynamicObject obj = new DynamicObject(name, elf, base);
+		for (int i = 0; i < elf.getProgramHeaderTableLength(); i++) {
+			final PHTEntry phte = elf.getProgramHeader(i);
+			if (phte.type() == PHTEntryType.PT_LOAD) {
+				obj.segments.add(buildImage(phte, file, base));
+			}
+		}
+		obj.applyRelativeRelocations(obj.new ImageWords());
+		return obj;
+	}
+
+	private static Segment buildImage(final PHTEntry phte, final byte[] file, final long base) {
+		final long pageStart = phte.segmentVirtualAddress() & -PAGE_SIZE;
+		final long pageEnd = (phte.segmentVirtualAddress() + phte.segmentMemorySize() + PAGE_SIZE - 1L) & -PAGE_SIZE;
+		final long lead = phte.segmentVirtualAddress() - pageStart;
+		final byte[] image = new byte[Math.toIntExact(pageEnd - pageStart)];
+		// Like mmap, the bytes preceding the segment inside its first page are taken from the file as well
+		final long fileStart = phte.segmentFileOffset() - lead;
+		final long fileLength = Math.min(lead + phte.segmentFileSize(), file.length - fileStart);
+		if (fileStart >= 0L && fileLength > 0L) {
+			System.arraycopy(file, (int) fileStart, image, 0, (int) fileLength);
+		}
+		return new Segment(
+				base + pageStart, image, phte.isReadable(), phte.isWriteable(), phte.isExecutable());
+	}
+
+	/** Accesses the words of the segment images, as they would appear once mapped. */
+	private final class ImageWords implements Words {
+
+		@Override
+		public long read(final long address) {
+			// With overlapping pages, the last segment wins, like it happens when mapping them in order
+			for (int i = segments.size() - 1; i >= 0; i--) {
+				final Segment s = segments.get(i);
+				if (s.contains(address)) {
+					return (long) LONGS.get(s.image(), (int) (address - s.address()));
+				}
+			}
+			throw new IllegalArgumentException(
+					String.format("Address 0x%016x is outside of the segments of '%s'.", address, name));
+		}
+
+		@Override
+		public void write(final long address, final long value) {
+			boolean found = false;
+			for (final Segment s : segments) {
+				if (s.contains(address)) {
+					LONGS.set(s.image(), (int) (address - s.address()), value);
+					found = true;
+				}
+			}
+			if (!found) {
+				throw new IllegalArgumentException(
+						String.format("Address 0x%016x is outside of the segments of '%s'.", address, name));
+			}
+		}
+	}
+
+	/**
+	 * Applies all the relative relocations (both R_X86_64_RELATIVE and the packed ones from SHT_RELR sections) through
+	 * the given words.
+	 *
+	 * @param words The words to be relocated.
+	 */
+	void applyRelativeRelocations(final Words words) {
+		for (final RelocationAddendEntry rae : relative) {
+			words.write(base + rae.offset(), base + rae.addend());
+		}
+		for (final RelativeRelocationSection rrs : relr) {
+			rrs.forEachAddress(offset -> words.write(base + offset, words.read(base + offset) + base));
+		}
+	}
+
+	/**
+	 * Checks whether this object has any relative relocation.
+	 *
+	 * @return True if there is at least one relative relocation.
+	 */
+	boolean hasRelativeRelocations() {
+		return !relative.isEmpty() || !relr.isEmpty();
+	}
+
+	/**
+	 * Looks for a symbol defined and exported by this object.
+	 *
+	 * @param symbolName The name of the symbol.
+	 * @return The index of the symbol in the dynamic symbol table, or -1 if this object does not export it.
+	 */
+	int lookup(final String symbolName) {
+		return lookup(symbolName, false);
+	}
+
+	/**
+	 * Looks for a symbol defined by this object.
+	 *
+	 * @param symbolName The name of the symbol.
+	 * @param includeHidden When true, symbols with a hidden version (which only the object itself can bind to) are
+	 *     considered as well.
+	 * @return The index of the symbol in the dynamic symbol table, or -1 if this object does not define it.
+	 */
+	int lookup(final String symbolName, final boolean includeHidden) {
+		if (dynsym == null || dynstr == null) {
+			return -1;
+		}
+		if (gnuHash != null) {
+			return gnuHash.lookup(
+					symbolName, idx -> isExported(idx, includeHidden) && symbolName.equals(getSymbolName(idx)));
+		}
+		for (int i = 1; i < dynsym.getSymbolTableLength(); i++) {
+			if (isExported(i, includeHidden) && symbolName.equals(getSymbolName(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean isExported(final int idx, final boolean includeHidden) {
+		final SymbolTableEntry ste = dynsym.getSymbolTableEntry(idx);
+		if (ste.sectionTableIndex() == 0) {
+			// Undefined here
+			return false;
+		}
+		final SymbolTableEntryBinding binding = ste.info().getBinding();
+		if (binding != SymbolTableEntryBinding.STB_GLOBAL && binding != SymbolTableEntryBinding.STB_WEAK) {
+			return false;
+		}
+		return includeHidden
+				|| versions == null
+				|| idx >= versions.getVersionsLength()
+				|| (versions.getVersion(idx) & VERSYM_HIDDEN) == 0;
+	}
+
+	/**
+	 * Returns the entry of the dynamic symbol table with the given index.
+	 *
+	 * @param idx The index of the symbol.
+	 * @return The symbol.
+	 */
+	SymbolTableEntry getSymbol(final int idx) {
+		return dynsym.getSymbolTableEntry(idx);
+	}
+
+	/**
+	 * Returns the name of the symbol with the given index.
+	 *
+	 * @param idx The index of the symbol.
+	 * @return The name of the symbol.
+	 */
+	String getSymbolName(final int idx) {
+		return dynstr.getString(dynsym.getSymbolTableEntry(idx).nameOffset());
+	}
+
+	/**
+	 * Returns the name of this object.
+	 *
+	 * @return The name of this object.
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the address this object was placed at.
+	 *
+	 * @return The base address.
+	 */
+	long getBase() {
+		return base;
+	}
+
+	/**
+	 * Returns the first address after the last segment of this object.
+	 *
+	 * @return The end address, or the base address if there are no segments.
+	 */
+	long getEnd() {
+		long end = base;
+		for (final Segment s : segments) {
+			end = Math.max(end, s.address() + s.image().length);
+		}
+		return end;
+	}
+
+	/**
+	 * Returns the names of the libraries this object depends on, in the order of the DT_NEEDED entries.
+	 *
+	 * @return The names of the needed libraries.
+	 */
+	List<String> getNeeded() {
+		return Collections.unmodifiableList(needed);
+	}
+
+	/**
+	 * Returns the loadable segments, with their relative relocations already applied.
+	 *
+	 * @return The segments of this object.
+	 */
+	@SuppressFBWarnings(
+			value = "EI_EXPOSE_REP",
+			justification = "The images are mapped copy-on-write, so they are never modified after construction.")
+	List<Segment> getSegments() {
+		return Collections.unmodifiableList(segments);
+	}
+
+	/**
+	 * Returns the relocations which need a symbol to be resolved.
+	 *
+	 * @return The non-relative relocations.
+	 */
+	List<RelocationAddendEntry> getSymbolicRelocations() {
+		return Collections.unmodifiableList(symbolic);
+	}
+
+	/**
+	 * Returns the (relocated) address of the DT_INIT function.
+	 *
+	 * @return The address of the DT_INIT function, or 0 if not present.
+	 */
+	long getInit() {
+		return init == 0L ? 0L : base + init;
+	}
+
+	/**
+	 * Returns the (relocated) address of the DT_INIT_ARRAY array.
+	 *
+	 * @return The address of the DT_INIT_ARRAY array, or 0 if not present.
+	 */
+	long getInitArray() {
+		return initArray == 0L ? 0L : base + initArray;
+	}
+
+	/**
+	 * Returns the number of pointers inside the DT_INIT_ARRAY array.
+	 *
+	 * @return The number of initialization functions.
+	 */
+	int getInitArrayLength() {
+		return (int) (initArraySize / 8L);
+	}
+
+	/**
+	 * Returns the (relocated) address of the DT_FINI function.
+	 *
+	 * @return The address of the DT_FINI function, or 0 if not present.
+	 */
+	long getFini() {
+		return fini == 0L ? 0L : base + fini;
+	}
+
+	/**
+	 * Returns the (relocated) address of the DT_FINI_ARRAY array.
+	 *
+	 * @return The address of the DT_FINI_ARRAY array, or 0 if not present.
+	 */
+	long getFiniArray() {
+		return finiArray == 0L ? 0L : base + finiArray;
+	}
+
+	/**
+	 * Returns the number of pointers inside the DT_FINI_ARRAY array.
+	 *
+	 * @return The number of termination functions.
+	 */
+	int getFiniArrayLength() {
+		return (int) (finiArraySize / 8L);
+	}
+
+	@Override
+	public String toString() {
+		return "DynamicObject(name=" + name + ";base=" + String.format("0x%016x", base) + ";segments=" + segments.size()
+				+ ";needed=" + needed + ")";
+	}
+}
@@ -17,7 +17,10 @@
  */
 package com.ledmington.emu;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -25,7 +28,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
-import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.StreamingEncoder;
 import com.ledmington.cpu.x86.GeneralInstruction;
 import com.ledmington.cpu.x86.Immediate;
 import com.ledmington.cpu.x86.Instruction;
@@ -47,6 +50,7 @@ import com.ledmington.elf.section.StringTableSection;
 import com.ledmington.elf.section.sym.SymbolTableEntry;
 import com.ledmington.elf.section.sym.SymbolTableEntryType;
 import com.ledmington.elf.section.sym.SymbolTableSection;
+import com.ledmington.emu.config.EmulatorConfig;
 import com.ledmington.mem.MemoryAddress;
 import com.ledmington.mem.MemoryController;
 import com.ledmington.utils.BitUtils;
@@ -69,7 +73,10 @@ public final class ELFLoader {
 
 	private final X86Emulator cpu;
 	private final MemoryController mem;
+	private final SharedLibraryCache libraryCache;
+	private final StreamingEncoder encoder = new StreamingEncoder(true);
 	private final List<Range> memorySegments = new ArrayList<>();
+	private List<DynamicObject> libraries = List.of();
 
 	private record Range(long start, long end) {}
 
@@ -78,10 +85,42 @@ public final class ELFLoader {
 	 *
 	 * @param cpu The CPU to be used to execute some instructions, if needed.
 	 * @param mem The emulated memory where to load the file.
+	 * @param libraryCache The cache of the shared libraries needed by dynamically-linked files.
 	 */
-	public ELFLoader(final X86Emulator cpu, final MemoryController mem) {
+	public ELFLoader(final X86Emulator cpu, final MemoryController mem, final SharedLibraryCache libraryCache) {
 		this.cpu = Objects.requireNonNull(cpu, "Null cpu.");
 		this.mem = Objects.requireNonNull(mem, "Null memory.");
+		this.libraryCache = Objects.requireNonNull(libraryCache, "Null library cache.");
+	}
+
+	/**
+	 * Creates a new ELFLoader which shares the default cache of shared libraries.
+	 *
+	 * @param cpu The CPU to be used to execute some instructions, if needed.
+	 * @param mem The emulated memory where to load the file.
+	 */
+	public ELFLoader(final X86Emulator cpu, final MemoryController mem) {
+		this(cpu, mem, SharedLibraryCache.getDefault());
+	}
+
+	/**
+	 * Loads the given ELF file in the emulated memory, taking addresses, stack size and sysroot from the given
+	 * configuration.
+	 *
+	 * @param elf The file to be loaded.
+	 * @param commandLineArguments The arguments to pass to the program. Must include the name of the program as the
+	 *     first argument.
+	 * @param config The configuration of the emulator.
+	 */
+	public void load(final ELF elf, final String[] commandLineArguments, final EmulatorConfig config) {
+		load(
+				elf,
+				commandLineArguments,
+				config.getBaseAddress(),
+				config.getBaseStackAddress(),
+				config.getStackSize(),
+				config.getBaseStackValue(),
+				config.getSysroot());
 	}
 
 	/**
@@ -102,6 +141,30 @@ public final class ELFLoader {
 			final long baseStackAddress,
 			final long stackSize,
 			final long baseStackValue) {
+		load(elf, commandLineArguments, baseAddress, baseStackAddress, stackSize, baseStackValue, Path.of("/"));
+	}
+
+	/**
+	 * Loads the given ELF file in the emulated memory. If the file is dynamically-linked, the shared libraries it needs
+	 * are looked for inside the given sysroot, mapped and initialized before the file itself.
+	 *
+	 * @param elf The file to be loaded.
+	 * @param commandLineArguments The arguments to pass to the program. Must include the name of the program as the
+	 *     first argument.
+	 * @param baseAddress The address where to start loading the file.
+	 * @param baseStackAddress The address where to place the base of the stack.
+	 * @param stackSize The size in bytes of the stack.
+	 * @param baseStackValue The value to place at the base of the stack.
+	 * @param sysroot The directory to be used as the root of the filesystem when looking for shared libraries.
+	 */
+	public void load(
+			final ELF elf,
+			final String[] commandLineArguments,
+			final long baseAddress,
+			final long baseStackAddress,
+			final long stackSize,
+			final long baseStackValue,
+			final Path sysroot) {
 		loadSegments(elf, baseAddress);
 		loadSections(elf, baseAddress);
 
@@ -113,30 +176,38 @@ public final class ELFLoader {
 		// These are fake instructions to set up the stack
 		set(Register64.RSP, stackTop);
 
-		final int argc = commandLineArguments.length;
-
-		set(Register64.RDI, BitUtils.asLong(argc));
-
-		loadCommandLineArgumentsAndEnvironmentVariables(
-				elf, stackTop, elf.getFileHeader().is32Bit(), commandLineArguments);
-
+		final boolean isDynamic = elf.getSectionByName(".interp").isPresent();
 		final boolean hasPreInitArray = elf.getSectionByName(".preinit_array").isPresent();
 		final Optional<Section> initArray = elf.getSectionByName(".init_array");
 		final boolean hasInitArray = initArray.isPresent();
 		final Optional<Section> init = elf.getSectionByName(".init");
 		final boolean hasInit = init.isPresent();
 		final boolean hasCtors = elf.getSectionByName(".ctors").isPresent();
+		final boolean hasFinalizers = elf.getSectionByName(".fini_array").isPresent()
+				|| elf.getSectionByName(".fini").isPresent()
+				|| elf.getSectionByName(".dtors").isPresent();
 
-		if (hasPreInitArray || hasInit || hasInitArray || hasCtors) {
+		if (isDynamic || hasPreInitArray || hasInit || hasInitArray || hasCtors || hasFinalizers) {
 			/*
-			If we need to execute some initializers/constructors from .init/.init_array or similar, we need to push something onto the stack, because these special functions do not have a parent. To do so, before each one of them we push a default value (usually 0x0) on the stack as its return address and we write a HLT instruction at the memory location pointed by the base stack value.
+			If we need to execute some initializers/constructors from .init/.init_array or similar (or finalizers when unloading), we need to push something onto the stack, because these special functions do not have a parent. To do so, before each one of them we push a default value (usually 0x0) on the stack as its return address and we write a HLT instruction at the memory location pointed by the base stack value.
 			 */
 			final Instruction halt = new GeneralInstruction(Opcode.HLT);
-			final byte[] haltEncoded = InstructionEncoder.toHex(halt, true);
+			final byte[] haltEncoded = encoder.toHex(halt);
 			mem.setPermissions(new MemoryAddress(baseStackValue), haltEncoded.length, false, false, true);
 			mem.initialize(new MemoryAddress(baseStackValue), haltEncoded);
 		}
 
+		libraries = isDynamic ? link(elf, baseAddress, sysroot, baseStackValue) : List.of();
+
+		final int argc = commandLineArguments.length;
+
+		set(Register64.RDI, BitUtils.asLong(argc));
+
+		loadCommandLineArgumentsAndEnvironmentVariables(
+				elf, stackTop, elf.getFileHeader().is32Bit(), commandLineArguments);
+
+		runLibraryInitializers(stackTop, argc, baseStackValue);
+
 		if (hasPreInitArray) {
 			runPreInitArray();
 		}
@@ -158,6 +229,48 @@ public final class ELFLoader {
 		}
 	}
 
+	private List<DynamicObject> link(
+			final ELF elf, final long baseAddress, final Path sysroot, final long baseStackValue) {
+		final DynamicLinker linker = new DynamicLinker(mem, libraryCache, sysroot, resolver -> {
+			// Indirect function resolvers are called like any other function and return the address in RAX
+			cpu.turnOn();
+			push(baseStackValue);
+			runFrom(cpu, resolver);
+			return cpu.getRegisters().get(Register64.RAX);
+		});
+		try {
+			return linker.link(elf, baseAddress);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void runLibraryInitializers(final long stackTop, final int argc, final long baseStackValue) {
+		// Dependencies are initialized before the objects depending on them
+		for (int i = libraries.size() - 1; i >= 0; i--) {
+			final DynamicObject lib = libraries.get(i);
+			logger.debug("Running %,d initializer(s) of '%s'", lib.getInitArrayLength(), lib.getName());
+			if (lib.getInit() != 0L) {
+				runLibraryInitializer(lib.getInit(), stackTop, argc, baseStackValue);
+			}
+			for (int j = 0; j < lib.getInitArrayLength(); j++) {
+				final long initializer = mem.read8(new MemoryAddress(lib.getInitArray() + 8L * j));
+				runLibraryInitializer(initializer, stackTop, argc, baseStackValue);
+			}
+		}
+	}
+
+	private void runLibraryInitializer(
+			final long address, final long stackTop, final int argc, final long baseStackValue) {
+		// Library initializers receive argc, argv and envp
+		set(Register64.RDI, BitUtils.asLong(argc));
+		set(Register64.RSI, stackTop + 8L);
+		set(Register64.RDX, stackTop + 8L * (argc + 2L));
+		cpu.turnOn();
+		push(baseStackValue);
+		runFrom(cpu, address);
+	}
+
 	private void push(final long value) {
 		// Since it is not possible to push a 64-bit immediate value, we need to use a register temporarily
 		final long oldValue = cpu.getRegisters().get(Register64.R15);
@@ -181,18 +294,44 @@ public final class ELFLoader {
 		}
 	}
 
+	/**
+	 * Returns the initial program break: the first page-aligned address after all the loaded segments.
+	 *
+	 * @return The initial program break, or 0 if nothing has been loaded.
+	 */
+	public long getProgramBreak() {
+		long end = 0L;
+		for (final Range segment : memorySegments) {
+			end = Math.max(end, segment.end());
+		}
+		return (end + 4095L) & -4096L;
+	}
+
 	private void set(final Register64 r, final long value) {
 		cpu.executeOne(new GeneralInstruction(Opcode.MOVABS, r, new Immediate(value)));
 	}
 
+	/**
+	 * Unloads the ELF file from memory, taking addresses from the given configuration. No deallocation takes place,
+	 * only termination/finalization routines are executed.
+	 *
+	 * @param elf The file to be unloaded.
+	 * @param config The configuration of the emulator.
+	 */
+	public void unload(final ELF elf, final EmulatorConfig config) {
+		unload(elf, config.getBaseAddress(), config.getBaseStackValue());
+	}
+
 	/**
 	 * Unloads the ELF file from memory. No deallocation takes place, only termination/finalization routines are
-	 * executed.
+	 * executed: first the ones of the file, then the ones of the shared libraries it was linked with, in the opposite
+	 * order of their initialization.
 	 *
 	 * @param elf The file to be unloaded.
 	 * @param baseAddress The address to unload the ELF file from.
+	 * @param baseStackValue The value placed at the base of the stack when the file was loaded.
 	 */
-	public void unload(final ELF elf, final long baseAddress) {
+	public void unload(final ELF elf, final long baseAddress, final long baseStackValue) {
 		final SymbolTableSection symtab =
 				(SymbolTableSection) elf.getSectionByName(".symtab").orElse(null);
 		final StringTableSection strtab =
@@ -200,17 +339,39 @@ public final class ELFLoader {
 
 		final Optional<Section> finiArray = elf.getSectionByName(".fini_array");
 		if (finiArray.isPresent()) {
-			runFiniArray((DestructorsSection) finiArray.orElseThrow(), baseAddress, symtab, strtab);
+			runFiniArray((DestructorsSection) finiArray.orElseThrow(), baseAddress, symtab, strtab, baseStackValue);
 		}
 
 		final Optional<Section> fini = elf.getSectionByName(".fini");
 		if (fini.isPresent()) {
-			runFini((BasicProgBitsSection) fini.orElseThrow(), baseAddress, symtab, strtab);
+			runFini((BasicProgBitsSection) fini.orElseThrow(), baseAddress, symtab, strtab, baseStackValue);
 		}
 
 		if (elf.getSectionByName(".dtors").isPresent()) {
 			runDtors();
 		}
+
+		runLibraryFinalizers(baseStackValue);
+	}
+
+	private void runLibraryFinalizers(final long baseStackValue) {
+		// Libraries are finalized in the opposite order of their initialization, after the objects depending on them
+		for (final DynamicObject lib : libraries) {
+			logger.debug("Running %,d finalizer(s) of '%s'", lib.getFiniArrayLength(), lib.getName());
+			for (int j = lib.getFiniArrayLength() - 1; j >= 0; j--) {
+				final long finalizer = mem.read8(new MemoryAddress(lib.getFiniArray() + 8L * j));
+				runLibraryFinalizer(finalizer, baseStackValue);
+			}
+			if (lib.getFini() != 0L) {
+				runLibraryFinalizer(lib.getFini(), baseStackValue);
+			}
+		}
+	}
+
+	private void runLibraryFinalizer(final long address, final long baseStackValue) {
+		cpu.turnOn();
+		push(baseStackValue);
+		runFrom(cpu, address);
 	}
 
 	private void runFrom(final X86Emulator cpu, final long startAddress) {
@@ -291,9 +452,11 @@ public final class ELFLoader {
 			final DestructorsSection finiArray,
 			final long entryPointVirtualAddress,
 			final SymbolTableSection symtab,
-			final StringTableSection strtab) {
+			final StringTableSection strtab,
+			final long baseStackValue) {
 		logger.debug("Running %,d destructor(s) from .fini_array", finiArray.getNumDestructors());
-		for (int i = 0; i < finiArray.getNumDestructors(); i++) {
+		// Destructors run in the opposite order of constructors
+		for (int i = finiArray.getNumDestructors() - 1; i >= 0; i--) {
 			final long c = finiArray.getDestructor(i);
 			if (symtab != null && strtab != null) {
 				final String ctorName =
@@ -303,6 +466,8 @@ public final class ELFLoader {
 				logger.debug("Running .fini_array[%d] = 0x%x", i, c);
 			}
 			cpu.turnOn();
+			// Like constructors, each destructor needs its own fake return address.
+			push(baseStackValue);
 			runFrom(cpu, entryPointVirtualAddress + c);
 		}
 	}
@@ -312,7 +477,8 @@ public final class ELFLoader {
 			final BasicProgBitsSection fini,
 			final long entryPointVirtualAddress,
 			final SymbolTableSection symtab,
-			final StringTableSection strtab) {
+			final StringTableSection strtab,
+			final long baseStackValue) {
 		final long sectionStart = entryPointVirtualAddress + fini.header().getFileOffset();
 		final long sectionEnd = sectionStart + fini.header().getSectionSize();
 
@@ -330,6 +496,7 @@ public final class ELFLoader {
 						logger.debug("Running destructor from .init");
 					}
 					cpu.turnOn();
+					push(baseStackValue);
 					runFrom(cpu, start);
 				}
 			}
@@ -17,6 +17,8 @@
  */
 package com.ledmington.emu;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
@@ -32,6 +34,8 @@ import com.ledmington.elf.section.Section;
 import com.ledmington.elf.section.StringTableSection;
 import com.ledmington.elf.section.sym.SymbolTableEntryType;
 import com.ledmington.elf.section.sym.SymbolTableSection;
+import com.ledmington.emu.config.EmulatorConfig;
+import com.ledmington.emu.syscall.LinuxSyscalls;
 import com.ledmington.mem.MemoryController;
 import com.ledmington.mem.PagedMemory;
 import com.ledmington.utils.MiniLogger;
@@ -42,45 +46,90 @@ public final class Emu {
 	private static final MiniLogger logger = MiniLogger.getLogger("emu");
 
 	private final ExecutionContext context;
+	private final EmulatorConfig config;
 	private ELF elf = null;
 	private long entryPointVirtualAddress = 0L;
 	private final ELFLoader loader; // TODO: should we place this inside ExecutionContext, too?
 
 	/**
-	 * Creates a new Emu instance with the given context and the given {@link ELFLoader}.
+	 * Creates a new Emu instance with the given context, the given {@link ELFLoader} and the given configuration.
 	 *
 	 * @param context The execution context to be used for emulation.
 	 * @param loader The loader to be used to initialize ELF files.
+	 * @param config The configuration of this instance.
 	 */
-	public Emu(final ExecutionContext context, final ELFLoader loader) {
+	public Emu(final ExecutionContext context, final ELFLoader loader, final EmulatorConfig config) {
 		this.context = Objects.requireNonNull(context, "Null context.");
 		this.loader = Objects.requireNonNull(loader, "Null loader.");
+		this.config = Objects.requireNonNull(config, "Null config.");
+	}
+
+	/**
+	 * Creates a new Emu instance with the given context, the given {@link ELFLoader} and the default configuration.
+	 *
+	 * @param context The execution context to be used for emulation.
+	 * @param loader The loader to be used to initialize ELF files.
+	 */
+	public Emu(final ExecutionContext context, final ELFLoader loader) {
+		this(context, loader, EmulatorConfig.getDefault());
+	}
+
+	/**
+	 * Creates a new Emu instance with the given context, a default {@link ELFLoader} and the given configuration.
+	 *
+	 * @param context The execution context to be used for emulation.
+	 * @param config The configuration of this instance.
+	 */
+	public Emu(final ExecutionContext context, final EmulatorConfig config) {
+		this(context, new ELFLoader(context.cpu(), (MemoryController) context.memory()), config);
 	}
 
 	/**
-	 * Creates a new Emu instance with the given context and a default {@link ELFLoader}.
+	 * Creates a new Emu instance with the given context, a default {@link ELFLoader} and the default configuration.
 	 *
 	 * @param context The execution context to be used for emulation.
 	 */
 	public Emu(final ExecutionContext context) {
-		this(context, new ELFLoader(context.cpu(), (MemoryController) context.memory()));
+		this(context, EmulatorConfig.getDefault());
 	}
 
 	/**
-	 * Creates an ExecutionContext with the default values for checks and memory initialization taken from
-	 * {@link EmulatorConstants}.
+	 * Creates an ExecutionContext with the checks and memory initialization of the default configuration.
 	 *
 	 * @return A new ExecutionContext.
 	 */
 	public static ExecutionContext getDefaultExecutionContext() {
+		return getDefaultExecutionContext(EmulatorConfig.getDefault());
+	}
+
+	/**
+	 * Creates an ExecutionContext with the checks and memory initialization of the given configuration.
+	 *
+	 * @param config The configuration to be used.
+	 * @return A new ExecutionContext.
+	 */
+	public static ExecutionContext getDefaultExecutionContext(final EmulatorConfig config) {
+		return getDefaultExecutionContext(X86Cpu.builder(), new PagedMemory(config.newMemoryInitializer()), config);
+	}
+
+	/**
+	 * Creates an ExecutionContext with the checks of the given configuration, using the given builder for the CPU and
+	 * the given memory. This allows, for example, to attach a {@link TraceWriter} or a {@link Profiler} and to collect
+	 * {@link Metrics}.
+	 *
+	 * @param cpuBuilder The builder of the CPU, whose memory and configuration are set by this method.
+	 * @param ram The memory to be wrapped by the MemoryController.
+	 * @param config The configuration to be used.
+	 * @return A new ExecutionContext.
+	 */
+	public static ExecutionContext getDefaultExecutionContext(
+			final X86CpuBuilder cpuBuilder, final PagedMemory ram, final EmulatorConfig config) {
+		Objects.requireNonNull(cpuBuilder);
+		Objects.requireNonNull(ram);
+		Objects.requireNonNull(config);
 		final MemoryController mem = new MemoryController(
-				new PagedMemory(EmulatorConstants.getMemoryInitializer()),
-				EmulatorConstants.shouldBreakOnWrongPermissions(),
-				EmulatorConstants.shouldBreakWhenReadingUninitializedMemory());
-		final X86Cpu cpu = X86Cpu.builder()
-				.memory(mem)
-				.checkInstructions(EmulatorConstants.shouldCheckInstruction())
-				.build();
+				ram, config.shouldBreakOnWrongPermissions(), config.shouldBreakWhenReadingUninitializedMemory());
+		final X86Cpu cpu = cpuBuilder.memory(mem).config(config).build();
 		return new ExecutionContext(cpu, mem);
 	}
 
@@ -91,10 +140,11 @@ public final class Emu {
 	 * @return A new ExecutionContext.
 	 */
 	public static ExecutionContext getSafeExecutionContext() {
-		final MemoryController mem =
-				new MemoryController(new PagedMemory(EmulatorConstants.getMemoryInitializer()), true, true);
-		final X86Cpu cpu = X86Cpu.builder().memory(mem).checkInstructions().build();
-		return new ExecutionContext(cpu, mem);
+		return getDefaultExecutionContext(EmulatorConfig.getDefault().toBuilder()
+				.breakOnWrongPermissions(true)
+				.breakWhenReadingUninitializedMemory(true)
+				.checkInstructions(true)
+				.build());
 	}
 
 	/**
@@ -103,10 +153,11 @@ public final class Emu {
 	 * @return A new ExecutionContext.
 	 */
 	public static ExecutionContext getFastExecutionContext() {
-		final MemoryController mem =
-				new MemoryController(new PagedMemory(EmulatorConstants.getMemoryInitializer()), false, false);
-		final X86Cpu cpu = X86Cpu.builder().memory(mem).build();
-		return new ExecutionContext(cpu, mem);
+		return getDefaultExecutionContext(EmulatorConfig.getDefault().toBuilder()
+				.breakOnWrongPermissions(false)
+				.breakWhenReadingUninitializedMemory(false)
+				.checkInstructions(false)
+				.build());
 	}
 
 	/**
@@ -153,15 +204,30 @@ public final class Emu {
 				.toList()
 				.toArray(new String[0]);
 
-		loader.load(
-				elf,
-				args,
-				EmulatorConstants.getBaseAddress(),
-				EmulatorConstants.getBaseStackAddress(),
-				EmulatorConstants.getStackSize(),
-				EmulatorConstants.getBaseStackValue());
+		loader.load(elf, args, config);
+		if (this.context.cpu() instanceof final X86Cpu cpu
+				&& cpu.getSyscallTable() instanceof final LinuxSyscalls sys) {
+			sys.setProgramBreak(loader.getProgramBreak());
+		}
+
+		this.context.cpu().setInstructionPointer(config.getBaseAddress() + entryPointVirtualAddress);
 
-		this.context.cpu().setInstructionPointer(EmulatorConstants.getBaseAddress() + entryPointVirtualAddress);
+		final Optional<Path> cacheDirectory = config.getTranslationCacheDirectory();
+		if (cacheDirectory.isPresent()
+				&& config.getJitThreshold() > 0
+				&& this.context.cpu() instanceof final X86Cpu cpu) {
+			try {
+				cpu.useTranslationCache(TranslationCache.forExecutable(
+						cacheDirectory.orElseThrow(),
+						Path.of(filename),
+						elf,
+						(MemoryController) context.memory(),
+						config.getBaseAddress(),
+						config.shouldCheckInstructions()));
+			} catch (final IOException e) {
+				logger.warning("Could not use the translation cache in '%s': %s", cacheDirectory.orElseThrow(), e);
+			}
+		}
 	}
 
 	/** Executes the already-loaded ELF file. */
@@ -188,12 +254,29 @@ public final class Emu {
 				}
 			}
 		}
-		this.context.cpu().execute();
+		if (this.context.cpu() instanceof final X86Cpu cpu) {
+			// Lets the program create more threads
+			new X86Machine(cpu).run();
+		} else {
+			this.context.cpu().execute();
+		}
 		logger.info(" ### Execution end ### ");
 	}
 
+	/**
+	 * Returns a Symbolizer for the functions of the loaded ELF file.
+	 *
+	 * @return A new Symbolizer.
+	 */
+	public Symbolizer getSymbolizer() {
+		if (elf == null) {
+			throw new IllegalStateException("No ELF file was loaded.");
+		}
+		return Symbolizer.of(elf, config.getBaseAddress());
+	}
+
 	/** Unloads the file from memory, deallocating all the memory it used. */
 	public void unload() {
-		loader.unload(elf, EmulatorConstants.getBaseAddress());
+		loader.unload(elf, config);
 	}
 }
@@ -21,7 +21,9 @@ import com.ledmington.cpu.x86.Register16;
 import com.ledmington.cpu.x86.Register32;
 import com.ledmington.cpu.x86.Register64;
 import com.ledmington.cpu.x86.Register8;
+import com.ledmington.cpu.x86.RegisterDescriptor;
 import com.ledmington.cpu.x86.SegmentRegister;
+import com.ledmington.utils.BitUtils;
 
 /** Represents an immutable register file. */
 public interface ImmutableRegisterFile {
@@ -50,6 +52,15 @@ public interface ImmutableRegisterFile {
 	 */
 	short get(SegmentRegister s);
 
+	/**
+	 * Returns the base address added to memory operands using the given segment register. In 64-bit mode only FS and
+	 * GS have a base, which is 0 for the other segment registers.
+	 *
+	 * @param s The segment register.
+	 * @return The base address of the segment.
+	 */
+	long getSegmentBase(SegmentRegister s);
+
 	/**
 	 * Returns the value of the given 32-bit register as an int.
 	 *
@@ -66,6 +77,31 @@ public interface ImmutableRegisterFile {
 	 */
 	long get(Register64 r);
 
+	/**
+	 * Returns the value of the general-purpose register with the given descriptor, zero-extended to a long.
+	 *
+	 * @param r The descriptor of the register to be read.
+	 * @return The value of the register.
+	 */
+	default long get(final RegisterDescriptor r) {
+		return switch (r.register()) {
+			case Register8 r8 -> BitUtils.asLong(get(r8));
+			case Register16 r16 -> BitUtils.asLong(get(r16));
+			case Register32 r32 -> BitUtils.asLong(get(r32));
+			case Register64 r64 -> get(r64);
+		};
+	}
+
+	/**
+	 * Returns a 64-bit lane of the given vector register. The XMM, YMM and ZMM registers with the same number share the
+	 * same storage: lanes 0 and 1 are the XMM register, lanes 0 to 3 the YMM one and lanes 0 to 7 the ZMM one.
+	 *
+	 * @param register The number of the vector register, between 0 and 31.
+	 * @param lane The index of the lane, between 0 (the lowest 64 bits) and 7.
+	 * @return The value of the lane.
+	 */
+	long getVectorLane(int register, int lane);
+
 	/**
 	 * Checks whether the given flag is set.
 	 *
@@ -17,20 +17,49 @@
  */
 package com.ledmington.emu;
 
+import java.util.Arrays;
 import java.util.Objects;
 
+import com.ledmington.cpu.InstructionDecoder;
+import com.ledmington.cpu.x86.Instruction;
 import com.ledmington.cpu.x86.Register64;
 import com.ledmington.mem.MemoryAddress;
 import com.ledmington.mem.MemoryController;
 import com.ledmington.utils.ReadOnlyByteBuffer;
 import com.ledmington.utils.SuppressFBWarnings;
 
-/** A class which represents the part of the emulated CPU which reads instructions from memory during execution. */
+/**
+ * A class which represents the part of the emulated CPU which reads instructions from memory during execution.
+ *
+ * <p>Execute permissions are validated once per page, and the result is kept until the permissions of the memory
+ * change. The bytes of each instruction are read with a single bulk copy into a small window, which the decoder reads
+ * from, and the instruction pointer is updated only once the whole instruction has been decoded. The window is
+ * refilled for every instruction, so that code which modifies itself is always seen up to date.
+ */
 public final class InstructionFetcher implements ReadOnlyByteBuffer {
 
+	/** The size of the pages whose permissions are validated at once. */
+	private static final long PAGE_SIZE = 4096L;
+
+	/** The maximum length of a single x86 instruction, in bytes. */
+	private static final int MAX_INSTRUCTION_LENGTH = 15;
+
+	/** The number of validated pages to remember, must be a power of two. */
+	private static final int VALIDATED_PAGES = 64;
+
 	private final MemoryController mem;
 	private final RegisterFile regFile;
 
+	private final byte[] window = new byte[MAX_INSTRUCTION_LENGTH];
+	private long windowStart = 0L;
+	private int windowLength = 0;
+	private long position = 0L;
+
+	// For each slot, the range of fetchable addresses within a page and the permissions version it was validated with
+	private final long[] validStart = new long[VALIDATED_PAGES];
+	private final long[] validEnd = new long[VALIDATED_PAGES];
+	private final long[] validVersion = new long[VALIDATED_PAGES];
+
 	/**
 	 * Creates an InstructionFetcher with the given MemoryController and register file.
 	 *
@@ -41,6 +70,23 @@ public final class InstructionFetcher implements ReadOnlyByteBuffer {
 	public InstructionFetcher(final MemoryController mem, final RegisterFile regFile) {
 		this.mem = Objects.requireNonNull(mem);
 		this.regFile = Objects.requireNonNull(regFile);
+		Arrays.fill(validVersion, -1L);
+	}
+
+	/**
+	 * Decodes the instruction pointed to by RIP and moves RIP right after it. If the instruction cannot be decoded, RIP
+	 * is left where the decoding stopped.
+	 *
+	 * @return The decoded instruction.
+	 */
+	public Instruction fetch() {
+		position = regFile.get(Register64.RIP);
+		windowLength = 0;
+		try {
+			return InstructionDecoder.fromHex(this);
+		} finally {
+			regFile.set(Register64.RIP, position);
+		}
 	}
 
 	@Override
@@ -65,21 +111,53 @@ public final class InstructionFetcher implements ReadOnlyByteBuffer {
 
 	@Override
 	public void setPosition(final long newPosition) {
-		regFile.set(Register64.RIP, newPosition);
+		position = newPosition;
 	}
 
 	@Override
 	public long getPosition() {
-		return regFile.get(Register64.RIP);
+		return position;
 	}
 
 	@Override
 	public byte read() {
-		return mem.readCode(new MemoryAddress(getPosition()));
+		final long offset = position - windowStart;
+		if (offset >= 0L && offset < windowLength) {
+			return window[(int) offset];
+		}
+		return refill();
+	}
+
+	private byte refill() {
+		final long available = getFetchableBytes();
+		if (available == 0L) {
+			// Let the memory controller report the error
+			return mem.readCode(new MemoryAddress(position));
+		}
+		windowStart = position;
+		windowLength = (int) Math.min(available, MAX_INSTRUCTION_LENGTH);
+		mem.fetchCode(new MemoryAddress(position), window, 0, windowLength);
+		return window[0];
+	}
+
+	private long getFetchableBytes() {
+		final long page = position & -PAGE_SIZE;
+		final int slot = (int) ((position / PAGE_SIZE) & (VALIDATED_PAGES - 1));
+		final long version = mem.getPermissionsVersion();
+		if (validVersion[slot] != version
+				|| (validStart[slot] & -PAGE_SIZE) != page
+				|| position < validStart[slot]
+				|| position >= validEnd[slot]) {
+			final long untilPageEnd = page + PAGE_SIZE - position;
+			validStart[slot] = position;
+			validEnd[slot] = position + mem.getExecutableBytes(new MemoryAddress(position), untilPageEnd);
+			validVersion[slot] = version;
+		}
+		return validEnd[slot] - position;
 	}
 
 	@Override
 	public String toString() {
-		return "InstructionFetcher(rip=" + getPosition() + ')';
+		return "InstructionFetcher(rip=" + regFile.get(Register64.RIP) + ";position=" + position + ')';
 	}
 }
@@ -0,0 +1,261 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import com.ledmington.mem.Memory;
+import com.ledmington.mem.MemoryAddress;
+
+/**
+ * The helpers called by the code generated by the {@link BlockCompiler}. They reproduce exactly the semantics of the
+ * interpreter inside {@link X86Cpu}, so that a block behaves the same whether it is compiled or not. All of them are
+ * small enough to be inlined in the generated code.
+ */
+final class JitRuntime {
+
+	private static final long ARITHMETIC_FLAGS = (1L << RFlags.ZERO.bit())
+			| (1L << RFlags.PARITY.bit())
+			| (1L << RFlags.SIGN.bit())
+			| (1L << RFlags.CARRY.bit())
+			| (1L << RFlags.OVERFLOW.bit());
+
+	private JitRuntime() {}
+
+	private static long bit(final RFlags f, final boolean value) {
+		return value ? 1L << f.bit() : 0L;
+	}
+
+	private static boolean isSet(final long rflags, final RFlags f) {
+		return (rflags & (1L << f.bit())) != 0L;
+	}
+
+	/**
+	 * Updates the arithmetic flags after an operation with the given (sign-extended) result.
+	 *
+	 * @param rflags The old value of RFLAGS.
+	 * @param result The result of the operation, sign-extended to 64 bits.
+	 * @param carry The new value of the carry flag.
+	 * @param overflow The new value of the overflow flag.
+	 * @return The new value of RFLAGS.
+	 */
+	static long flags(final long rflags, final long result, final boolean carry, final boolean overflow) {
+		return (rflags & ~ARITHMETIC_FLAGS)
+				| bit(RFlags.ZERO, result == 0L)
+				| bit(RFlags.PARITY, (Long.bitCount(result) % 2) == 0)
+				| bit(RFlags.SIGN, result < 0L)
+				| bit(RFlags.CARRY, carry)
+				| bit(RFlags.OVERFLOW, overflow);
+	}
+
+	/**
+	 * Updates the arithmetic flags after an operation which clears both the carry and the overflow flags.
+	 *
+	 * @param rflags The old value of RFLAGS.
+	 * @param result The result of the operation, sign-extended to 64 bits.
+	 * @return The new value of RFLAGS.
+	 */
+	static long logicFlags(final long rflags, final long result) {
+		return flags(rflags, result, false, false);
+	}
+
+	/**
+	 * Updates the arithmetic flags after a 64-bit addition.
+	 *
+	 * @param rflags The old value of RFLAGS.
+	 * @param a The first addend.
+	 * @param b The second addend.
+	 * @return The new value of RFLAGS.
+	 */
+	static long addFlags(final long rflags, final long a, final long b) {
+		final long r = a + b;
+		return flags(rflags, r, Long.compareUnsigned(r, a) < 0, ((a ^ r) & (b ^ r)) < 0L);
+	}
+
+	/**
+	 * Updates the arithmetic flags after a 32-bit addition.
+	 *
+	 * @param rflags The old value of RFLAGS.
+	 * @param a The first addend.
+	 * @param b The second addend.
+	 * @return The new value of RFLAGS.
+	 */
+	static long addFlags(final long rflags, final int a, final int b) {
+		final int r = a + b;
+		return flags(rflags, r, Integer.compareUnsigned(r, a) < 0, ((a ^ r) & (b ^ r)) < 0);
+	}
+
+	/**
+	 * Updates the arithmetic flags after a 64-bit subtraction (or comparison).
+	 *
+	 * @param rflags The old value of RFLAGS.
+	 * @param a The minuend.
+	 * @param b The subtrahend.
+	 * @return The new value of RFLAGS.
+	 */
+	static long subFlags(final long rflags, final long a, final long b) {
+		final long r = a - b;
+		return flags(rflags, r, Long.compareUnsigned(a, b) < 0, ((a ^ b) & (a ^ r)) < 0L);
+	}
+
+	/**
+	 * Updates the arithmetic flags after a 32-bit subtraction.
+	 *
+	 * @param rflags The old value of RFLAGS.
+	 * @param a The minuend.
+	 * @param b The subtrahend.
+	 * @return The new value of RFLAGS.
+	 */
+	static long subFlags(final long rflags, final int a, final int b) {
+		final int r = a - b;
+		return flags(rflags, r, Integer.compareUnsigned(a, b) < 0, ((a ^ b) & (a ^ r)) < 0);
+	}
+
+	/**
+	 * Evaluates a condition on the flags, using the 4-bit encoding of the Jcc, SETcc and CMOVcc instructions.
+	 *
+	 * @param rflags The value of RFLAGS.
+	 * @param cc The condition code, from 0 (O) to 15 (G).
+	 * @return True if the condition holds.
+	 */
+	@SuppressWarnings("PMD.CyclomaticComplexity")
+	static boolean condition(final long rflags, final int cc) {
+		final boolean zf = isSet(rflags, RFlags.ZERO);
+		final boolean cf = isSet(rflags, RFlags.CARRY);
+		final boolean sf = isSet(rflags, RFlags.SIGN);
+		final boolean of = isSet(rflags, RFlags.OVERFLOW);
+		final boolean result =
+				switch (cc >>> 1) {
+					case 0 -> of;
+					case 1 -> cf;
+					case 2 -> zf;
+					case 3 -> cf || zf;
+					case 4 -> sf;
+					case 5 -> isSet(rflags, RFlags.PARITY);
+					case 6 -> sf != of;
+					case 7 -> zf || sf != of;
+					default -> throw new IllegalArgumentException(String.format("Invalid condition code %,d.", cc));
+				};
+		// Odd codes are the negated conditions
+		return ((cc & 1) == 0) == result;
+	}
+
+	/**
+	 * Checks the stack bounds before a push.
+	 *
+	 * @param rsp The current value of RSP.
+	 * @param stackBottom The lowest address of the stack.
+	 * @return The new value of RSP.
+	 * @throws StackOverflow When pushing over the max stack size.
+	 */
+	static long push(final long rsp, final long stackBottom) {
+		final long newRSP = rsp - 8L;
+		if (Long.compareUnsigned(newRSP, stackBottom) < 0) {
+			throw new StackOverflow();
+		}
+		return newRSP;
+	}
+
+	/**
+	 * Checks the stack bounds before a pop.
+	 *
+	 * @param rsp The current value of RSP.
+	 * @param stackTop The highest address of the stack.
+	 * @throws StackUnderflow When popping from the base of the stack.
+	 */
+	static void pop(final long rsp, final long stackTop) {
+		if (Long.compareUnsigned(rsp, stackTop) > 0) {
+			throw new StackUnderflow();
+		}
+	}
+
+	/**
+	 * Reads 1 byte.
+	 *
+	 * @param mem The memory to access.
+	 * @param address The address of the first byte.
+	 * @return The read value.
+	 */
+	static byte read1(final Memory mem, final long address) {
+		return mem.read(new MemoryAddress(address));
+	}
+
+	/**
+	 * Reads 2 bytes.
+	 *
+	 * @param mem The memory to access.
+	 * @param address The address of the first byte.
+	 * @return The read value.
+	 */
+	static short read2(final Memory mem, final long address) {
+		return mem.read2(new MemoryAddress(address));
+	}
+
+	/**
+	 * Reads 4 bytes.
+	 *
+	 * @param mem The memory to access.
+	 * @param address The address of the first byte.
+	 * @return The read value.
+	 */
+	static int read4(final Memory mem, final long address) {
+		return mem.read4(new MemoryAddress(address));
+	}
+
+	/**
+	 * Reads 8 bytes.
+	 *
+	 * @param mem The memory to access.
+	 * @param address The address of the first byte.
+	 * @return The read value.
+	 */
+	static long read8(final Memory mem, final long address) {
+		return mem.read8(new MemoryAddress(address));
+	}
+
+	/**
+	 * Writes 2 bytes.
+	 *
+	 * @param mem The memory to access.
+	 * @param address The address of the first byte.
+	 * @param value The value to be written, in little-endian order.
+	 */
+	static void write2(final Memory mem, final long address, final short value) {
+		mem.write(new MemoryAddress(address), value);
+	}
+
+	/**
+	 * Writes 4 bytes.
+	 *
+	 * @param mem The memory to access.
+	 * @param address The address of the first byte.
+	 * @param value The value to be written, in little-endian order.
+	 */
+	static void write4(final Memory mem, final long address, final int value) {
+		mem.write(new MemoryAddress(address), value);
+	}
+
+	/**
+	 * Writes 8 bytes.
+	 *
+	 * @param mem The memory to access.
+	 * @param address The address of the first byte.
+	 * @param value The value to be written, in little-endian order.
+	 */
+	static void write8(final Memory mem, final long address, final long value) {
+		mem.write(new MemoryAddress(address), value);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.Objects;
+
+import com.ledmington.mem.Memory;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.utils.BitUtils;
+
+/**
+ * A view of the memory used while executing a locked instruction: reads and writes of the locked location go to a
+ * private copy of its value, while every other access is forwarded. After the instruction, the new value is published
+ * with a single compare-and-exchange, so that other threads see either none or all of its effects.
+ */
+final class LockedAccess implements Memory {
+
+	private final Memory mem;
+	private long start;
+	private int size;
+	private long value;
+
+	LockedAccess(final Memory mem) {
+		this.mem = Objects.requireNonNull(mem);
+	}
+
+	/**
+	 * Starts a new locked access.
+	 *
+	 * @param start The address of the locked location.
+	 * @param size The size in bytes of the locked location.
+	 * @param value The value read from the locked location.
+	 */
+	void begin(final long start, final int size, final long value) {
+		this.start = start;
+		this.size = size;
+		this.value = value;
+	}
+
+	/**
+	 * Returns the value of the locked location, as modified by the instruction.
+	 *
+	 * @return The new value of the locked location.
+	 */
+	long value() {
+		return value;
+	}
+
+	private int offsetOf(final MemoryAddress address) {
+		final long offset = address.address() - start;
+		return Long.compareUnsigned(offset, size) < 0 ? (int) offset : -1;
+	}
+
+	@Override
+	public byte read(final MemoryAddress address) {
+		final int offset = offsetOf(address);
+		return offset < 0 ? mem.read(address) : BitUtils.asByte(value >>> (8 * offset));
+	}
+
+	@Override
+	public void write(final MemoryAddress address, final byte b) {
+		final int offset = offsetOf(address);
+		if (offset < 0) {
+			mem.write(address, b);
+		} else {
+			value = (value & ~(0xffL << (8 * offset))) | (BitUtils.asLong(b) << (8 * offset));
+		}
+	}
+
+	@Override
+	public boolean isInitialized(final MemoryAddress address) {
+		return offsetOf(address) >= 0 || mem.isInitialized(address);
+	}
+
+	@Override
+	public String toString() {
+		return "LockedAccess(mem=" + mem + ";start=" + start + ";size=" + size + ";value=" + value + ")";
+	}
+}
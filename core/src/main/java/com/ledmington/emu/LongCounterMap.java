@@ -0,0 +1,168 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+/**
+ * An open-addressing hash map from 64-bit keys to 64-bit counters, with linear probing. A slot is empty when its counter
+ * is zero, so no boxing and no separate occupancy array are needed, but counters can only be incremented by positive
+ * amounts.
+ */
+final class LongCounterMap {
+
+	private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+	private long[] keys;
+	private long[] counts;
+	private int mask;
+	private int size = 0;
+
+	/**
+	 * Creates a new LongCounterMap with room for the given number of keys before the first resize.
+	 *
+	 * @param initialCapacity The initial number of slots, rounded up to a power of two.
+	 */
+	LongCounterMap(final int initialCapacity) {
+		if (initialCapacity < 1) {
+			throw new IllegalArgumentException(String.format("Invalid initial capacity: %,d.", initialCapacity));
+		}
+		final int capacity = Math.max(2, Integer.highestOneBit(initialCapacity - 1) << 1);
+		this.keys = new long[capacity];
+		this.counts = new long[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/** Creates a new LongCounterMap with a default initial capacity. */
+	LongCounterMap() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	private static int hash(final long key) {
+		final long h = key * 0x9e3779b97f4a7c15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Adds 1 to the counter of the given key.
+	 *
+	 * @param key The key.
+	 */
+	void increment(final long key) {
+		add(key, 1L);
+	}
+
+	/**
+	 * Adds the given amount to the counter of the given key.
+	 *
+	 * @param key The key.
+	 * @param delta The amount to be added, strictly positive.
+	 */
+	void add(final long key, final long delta) {
+		int i = hash(key) & mask;
+		while (counts[i] != 0L) {
+			if (keys[i] == key) {
+				counts[i] += delta;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		counts[i] = delta;
+		size++;
+		if (size * 2 > keys.length) {
+			resize();
+		}
+	}
+
+	private void resize() {
+		final long[] oldKeys = keys;
+		final long[] oldCounts = counts;
+		keys = new long[oldKeys.length * 2];
+		counts = new long[oldKeys.length * 2];
+		mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldCounts[j] != 0L) {
+				int i = hash(oldKeys[j]) & mask;
+				while (counts[i] != 0L) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				counts[i] = oldCounts[j];
+			}
+		}
+	}
+
+	/**
+	 * Returns the counter of the given key.
+	 *
+	 * @param key The key.
+	 * @return The counter, or 0 if the key was never added.
+	 */
+	long get(final long key) {
+		int i = hash(key) & mask;
+		while (counts[i] != 0L) {
+			if (keys[i] == key) {
+				return counts[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return 0L;
+	}
+
+	/**
+	 * Returns the number of distinct keys.
+	 *
+	 * @return The number of keys.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of slots, to iterate with {@link #keyAt(int)} and {@link #countAt(int)}.
+	 *
+	 * @return The number of slots.
+	 */
+	int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns the key in the given slot.
+	 *
+	 * @param slot The slot index.
+	 * @return The key in the slot, meaningful only if {@link #countAt(int)} is not zero.
+	 */
+	long keyAt(final int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * Returns the counter in the given slot.
+	 *
+	 * @param slot The slot index.
+	 * @return The counter in the slot, zero if the slot is empty.
+	 */
+	long countAt(final int slot) {
+		return counts[slot];
+	}
+
+	@Override
+	public String toString() {
+		return "LongCounterMap(size=" + size + ";capacity=" + keys.length + ")";
+	}
+}
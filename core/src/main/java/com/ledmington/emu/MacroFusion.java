@@ -0,0 +1,145 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+
+/**
+ * Recognizes the pairs of consecutive instructions which the interpreter executes as a single superinstruction:
+ *
+ * <ul>
+ *   <li>CMP or TEST followed by a conditional jump, whose condition is computed directly from the result of the
+ *       comparison while the flags are only recorded, to be computed if someone reads them;
+ *   <li>{@code PUSH RBP} followed by {@code MOV RBP,RSP}, the usual function prologue;
+ *   <li>LEAVE followed by RET, the usual function epilogue.
+ * </ul>
+ */
+final class MacroFusion {
+
+	private static final Set<Opcode> CONDITIONAL_JUMPS = EnumSet.of(
+			Opcode.JO,
+			Opcode.JNO,
+			Opcode.JB,
+			Opcode.JAE,
+			Opcode.JE,
+			Opcode.JNE,
+			Opcode.JBE,
+			Opcode.JA,
+			Opcode.JS,
+			Opcode.JNS,
+			Opcode.JP,
+			Opcode.JNP,
+			Opcode.JL,
+			Opcode.JGE,
+			Opcode.JLE,
+			Opcode.JG);
+
+	private MacroFusion() {}
+
+	/**
+	 * Tells whether the given instruction may be the first one of a fused pair. Cheaper than decoding the next
+	 * instruction just to find out that the pair cannot be fused.
+	 *
+	 * @param first The instruction.
+	 * @return True if the given instruction may start a fused pair.
+	 */
+	static boolean mayStartPair(final Instruction first) {
+		Objects.requireNonNull(first);
+		if (first.hasPrefix()) {
+			return false;
+		}
+		return switch (first.opcode()) {
+			case CMP, LEAVE -> true;
+			case TEST -> isTestOfRegisters(first);
+			case PUSH -> first.firstOperand() == Register64.RBP;
+			default -> false;
+		};
+	}
+
+	/**
+	 * Tells whether the given consecutive instructions can be executed as a single superinstruction.
+	 *
+	 * @param first The first instruction.
+	 * @param second The instruction right after the first one.
+	 * @return True if the pair can be fused.
+	 */
+	static boolean isPair(final Instruction first, final Instruction second) {
+		Objects.requireNonNull(second);
+		if (!mayStartPair(first) || second.hasPrefix()) {
+			return false;
+		}
+		return switch (first.opcode()) {
+			case CMP, TEST -> CONDITIONAL_JUMPS.contains(second.opcode()) && second.firstOperand() instanceof Immediate;
+			case PUSH ->
+				second.opcode() == Opcode.MOV
+						&& second.firstOperand() == Register64.RBP
+						&& second.secondOperand() == Register64.RSP;
+			case LEAVE -> second.opcode() == Opcode.RET && !second.hasFirstOperand();
+			default -> false;
+		};
+	}
+
+	/** The interpreter supports TEST only between registers of the same size: these are the common ones. */
+	private static boolean isTestOfRegisters(final Instruction inst) {
+		return (inst.firstOperand() instanceof Register64 && inst.secondOperand() instanceof Register64)
+				|| (inst.firstOperand() instanceof Register32 && inst.secondOperand() instanceof Register32);
+	}
+
+	/**
+	 * Evaluates the condition of the given conditional jump on the flags which the given result would produce, without
+	 * computing RFLAGS.
+	 *
+	 * @param jcc The opcode of the conditional jump.
+	 * @param result The (sign-extended) result of the comparison.
+	 * @param carry The value of CF after the comparison.
+	 * @param overflow The value of OF after the comparison.
+	 * @return True if the jump is taken.
+	 */
+	@SuppressWarnings("PMD.CyclomaticComplexity")
+	static boolean condition(final Opcode jcc, final long result, final boolean carry, final boolean overflow) {
+		final boolean zero = result == 0L;
+		final boolean sign = result < 0L;
+		return switch (jcc) {
+			case JO -> overflow;
+			case JNO -> !overflow;
+			case JB -> carry;
+			case JAE -> !carry;
+			case JE -> zero;
+			case JNE -> !zero;
+			case JBE -> carry || zero;
+			case JA -> !carry && !zero;
+			case JS -> sign;
+			case JNS -> !sign;
+			case JP -> (Long.bitCount(result) % 2) == 0;
+			case JNP -> (Long.bitCount(result) % 2) != 0;
+			case JL -> sign != overflow;
+			case JGE -> sign == overflow;
+			case JLE -> zero || sign != overflow;
+			case JG -> !zero && sign == overflow;
+			default -> throw new IllegalArgumentException(String.format("Not a conditional jump: %s.", jcc));
+		};
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.Objects;
+
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.PagedMemory;
+import com.ledmington.utils.SuppressFBWarnings;
+
+/**
+ * Collects the counters of a running emulator: those of the CPU, of the {@link MemoryController} and of the
+ * {@link PagedMemory} behind it. Each component keeps its own striped counters, so taking a snapshot from another thread
+ * never stops the emulation.
+ */
+public final class Metrics {
+
+	private final X86Cpu cpu;
+	private final MemoryController controller;
+	private final PagedMemory memory;
+	private final MetricsSnapshot start;
+
+	/**
+	 * Creates a new Metrics over the given components.
+	 *
+	 * @param cpu The emulated CPU.
+	 * @param controller The memory controller used by the CPU.
+	 * @param memory The memory behind the controller.
+	 */
+	@SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The components are only read.")
+	public Metrics(final X86Cpu cpu, final MemoryController controller, final PagedMemory memory) {
+		this.cpu = Objects.requireNonNull(cpu);
+		this.controller = Objects.requireNonNull(controller);
+		this.memory = Objects.requireNonNull(memory);
+		this.start = snapshot();
+	}
+
+	/**
+	 * Reads all the counters.
+	 *
+	 * @return A new snapshot of the counters.
+	 */
+	public MetricsSnapshot snapshot() {
+		return new MetricsSnapshot(
+				System.nanoTime(),
+				cpu.getInstructionsRetired(),
+				cpu.getDecodeCacheHits(),
+				cpu.getSyscalls(),
+				memory.getPageFaults(),
+				memory.getAllocatedPages(),
+				controller.getReadChecks(),
+				controller.getWriteChecks(),
+				controller.getExecuteChecks());
+	}
+
+	/**
+	 * Returns the average number of instructions retired per second since this object was created.
+	 *
+	 * @return The average number of instructions per second.
+	 */
+	public double instructionsPerSecond() {
+		return snapshot().instructionsPerSecondSince(start);
+	}
+
+	@Override
+	public String toString() {
+		return "Metrics(" + snapshot() + ")";
+	}
+}
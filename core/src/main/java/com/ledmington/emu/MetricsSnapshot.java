@@ -0,0 +1,91 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+/**
+ * The values of the emulator counters at a given instant.
+ *
+ * @param nanoTime The value of {@link System#nanoTime()} when the snapshot was taken.
+ * @param instructionsRetired The number of instructions fetched and executed.
+ * @param decodeCacheHits The number of instructions which did not need to be decoded again, because they were part of a
+ *     compiled block.
+ * @param syscalls The number of system calls.
+ * @param pageFaults The number of accesses to pages which were not allocated yet.
+ * @param allocatedPages The number of allocated pages.
+ * @param readChecks The number of read permission checks.
+ * @param writeChecks The number of write permission checks.
+ * @param executeChecks The number of execute permission checks.
+ */
+public record MetricsSnapshot(
+		long nanoTime,
+		long instructionsRetired,
+		long decodeCacheHits,
+		long syscalls,
+		long pageFaults,
+		long allocatedPages,
+		long readChecks,
+		long writeChecks,
+		long executeChecks) {
+
+	/**
+	 * Returns the number of instructions decoded from memory. Every retired instruction which was not part of a
+	 * compiled block had to be decoded, so this is not counted separately.
+	 *
+	 * @return The number of decode cache misses.
+	 */
+	public long decodeCacheMisses() {
+		return instructionsRetired - decodeCacheHits;
+	}
+
+	/**
+	 * Returns the fraction of retired instructions which hit the decode cache.
+	 *
+	 * @return A value between 0 and 1, or 0 if no instruction was retired.
+	 */
+	public double decodeCacheHitRate() {
+		return instructionsRetired == 0L ? 0.0 : (double) decodeCacheHits / instructionsRetired;
+	}
+
+	/**
+	 * Returns the number of instructions retired per second between the given snapshot and this one.
+	 *
+	 * @param previous An older snapshot of the same counters.
+	 * @return The average number of instructions per second.
+	 */
+	public double instructionsPerSecondSince(final MetricsSnapshot previous) {
+		final long elapsedNanos = nanoTime - previous.nanoTime;
+		return elapsedNanos <= 0L
+				? 0.0
+				: (instructionsRetired - previous.instructionsRetired) * 1_000_000_000.0 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"instructions=%,d decode-hit-rate=%.2f%% syscalls=%,d page-faults=%,d pages=%,d read-checks=%,d"
+						+ " write-checks=%,d exec-checks=%,d",
+				instructionsRetired,
+				100.0 * decodeCacheHitRate(),
+				syscalls,
+				pageFaults,
+				allocatedPages,
+				readChecks,
+				writeChecks,
+				executeChecks);
+	}
+}
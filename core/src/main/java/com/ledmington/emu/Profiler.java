@@ -0,0 +1,287 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import com.ledmington.cpu.x86.Opcode;
+
+/**
+ * Counts the instructions retired by an {@link X86Cpu}, per {@link Opcode}, per guest address, per basic block and per
+ * call stack. All counters live in primitive arrays and open-addressing maps, so recording an instruction never
+ * allocates once the maps are warm.
+ *
+ * <p>Basic blocks are counted each time they are entered, that is when an instruction does not follow the previous one
+ * or the previous one was a control transfer. Call stacks are tracked with a shadow stack updated on CALL and RET.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+public final class Profiler {
+
+	private static final Opcode[] OPCODES = Opcode.values();
+	private static final boolean[] ENDS_BLOCK = new boolean[OPCODES.length];
+
+	static {
+		for (final Opcode op : OPCODES) {
+			ENDS_BLOCK[op.ordinal()] = switch (op) {
+				case JMP, JA, JAE, JB, JBE, JE, JNE, JG, JGE, JL, JLE, JS, JNS, JO, JNO, JP, JNP, JRCXZ -> true;
+				case CALL, RET, RETF, IRET, LOOP, LOOPE, LOOPNE, SYSCALL, INT, INT3, HLT, UD2 -> true;
+				default -> false;
+			};
+		}
+	}
+
+	private final long[] opcodeCounts = new long[OPCODES.length];
+	private final LongCounterMap addressCounts = new LongCounterMap();
+	private final LongCounterMap blockCounts = new LongCounterMap();
+	private long totalInstructions = 0L;
+	private long expectedAddress = 0L;
+	private boolean nextStartsBlock = true;
+
+	// The call tree: node 0 is the outermost frame, each node is a (caller node, function) pair
+	private int[] nodeParent = new int[64];
+	private long[] nodeFunction = new long[64];
+	private long[] nodeSelf = new long[64];
+	private int numNodes = 0;
+	private int currentNode = -1;
+
+	// Open-addressing table of node indices (plus one, so that 0 means empty), hashed by (parent, function)
+	private int[] children = new int[64];
+
+	/** Creates a new empty Profiler. */
+	public Profiler() {}
+
+	/**
+	 * Records an instruction which has just been retired.
+	 *
+	 * @param address The address of the instruction.
+	 * @param length The length in bytes of the instruction.
+	 * @param opcode The opcode of the instruction.
+	 * @param nextAddress The address of the next instruction to be executed.
+	 */
+	public void record(final long address, final int length, final Opcode opcode, final long nextAddress) {
+		totalInstructions++;
+		opcodeCounts[opcode.ordinal()]++;
+		addressCounts.increment(address);
+		if (nextStartsBlock || address != expectedAddress) {
+			blockCounts.increment(address);
+		}
+		nextStartsBlock = ENDS_BLOCK[opcode.ordinal()];
+		expectedAddress = address + length;
+
+		if (currentNode == -1) {
+			currentNode = newNode(-1, address);
+		}
+		nodeSelf[currentNode]++;
+		if (opcode == Opcode.CALL) {
+			currentNode = child(currentNode, nextAddress);
+		} else if (opcode == Opcode.RET && nodeParent[currentNode] != -1) {
+			currentNode = nodeParent[currentNode];
+		}
+	}
+
+	private static int hash(final int parent, final long function) {
+		final long h = (function + parent) * 0x9e3779b97f4a7c15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private int child(final int parent, final long function) {
+		int mask = children.length - 1;
+		int i = hash(parent, function) & mask;
+		while (children[i] != 0) {
+			final int node = children[i] - 1;
+			if (nodeParent[node] == parent && nodeFunction[node] == function) {
+				return node;
+			}
+			i = (i + 1) & mask;
+		}
+		final int node = newNode(parent, function);
+		children[i] = node + 1;
+		if (numNodes * 2 > children.length) {
+			children = new int[children.length * 2];
+			mask = children.length - 1;
+			for (int n = 1; n < numNodes; n++) {
+				int j = hash(nodeParent[n], nodeFunction[n]) & mask;
+				while (children[j] != 0) {
+					j = (j + 1) & mask;
+				}
+				children[j] = n + 1;
+			}
+		}
+		return node;
+	}
+
+	private int newNode(final int parent, final long function) {
+		if (numNodes == nodeParent.length) {
+			nodeParent = Arrays.copyOf(nodeParent, numNodes * 2);
+			nodeFunction = Arrays.copyOf(nodeFunction, numNodes * 2);
+			nodeSelf = Arrays.copyOf(nodeSelf, numNodes * 2);
+		}
+		nodeParent[numNodes] = parent;
+		nodeFunction[numNodes] = function;
+		nodeSelf[numNodes] = 0L;
+		return numNodes++;
+	}
+
+	/**
+	 * Returns the total number of instructions recorded.
+	 *
+	 * @return The number of instructions.
+	 */
+	public long getTotalInstructions() {
+		return totalInstructions;
+	}
+
+	/**
+	 * Returns how many times instructions with the given opcode were executed.
+	 *
+	 * @param opcode The opcode.
+	 * @return The number of executions.
+	 */
+	public long getCount(final Opcode opcode) {
+		return opcodeCounts[opcode.ordinal()];
+	}
+
+	/**
+	 * Returns how many times the instruction at the given address was executed.
+	 *
+	 * @param address The address of the instruction.
+	 * @return The number of executions.
+	 */
+	public long getAddressCount(final long address) {
+		return addressCounts.get(address);
+	}
+
+	/**
+	 * Returns how many times the basic block starting at the given address was entered.
+	 *
+	 * @param address The address of the first instruction of the block.
+	 * @return The number of times the block was entered.
+	 */
+	public long getBlockCount(final long address) {
+		return blockCounts.get(address);
+	}
+
+	/** Returns the occupied slots of the given map, sorted by decreasing count. */
+	private static int[] sortedSlots(final LongCounterMap map) {
+		return IntStream.range(0, map.capacity())
+				.filter(i -> map.countAt(i) != 0L)
+				.boxed()
+				.sorted(Comparator.comparingLong(map::countAt).reversed())
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+
+	private void appendRow(final StringBuilder sb, final long count, final String what) {
+		sb.append(String.format(
+				"%,15d  %6.2f%%  %s%n", count, totalInstructions == 0L ? 0.0 : 100.0 * count / totalInstructions, what));
+	}
+
+	private void appendTop(
+			final StringBuilder sb,
+			final String title,
+			final LongCounterMap map,
+			final int maxEntries,
+			final Symbolizer symbolizer) {
+		sb.append(String.format("%n%s (%,d distinct)%n", title, map.size()));
+		final int[] slots = sortedSlots(map);
+		for (int i = 0; i < Math.min(maxEntries, slots.length); i++) {
+			final long address = map.keyAt(slots[i]);
+			appendRow(
+					sb, map.countAt(slots[i]), String.format("0x%016x  %s", address, symbolizer.symbolize(address)));
+		}
+	}
+
+	/**
+	 * Returns a human-readable report of the hottest opcodes, functions, basic blocks and addresses.
+	 *
+	 * @param symbolizer The symbolizer to give names to guest addresses.
+	 * @param maxEntries The maximum number of entries in each section of the report.
+	 * @return The report.
+	 */
+	public String getHotSpotReport(final Symbolizer symbolizer, final int maxEntries) {
+		Objects.requireNonNull(symbolizer);
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException(String.format("Invalid number of entries: %,d.", maxEntries));
+		}
+		final StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Instructions executed: %,d%n", totalInstructions));
+
+		sb.append(String.format("%nHottest opcodes%n"));
+		final Opcode[] byCount = Arrays.stream(OPCODES)
+				.filter(op -> opcodeCounts[op.ordinal()] != 0L)
+				.sorted(Comparator.comparingLong((Opcode op) -> opcodeCounts[op.ordinal()])
+						.reversed())
+				.toArray(Opcode[]::new);
+		for (int i = 0; i < Math.min(maxEntries, byCount.length); i++) {
+			appendRow(sb, opcodeCounts[byCount[i].ordinal()], byCount[i].name());
+		}
+
+		// Aggregating by function name also merges the addresses which no symbol covers
+		final Map<String, Long> byFunction = new HashMap<>();
+		for (int i = 0; i < addressCounts.capacity(); i++) {
+			if (addressCounts.countAt(i) != 0L) {
+				byFunction.merge(
+						symbolizer.functionName(addressCounts.keyAt(i)), addressCounts.countAt(i), Long::sum);
+			}
+		}
+		sb.append(String.format("%nHottest functions (%,d distinct)%n", byFunction.size()));
+		byFunction.entrySet().stream()
+				.sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+				.limit(maxEntries)
+				.forEach(e -> appendRow(sb, e.getValue(), e.getKey()));
+
+		appendTop(sb, "Hottest basic blocks (times entered)", blockCounts, maxEntries, symbolizer);
+		appendTop(sb, "Hottest instructions", addressCounts, maxEntries, symbolizer);
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the recorded call stacks in the collapsed format used by flame graph tools: one line per distinct stack,
+	 * with the function names separated by semicolons, outermost first, followed by a space and the number of
+	 * instructions executed with that stack.
+	 *
+	 * @param symbolizer The symbolizer to give names to functions.
+	 * @return The collapsed stacks.
+	 */
+	public String getCollapsedStacks(final Symbolizer symbolizer) {
+		Objects.requireNonNull(symbolizer);
+		final String[] paths = new String[numNodes];
+		final StringBuilder sb = new StringBuilder();
+		for (int n = 0; n < numNodes; n++) {
+			// Parents are always created before their children
+			final String name = symbolizer.functionName(nodeFunction[n]);
+			paths[n] = nodeParent[n] == -1 ? name : paths[nodeParent[n]] + ";" + name;
+			if (nodeSelf[n] != 0L) {
+				sb.append(paths[n]).append(' ').append(nodeSelf[n]).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "Profiler(instructions=" + totalInstructions + ";addresses=" + addressCounts.size() + ";blocks="
+				+ blockCounts.size() + ";stacks=" + numNodes + ")";
+	}
+}
@@ -21,7 +21,9 @@ import com.ledmington.cpu.x86.Register16;
 import com.ledmington.cpu.x86.Register32;
 import com.ledmington.cpu.x86.Register64;
 import com.ledmington.cpu.x86.Register8;
+import com.ledmington.cpu.x86.RegisterDescriptor;
 import com.ledmington.cpu.x86.SegmentRegister;
+import com.ledmington.utils.BitUtils;
 
 /** Represents a mutable register file. */
 public interface RegisterFile extends ImmutableRegisterFile {
@@ -60,6 +62,31 @@ public interface RegisterFile extends ImmutableRegisterFile {
 	 */
 	void set(Register64 r, long v);
 
+	/**
+	 * Sets the value of the general-purpose register with the given descriptor to the lowest bits of the given long,
+	 * with the same semantics of the other setters.
+	 *
+	 * @param r The descriptor of the register to be overwritten.
+	 * @param v The value to be written.
+	 */
+	default void set(final RegisterDescriptor r, final long v) {
+		switch (r.register()) {
+			case Register8 r8 -> set(r8, BitUtils.asByte(v));
+			case Register16 r16 -> set(r16, BitUtils.asShort(v));
+			case Register32 r32 -> set(r32, BitUtils.asInt(v));
+			case Register64 r64 -> set(r64, v);
+		}
+	}
+
+	/**
+	 * Sets a 64-bit lane of the given vector register, laid out as described in {@link #getVectorLane(int, int)}.
+	 *
+	 * @param register The number of the vector register, between 0 and 31.
+	 * @param lane The index of the lane, between 0 (the lowest 64 bits) and 7.
+	 * @param v The value to be written.
+	 */
+	void setVectorLane(int register, int lane, long v);
+
 	/**
 	 * Sets the given flag to the given value.
 	 *
@@ -77,6 +104,30 @@ public interface RegisterFile extends ImmutableRegisterFile {
 	 */
 	void set(SegmentRegister r, short v);
 
+	/**
+	 * Sets the base address of the given segment register, as described in {@link #getSegmentBase(SegmentRegister)}.
+	 *
+	 * @param r The segment register, either FS or GS.
+	 * @param base The new base address.
+	 */
+	void setSegmentBase(SegmentRegister r, long base);
+
 	/** Resets all RFLAGS. */
 	void resetFlags();
+
+	/**
+	 * Sets ZF, PF and SF from the given (sign-extended) result of an arithmetic or logic instruction, together with the
+	 * given CF and OF. Implementations may defer computing the single flags until they are read.
+	 *
+	 * @param result The result of the instruction.
+	 * @param carry The new value of CF.
+	 * @param overflow The new value of OF.
+	 */
+	default void setArithmeticFlags(final long result, final boolean carry, final boolean overflow) {
+		set(RFlags.ZERO, result == 0L);
+		set(RFlags.PARITY, (Long.bitCount(result) % 2) == 0);
+		set(RFlags.SIGN, result < 0L);
+		set(RFlags.CARRY, carry);
+		set(RFlags.OVERFLOW, overflow);
+	}
 }
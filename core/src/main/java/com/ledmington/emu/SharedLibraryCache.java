@@ -0,0 +1,214 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.ledmington.elf.ELF;
+import com.ledmington.elf.ELFParser;
+import com.ledmington.utils.MiniLogger;
+
+/**
+ * Keeps the shared libraries already parsed and relocated, so that running again a program (or another program
+ * needing the same libraries) does not parse nor relocate them again. A library is identified by its real path, its
+ * size, its last modification time and the address where it is placed: replacing the file on disk invalidates its
+ * cached image.
+ *
+ * <p>The cache holds at most a fixed number of libraries: when it is full, the least recently used one is evicted.
+ * Emulators still using an evicted library are not affected.
+ *
+ * <p>Instances of this class are thread-safe.
+ */
+public final class SharedLibraryCache {
+
+	private static final MiniLogger logger = MiniLogger.getLogger("lib-cache");
+
+	/** The default maximum number of cached libraries. */
+	public static final int DEFAULT_MAX_SIZE = 64;
+
+	private static final SharedLibraryCache DEFAULT = new SharedLibraryCache();
+
+	private record Key(Path path, long size, long lastModified, long base) {}
+
+	private static final class Entry {
+		private final DynamicObject object;
+		private volatile long lastUsed;
+
+		private Entry(final DynamicObject object, final long lastUsed) {
+			this.object = object;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	private final int maxSize;
+	private final Map<Key, Entry> objects = new ConcurrentHashMap<>();
+	private final AtomicLong clock = new AtomicLong(0L);
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a new empty cache holding at most the given number of libraries.
+	 *
+	 * @param maxSize The maximum number of cached libraries.
+	 */
+	public SharedLibraryCache(final int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException(String.format("Invalid maximum size: %,d.", maxSize));
+		}
+		this.maxSize = maxSize;
+	}
+
+	/** Creates a new empty cache holding at most {@link #DEFAULT_MAX_SIZE} libraries. */
+	public SharedLibraryCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Returns the cache shared by all the emulators of this process.
+	 *
+	 * @return The default cache.
+	 */
+	public static SharedLibraryCache getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Returns the library at the given path placed at the given address, parsing and relocating it only if it is not
+	 * already cached.
+	 *
+	 * @param path The path of the library.
+	 * @param base The address where the library is going to be mapped.
+	 * @return The relocated library.
+	 * @throws IOException If the file cannot be read.
+	 */
+	DynamicObject get(final Path path, final long base) throws IOException {
+		Objects.requireNonNull(path);
+		final Path realPath = path.toRealPath();
+		final Key key = new Key(
+				realPath, Files.size(realPath), Files.getLastModifiedTime(realPath).toMillis(), base);
+		final Entry cached = objects.get(key);
+		if (cached != null) {
+			hits.increment();
+			cached.lastUsed = clock.incrementAndGet();
+			return cached.object;
+		}
+		final Entry entry;
+		try {
+			entry = objects.computeIfAbsent(key, k -> {
+				misses.increment();
+				logger.debug("Parsing and relocating '%s' at 0x%016x", k.path(), k.base());
+				try {
+					final byte[] bytes = Files.readAllBytes(k.path());
+					final ELF elf = ELFParser.parse(bytes);
+					return new Entry(
+							DynamicObject.library(path.getFileName().toString(), elf, bytes, k.base()),
+							clock.incrementAndGet());
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (final UncheckedIOException e) {
+			throw e.getCause();
+		}
+		evict();
+		return entry.object;
+	}
+
+	private void evict() {
+		while (objects.size() > maxSize) {
+			Map.Entry<Key, Entry> oldest = null;
+			for (final Map.Entry<Key, Entry> e : objects.entrySet()) {
+				if (oldest == null || e.getValue().lastUsed < oldest.getValue().lastUsed) {
+					oldest = e;
+				}
+			}
+			if (oldest == null) {
+				return;
+			}
+			if (objects.remove(oldest.getKey(), oldest.getValue())) {
+				evictions.increment();
+				logger.debug("Evicting '%s' at 0x%016x", oldest.getKey().path(), oldest.getKey().base());
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of libraries currently cached.
+	 *
+	 * @return The number of cached libraries.
+	 */
+	public int size() {
+		return objects.size();
+	}
+
+	/**
+	 * Returns the number of requests served without parsing the library.
+	 *
+	 * @return The number of cache hits.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of requests which needed to parse and relocate the library.
+	 *
+	 * @return The number of cache misses.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the maximum number of libraries this cache can hold.
+	 *
+	 * @return The maximum number of cached libraries.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the number of libraries removed to make room for new ones.
+	 *
+	 * @return The number of evictions.
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/** Removes all the cached libraries. */
+	public void clear() {
+		objects.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "SharedLibraryCache(size=" + objects.size() + ";maxSize=" + maxSize + ";hits=" + hits.sum() + ";misses="
+				+ misses.sum() + ";evictions=" + evictions.sum() + ")";
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+/** The reason why a call to {@link X86Emulator#execute(long)} returned. */
+public enum StopReason {
+
+	/** The CPU executed a {@code HLT} instruction or the program exited. */
+	HALTED,
+
+	/** The maximum number of instructions was executed without the CPU stopping for any other reason. */
+	BUDGET_EXHAUSTED,
+
+	/** The instruction pointer reached a breakpoint. The instruction at the breakpoint has not been executed yet. */
+	BREAKPOINT,
+
+	/** An instruction raised an exception, which can be retrieved with {@link X86Emulator#getLastFault()}. */
+	FAULT
+}
@@ -0,0 +1,409 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.ledmington.cpu.x86.RegisterDescriptor;
+import com.ledmington.mem.Memory;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.utils.BitUtils;
+
+/**
+ * Executes the string instructions MOVS, STOS, CMPS and SCAS, with or without a repeat prefix.
+ *
+ * <p>Repeated instructions run in chunks which never cross a page. The permissions of each chunk are checked once, and
+ * its bytes are copied, filled or compared in bulk. When a chunk cannot be accessed as a whole, its elements are
+ * executed one at a time through the given memory. The fault then happens at the exact element, after the previous
+ * ones have completed and with the counter and the pointers referring to it, like on real hardware.
+ */
+final class StringInstructions {
+
+	/** The size of the chunks, which are aligned to it. */
+	private static final int PAGE_SIZE = 4096;
+
+	private static final long PAGE_MASK = PAGE_SIZE - 1L;
+
+	/** The condition which keeps a repeated comparison going. */
+	enum Repeat {
+
+		/** A single comparison, without any repeat prefix. */
+		NONE,
+
+		/** REP (or REPE): repeats while the elements are equal. */
+		WHILE_EQUAL,
+
+		/** REPNZ (or REPNE): repeats while the elements are different. */
+		WHILE_NOT_EQUAL
+	}
+
+	private final RegisterFile rf;
+	private final MemoryController memController;
+	private final byte[] first = new byte[PAGE_SIZE];
+	private final byte[] second = new byte[PAGE_SIZE];
+	private long lastFirst;
+	private long lastSecond;
+
+	/**
+	 * Creates the string instructions of a single CPU.
+	 *
+	 * @param rf The registers of the CPU.
+	 * @param memController The memory of the CPU, whose permissions are checked once per chunk.
+	 */
+	StringInstructions(final RegisterFile rf, final MemoryController memController) {
+		this.rf = Objects.requireNonNull(rf);
+		this.memController = Objects.requireNonNull(memController);
+	}
+
+	/**
+	 * Executes MOVS, copying elements from the source pointer to the destination one.
+	 *
+	 * @param mem The memory to be used for the accesses which are not done in bulk.
+	 * @param size The size in bytes of each element.
+	 * @param count The counter register, used only when repeating.
+	 * @param src The source pointer.
+	 * @param dst The destination pointer.
+	 * @param repeat True if the instruction has a repeat prefix.
+	 */
+	void movs(
+			final Memory mem,
+			final int size,
+			final RegisterDescriptor count,
+			final RegisterDescriptor src,
+			final RegisterDescriptor dst,
+			final boolean repeat) {
+		final boolean backward = rf.isSet(RFlags.DIRECTION);
+		final long step = backward ? -size : size;
+		long n = repeat ? rf.get(count) : 1L;
+		while (n != 0L) {
+			final long s = rf.get(src);
+			final long d = rf.get(dst);
+			int elements = mem == memController
+					? chunk(n, Math.min(chunkLimit(s, size, backward), chunkLimit(d, size, backward)))
+					: 0;
+			// Overlapping elements must see the ones just copied
+			final long gap = Math.abs(d - s);
+			if (gap != 0L && gap < (long) elements * size) {
+				elements = (int) (gap / size);
+			}
+			int done = elements == 0 ? 0 : copy(s, d, size, elements, backward);
+			if (done == 0) {
+				done = 1;
+				writeElement(mem, d, size, readElement(mem, s, size));
+			}
+			rf.set(src, s + done * step);
+			rf.set(dst, d + done * step);
+			n -= done;
+			if (repeat) {
+				rf.set(count, n);
+			}
+		}
+	}
+
+	private int copy(final long s, final long d, final int size, final int elements, final boolean backward) {
+		final int bytes = elements * size;
+		final MemoryAddress srcStart = new MemoryAddress(backward ? s - (bytes - size) : s);
+		final MemoryAddress dstStart = new MemoryAddress(backward ? d - (bytes - size) : d);
+		final long valid = Math.min(
+				memController.getReadableBytes(srcStart, bytes), memController.getWritableBytes(dstStart, bytes));
+		final int done = backward ? (valid == bytes ? elements : 0) : (int) (valid / size);
+		if (done > 0) {
+			memController.readValidated(srcStart, first, 0, done * size);
+			memController.initialize(dstStart, first, 0, done * size);
+		}
+		return done;
+	}
+
+	/**
+	 * Executes STOS, storing the given value in the elements at the destination pointer.
+	 *
+	 * @param mem The memory to be used for the accesses which are not done in bulk.
+	 * @param size The size in bytes of each element.
+	 * @param value The value to be stored.
+	 * @param count The counter register, used only when repeating.
+	 * @param dst The destination pointer.
+	 * @param repeat True if the instruction has a repeat prefix.
+	 */
+	void stos(
+			final Memory mem,
+			final int size,
+			final long value,
+			final RegisterDescriptor count,
+			final RegisterDescriptor dst,
+			final boolean repeat) {
+		final boolean backward = rf.isSet(RFlags.DIRECTION);
+		final long step = backward ? -size : size;
+		final boolean bulk = mem == memController;
+		long n = repeat ? rf.get(count) : 1L;
+		if (bulk) {
+			fill(first, value, size, chunk(n, PAGE_SIZE / size) * size);
+		}
+		while (n != 0L) {
+			final long d = rf.get(dst);
+			final int elements = bulk ? chunk(n, chunkLimit(d, size, backward)) : 0;
+			int done = 0;
+			if (elements > 0) {
+				final int bytes = elements * size;
+				final MemoryAddress start = new MemoryAddress(backward ? d - (bytes - size) : d);
+				final long valid = memController.getWritableBytes(start, bytes);
+				done = backward ? (valid == bytes ? elements : 0) : (int) (valid / size);
+				if (done > 0) {
+					memController.initialize(start, first, 0, done * size);
+				}
+			}
+			if (done == 0) {
+				done = 1;
+				writeElement(mem, d, size, value);
+			}
+			rf.set(dst, d + done * step);
+			n -= done;
+			if (repeat) {
+				rf.set(count, n);
+			}
+		}
+	}
+
+	/**
+	 * Executes CMPS, comparing the elements at the source pointer with the ones at the destination pointer. The flags
+	 * are left to the caller, who computes them from {@link #lastFirst()} and {@link #lastSecond()}.
+	 *
+	 * @param mem The memory to be used for the accesses which are not done in bulk.
+	 * @param size The size in bytes of each element.
+	 * @param count The counter register, used only when repeating.
+	 * @param src The source pointer, whose elements are the first operands of the comparisons.
+	 * @param dst The destination pointer, whose elements are the second operands of the comparisons.
+	 * @param repeat The condition to keep repeating.
+	 * @return True if at least one pair of elements was compared.
+	 */
+	boolean cmps(
+			final Memory mem,
+			final int size,
+			final RegisterDescriptor count,
+			final RegisterDescriptor src,
+			final RegisterDescriptor dst,
+			final Repeat repeat) {
+		final boolean backward = rf.isSet(RFlags.DIRECTION);
+		final long step = backward ? -size : size;
+		long n = repeat == Repeat.NONE ? 1L : rf.get(count);
+		final boolean compared = n != 0L;
+		while (n != 0L) {
+			final long s = rf.get(src);
+			final long d = rf.get(dst);
+			final int elements = mem == memController && repeat != Repeat.NONE
+					? chunk(n, Math.min(chunkLimit(s, size, backward), chunkLimit(d, size, backward)))
+					: 0;
+			int done = 0;
+			if (elements > 0) {
+				final int bytes = elements * size;
+				final MemoryAddress srcStart = new MemoryAddress(backward ? s - (bytes - size) : s);
+				final MemoryAddress dstStart = new MemoryAddress(backward ? d - (bytes - size) : d);
+				final long valid = Math.min(
+						memController.getReadableBytes(srcStart, bytes),
+						memController.getReadableBytes(dstStart, bytes));
+				final int available = backward ? (valid == bytes ? elements : 0) : (int) (valid / size);
+				if (available > 0) {
+					memController.readValidated(srcStart, first, 0, available * size);
+					memController.readValidated(dstStart, second, 0, available * size);
+					done = compare(size, available, backward, repeat);
+				}
+			}
+			if (done == 0) {
+				done = 1;
+				lastFirst = readElement(mem, s, size);
+				lastSecond = readElement(mem, d, size);
+			}
+			rf.set(src, s + done * step);
+			rf.set(dst, d + done * step);
+			n -= done;
+			if (repeat != Repeat.NONE) {
+				rf.set(count, n);
+				if (isLast(repeat)) {
+					break;
+				}
+			}
+		}
+		return compared;
+	}
+
+	/**
+	 * Executes SCAS, comparing the given value with the elements at the destination pointer. The flags are left to the
+	 * caller, who computes them from {@link #lastFirst()} and {@link #lastSecond()}.
+	 *
+	 * @param mem The memory to be used for the accesses which are not done in bulk.
+	 * @param size The size in bytes of each element.
+	 * @param value The value to be compared, which is the first operand of the comparisons.
+	 * @param count The counter register, used only when repeating.
+	 * @param dst The destination pointer, whose elements are the second operands of the comparisons.
+	 * @param repeat The condition to keep repeating.
+	 * @return True if at least one element was compared.
+	 */
+	boolean scas(
+			final Memory mem,
+			final int size,
+			final long value,
+			final RegisterDescriptor count,
+			final RegisterDescriptor dst,
+			final Repeat repeat) {
+		final boolean backward = rf.isSet(RFlags.DIRECTION);
+		final long step = backward ? -size : size;
+		final boolean bulk = mem == memController && repeat != Repeat.NONE;
+		long n = repeat == Repeat.NONE ? 1L : rf.get(count);
+		final boolean compared = n != 0L;
+		if (bulk) {
+			fill(first, value, size, chunk(n, PAGE_SIZE / size) * size);
+		}
+		while (n != 0L) {
+			final long d = rf.get(dst);
+			final int elements = bulk ? chunk(n, chunkLimit(d, size, backward)) : 0;
+			int done = 0;
+			if (elements > 0) {
+				final int bytes = elements * size;
+				final MemoryAddress start = new MemoryAddress(backward ? d - (bytes - size) : d);
+				final long valid = memController.getReadableBytes(start, bytes);
+				final int available = backward ? (valid == bytes ? elements : 0) : (int) (valid / size);
+				if (available > 0) {
+					memController.readValidated(start, second, 0, available * size);
+					done = compare(size, available, backward, repeat);
+				}
+			}
+			if (done == 0) {
+				done = 1;
+				lastFirst = value & Memory.sizeMask(size);
+				lastSecond = readElement(mem, d, size);
+			}
+			rf.set(dst, d + done * step);
+			n -= done;
+			if (repeat != Repeat.NONE) {
+				rf.set(count, n);
+				if (isLast(repeat)) {
+					break;
+				}
+			}
+		}
+		return compared;
+	}
+
+	/**
+	 * Returns the first operand of the last comparison done by {@link #cmps} or {@link #scas}, zero-extended.
+	 *
+	 * @return The first operand of the last comparison.
+	 */
+	long lastFirst() {
+		return lastFirst;
+	}
+
+	/**
+	 * Returns the second operand of the last comparison done by {@link #cmps} or {@link #scas}, zero-extended.
+	 *
+	 * @return The second operand of the last comparison.
+	 */
+	long lastSecond() {
+		return lastSecond;
+	}
+
+	/** Tells whether the last comparison stops the repetition. */
+	private boolean isLast(final Repeat repeat) {
+		return (lastFirst == lastSecond) != (repeat == Repeat.WHILE_EQUAL);
+	}
+
+	/**
+	 * Compares the given number of elements of the two buffers in execution order, stopping at the first one which
+	 * ends the repetition. Returns the number of elements compared.
+	 */
+	private int compare(final int size, final int elements, final boolean backward, final Repeat repeat) {
+		if (!backward && repeat == Repeat.WHILE_EQUAL) {
+			final int mismatch = Arrays.mismatch(first, 0, elements * size, second, 0, elements * size);
+			final int last = mismatch < 0 ? elements - 1 : mismatch / size;
+			lastFirst = element(first, last * size, size);
+			lastSecond = element(second, last * size, size);
+			return last + 1;
+		}
+		for (int i = 0; i < elements; i++) {
+			final int offset = (backward ? elements - 1 - i : i) * size;
+			lastFirst = element(first, offset, size);
+			lastSecond = element(second, offset, size);
+			if (isLast(repeat)) {
+				return i + 1;
+			}
+		}
+		return elements;
+	}
+
+	/** Returns the number of elements of the next chunk, given the (unsigned) number of remaining ones. */
+	private static int chunk(final long remaining, final int limit) {
+		return Long.compareUnsigned(remaining, limit) < 0 ? (int) remaining : limit;
+	}
+
+	/** Returns how many elements can be accessed starting from the given address without crossing a page. */
+	private static int chunkLimit(final long address, final int size, final boolean backward) {
+		final int offset = (int) (address & PAGE_MASK);
+		final int elements = backward ? offset / size + 1 : (PAGE_SIZE - offset) / size;
+		return Math.max(1, Math.min(elements, PAGE_SIZE / size));
+	}
+
+	/** Fills the first bytes of the given buffer with copies of the given little-endian value. */
+	private static void fill(final byte[] buffer, final long value, final int size, final int length) {
+		if (size == 1) {
+			Arrays.fill(buffer, 0, length, BitUtils.asByte(value));
+			return;
+		}
+		for (int i = 0; i < size; i++) {
+			buffer[i] = BitUtils.asByte(value >>> (8 * i));
+		}
+		for (int filled = size; filled < length; filled *= 2) {
+			System.arraycopy(buffer, 0, buffer, filled, Math.min(filled, length - filled));
+		}
+	}
+
+	private static long element(final byte[] buffer, final int offset, final int size) {
+		long x = 0L;
+		for (int i = 0; i < size; i++) {
+			x |= BitUtils.asLong(buffer[offset + i]) << (8 * i);
+		}
+		return x;
+	}
+
+	private static long readElement(final Memory mem, final long address, final int size) {
+		final MemoryAddress a = new MemoryAddress(address);
+		return switch (size) {
+			case 1 -> BitUtils.asLong(mem.read(a));
+			case 2 -> BitUtils.asLong(mem.read2(a));
+			case 4 -> BitUtils.asLong(mem.read4(a));
+			case 8 -> mem.read8(a);
+			default -> throw new IllegalArgumentException(String.format("Invalid access size: %,d bytes.", size));
+		};
+	}
+
+	private static void writeElement(final Memory mem, final long address, final int size, final long value) {
+		final MemoryAddress a = new MemoryAddress(address);
+		switch (size) {
+			case 1 -> mem.write(a, BitUtils.asByte(value));
+			case 2 -> mem.write(a, BitUtils.asShort(value));
+			case 4 -> mem.write(a, BitUtils.asInt(value));
+			case 8 -> mem.write(a, value);
+			default -> throw new IllegalArgumentException(String.format("Invalid access size: %,d bytes.", size));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "StringInstructions(rf=" + rf + ";memController=" + memController + ")";
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import com.ledmington.elf.ELF;
+import com.ledmington.elf.section.Section;
+import com.ledmington.elf.section.StringTableSection;
+import com.ledmington.elf.section.sym.SymbolTableEntry;
+import com.ledmington.elf.section.sym.SymbolTableEntryType;
+import com.ledmington.elf.section.sym.SymbolTableSection;
+
+/** Maps guest addresses to the names of the functions containing them, using the <code>.symtab</code> of an ELF. */
+public final class Symbolizer {
+
+	private static final Symbolizer EMPTY = new Symbolizer(new long[0], new long[0], new String[0]);
+
+	private final long[] starts;
+	private final long[] sizes;
+	private final String[] names;
+
+	/**
+	 * Creates a new Symbolizer with the given functions.
+	 *
+	 * @param starts The start addresses of the functions.
+	 * @param sizes The sizes in bytes of the functions.
+	 * @param names The names of the functions.
+	 */
+	Symbolizer(final long[] starts, final long[] sizes, final String[] names) {
+		Objects.requireNonNull(starts);
+		Objects.requireNonNull(sizes);
+		Objects.requireNonNull(names);
+		if (starts.length != sizes.length || starts.length != names.length) {
+			throw new IllegalArgumentException(String.format(
+					"Mismatched lengths: %,d starts, %,d sizes and %,d names.",
+					starts.length, sizes.length, names.length));
+		}
+		final Integer[] order = IntStream.range(0, starts.length).boxed().toArray(Integer[]::new);
+		Arrays.sort(order, Comparator.comparingLong(i -> starts[i]));
+		this.starts = new long[starts.length];
+		this.sizes = new long[starts.length];
+		this.names = new String[starts.length];
+		for (int i = 0; i < order.length; i++) {
+			this.starts[i] = starts[order[i]];
+			this.sizes[i] = sizes[order[i]];
+			this.names[i] = Objects.requireNonNull(names[order[i]]);
+		}
+	}
+
+	/**
+	 * Returns a Symbolizer without symbols, which formats every address in hexadecimal.
+	 *
+	 * @return An empty Symbolizer.
+	 */
+	public static Symbolizer empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Creates a new Symbolizer with the functions of the given ELF file, loaded at the given base address.
+	 *
+	 * @param elf The ELF file.
+	 * @param baseAddress The address where the ELF file was loaded.
+	 * @return A new Symbolizer, empty if the file has no <code>.symtab</code>.
+	 */
+	public static Symbolizer of(final ELF elf, final long baseAddress) {
+		Objects.requireNonNull(elf);
+		final Optional<Section> sym = elf.getSectionByName(".symtab");
+		final Optional<Section> str = elf.getSectionByName(".strtab");
+		if (sym.isEmpty() || str.isEmpty()) {
+			return EMPTY;
+		}
+		final SymbolTableSection symtab = (SymbolTableSection) sym.orElseThrow();
+		final StringTableSection strtab = (StringTableSection) str.orElseThrow();
+		final SymbolTableEntry[] functions = IntStream.range(0, symtab.getSymbolTableLength())
+				.mapToObj(symtab::getSymbolTableEntry)
+				.filter(ste -> ste.info().getType() == SymbolTableEntryType.STT_FUNC && ste.value() != 0L)
+				.toArray(SymbolTableEntry[]::new);
+		final long[] starts = new long[functions.length];
+		final long[] sizes = new long[functions.length];
+		final String[] names = new String[functions.length];
+		for (int i = 0; i < functions.length; i++) {
+			starts[i] = baseAddress + functions[i].value();
+			sizes[i] = functions[i].size();
+			names[i] = strtab.getString(functions[i].nameOffset());
+		}
+		return new Symbolizer(starts, sizes, names);
+	}
+
+	/** Returns the index of the function containing the given address, or -1. */
+	private int find(final long address) {
+		int lo = 0;
+		int hi = starts.length - 1;
+		int found = -1;
+		while (lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (Long.compareUnsigned(starts[mid], address) <= 0) {
+				found = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		if (found == -1) {
+			return -1;
+		}
+		final long offset = address - starts[found];
+		return offset == 0L || Long.compareUnsigned(offset, sizes[found]) < 0 ? found : -1;
+	}
+
+	/**
+	 * Returns the given address as <code>function+offset</code>, or in hexadecimal if no function contains it.
+	 *
+	 * @param address The address to be symbolized.
+	 * @return The symbolized address.
+	 */
+	public String symbolize(final long address) {
+		final int idx = find(address);
+		if (idx == -1) {
+			return String.format("0x%x", address);
+		}
+		final long offset = address - starts[idx];
+		return offset == 0L ? names[idx] : String.format("%s+0x%x", names[idx], offset);
+	}
+
+	/**
+	 * Returns the name of the function containing the given address, or the address in hexadecimal if there is none.
+	 *
+	 * @param address The address to be symbolized.
+	 * @return The name of the function.
+	 */
+	public String functionName(final long address) {
+		final int idx = find(address);
+		return idx == -1 ? String.format("0x%x", address) : names[idx];
+	}
+
+	@Override
+	public String toString() {
+		return "Symbolizer(functions=" + starts.length + ")";
+	}
+}
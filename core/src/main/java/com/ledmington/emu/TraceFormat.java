@@ -0,0 +1,260 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.nio.ByteBuffer;
+
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.cpu.x86.SegmentRegister;
+
+/**
+ * Constants and helpers shared by {@link TraceWriter} and {@link TraceReader}.
+ *
+ * <p>A trace file is little-endian and starts with a 16-byte header: the 8-byte magic <code>EMUTRACE</code>, a 2-byte
+ * format version, the 2-byte number of register slots and the 4-byte number of extended slots. The header is followed
+ * by any number of chunks, each made of a 12-byte chunk header (uncompressed size, compressed size and number of
+ * records, all 4-byte integers) and of a raw DEFLATE stream. Once inflated, a chunk starts with the values of all the
+ * register slots before its first record, so that each chunk can be decoded on its own, followed by the extended slots
+ * which are not zero: their number as a varint and, for each one, its index and its value as varints.
+ *
+ * <p>The extended slots hold the FS and GS bases and the 64-bit lanes of the 32 vector registers. Since they are mostly
+ * zero and rarely change, they are stored sparsely instead of being part of the bitmask of each record.
+ *
+ * <p>Each record describes one retired instruction:
+ *
+ * <ul>
+ *   <li>the instruction length, 1 byte;
+ *   <li>the instruction address, as a zig-zag varint relative to the RIP left by the previous record;
+ *   <li>the bitmask of the register slots it changed, as a varint;
+ *   <li>for each changed slot, the new value XOR the old one, as a varint;
+ *   <li>the number of changed extended slots, as a varint, each one made of its index and of the new value XOR the old
+ *       one, both as varints;
+ *   <li>the number of memory writes, as a varint, each one made of its size in bytes (1 byte), its address as a zig-zag
+ *       varint relative to the previous write in the same chunk and the written bytes.
+ * </ul>
+ */
+final class TraceFormat {
+
+	/** The 8 ASCII bytes "EMUTRACE" read as a little-endian long. */
+	static final long MAGIC = 0x4543415254554d45L;
+
+	/** The current version of the format. Readers reject any other version. */
+	static final short VERSION = 2;
+
+	/** Number of register slots: 16 general-purpose registers, RIP, RFLAGS and 6 segment registers. */
+	static final int NUM_SLOTS = 24;
+
+	/** Number of extended slots: the FS and GS bases and every lane of the vector registers. */
+	static final int NUM_EXTENDED_SLOTS = 2 + X86RegisterFile.NUM_VECTOR_REGISTERS * X86RegisterFile.VECTOR_LANES;
+
+	/** Number of register and extended slots, the latter following the former. */
+	static final int TOTAL_SLOTS = NUM_SLOTS + NUM_EXTENDED_SLOTS;
+
+	static final int RIP_SLOT = 16;
+	static final int RFLAGS_SLOT = 17;
+	static final int FIRST_SEGMENT_SLOT = 18;
+	static final int FS_BASE_SLOT = 24;
+	static final int GS_BASE_SLOT = 25;
+	static final int FIRST_VECTOR_SLOT = 26;
+
+	static final int HEADER_BYTES = 16;
+	static final int CHUNK_HEADER_BYTES = 12;
+	static final int STATE_BYTES = NUM_SLOTS * 8;
+
+	/** Maximum number of bytes of a single varint-encoded long. */
+	static final int MAX_VARINT_BYTES = 10;
+
+	private static final Register64[] GPRS = {
+		Register64.RAX,
+		Register64.RBX,
+		Register64.RCX,
+		Register64.RDX,
+		Register64.RSP,
+		Register64.RBP,
+		Register64.RSI,
+		Register64.RDI,
+		Register64.R8,
+		Register64.R9,
+		Register64.R10,
+		Register64.R11,
+		Register64.R12,
+		Register64.R13,
+		Register64.R14,
+		Register64.R15
+	};
+
+	private static final SegmentRegister[] SEGMENTS = {
+		SegmentRegister.CS,
+		SegmentRegister.DS,
+		SegmentRegister.ES,
+		SegmentRegister.FS,
+		SegmentRegister.GS,
+		SegmentRegister.SS
+	};
+
+	private TraceFormat() {}
+
+	/**
+	 * Returns the slot of the given 64-bit register.
+	 *
+	 * @param r The register.
+	 * @return The index of its slot.
+	 */
+	static int slotOf(final Register64 r) {
+		if (r == Register64.RIP) {
+			return RIP_SLOT;
+		}
+		for (int i = 0; i < GPRS.length; i++) {
+			if (GPRS[i] == r) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException(String.format("Unknown register '%s'.", r));
+	}
+
+	/**
+	 * Returns the slot of the given segment register.
+	 *
+	 * @param s The segment register.
+	 * @return The index of its slot.
+	 */
+	static int slotOf(final SegmentRegister s) {
+		for (int i = 0; i < SEGMENTS.length; i++) {
+			if (SEGMENTS[i] == s) {
+				return FIRST_SEGMENT_SLOT + i;
+			}
+		}
+		throw new IllegalArgumentException(String.format("Unknown segment register '%s'.", s));
+	}
+
+	/**
+	 * Returns the lowercase name of the register stored in the given slot.
+	 *
+	 * @param slot The slot index.
+	 * @return The name of the register.
+	 */
+	static String nameOf(final int slot) {
+		if (slot < GPRS.length) {
+			return GPRS[slot].toIntelSyntax();
+		}
+		if (slot == RIP_SLOT) {
+			return "rip";
+		}
+		if (slot == RFLAGS_SLOT) {
+			return "rflags";
+		}
+		if (slot < NUM_SLOTS) {
+			return SEGMENTS[slot - FIRST_SEGMENT_SLOT].toIntelSyntax();
+		}
+		if (slot == FS_BASE_SLOT) {
+			return "fs_base";
+		}
+		if (slot == GS_BASE_SLOT) {
+			return "gs_base";
+		}
+		final int lane = slot - FIRST_VECTOR_SLOT;
+		return String.format("zmm%d[%d]", lane / X86RegisterFile.VECTOR_LANES, lane % X86RegisterFile.VECTOR_LANES);
+	}
+
+	/**
+	 * Copies the values of all the registers of the given register file into the given array.
+	 *
+	 * @param rf The register file to be read.
+	 * @param dst The array of slots to be filled, {@link #TOTAL_SLOTS} long.
+	 */
+	static void snapshot(final ImmutableRegisterFile rf, final long[] dst) {
+		if (rf instanceof final X86RegisterFile x) {
+			x.copyTo(dst);
+			return;
+		}
+		for (int i = 0; i < GPRS.length; i++) {
+			dst[i] = rf.get(GPRS[i]);
+		}
+		dst[RIP_SLOT] = rf.get(Register64.RIP);
+		long rflags = RFlags.defaultValue();
+		for (final RFlags f : RFlags.values()) {
+			if (rf.isSet(f)) {
+				rflags |= 1L << f.bit();
+			}
+		}
+		dst[RFLAGS_SLOT] = rflags;
+		for (int i = 0; i < SEGMENTS.length; i++) {
+			dst[FIRST_SEGMENT_SLOT + i] = rf.get(SEGMENTS[i]) & 0xffffL;
+		}
+		dst[FS_BASE_SLOT] = rf.getSegmentBase(SegmentRegister.FS);
+		dst[GS_BASE_SLOT] = rf.getSegmentBase(SegmentRegister.GS);
+		for (int i = 0; i < X86RegisterFile.NUM_VECTOR_REGISTERS; i++) {
+			for (int j = 0; j < X86RegisterFile.VECTOR_LANES; j++) {
+				dst[FIRST_VECTOR_SLOT + i * X86RegisterFile.VECTOR_LANES + j] = rf.getVectorLane(i, j);
+			}
+		}
+	}
+
+	/**
+	 * Writes the given value as an unsigned LEB128 varint.
+	 *
+	 * @param bb The buffer to write into.
+	 * @param value The value to be written.
+	 */
+	static void putVarLong(final ByteBuffer bb, final long value) {
+		long v = value;
+		while ((v & ~0x7fL) != 0L) {
+			bb.put((byte) ((v & 0x7fL) | 0x80L));
+			v >>>= 7;
+		}
+		bb.put((byte) v);
+	}
+
+	/**
+	 * Reads an unsigned LEB128 varint.
+	 *
+	 * @param bb The buffer to read from.
+	 * @return The decoded value.
+	 */
+	static long getVarLong(final ByteBuffer bb) {
+		long v = 0L;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final byte b = bb.get();
+			v |= (b & 0x7fL) << shift;
+			if (b >= 0) {
+				return v;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint in trace.");
+	}
+
+	/**
+	 * Maps signed values to unsigned ones so that small negative numbers have a short varint encoding.
+	 *
+	 * @param value The signed value.
+	 * @return The zig-zag encoded value.
+	 */
+	static long zigZag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Reverses {@link #zigZag(long)}.
+	 *
+	 * @param value The zig-zag encoded value.
+	 * @return The original signed value.
+	 */
+	static long unZigZag(final long value) {
+		return (value >>> 1) ^ -(value & 1L);
+	}
+}
@@ -0,0 +1,388 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.cpu.x86.SegmentRegister;
+import com.ledmington.mem.Memory;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.utils.BitUtils;
+
+/**
+ * Reads back, one record at a time, a trace written by a {@link TraceWriter}. While advancing, the reader replays the
+ * register deltas, so that {@link #getRegisters()} always returns the state of the CPU right after the current
+ * instruction.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+public final class TraceReader {
+
+	private final ByteBuffer file;
+	private final Inflater inflater = new Inflater(true);
+	private ByteBuffer chunk = ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN);
+	private int recordsLeftInChunk = 0;
+
+	private final long[] regs = new long[TraceFormat.TOTAL_SLOTS];
+	private final X86RegisterFile rf = new X86RegisterFile();
+	private long lastWriteAddress = 0L;
+
+	private long rip = 0L;
+	private int length = 0;
+	private int changedMask = 0;
+	private final int[] changedExtended = new int[TraceFormat.NUM_EXTENDED_SLOTS];
+	private int numChangedExtended = 0;
+	private long[] writeAddresses = new long[8];
+	private long[] writeValues = new long[8];
+	private byte[] writeSizes = new byte[8];
+	private int numWrites = 0;
+
+	/**
+	 * Creates a new TraceReader over the given trace bytes.
+	 *
+	 * @param trace The whole trace, starting from the header.
+	 */
+	public TraceReader(final ByteBuffer trace) {
+		this.file = Objects.requireNonNull(trace).slice().order(ByteOrder.LITTLE_ENDIAN);
+		if (file.remaining() < TraceFormat.HEADER_BYTES) {
+			throw new IllegalArgumentException("Trace is too short to contain a header.");
+		}
+		final long magic = file.getLong();
+		if (magic != TraceFormat.MAGIC) {
+			throw new IllegalArgumentException(String.format("Invalid trace magic number: 0x%016x.", magic));
+		}
+		final short version = file.getShort();
+		if (version != TraceFormat.VERSION) {
+			throw new IllegalArgumentException(String.format(
+					"Unsupported trace version %d: only version %d is supported.", version, TraceFormat.VERSION));
+		}
+		final short numSlots = file.getShort();
+		if (numSlots != TraceFormat.NUM_SLOTS) {
+			throw new IllegalArgumentException(String.format("Invalid number of register slots: %,d.", numSlots));
+		}
+		final int numExtendedSlots = file.getInt();
+		if (numExtendedSlots != TraceFormat.NUM_EXTENDED_SLOTS) {
+			throw new IllegalArgumentException(
+					String.format("Invalid number of extended slots: %,d.", numExtendedSlots));
+		}
+	}
+
+	/**
+	 * Memory-maps the given trace file and creates a new TraceReader over it.
+	 *
+	 * @param path The trace file.
+	 * @return A new TraceReader.
+	 */
+	public static TraceReader fromFile(final Path path) {
+		Objects.requireNonNull(path);
+		try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new TraceReader(fc.map(FileChannel.MapMode.READ_ONLY, 0L, fc.size()));
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void nextChunk() {
+		final int uncompressedBytes = file.getInt();
+		final int compressedBytes = file.getInt();
+		recordsLeftInChunk = file.getInt();
+		if (uncompressedBytes < TraceFormat.STATE_BYTES || compressedBytes < 0 || recordsLeftInChunk < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid trace chunk: %,d bytes (%,d compressed) and %,d records.",
+					uncompressedBytes, compressedBytes, recordsLeftInChunk));
+		}
+		if (chunk.capacity() < uncompressedBytes) {
+			chunk = ByteBuffer.allocate(uncompressedBytes).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		chunk.clear().limit(uncompressedBytes);
+
+		final ByteBuffer input = file.slice(file.position(), compressedBytes);
+		file.position(file.position() + compressedBytes);
+		inflater.reset();
+		inflater.setInput(input);
+		try {
+			while (chunk.hasRemaining() && !inflater.finished()) {
+				if (inflater.inflate(chunk) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+			}
+		} catch (final DataFormatException e) {
+			throw new IllegalArgumentException("Corrupted trace chunk.", e);
+		}
+		if (chunk.hasRemaining()) {
+			throw new IllegalArgumentException("Truncated trace chunk.");
+		}
+		chunk.flip();
+
+		for (int i = 0; i < TraceFormat.NUM_SLOTS; i++) {
+			regs[i] = chunk.getLong();
+		}
+		Arrays.fill(regs, TraceFormat.NUM_SLOTS, TraceFormat.TOTAL_SLOTS, 0L);
+		final int numNonZero = readExtendedCount();
+		for (int i = 0; i < numNonZero; i++) {
+			regs[readExtendedSlot()] = TraceFormat.getVarLong(chunk);
+		}
+		lastWriteAddress = 0L;
+	}
+
+	private int readExtendedCount() {
+		final long n = TraceFormat.getVarLong(chunk);
+		if (n < 0L || n > TraceFormat.NUM_EXTENDED_SLOTS) {
+			throw new IllegalArgumentException(String.format("Invalid number of extended slots in trace: %,d.", n));
+		}
+		return (int) n;
+	}
+
+	private int readExtendedSlot() {
+		final long slot = TraceFormat.getVarLong(chunk);
+		if (slot < TraceFormat.NUM_SLOTS || slot >= TraceFormat.TOTAL_SLOTS) {
+			throw new IllegalArgumentException(String.format("Invalid extended slot in trace: %,d.", slot));
+		}
+		return (int) slot;
+	}
+
+	/**
+	 * Advances to the next record.
+	 *
+	 * @return True if there was another record, false if the trace has ended.
+	 */
+	public boolean next() {
+		while (recordsLeftInChunk == 0) {
+			if (file.remaining() < TraceFormat.CHUNK_HEADER_BYTES) {
+				return false;
+			}
+			nextChunk();
+		}
+		recordsLeftInChunk--;
+
+		length = BitUtils.asInt(chunk.get());
+		rip = regs[TraceFormat.RIP_SLOT] + TraceFormat.unZigZag(TraceFormat.getVarLong(chunk));
+		changedMask = (int) TraceFormat.getVarLong(chunk);
+		for (int i = 0; i < TraceFormat.NUM_SLOTS; i++) {
+			if ((changedMask & (1 << i)) != 0) {
+				regs[i] ^= TraceFormat.getVarLong(chunk);
+			}
+		}
+		numChangedExtended = readExtendedCount();
+		for (int i = 0; i < numChangedExtended; i++) {
+			final int slot = readExtendedSlot();
+			regs[slot] ^= TraceFormat.getVarLong(chunk);
+			changedExtended[i] = slot;
+		}
+		rf.copyFrom(regs);
+
+		numWrites = (int) TraceFormat.getVarLong(chunk);
+		if (numWrites > writeAddresses.length) {
+			writeAddresses = Arrays.copyOf(writeAddresses, numWrites);
+			writeValues = Arrays.copyOf(writeValues, numWrites);
+			writeSizes = Arrays.copyOf(writeSizes, numWrites);
+		}
+		for (int i = 0; i < numWrites; i++) {
+			final int size = chunk.get();
+			lastWriteAddress += TraceFormat.unZigZag(TraceFormat.getVarLong(chunk));
+			long value = 0L;
+			for (int j = 0; j < size; j++) {
+				value |= BitUtils.asLong(chunk.get()) << (8 * j);
+			}
+			writeSizes[i] = (byte) size;
+			writeAddresses[i] = lastWriteAddress;
+			writeValues[i] = value;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the address of the current instruction.
+	 *
+	 * @return The address of the current instruction.
+	 */
+	public long getInstructionAddress() {
+		return rip;
+	}
+
+	/**
+	 * Returns the length in bytes of the current instruction.
+	 *
+	 * @return The length of the current instruction.
+	 */
+	public int getInstructionLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the registers right after the current instruction was executed.
+	 *
+	 * @return The register file after the current instruction.
+	 */
+	public ImmutableRegisterFile getRegisters() {
+		return new X86RegisterFile(rf);
+	}
+
+	/**
+	 * Checks whether the current instruction modified the given register.
+	 *
+	 * @param r The register to be checked.
+	 * @return True if the current instruction changed its value.
+	 */
+	public boolean hasChanged(final Register64 r) {
+		return (changedMask & (1 << TraceFormat.slotOf(r))) != 0;
+	}
+
+	/**
+	 * Checks whether the current instruction modified the given segment register.
+	 *
+	 * @param s The segment register to be checked.
+	 * @return True if the current instruction changed its value.
+	 */
+	public boolean hasChanged(final SegmentRegister s) {
+		return (changedMask & (1 << TraceFormat.slotOf(s))) != 0;
+	}
+
+	/**
+	 * Checks whether the current instruction modified RFLAGS.
+	 *
+	 * @return True if the current instruction changed at least one flag.
+	 */
+	public boolean hasChangedFlags() {
+		return (changedMask & (1 << TraceFormat.RFLAGS_SLOT)) != 0;
+	}
+
+	/**
+	 * Checks whether the current instruction modified at least one lane of the given vector register.
+	 *
+	 * @param register The number of the vector register, between 0 and 31.
+	 * @return True if the current instruction changed its value.
+	 */
+	public boolean hasChangedVector(final int register) {
+		final int first = TraceFormat.FIRST_VECTOR_SLOT
+				+ Objects.checkIndex(register, X86RegisterFile.NUM_VECTOR_REGISTERS) * X86RegisterFile.VECTOR_LANES;
+		for (int i = 0; i < numChangedExtended; i++) {
+			if (changedExtended[i] >= first && changedExtended[i] < first + X86RegisterFile.VECTOR_LANES) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of memory writes performed by the current instruction.
+	 *
+	 * @return The number of memory writes.
+	 */
+	public int getNumMemoryWrites() {
+		return numWrites;
+	}
+
+	private void checkWriteIndex(final int i) {
+		if (i < 0 || i >= numWrites) {
+			throw new IndexOutOfBoundsException(
+					String.format("Invalid memory write index %,d: there are %,d writes.", i, numWrites));
+		}
+	}
+
+	/**
+	 * Returns the address of the i-th memory write of the current instruction.
+	 *
+	 * @param i The index of the write.
+	 * @return The address written.
+	 */
+	public long getMemoryWriteAddress(final int i) {
+		checkWriteIndex(i);
+		return writeAddresses[i];
+	}
+
+	/**
+	 * Returns the number of bytes of the i-th memory write of the current instruction.
+	 *
+	 * @param i The index of the write.
+	 * @return The number of bytes written, from 1 to 8.
+	 */
+	public int getMemoryWriteSize(final int i) {
+		checkWriteIndex(i);
+		return writeSizes[i];
+	}
+
+	/**
+	 * Returns the bytes of the i-th memory write of the current instruction, as a little-endian value.
+	 *
+	 * @param i The index of the write.
+	 * @return The value written.
+	 */
+	public long getMemoryWriteValue(final int i) {
+		checkWriteIndex(i);
+		return writeValues[i];
+	}
+
+	/**
+	 * Applies the memory writes of the current instruction to the given memory.
+	 *
+	 * @param mem The memory to replay the writes into.
+	 */
+	public void replayWrites(final Memory mem) {
+		Objects.requireNonNull(mem);
+		for (int i = 0; i < numWrites; i++) {
+			for (int j = 0; j < writeSizes[i]; j++) {
+				mem.write(new MemoryAddress(writeAddresses[i] + j), (byte) (writeValues[i] >>> (8 * j)));
+			}
+		}
+	}
+
+	/**
+	 * Formats the current record as a single line of text: address, length, changed registers and memory writes.
+	 *
+	 * @param sb The builder to append the line to.
+	 */
+	public void format(final StringBuilder sb) {
+		sb.append(String.format("0x%016x  (%2d)", rip, length));
+		for (int i = 0; i < TraceFormat.NUM_SLOTS; i++) {
+			if (i != TraceFormat.RIP_SLOT && (changedMask & (1 << i)) != 0) {
+				sb.append(' ')
+						.append(TraceFormat.nameOf(i))
+						.append('=')
+						.append(String.format("0x%x", regs[i]));
+			}
+		}
+		for (int i = 0; i < numChangedExtended; i++) {
+			final int slot = changedExtended[i];
+			sb.append(' ')
+					.append(TraceFormat.nameOf(slot))
+					.append('=')
+					.append(String.format("0x%x", regs[slot]));
+		}
+		for (int i = 0; i < numWrites; i++) {
+			sb.append(String.format(
+					" [0x%x]<-0x%0" + (2 * writeSizes[i]) + "x", writeAddresses[i], writeValues[i]));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TraceReader(position=" + file.position() + ";size=" + file.limit() + ")";
+	}
+}
@@ -0,0 +1,361 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.Deflater;
+
+import com.ledmington.mem.AtomicMemory;
+import com.ledmington.mem.Memory;
+import com.ledmington.utils.SuppressFBWarnings;
+
+/**
+ * Records a compact binary trace of the instructions retired by an {@link X86Cpu}: for each one, its address, its
+ * length, the registers it changed and the memory it wrote. Records are accumulated in a chunk buffer which is
+ * compressed and written out only when full, so the cost per instruction is a few comparisons and some varint
+ * encoding. See {@link TraceFormat} for the on-disk layout and {@link TraceReader} to read a trace back.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+public final class TraceWriter implements AutoCloseable {
+
+	private static final int DEFAULT_CHUNK_BYTES = 1 << 16;
+
+	/** Size of a memory write record in the worst case: size, address and value. */
+	private static final int MAX_WRITE_BYTES = 1 + TraceFormat.MAX_VARINT_BYTES + 8;
+
+	private final WritableByteChannel out;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+	private final ByteBuffer chunkHeader =
+			ByteBuffer.allocate(TraceFormat.CHUNK_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	private ByteBuffer chunk;
+	private ByteBuffer compressed;
+
+	/** Size of a changed extended slot in the worst case: index and value. */
+	private static final int MAX_EXTENDED_BYTES = 2 * TraceFormat.MAX_VARINT_BYTES;
+
+	/** Register values after the last record (or before the first one). */
+	private final long[] regs = new long[TraceFormat.TOTAL_SLOTS];
+
+	private final long[] current = new long[TraceFormat.TOTAL_SLOTS];
+
+	/** The extended slots changed by the current instruction. */
+	private final int[] changedExtended = new int[TraceFormat.NUM_EXTENDED_SLOTS];
+
+	private long[] writeAddresses = new long[8];
+	private long[] writeValues = new long[8];
+	private byte[] writeSizes = new byte[8];
+	private int numWrites = 0;
+
+	private long lastWriteAddress = 0L;
+	private int recordsInChunk = 0;
+	private long totalRecords = 0L;
+	private boolean started = false;
+	private boolean closed = false;
+
+	/**
+	 * Creates a new TraceWriter which writes into the given channel, compressing chunks of the given size.
+	 *
+	 * @param out The channel to write the trace into.
+	 * @param chunkBytes The size (in bytes) of the uncompressed chunks.
+	 */
+	@SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The channel is meant to be written by this object.")
+	public TraceWriter(final WritableByteChannel out, final int chunkBytes) {
+		this.out = Objects.requireNonNull(out);
+		final int minChunkBytes = TraceFormat.STATE_BYTES * 2;
+		if (chunkBytes < minChunkBytes) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid chunk size: expected at least %,d bytes but was %,d.", minChunkBytes, chunkBytes));
+		}
+		this.chunk = ByteBuffer.allocate(chunkBytes).order(ByteOrder.LITTLE_ENDIAN);
+		this.compressed = ByteBuffer.allocate(chunkBytes / 2);
+		writeHeader();
+	}
+
+	/**
+	 * Creates a new TraceWriter which writes into the given channel.
+	 *
+	 * @param out The channel to write the trace into.
+	 */
+	public TraceWriter(final WritableByteChannel out) {
+		this(out, DEFAULT_CHUNK_BYTES);
+	}
+
+	/**
+	 * Creates a new TraceWriter which writes into the given file, overwriting it.
+	 *
+	 * @param path The file to write the trace into.
+	 * @return A new TraceWriter.
+	 */
+	public static TraceWriter toFile(final Path path) {
+		Objects.requireNonNull(path);
+		try {
+			return new TraceWriter(FileChannel.open(
+					path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeHeader() {
+		final ByteBuffer header =
+				ByteBuffer.allocate(TraceFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putLong(TraceFormat.MAGIC);
+		header.putShort(TraceFormat.VERSION);
+		header.putShort((short) TraceFormat.NUM_SLOTS);
+		header.putInt(TraceFormat.NUM_EXTENDED_SLOTS);
+		header.flip();
+		writeFully(header);
+	}
+
+	private void writeFully(final ByteBuffer bb) {
+		try {
+			while (bb.hasRemaining()) {
+				out.write(bb);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Wraps the given memory so that every write made through it is recorded in the current instruction.
+	 *
+	 * @param mem The memory to be wrapped.
+	 * @return A new Memory which forwards every access to the given one.
+	 */
+	public AtomicMemory wrap(final Memory mem) {
+		return new TracingMemory(mem, this);
+	}
+
+	/**
+	 * Records a memory write performed by the instruction currently being executed.
+	 *
+	 * @param address The address written.
+	 * @param size The number of bytes written, from 1 to 8.
+	 * @param value The bytes written, little-endian.
+	 */
+	void recordWrite(final long address, final int size, final long value) {
+		if (numWrites == writeAddresses.length) {
+			final int newLength = numWrites * 2;
+			writeAddresses = Arrays.copyOf(writeAddresses, newLength);
+			writeValues = Arrays.copyOf(writeValues, newLength);
+			writeSizes = Arrays.copyOf(writeSizes, newLength);
+		}
+		writeAddresses[numWrites] = address;
+		writeValues[numWrites] = value;
+		writeSizes[numWrites] = (byte) size;
+		numWrites++;
+	}
+
+	/**
+	 * Notifies that an instruction is about to be executed. The first call captures the initial state of the registers.
+	 *
+	 * @param rf The register file of the CPU.
+	 */
+	public void beforeInstruction(final ImmutableRegisterFile rf) {
+		if (!started) {
+			TraceFormat.snapshot(rf, regs);
+			started = true;
+		}
+		numWrites = 0;
+	}
+
+	/**
+	 * Records an instruction which has just been retired.
+	 *
+	 * @param rip The address of the instruction.
+	 * @param length The length of the instruction in bytes.
+	 * @param rf The register file of the CPU, after executing the instruction.
+	 */
+	public void afterInstruction(final long rip, final int length, final ImmutableRegisterFile rf) {
+		if (closed) {
+			throw new IllegalStateException("Cannot record instructions after closing the trace.");
+		}
+		TraceFormat.snapshot(rf, current);
+		int mask = 0;
+		for (int i = 0; i < TraceFormat.NUM_SLOTS; i++) {
+			if (current[i] != regs[i]) {
+				mask |= 1 << i;
+			}
+		}
+		// Vector registers are rarely touched, so most of the times this finds no difference at all
+		int numChangedExtended = 0;
+		for (int slot = nextChangedSlot(TraceFormat.NUM_SLOTS); slot >= 0; slot = nextChangedSlot(slot + 1)) {
+			changedExtended[numChangedExtended++] = slot;
+		}
+
+		final int maxBytes = 1
+				+ 4 * TraceFormat.MAX_VARINT_BYTES
+				+ Integer.bitCount(mask) * TraceFormat.MAX_VARINT_BYTES
+				+ numChangedExtended * MAX_EXTENDED_BYTES
+				+ numWrites * MAX_WRITE_BYTES;
+		ensureSpace(maxBytes);
+
+		if (chunk.position() == 0) {
+			writeState();
+		}
+
+		chunk.put((byte) length);
+		TraceFormat.putVarLong(chunk, TraceFormat.zigZag(rip - regs[TraceFormat.RIP_SLOT]));
+		TraceFormat.putVarLong(chunk, mask);
+		for (int i = 0; i < TraceFormat.NUM_SLOTS; i++) {
+			if ((mask & (1 << i)) != 0) {
+				TraceFormat.putVarLong(chunk, current[i] ^ regs[i]);
+			}
+		}
+		TraceFormat.putVarLong(chunk, numChangedExtended);
+		for (int i = 0; i < numChangedExtended; i++) {
+			final int slot = changedExtended[i];
+			TraceFormat.putVarLong(chunk, slot);
+			TraceFormat.putVarLong(chunk, current[slot] ^ regs[slot]);
+		}
+		TraceFormat.putVarLong(chunk, numWrites);
+		for (int i = 0; i < numWrites; i++) {
+			final int size = writeSizes[i];
+			chunk.put((byte) size);
+			TraceFormat.putVarLong(chunk, TraceFormat.zigZag(writeAddresses[i] - lastWriteAddress));
+			lastWriteAddress = writeAddresses[i];
+			final long value = writeValues[i];
+			for (int j = 0; j < size; j++) {
+				chunk.put((byte) (value >>> (8 * j)));
+			}
+		}
+		numWrites = 0;
+
+		System.arraycopy(current, 0, regs, 0, TraceFormat.TOTAL_SLOTS);
+		recordsInChunk++;
+		totalRecords++;
+	}
+
+	/** Returns the first slot from the given one on whose value has changed, or -1. */
+	private int nextChangedSlot(final int from) {
+		final int offset = Arrays.mismatch(current, from, TraceFormat.TOTAL_SLOTS, regs, from, TraceFormat.TOTAL_SLOTS);
+		return offset < 0 ? -1 : from + offset;
+	}
+
+	private int numNonZeroExtended() {
+		int n = 0;
+		for (int i = TraceFormat.NUM_SLOTS; i < TraceFormat.TOTAL_SLOTS; i++) {
+			if (regs[i] != 0L) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	private void writeState() {
+		for (int i = 0; i < TraceFormat.NUM_SLOTS; i++) {
+			chunk.putLong(regs[i]);
+		}
+		TraceFormat.putVarLong(chunk, numNonZeroExtended());
+		for (int i = TraceFormat.NUM_SLOTS; i < TraceFormat.TOTAL_SLOTS; i++) {
+			if (regs[i] != 0L) {
+				TraceFormat.putVarLong(chunk, i);
+				TraceFormat.putVarLong(chunk, regs[i]);
+			}
+		}
+		lastWriteAddress = 0L;
+	}
+
+	private void ensureSpace(final int recordBytes) {
+		if (chunk.position() != 0 && chunk.remaining() >= recordBytes) {
+			return;
+		}
+		flush();
+		final int needed = recordBytes
+				+ TraceFormat.STATE_BYTES
+				+ TraceFormat.MAX_VARINT_BYTES
+				+ numNonZeroExtended() * MAX_EXTENDED_BYTES;
+		if (chunk.capacity() < needed) {
+			// A single instruction (like a long REP STOS) may write more than a whole chunk
+			chunk = ByteBuffer.allocate(needed).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	/** Compresses and writes out the records accumulated so far. */
+	public void flush() {
+		if (recordsInChunk == 0) {
+			return;
+		}
+
+		chunk.flip();
+		final int uncompressedBytes = chunk.remaining();
+		deflater.reset();
+		deflater.setInput(chunk);
+		deflater.finish();
+		compressed.clear();
+		while (!deflater.finished()) {
+			if (!compressed.hasRemaining()) {
+				compressed = ByteBuffer.allocate(compressed.capacity() * 2).put(compressed.flip());
+			}
+			deflater.deflate(compressed);
+		}
+		compressed.flip();
+
+		chunkHeader.clear();
+		chunkHeader.putInt(uncompressedBytes);
+		chunkHeader.putInt(compressed.remaining());
+		chunkHeader.putInt(recordsInChunk);
+		chunkHeader.flip();
+		writeFully(chunkHeader);
+		writeFully(compressed);
+
+		chunk.clear();
+		recordsInChunk = 0;
+	}
+
+	/**
+	 * Returns the number of instructions recorded so far.
+	 *
+	 * @return The number of records.
+	 */
+	public long getRecordCount() {
+		return totalRecords;
+	}
+
+	/** Flushes the remaining records and closes the underlying channel. */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		flush();
+		closed = true;
+		deflater.end();
+		try {
+			out.close();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TraceWriter(records=" + totalRecords + ";chunkBytes=" + chunk.capacity() + ";closed=" + closed + ")";
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Objects;
+
+import com.ledmington.mem.AtomicMemory;
+import com.ledmington.mem.Memory;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.utils.BitUtils;
+
+/** A Memory which forwards every access to another one, reporting each write to a {@link TraceWriter}. */
+final class TracingMemory implements AtomicMemory {
+
+	private final Memory mem;
+	private final TraceWriter tracer;
+
+	/**
+	 * Creates a new TracingMemory.
+	 *
+	 * @param mem The memory to forward accesses to.
+	 * @param tracer The trace to report writes to.
+	 */
+	TracingMemory(final Memory mem, final TraceWriter tracer) {
+		this.mem = Objects.requireNonNull(mem);
+		this.tracer = Objects.requireNonNull(tracer);
+	}
+
+	@Override
+	public byte read(final MemoryAddress address) {
+		return mem.read(address);
+	}
+
+	@Override
+	public short read2(final MemoryAddress address) {
+		return mem.read2(address);
+	}
+
+	@Override
+	public int read4(final MemoryAddress address) {
+		return mem.read4(address);
+	}
+
+	@Override
+	public long read8(final MemoryAddress address) {
+		return mem.read8(address);
+	}
+
+	@Override
+	public void write(final MemoryAddress address, final byte value) {
+		mem.write(address, value);
+		tracer.recordWrite(address.address(), 1, BitUtils.asLong(value));
+	}
+
+	@Override
+	public void write(final MemoryAddress address, final byte[] src, final int offset, final int length) {
+		mem.write(address, src, offset, length);
+		for (int i = 0; i < length; i += 8) {
+			final int size = Math.min(8, length - i);
+			long value = 0L;
+			for (int j = 0; j < size; j++) {
+				value |= BitUtils.asLong(src[offset + i + j]) << (8 * j);
+			}
+			tracer.recordWrite(address.address() + i, size, value);
+		}
+	}
+
+	@Override
+	public void read(final MemoryAddress address, final byte[] dst, final int offset, final int length) {
+		mem.read(address, dst, offset, length);
+	}
+
+	@Override
+	public void write(final MemoryAddress address, final short value) {
+		mem.write(address, value);
+		tracer.recordWrite(address.address(), 2, BitUtils.asLong(value));
+	}
+
+	@Override
+	public void write(final MemoryAddress address, final int value) {
+		mem.write(address, value);
+		tracer.recordWrite(address.address(), 4, BitUtils.asLong(value));
+	}
+
+	@Override
+	public void write(final MemoryAddress address, final long value) {
+		mem.write(address, value);
+		tracer.recordWrite(address.address(), 8, value);
+	}
+
+	@Override
+	public byte read(final long address) {
+		return mem.read(address);
+	}
+
+	@Override
+	public short read2(final long address) {
+		return mem.read2(address);
+	}
+
+	@Override
+	public int read4(final long address) {
+		return mem.read4(address);
+	}
+
+	@Override
+	public long read8(final long address) {
+		return mem.read8(address);
+	}
+
+	@Override
+	public void write(final long address, final byte value) {
+		mem.write(address, value);
+		tracer.recordWrite(address, 1, BitUtils.asLong(value));
+	}
+
+	@Override
+	public void write(final long address, final short value) {
+		mem.write(address, value);
+		tracer.recordWrite(address, 2, BitUtils.asLong(value));
+	}
+
+	@Override
+	public void write(final long address, final int value) {
+		mem.write(address, value);
+		tracer.recordWrite(address, 4, BitUtils.asLong(value));
+	}
+
+	@Override
+	public void write(final long address, final long value) {
+		mem.write(address, value);
+		tracer.recordWrite(address, 8, value);
+	}
+
+	@Override
+	public long compareAndExchange(
+			final MemoryAddress address, final int size, final long expected, final long newValue) {
+		final long witness = mem.compareAndExchange(address, size, expected, newValue);
+		if (witness == (expected & Memory.sizeMask(size))) {
+			tracer.recordWrite(address.address(), size, newValue & Memory.sizeMask(size));
+		}
+		return witness;
+	}
+
+	@Override
+	public long getAndApply(final MemoryAddress address, final int size, final Operation op, final long operand) {
+		final long old = mem instanceof final AtomicMemory am
+				? am.getAndApply(address, size, op, operand)
+				: AtomicMemory.super.getAndApply(address, size, op, operand);
+		tracer.recordWrite(address.address(), size, op.apply(old, operand) & Memory.sizeMask(size));
+		return old;
+	}
+
+	@Override
+	public boolean isInitialized(final MemoryAddress address) {
+		return mem.isInitialized(address);
+	}
+
+	@Override
+	public void map(final MemoryAddress start, final long numBytes, final MemorySegment segment, final boolean shared) {
+		mem.map(start, numBytes, segment, shared);
+	}
+
+	@Override
+	public void unmap(final MemoryAddress start, final long numBytes) {
+		mem.unmap(start, numBytes);
+	}
+
+	@Override
+	public String toString() {
+		return "TracingMemory(mem=" + mem + ";tracer=" + tracer + ")";
+	}
+}
@@ -0,0 +1,430 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+import com.ledmington.elf.ELF;
+import com.ledmington.elf.section.Section;
+import com.ledmington.elf.section.SectionHeader;
+import com.ledmington.elf.section.SectionHeaderFlags;
+import com.ledmington.elf.section.note.GnuBuildIDSection;
+import com.ledmington.elf.section.note.NoteSectionEntry;
+import com.ledmington.elf.section.sym.SymbolTable;
+import com.ledmington.elf.section.sym.SymbolTableEntry;
+import com.ledmington.elf.section.sym.SymbolTableEntryType;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.utils.MiniLogger;
+
+/**
+ * The blocks of an executable translated ahead of time, persisted on disk so that later runs of the same executable
+ * skip decoding, checking and warm-up. Blocks are discovered statically, starting from the entry point and from the
+ * functions in the symbol tables and following the direct jumps and calls inside the executable sections. A block
+ * found in this cache is compiled the first time it is executed, without waiting for the JIT threshold.
+ *
+ * <p>The cache file is named after the GNU build ID of the executable (or, if there is none, after the SHA-256 of its
+ * contents) and is memory-mapped when opened. It starts with a header (magic, format version, JDK version, base
+ * address, whether instructions were checked, number of blocks and digest), followed by one index entry per block
+ * (address, number of instructions, size and offset of the class file, end address and kind of exit) and by the class
+ * files themselves, all in little-endian. The digest is the SHA-256 of the name of the executable's cache, of the rest
+ * of the header, of the index and of all the class files, and is verified before any class is loaded.
+ * A file written by a different version, for a different base address, without the instruction checks requested or
+ * whose digest does not match is rebuilt.
+ *
+ * <p>The digest detects corrupted files and files belonging to other executables, but anyone who can write into the
+ * cache directory can also compute a valid digest: since the class files are loaded with the privileges of the
+ * emulator, the directory must be trusted.
+ *
+ * <p>Instances of this class are thread-safe.
+ */
+public final class TranslationCache {
+
+	private static final MiniLogger logger = MiniLogger.getLogger("aot");
+
+	/** "EMU-AOT" followed by a zero byte, read as a little-endian long. */
+	private static final long MAGIC = 0x0054_4f41_2d55_4d45L;
+
+	/** Must be increased whenever the layout of the file or the code generated by the BlockCompiler changes. */
+	private static final int FORMAT_VERSION = 3;
+
+	private static final int DIGEST_OFFSET = 32;
+	private static final int DIGEST_SIZE = 32;
+	private static final int HEADER_SIZE = DIGEST_OFFSET + DIGEST_SIZE;
+	private static final int INDEX_ENTRY_SIZE = 36;
+
+	private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+	private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+	private static final BlockCompiler.Exit[] EXITS = BlockCompiler.Exit.values();
+
+	private record Entry(int length, int size, long offset, long end, int exit) {}
+
+	private final Path file;
+	private final MemorySegment data;
+	private final Map<Long, Entry> index;
+	private final boolean loaded;
+	private final Map<Long, BlockCompiler.Result> defined = new ConcurrentHashMap<>();
+
+	private TranslationCache(
+			final Path file, final MemorySegment data, final Map<Long, Entry> index, final boolean loaded) {
+		this.file = file;
+		this.data = data;
+		this.index = index;
+		this.loaded = loaded;
+	}
+
+	/**
+	 * Opens the translation cache of the given executable inside the given directory, creating it if it does not exist
+	 * or if it is not valid anymore. The executable must already be loaded in memory.
+	 *
+	 * @param directory The directory containing the cache files.
+	 * @param executable The path of the executable file.
+	 * @param elf The parsed executable file.
+	 * @param mem The memory where the executable is loaded.
+	 * @param baseAddress The address where the executable is loaded.
+	 * @param checkInstructions When enabled, the instructions are checked before being translated.
+	 * @return The translation cache of the executable.
+	 * @throws IOException If the cache file cannot be read nor written.
+	 */
+	public static TranslationCache forExecutable(
+			final Path directory,
+			final Path executable,
+			final ELF elf,
+			final MemoryController mem,
+			final long baseAddress,
+			final boolean checkInstructions)
+			throws IOException {
+		Objects.requireNonNull(directory);
+		Objects.requireNonNull(executable);
+		Objects.requireNonNull(elf);
+		Objects.requireNonNull(mem);
+
+		final Set<Long> roots = new HashSet<>();
+		roots.add(baseAddress + elf.getFileHeader().entryPointVirtualAddress());
+		final Map<Long, Long> code = new TreeMap<>();
+		for (int i = 0; i < elf.getSectionTableLength(); i++) {
+			final Section s = elf.getSection(i);
+			final SectionHeader sh = s.header();
+			if (sh.getFlags().contains(SectionHeaderFlags.SHT_EXECINSTR) && sh.getSectionSize() > 0L) {
+				code.put(baseAddress + sh.getVirtualAddress(), sh.getSectionSize());
+			}
+			if (s instanceof final SymbolTable symtab) {
+				for (int j = 0; j < symtab.getSymbolTableLength(); j++) {
+					final SymbolTableEntry ste = symtab.getSymbolTableEntry(j);
+					if (ste.info().getType() == SymbolTableEntryType.STT_FUNC && ste.value() != 0L) {
+						roots.add(baseAddress + ste.value());
+					}
+				}
+			}
+		}
+		final LongPredicate isCode = address -> code.entrySet().stream()
+				.anyMatch(e -> Long.compareUnsigned(address, e.getKey()) >= 0
+						&& Long.compareUnsigned(address - e.getKey(), e.getValue()) < 0);
+
+		Files.createDirectories(directory);
+		final String key = key(executable, elf);
+		return open(
+				directory.resolve(key + ".aot"),
+				key,
+				mem,
+				roots.stream().mapToLong(Long::longValue).toArray(),
+				isCode,
+				baseAddress,
+				checkInstructions);
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new AssertionError(e);
+		}
+	}
+
+	private static String key(final Path executable, final ELF elf) throws IOException {
+		final Optional<Section> buildId = elf.getSectionByName(".note.gnu.build-id");
+		if (buildId.isPresent() && buildId.orElseThrow() instanceof final GnuBuildIDSection gbis) {
+			final NoteSectionEntry entry = gbis.getEntry(0);
+			final byte[] id = new byte[entry.getDescriptionLength()];
+			for (int i = 0; i < id.length; i++) {
+				id[i] = entry.getDescriptionByte(i);
+			}
+			return "buildid-" + HexFormat.of().formatHex(id);
+		}
+		return "sha256-" + HexFormat.of().formatHex(sha256().digest(Files.readAllBytes(executable)));
+	}
+
+	/** Computes the digest of the given cache file, skipping the digest itself. */
+	private static byte[] digest(final String key, final ByteBuffer contents) {
+		final MessageDigest md = sha256();
+		md.update(key.getBytes(StandardCharsets.UTF_8));
+		md.update((byte) 0);
+		md.update(contents.slice(0, DIGEST_OFFSET));
+		md.update(contents.slice(HEADER_SIZE, contents.limit() - HEADER_SIZE));
+		return md.digest();
+	}
+
+	/**
+	 * Opens the given cache file, rebuilding it if it does not exist or if it is not valid anymore.
+	 *
+	 * @param file The cache file.
+	 * @param key The name of the cache of the executable, which the digest of the file depends on.
+	 * @param mem The memory where the code is loaded.
+	 * @param roots The addresses where the discovery of blocks starts.
+	 * @param isCode Tells whether an address belongs to the code to be translated.
+	 * @param baseAddress The address where the executable is loaded.
+	 * @param checkInstructions When enabled, the instructions are checked before being translated.
+	 * @return The translation cache.
+	 * @throws IOException If the cache file cannot be read nor written.
+	 */
+	static TranslationCache open(
+			final Path file,
+			final String key,
+			final MemoryController mem,
+			final long[] roots,
+			final LongPredicate isCode,
+			final long baseAddress,
+			final boolean checkInstructions)
+			throws IOException {
+		if (Files.isRegularFile(file)) {
+			final TranslationCache cache = map(file, key, baseAddress, checkInstructions);
+			if (cache != null) {
+				logger.info("Loaded %,d translated blocks from '%s'", cache.size(), file);
+				return cache;
+			}
+			logger.info("Rebuilding stale translation cache '%s'", file);
+		}
+		write(file, key, translateAll(mem, roots, isCode, checkInstructions), baseAddress, checkInstructions);
+		final TranslationCache cache = Objects.requireNonNull(map(file, key, baseAddress, checkInstructions));
+		logger.info("Translated %,d blocks into '%s'", cache.size(), file);
+		return new TranslationCache(file, cache.data, cache.index, false);
+	}
+
+	private static Map<Long, BlockCompiler.Translation> translateAll(
+			final MemoryController mem,
+			final long[] roots,
+			final LongPredicate isCode,
+			final boolean checkInstructions) {
+		// Sorted, so that the same executable always gives the same file
+		final Map<Long, BlockCompiler.Translation> blocks = new TreeMap<>(Long::compareUnsigned);
+		final Set<Long> failed = new HashSet<>();
+		final Queue<Long> work = new ArrayDeque<>();
+		for (final long root : roots) {
+			if (isCode.test(root)) {
+				work.add(root);
+			}
+		}
+		while (!work.isEmpty()) {
+			final long address = work.remove();
+			if (blocks.containsKey(address) || failed.contains(address)) {
+				continue;
+			}
+			final BlockCompiler.Translation t = BlockCompiler.translate(mem, address, checkInstructions);
+			if (t == null) {
+				failed.add(address);
+				continue;
+			}
+			blocks.put(address, t);
+			for (final long next : t.successors()) {
+				if (isCode.test(next) && !blocks.containsKey(next)) {
+					work.add(next);
+				}
+			}
+		}
+		return blocks;
+	}
+
+	private static void write(
+			final Path file,
+			final String key,
+			final Map<Long, BlockCompiler.Translation> blocks,
+			final long baseAddress,
+			final boolean checkInstructions)
+			throws IOException {
+		long size = HEADER_SIZE + (long) INDEX_ENTRY_SIZE * blocks.size();
+		for (final BlockCompiler.Translation t : blocks.values()) {
+			size += t.bytes().length;
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException(String.format("Translation cache too big: %,d bytes.", size));
+		}
+		final ByteBuffer bb = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+		bb.putLong(MAGIC)
+				.putInt(FORMAT_VERSION)
+				.putInt(Runtime.version().feature())
+				.putLong(baseAddress)
+				.putInt(checkInstructions ? 1 : 0)
+				.putInt(blocks.size())
+				.put(new byte[DIGEST_SIZE]);
+		long offset = HEADER_SIZE + (long) INDEX_ENTRY_SIZE * blocks.size();
+		for (final Map.Entry<Long, BlockCompiler.Translation> e : blocks.entrySet()) {
+			final BlockCompiler.Translation t = e.getValue();
+			bb.putLong(e.getKey())
+					.putInt(t.length())
+					.putInt(t.bytes().length)
+					.putLong(offset)
+					.putLong(t.end())
+					.putInt(t.exit().ordinal());
+			offset += t.bytes().length;
+		}
+		for (final BlockCompiler.Translation t : blocks.values()) {
+			bb.put(t.bytes());
+		}
+		bb.put(DIGEST_OFFSET, digest(key, bb.flip()));
+
+		// Other emulators may be reading the same file: replace it atomically
+		final Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+		try {
+			Files.write(tmp, bb.array());
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/** Maps the given file, returning null if it is not a valid cache for the given parameters. */
+	private static TranslationCache map(
+			final Path file, final String key, final long baseAddress, final boolean checkInstructions)
+			throws IOException {
+		final MemorySegment seg;
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			seg = ch.map(FileChannel.MapMode.READ_ONLY, 0L, ch.size(), Arena.ofAuto());
+		}
+		final long size = seg.byteSize();
+		if (size < HEADER_SIZE
+				|| size > Integer.MAX_VALUE
+				|| seg.get(LONG, 0L) != MAGIC
+				|| seg.get(INT, 8L) != FORMAT_VERSION
+				|| seg.get(INT, 12L) != Runtime.version().feature()
+				|| seg.get(LONG, 16L) != baseAddress
+				|| (checkInstructions && seg.get(INT, 24L) == 0)) {
+			return null;
+		}
+		final byte[] expected = digest(key, seg.asByteBuffer());
+		final byte[] actual = seg.asSlice(DIGEST_OFFSET, DIGEST_SIZE).toArray(ValueLayout.JAVA_BYTE);
+		if (!MessageDigest.isEqual(expected, actual)) {
+			logger.warning("Digest mismatch in translation cache '%s'", file);
+			return null;
+		}
+		final int count = seg.get(INT, 28L);
+		if (count < 0 || HEADER_SIZE + (long) INDEX_ENTRY_SIZE * count > size) {
+			return null;
+		}
+		final Map<Long, Entry> index = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			final long pos = HEADER_SIZE + (long) INDEX_ENTRY_SIZE * i;
+			final Entry e = new Entry(
+					seg.get(INT, pos + 8L),
+					seg.get(INT, pos + 12L),
+					seg.get(LONG, pos + 16L),
+					seg.get(LONG, pos + 24L),
+					seg.get(INT, pos + 32L));
+			if (e.length() <= 0
+					|| e.size() <= 0
+					|| e.offset() < 0L
+					|| e.offset() > size - e.size()
+					|| e.exit() < 0
+					|| e.exit() >= EXITS.length) {
+				return null;
+			}
+			index.put(seg.get(LONG, pos), e);
+		}
+		return new TranslationCache(file, seg, index, true);
+	}
+
+	/**
+	 * Returns the compiled block starting at the given address, loading it the first time.
+	 *
+	 * @param address The address of the first instruction of the block.
+	 * @return The compiled block, or null if this cache does not contain it.
+	 */
+	BlockCompiler.Result get(final long address) {
+		final Entry e = index.get(address);
+		if (e == null) {
+			return null;
+		}
+		return defined.computeIfAbsent(
+				address,
+				a -> BlockCompiler.define(
+						a,
+						new BlockCompiler.Translation(
+								data.asSlice(e.offset(), e.size()).toArray(ValueLayout.JAVA_BYTE),
+								e.length(),
+								EXITS[e.exit()],
+								e.end(),
+								new long[0])));
+	}
+
+	/**
+	 * Returns the number of blocks in this cache.
+	 *
+	 * @return The number of translated blocks.
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Tells whether this cache was read from an existing file, rather than being translated by this process.
+	 *
+	 * @return True if the cache file already existed and was valid.
+	 */
+	public boolean wasLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Returns the path of the file backing this cache.
+	 *
+	 * @return The cache file.
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	@Override
+	public String toString() {
+		return "TranslationCache(file=" + file + ";blocks=" + index.size() + ";loaded=" + loaded + ")";
+	}
+}
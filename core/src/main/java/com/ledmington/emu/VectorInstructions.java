@@ -0,0 +1,689 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.x86.GeneralPurposeRegister;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.IndirectOperand;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.Operand;
+import com.ledmington.cpu.x86.RegisterXMM;
+import com.ledmington.cpu.x86.RegisterYMM;
+import com.ledmington.cpu.x86.RegisterZMM;
+import com.ledmington.mem.Memory;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.utils.BitUtils;
+
+/**
+ * Executes the SSE and AVX instructions working on the vector registers.
+ *
+ * <p>Vector registers are made of 64-bit lanes (see {@link RegisterFile#getVectorLane(int, int)}). Most instructions
+ * are computed one lane at a time, processing all the elements inside a lane together with plain integer arithmetic
+ * (SIMD within a register). Legacy SSE instructions leave the bits above the destination XMM register untouched, while
+ * VEX-encoded ones clear them, like on real hardware. Masked (EVEX) instructions are not supported.
+ */
+final class VectorInstructions {
+
+	private static final int LANES = X86RegisterFile.VECTOR_LANES;
+
+	/** The number of vector registers cleared by VZEROALL in 64-bit mode. */
+	private static final int NUM_AVX_REGISTERS = 16;
+
+	// The highest bit of each element of a lane
+	private static final long BYTE_HIGH = 0x8080808080808080L;
+	private static final long WORD_HIGH = 0x8000800080008000L;
+	private static final long DWORD_HIGH = 0x8000000080000000L;
+
+	private static final Set<Opcode> LEGACY_MOVES = EnumSet.of(
+			Opcode.MOVDQA,
+			Opcode.MOVDQU,
+			Opcode.MOVAPS,
+			Opcode.MOVUPS,
+			Opcode.MOVAPD,
+			Opcode.MOVNTDQ,
+			Opcode.MOVNTPS);
+	private static final Set<Opcode> VEX_MOVES = EnumSet.of(
+			Opcode.VMOVDQU,
+			Opcode.VMOVDQU8,
+			Opcode.VMOVDQU16,
+			Opcode.VMOVDQU32,
+			Opcode.VMOVDQU64,
+			Opcode.VMOVAPS,
+			Opcode.VMOVUPS,
+			Opcode.VMOVNTDQ);
+
+	/** The instructions computed independently on each 64-bit lane. */
+	private static final Set<Opcode> LANE_WISE = EnumSet.of(
+			Opcode.PXOR,
+			Opcode.XORPS,
+			Opcode.VPXOR,
+			Opcode.VPXORD,
+			Opcode.VPXORQ,
+			Opcode.POR,
+			Opcode.VPOR,
+			Opcode.VPORQ,
+			Opcode.PAND,
+			Opcode.ANDPD,
+			Opcode.VPAND,
+			Opcode.VPANDN,
+			Opcode.PADDD,
+			Opcode.PADDQ,
+			Opcode.PSUBB,
+			Opcode.VPSUBB,
+			Opcode.PSUBW,
+			Opcode.PSUBD,
+			Opcode.PSUBQ,
+			Opcode.PCMPEQB,
+			Opcode.VPCMPEQB,
+			Opcode.PCMPEQW,
+			Opcode.PCMPEQD,
+			Opcode.VPCMPEQD,
+			Opcode.VPCMPEQQ,
+			Opcode.PCMPGTB,
+			Opcode.VPCMPGTB,
+			Opcode.PMINUB,
+			Opcode.VPMINUB,
+			Opcode.PMAXUB,
+			Opcode.PMINUD,
+			Opcode.VPMINUD,
+			Opcode.DIVPD,
+			Opcode.DIVPS);
+
+	private static final Set<Opcode> SUPPORTED = EnumSet.of(
+			Opcode.MOVQ,
+			Opcode.VMOVQ,
+			Opcode.MOVD,
+			Opcode.VMOVD,
+			Opcode.MOVSD,
+			Opcode.MOVHPS,
+			Opcode.MOVHPD,
+			Opcode.MOVHLPS,
+			Opcode.PMOVMSKB,
+			Opcode.VPMOVMSKB,
+			Opcode.MOVMSKPS,
+			Opcode.PEXTRW,
+			Opcode.PSLLDQ,
+			Opcode.PSRLDQ,
+			Opcode.VPSLLDQ,
+			Opcode.VPSRLDQ,
+			Opcode.PSLLW,
+			Opcode.PSLLD,
+			Opcode.PSLLQ,
+			Opcode.PSRLW,
+			Opcode.PSRLD,
+			Opcode.PSRLQ,
+			Opcode.PSRAW,
+			Opcode.PSRAD,
+			Opcode.PSHUFD,
+			Opcode.PSHUFB,
+			Opcode.VPSHUFB,
+			Opcode.PALIGNR,
+			Opcode.VPALIGNR,
+			Opcode.PUNPCKLBW,
+			Opcode.PUNPCKLWD,
+			Opcode.PUNPCKLDQ,
+			Opcode.PUNPCKLQDQ,
+			Opcode.PUNPCKHDQ,
+			Opcode.PUNPCKHQDQ,
+			Opcode.VPBROADCASTB,
+			Opcode.VPBROADCASTW,
+			Opcode.VPBROADCASTD,
+			Opcode.VPBROADCASTQ,
+			Opcode.VZEROALL,
+			Opcode.ADDSD,
+			Opcode.DIVSD,
+			Opcode.DIVSS);
+
+	static {
+		SUPPORTED.addAll(LEGACY_MOVES);
+		SUPPORTED.addAll(VEX_MOVES);
+		SUPPORTED.addAll(LANE_WISE);
+	}
+
+	private final RegisterFile rf;
+
+	// Scratch copies of the operands and of the result, so that the destination can also be a source
+	private final long[] first = new long[LANES];
+	private final long[] second = new long[LANES];
+	private final long[] result = new long[LANES];
+
+	/**
+	 * Creates the vector unit of a single CPU.
+	 *
+	 * @param rf The registers of the CPU.
+	 */
+	VectorInstructions(final RegisterFile rf) {
+		this.rf = Objects.requireNonNull(rf);
+	}
+
+	/**
+	 * Tells whether instructions with the given opcode are executed by this class.
+	 *
+	 * @param opcode The opcode.
+	 * @return True if the given opcode is supported.
+	 */
+	static boolean isSupported(final Opcode opcode) {
+		return SUPPORTED.contains(opcode);
+	}
+
+	/**
+	 * Executes the given instruction.
+	 *
+	 * @param mem The memory to be used.
+	 * @param inst The instruction to be executed.
+	 * @param address The effective address of the memory operand of the instruction, if any.
+	 */
+	@SuppressWarnings("PMD.CyclomaticComplexity")
+	void execute(final Memory mem, final Instruction inst, final long address) {
+		if (inst.hasDestinationMask()) {
+			throw unsupported(inst);
+		}
+		final Opcode opcode = inst.opcode();
+		if (LEGACY_MOVES.contains(opcode) || VEX_MOVES.contains(opcode)) {
+			move(mem, inst, address, VEX_MOVES.contains(opcode));
+			return;
+		}
+		if (LANE_WISE.contains(opcode)) {
+			laneWise(mem, inst, address);
+			return;
+		}
+		switch (opcode) {
+			case MOVQ -> moveScalar(mem, inst, address, 8, false);
+			case VMOVQ -> moveScalar(mem, inst, address, 8, true);
+			case MOVD -> moveScalar(mem, inst, address, 4, false);
+			case VMOVD -> moveScalar(mem, inst, address, 4, true);
+			case MOVSD -> moveHalf(mem, inst, address, 0);
+			case MOVHPS, MOVHPD -> moveHalf(mem, inst, address, 1);
+			case MOVHLPS ->
+				rf.setVectorLane(index(inst.firstOperand()), 0, rf.getVectorLane(index(inst.secondOperand()), 1));
+			case PMOVMSKB, VPMOVMSKB -> {
+				final int lanes = lanes(inst.secondOperand());
+				load(mem, inst.secondOperand(), address, lanes, first);
+				long mask = 0L;
+				for (int i = 0; i < lanes; i++) {
+					mask |= byteSigns(first[i]) << (8 * i);
+				}
+				setGeneralPurpose(inst.firstOperand(), mask);
+			}
+			case MOVMSKPS -> {
+				final int lanes = lanes(inst.secondOperand());
+				load(mem, inst.secondOperand(), address, lanes, first);
+				long mask = 0L;
+				for (int i = 0; i < lanes; i++) {
+					mask |= (((first[i] >>> 31) & 1L) | ((first[i] >>> 63) << 1)) << (2 * i);
+				}
+				setGeneralPurpose(inst.firstOperand(), mask);
+			}
+			case PEXTRW -> {
+				final int word = immediate(inst.thirdOperand()) & 7;
+				final long lane = rf.getVectorLane(index(inst.secondOperand()), word / 4);
+				setGeneralPurpose(inst.firstOperand(), (lane >>> (16 * (word % 4))) & 0xffffL);
+			}
+			case PSLLDQ, PSRLDQ, VPSLLDQ, VPSRLDQ ->
+				shiftBytes(inst, opcode == Opcode.PSLLDQ || opcode == Opcode.VPSLLDQ);
+			case PSLLW, PSLLD, PSLLQ, PSRLW, PSRLD, PSRLQ, PSRAW, PSRAD -> shiftElements(mem, inst, address);
+			case PSHUFD -> shuffleDoublewords(mem, inst, address);
+			case PSHUFB, VPSHUFB -> shuffleBytes(mem, inst, address);
+			case PALIGNR, VPALIGNR -> alignBytes(mem, inst, address);
+			case PUNPCKLBW -> unpack(mem, inst, address, 1, false);
+			case PUNPCKLWD -> unpack(mem, inst, address, 2, false);
+			case PUNPCKLDQ -> unpack(mem, inst, address, 4, false);
+			case PUNPCKLQDQ -> unpack(mem, inst, address, 8, false);
+			case PUNPCKHDQ -> unpack(mem, inst, address, 4, true);
+			case PUNPCKHQDQ -> unpack(mem, inst, address, 8, true);
+			case VPBROADCASTB -> broadcast(mem, inst, address, 1);
+			case VPBROADCASTW -> broadcast(mem, inst, address, 2);
+			case VPBROADCASTD -> broadcast(mem, inst, address, 4);
+			case VPBROADCASTQ -> broadcast(mem, inst, address, 8);
+			case VZEROALL -> {
+				for (int r = 0; r < NUM_AVX_REGISTERS; r++) {
+					for (int i = 0; i < LANES; i++) {
+						rf.setVectorLane(r, i, 0L);
+					}
+				}
+			}
+			case ADDSD, DIVSD -> {
+				final int dst = index(inst.firstOperand());
+				final double x = Double.longBitsToDouble(rf.getVectorLane(dst, 0));
+				final double y = Double.longBitsToDouble(scalar(mem, inst.secondOperand(), address, 8));
+				rf.setVectorLane(dst, 0, Double.doubleToRawLongBits(opcode == Opcode.ADDSD ? x + y : x / y));
+			}
+			case DIVSS -> {
+				final int dst = index(inst.firstOperand());
+				final long lane = rf.getVectorLane(dst, 0);
+				final float x = Float.intBitsToFloat(BitUtils.asInt(lane));
+				final float y = Float.intBitsToFloat(BitUtils.asInt(scalar(mem, inst.secondOperand(), address, 4)));
+				rf.setVectorLane(
+						dst, 0, (lane & 0xffffffff00000000L) | BitUtils.asLong(Float.floatToRawIntBits(x / y)));
+			}
+			default -> throw unsupported(inst);
+		}
+	}
+
+	private static IllegalArgumentException unsupported(final Instruction inst) {
+		return new IllegalArgumentException(
+				String.format("Unknown instruction '%s'.", InstructionEncoder.toIntelSyntax(inst)));
+	}
+
+	private static boolean isVector(final Operand op) {
+		return op instanceof RegisterXMM || op instanceof RegisterYMM || op instanceof RegisterZMM;
+	}
+
+	/** Returns the number of the given vector register. */
+	private static int index(final Operand op) {
+		if (op instanceof final RegisterXMM r) {
+			return r.ordinal();
+		}
+		if (op instanceof final RegisterYMM r) {
+			return r.ordinal();
+		}
+		if (op instanceof final RegisterZMM r) {
+			return r.ordinal();
+		}
+		throw new IllegalArgumentException(String.format("Unexpected operand '%s'.", op));
+	}
+
+	/** Returns the number of 64-bit lanes of the given vector operand. */
+	private static int lanes(final Operand op) {
+		if (op instanceof RegisterXMM) {
+			return 2;
+		}
+		if (op instanceof RegisterYMM) {
+			return 4;
+		}
+		if (op instanceof RegisterZMM) {
+			return 8;
+		}
+		if (op instanceof final IndirectOperand io) {
+			return io.getPointerSize().bits() / 64;
+		}
+		throw new IllegalArgumentException(String.format("Unexpected operand '%s'.", op));
+	}
+
+	private static int immediate(final Operand op) {
+		return BitUtils.asInt(((Immediate) op).asByte()) & 0xff;
+	}
+
+	private void load(final Memory mem, final Operand op, final long address, final int lanes, final long[] dst) {
+		if (op instanceof IndirectOperand) {
+			for (int i = 0; i < lanes; i++) {
+				dst[i] = mem.read8(new MemoryAddress(address + 8L * i));
+			}
+		} else {
+			final int r = index(op);
+			for (int i = 0; i < lanes; i++) {
+				dst[i] = rf.getVectorLane(r, i);
+			}
+		}
+	}
+
+	private void store(
+			final Memory mem,
+			final Operand op,
+			final long address,
+			final int lanes,
+			final long[] src,
+			final boolean zeroUpper) {
+		if (op instanceof IndirectOperand) {
+			for (int i = 0; i < lanes; i++) {
+				mem.write(new MemoryAddress(address + 8L * i), src[i]);
+			}
+			return;
+		}
+		final int r = index(op);
+		for (int i = 0; i < lanes; i++) {
+			rf.setVectorLane(r, i, src[i]);
+		}
+		if (zeroUpper) {
+			for (int i = lanes; i < LANES; i++) {
+				rf.setVectorLane(r, i, 0L);
+			}
+		}
+	}
+
+	/** Reads the lowest {@code size} bytes of the given operand, zero-extended. */
+	private long scalar(final Memory mem, final Operand op, final long address, final int size) {
+		final long value;
+		if (op instanceof IndirectOperand) {
+			final MemoryAddress a = new MemoryAddress(address);
+			value = switch (size) {
+				case 1 -> BitUtils.asLong(mem.read(a));
+				case 2 -> BitUtils.asLong(mem.read2(a));
+				case 4 -> BitUtils.asLong(mem.read4(a));
+				case 8 -> mem.read8(a);
+				default -> throw new IllegalArgumentException(String.format("Invalid access size: %,d bytes.", size));
+			};
+		} else if (op instanceof final GeneralPurposeRegister r) {
+			value = rf.get(r.descriptor());
+		} else {
+			value = rf.getVectorLane(index(op), 0);
+		}
+		return value & elementMask(size * 8);
+	}
+
+	private void setGeneralPurpose(final Operand op, final long value) {
+		rf.set(((GeneralPurposeRegister) op).descriptor(), value);
+	}
+
+	private void move(final Memory mem, final Instruction inst, final long address, final boolean vex) {
+		final Operand dst = inst.firstOperand();
+		final Operand src = inst.secondOperand();
+		final int lanes = lanes(isVector(dst) ? dst : src);
+		load(mem, src, address, lanes, first);
+		store(mem, dst, address, lanes, first, vex);
+	}
+
+	/** Executes MOVD and MOVQ, which move the lowest {@code size} bytes and clear the rest of the XMM register. */
+	private void moveScalar(
+			final Memory mem, final Instruction inst, final long address, final int size, final boolean vex) {
+		final Operand dst = inst.firstOperand();
+		final long value = scalar(mem, inst.secondOperand(), address, size);
+		if (dst instanceof IndirectOperand) {
+			if (size == 8) {
+				mem.write(new MemoryAddress(address), value);
+			} else {
+				mem.write(new MemoryAddress(address), BitUtils.asInt(value));
+			}
+		} else if (isVector(dst)) {
+			result[0] = value;
+			result[1] = 0L;
+			store(mem, dst, address, 2, result, vex);
+		} else {
+			setGeneralPurpose(dst, value);
+		}
+	}
+
+	/** Executes the moves of a single 64-bit half (the given lane) of an XMM register from or to memory. */
+	private void moveHalf(final Memory mem, final Instruction inst, final long address, final int lane) {
+		final Operand dst = inst.firstOperand();
+		final Operand src = inst.secondOperand();
+		if (dst instanceof IndirectOperand) {
+			mem.write(new MemoryAddress(address), rf.getVectorLane(index(src), lane));
+			return;
+		}
+		final int r = index(dst);
+		if (src instanceof IndirectOperand) {
+			rf.setVectorLane(r, lane, mem.read8(new MemoryAddress(address)));
+			if (lane == 0) {
+				// MOVSD from memory clears the upper half
+				rf.setVectorLane(r, 1, 0L);
+			}
+		} else {
+			rf.setVectorLane(r, lane, rf.getVectorLane(index(src), lane));
+		}
+	}
+
+	/**
+	 * Executes the instructions computed independently on each 64-bit lane: {@code dst = dst op src} for legacy SSE
+	 * and {@code dst = src1 op src2} for VEX.
+	 */
+	private void laneWise(final Memory mem, final Instruction inst, final long address) {
+		final boolean vex = inst.getNumOperands() == 3;
+		final Operand dst = inst.firstOperand();
+		final int lanes = lanes(dst);
+		load(mem, vex ? inst.secondOperand() : dst, address, lanes, first);
+		load(mem, vex ? inst.thirdOperand() : inst.secondOperand(), address, lanes, second);
+		final Opcode opcode = inst.opcode();
+		for (int i = 0; i < lanes; i++) {
+			result[i] = lane(opcode, first[i], second[i]);
+		}
+		store(mem, dst, address, lanes, result, vex);
+	}
+
+	@SuppressWarnings("PMD.CyclomaticComplexity")
+	private static long lane(final Opcode opcode, final long x, final long y) {
+		return switch (opcode) {
+			case PXOR, XORPS, VPXOR, VPXORD, VPXORQ -> x ^ y;
+			case POR, VPOR, VPORQ -> x | y;
+			case PAND, ANDPD, VPAND -> x & y;
+			case VPANDN -> ~x & y;
+			case PADDD -> add(x, y, DWORD_HIGH);
+			case PADDQ -> x + y;
+			case PSUBB, VPSUBB -> subtract(x, y, BYTE_HIGH);
+			case PSUBW -> subtract(x, y, WORD_HIGH);
+			case PSUBD -> subtract(x, y, DWORD_HIGH);
+			case PSUBQ -> x - y;
+			case PCMPEQB, VPCMPEQB -> equal(x, y, BYTE_HIGH, 8);
+			case PCMPEQW -> equal(x, y, WORD_HIGH, 16);
+			case PCMPEQD, VPCMPEQD -> equal(x, y, DWORD_HIGH, 32);
+			case VPCMPEQQ -> x == y ? -1L : 0L;
+			case PCMPGTB, VPCMPGTB -> greaterBytes(x, y);
+			case PMINUB, VPMINUB -> minMaxUnsigned(x, y, 8, true);
+			case PMAXUB -> minMaxUnsigned(x, y, 8, false);
+			case PMINUD, VPMINUD -> minMaxUnsigned(x, y, 32, true);
+			case DIVPD -> Double.doubleToRawLongBits(Double.longBitsToDouble(x) / Double.longBitsToDouble(y));
+			case DIVPS -> {
+				final float low = Float.intBitsToFloat(BitUtils.asInt(x)) / Float.intBitsToFloat(BitUtils.asInt(y));
+				final float high = Float.intBitsToFloat(BitUtils.asInt(x >>> 32))
+						/ Float.intBitsToFloat(BitUtils.asInt(y >>> 32));
+				yield (BitUtils.asLong(Float.floatToRawIntBits(high)) << 32)
+						| BitUtils.asLong(Float.floatToRawIntBits(low));
+			}
+			default -> throw new IllegalArgumentException(String.format("Unexpected opcode '%s'.", opcode));
+		};
+	}
+
+	/** Returns the mask of the lowest given bits. */
+	private static long elementMask(final int bits) {
+		return bits == 64 ? -1L : (1L << bits) - 1L;
+	}
+
+	/** Adds the elements whose highest bits are given, without carrying from one element into the next. */
+	private static long add(final long x, final long y, final long high) {
+		return ((x & ~high) + (y & ~high)) ^ ((x ^ y) & high);
+	}
+
+	/** Subtracts the elements whose highest bits are given, without borrowing from one element into the next. */
+	private static long subtract(final long x, final long y, final long high) {
+		return ((x | high) - (y & ~high)) ^ ((x ^ ~y) & high);
+	}
+
+	/** Sets to all ones the elements which are equal, and to zero the other ones. */
+	private static long equal(final long x, final long y, final long high, final int bits) {
+		final long diff = x ^ y;
+		// The highest bit of each element is set if and only if that element of diff is not zero
+		final long nonZero = (((diff & ~high) + ~high) | diff) & high;
+		final long zero = ~nonZero & high;
+		return (zero - (zero >>> (bits - 1))) | zero;
+	}
+
+	/** Gathers the highest bit of each byte. */
+	private static long byteSigns(final long x) {
+		return (((x & BYTE_HIGH) >>> 7) * 0x0102040810204080L) >>> 56;
+	}
+
+	private static long greaterBytes(final long x, final long y) {
+		long r = 0L;
+		for (int shift = 0; shift < 64; shift += 8) {
+			if (BitUtils.asByte(x >>> shift) > BitUtils.asByte(y >>> shift)) {
+				r |= 0xffL << shift;
+			}
+		}
+		return r;
+	}
+
+	private static long minMaxUnsigned(final long x, final long y, final int bits, final boolean min) {
+		final long mask = elementMask(bits);
+		long r = 0L;
+		for (int shift = 0; shift < 64; shift += bits) {
+			final long a = (x >>> shift) & mask;
+			final long b = (y >>> shift) & mask;
+			r |= (min ? Math.min(a, b) : Math.max(a, b)) << shift;
+		}
+		return r;
+	}
+
+	/** Returns the element at the given index of the given vector, with elements of the given size in bytes. */
+	private static long element(final long[] v, final int idx, final int size) {
+		final int bit = idx * size * 8;
+		return (v[bit >>> 6] >>> (bit & 63)) & elementMask(size * 8);
+	}
+
+	private static void setElement(final long[] v, final int idx, final int size, final long value) {
+		final int bit = idx * size * 8;
+		final long mask = elementMask(size * 8) << (bit & 63);
+		v[bit >>> 6] = (v[bit >>> 6] & ~mask) | ((value << (bit & 63)) & mask);
+	}
+
+	/** Executes PSLLDQ and PSRLDQ, which shift each 128-bit lane by whole bytes. */
+	private void shiftBytes(final Instruction inst, final boolean left) {
+		final boolean vex = inst.getNumOperands() == 3;
+		final Operand dst = inst.firstOperand();
+		final int lanes = lanes(dst);
+		load(null, vex ? inst.secondOperand() : dst, 0L, lanes, first);
+		final int n = immediate(vex ? inst.thirdOperand() : inst.secondOperand());
+		for (int j = 0; j < lanes * 8; j++) {
+			final int lane = j & ~15;
+			final int from = left ? (j & 15) - n : (j & 15) + n;
+			setElement(result, j, 1, from < 0 || from > 15 ? 0L : element(first, lane + from, 1));
+		}
+		store(null, dst, 0L, lanes, result, vex);
+	}
+
+	/** Executes the shifts of each element by the same (immediate or register) count. */
+	private void shiftElements(final Memory mem, final Instruction inst, final long address) {
+		final Operand dst = inst.firstOperand();
+		final int lanes = lanes(dst);
+		load(mem, dst, address, lanes, first);
+		final Operand countOperand = inst.secondOperand();
+		final long count = countOperand instanceof Immediate
+				? immediate(countOperand)
+				: scalar(mem, countOperand, address, 8);
+		final Opcode opcode = inst.opcode();
+		final int bits =
+				switch (opcode) {
+					case PSLLW, PSRLW, PSRAW -> 16;
+					case PSLLD, PSRLD, PSRAD -> 32;
+					default -> 64;
+				};
+		final boolean arithmetic = opcode == Opcode.PSRAW || opcode == Opcode.PSRAD;
+		final boolean left = opcode == Opcode.PSLLW || opcode == Opcode.PSLLD || opcode == Opcode.PSLLQ;
+		final int elements = lanes * 64 / bits;
+		final int size = bits / 8;
+		for (int i = 0; i < elements; i++) {
+			final long e = element(first, i, size);
+			final long shifted;
+			if (Long.compareUnsigned(count, bits) >= 0) {
+				// Logical shifts clear the element, arithmetic ones fill it with the sign
+				shifted = arithmetic && ((e >>> (bits - 1)) & 1L) != 0L ? -1L : 0L;
+			} else if (left) {
+				shifted = e << count;
+			} else if (arithmetic) {
+				shifted = ((e << (64 - bits)) >> (64 - bits)) >> count;
+			} else {
+				shifted = e >>> count;
+			}
+			setElement(result, i, size, shifted);
+		}
+		store(mem, dst, address, lanes, result, false);
+	}
+
+	/** Executes PSHUFD, which picks the doublewords of each 128-bit lane as told by the immediate. */
+	private void shuffleDoublewords(final Memory mem, final Instruction inst, final long address) {
+		final Operand dst = inst.firstOperand();
+		final int lanes = lanes(dst);
+		load(mem, inst.secondOperand(), address, lanes, first);
+		final int order = immediate(inst.thirdOperand());
+		for (int i = 0; i < lanes * 2; i++) {
+			setElement(result, i, 4, element(first, (i & ~3) + ((order >>> (2 * (i & 3))) & 3), 4));
+		}
+		store(mem, dst, address, lanes, result, false);
+	}
+
+	/** Executes PSHUFB, which picks the bytes of each 128-bit lane of a table as told by the indices. */
+	private void shuffleBytes(final Memory mem, final Instruction inst, final long address) {
+		final boolean vex = inst.getNumOperands() == 3;
+		final Operand dst = inst.firstOperand();
+		final int lanes = lanes(dst);
+		load(mem, vex ? inst.secondOperand() : dst, address, lanes, first);
+		load(mem, vex ? inst.thirdOperand() : inst.secondOperand(), address, lanes, second);
+		for (int j = 0; j < lanes * 8; j++) {
+			final long idx = element(second, j, 1);
+			setElement(result, j, 1, (idx & 0x80L) != 0L ? 0L : element(first, (j & ~15) + (int) (idx & 15L), 1));
+		}
+		store(mem, dst, address, lanes, result, vex);
+	}
+
+	/**
+	 * Executes PALIGNR, which concatenates each 128-bit lane of the two sources (the first one in the upper half) and
+	 * extracts 16 bytes starting from the one told by the immediate.
+	 */
+	private void alignBytes(final Memory mem, final Instruction inst, final long address) {
+		final boolean vex = inst.getNumOperands() == 4;
+		final Operand dst = inst.firstOperand();
+		final int lanes = lanes(dst);
+		load(mem, vex ? inst.secondOperand() : dst, address, lanes, first);
+		load(mem, vex ? inst.thirdOperand() : inst.secondOperand(), address, lanes, second);
+		final int n = immediate(vex ? inst.fourthOperand() : inst.thirdOperand());
+		for (int j = 0; j < lanes * 8; j++) {
+			final int lane = j & ~15;
+			final int from = (j & 15) + n;
+			final long b;
+			if (from < 16) {
+				b = element(second, lane + from, 1);
+			} else if (from < 32) {
+				b = element(first, lane + from - 16, 1);
+			} else {
+				b = 0L;
+			}
+			setElement(result, j, 1, b);
+		}
+		store(mem, dst, address, lanes, result, vex);
+	}
+
+	/** Executes the PUNPCK instructions, which interleave the elements of a half of each 128-bit lane. */
+	private void unpack(
+			final Memory mem, final Instruction inst, final long address, final int size, final boolean high) {
+		final Operand dst = inst.firstOperand();
+		final int lanes = lanes(dst);
+		load(mem, dst, address, lanes, first);
+		load(mem, inst.secondOperand(), address, lanes, second);
+		final int perLane = 16 / size;
+		for (int i = 0; i < lanes * 8 / size; i++) {
+			final int lane = i - (i % perLane);
+			final int src = lane + (high ? perLane / 2 : 0) + (i % perLane) / 2;
+			setElement(result, i, size, element(i % 2 == 0 ? first : second, src, size));
+		}
+		store(mem, dst, address, lanes, result, false);
+	}
+
+	/** Executes VPBROADCAST, which copies the lowest element of the source into every element of the destination. */
+	private void broadcast(final Memory mem, final Instruction inst, final long address, final int size) {
+		final Operand dst = inst.firstOperand();
+		final int lanes = lanes(dst);
+		long pattern = scalar(mem, inst.secondOperand(), address, size);
+		for (int bits = size * 8; bits < 64; bits *= 2) {
+			pattern |= pattern << bits;
+		}
+		for (int i = 0; i < lanes; i++) {
+			result[i] = pattern;
+		}
+		store(mem, dst, address, lanes, result, true);
+	}
+
+	@Override
+	public String toString() {
+		return "VectorInstructions(rf=" + rf + ")";
+	}
+}
@@ -17,25 +17,35 @@
  */
 package com.ledmington.emu;
 
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import com.ledmington.cpu.InstructionChecker;
-import com.ledmington.cpu.InstructionDecoder;
 import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.x86.GeneralPurposeRegister;
 import com.ledmington.cpu.x86.Immediate;
 import com.ledmington.cpu.x86.IndirectOperand;
 import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.Opcode;
 import com.ledmington.cpu.x86.Operand;
 import com.ledmington.cpu.x86.PointerSize;
 import com.ledmington.cpu.x86.Register16;
 import com.ledmington.cpu.x86.Register32;
 import com.ledmington.cpu.x86.Register64;
 import com.ledmington.cpu.x86.Register8;
+import com.ledmington.cpu.x86.RegisterDescriptor;
+import com.ledmington.cpu.x86.SegmentRegister;
 import com.ledmington.emu.config.CPUConfig;
+import com.ledmington.emu.syscall.LinuxSyscalls;
+import com.ledmington.emu.syscall.SyscallHandler;
+import com.ledmington.emu.syscall.SyscallTable;
+import com.ledmington.mem.AtomicMemory;
 import com.ledmington.mem.Memory;
 import com.ledmington.mem.MemoryAddress;
 import com.ledmington.mem.MemoryController;
@@ -49,7 +59,30 @@ import com.ledmington.utils.SuppressFBWarnings;
 public class X86Cpu implements X86Emulator {
 
 	private static final MiniLogger logger = MiniLogger.getLogger("x86-emu");
-	private static final CPUConfig CPU_CONFIG = CPUConfig.GENERIC_INTEL; // TODO: convert to constructor parameter
+
+	// Linux syscall numbers and constants
+	private static final int SYS_CLONE = 56;
+	private static final int SYS_EXIT = 60;
+	private static final int SYS_ARCH_PRCTL = 158;
+	private static final int SYS_GETTID = 186;
+	private static final int SYS_FUTEX = 202;
+	private static final int SYS_EXIT_GROUP = 231;
+	private static final long EINVAL = 22L;
+	private static final long ENOSYS = 38L;
+	private static final int ARCH_SET_GS = 0x1001;
+	private static final int ARCH_SET_FS = 0x1002;
+	private static final int ARCH_GET_FS = 0x1003;
+	private static final int ARCH_GET_GS = 0x1004;
+	private static final long CLONE_VM = 0x00000100L;
+	private static final long CLONE_THREAD = 0x00010000L;
+	private static final long CLONE_SETTLS = 0x00080000L;
+	private static final long CLONE_PARENT_SETTID = 0x00100000L;
+	private static final long CLONE_CHILD_CLEARTID = 0x00200000L;
+	private static final long CLONE_CHILD_SETTID = 0x01000000L;
+	private static final int FUTEX_WAIT = 0;
+	private static final int FUTEX_WAKE = 1;
+	// Clears FUTEX_PRIVATE_FLAG and FUTEX_CLOCK_REALTIME
+	private static final int FUTEX_CMD_MASK = 0x7f;
 
 	/** The state of the CPU. */
 	protected enum State {
@@ -62,9 +95,47 @@ public class X86Cpu implements X86Emulator {
 	}
 
 	private final RegisterFile rf;
-	private final Memory mem; // TODO: can we remove dependency on mem?
+	private final MemoryController memController;
+
+	/** The memory used by instructions, swapped with {@link #lockedAccess} while executing a locked instruction. */
+	private Memory mem; // TODO: can we remove dependency on mem?
+
+	private final LockedAccess lockedAccess;
+
+	/** The same memory as {@link #mem}, used for the instructions which map onto a single atomic operation. */
+	private final AtomicMemory atomicMem;
+
+	private final long[] savedRegisters = new long[Register64.values().length];
+	private final boolean[] savedFlags = new boolean[RFlags.values().length];
 	private final InstructionFetcher instFetch;
+	private final StringInstructions stringInstructions;
+	private final VectorInstructions vectorInstructions;
 	private final boolean checkInstructions;
+	private final CPUConfig cpuConfig;
+
+	/** The system calls not handled by the CPU itself. */
+	private final SyscallTable syscallTable;
+
+	/** The memory given to system calls: when tracing, a view of the controller which records their writes. */
+	private final MemoryController syscallMem;
+
+	/** The arguments of the current system call, reused to avoid an allocation per call. */
+	private final long[] syscallArgs = new long[6];
+
+	/** The execution trace being recorded, or null when tracing is disabled. */
+	private final TraceWriter tracer;
+
+	/** The profiler counting retired instructions, or null when profiling is disabled. */
+	private final Profiler profiler;
+
+	/** Whether there is at least one tracer or profiler, so that disabled ones cost a single branch. */
+	private final boolean observed;
+
+	/** The compiled blocks of code, or null when the JIT compiler is disabled. */
+	private final BlockCache jit;
+
+	/** Whether the pairs recognized by {@link MacroFusion} are executed as single superinstructions. */
+	private final boolean macroFusion;
 
 	/** Highest address (initial RSP). */
 	private final long stackTop;
@@ -72,11 +143,34 @@ public class X86Cpu implements X86Emulator {
 	/** Lowest address (stack limit). */
 	private final long stackBottom;
 
+	// Striped counters, cheap to update and safe to read from another thread while the CPU is running
+	private final LongAdder instructionsRetired = new LongAdder();
+	private final LongAdder decodeCacheHits = new LongAdder();
+	private final LongAdder syscalls = new LongAdder();
+
+	/** Sorted addresses of the breakpoints, so that having none costs a single length check per instruction. */
+	private long[] breakpoints = new long[0];
+
+	/** The code passed to the exit syscall, valid only after the program has exited. */
+	private long exitCode = 0L;
+
+	/** The exception raised by the last faulting instruction, or null. */
+	private RuntimeException lastFault;
+
+	/** The machine this CPU is a thread of, or null when it runs alone. */
+	private X86Machine machine;
+
+	/** The thread ID of this CPU, as returned by the gettid syscall. */
+	private int tid = X86Machine.FIRST_TID;
+
+	/** The address to be cleared when this thread exits (set by CLONE_CHILD_CLEARTID), or 0. */
+	private long clearChildTid = 0L;
+
 	/**
 	 * The current state of the CPU. Children classes can modify this field before executing instructions or to forcibly
-	 * terminate execution.
+	 * terminate execution. It is volatile since other threads of the same machine may halt this one.
 	 */
-	protected State state = State.RUNNING;
+	protected volatile State state = State.RUNNING;
 
 	/**
 	 * Returns a new X86CpuBuilder to easily create a new X86Cpu instance.
@@ -104,18 +198,111 @@ public class X86Cpu implements X86Emulator {
 			final boolean checkInstructions,
 			final long stackTop,
 			final long stackSize) {
+		this(
+				mem,
+				rf,
+				checkInstructions,
+				stackTop,
+				stackSize,
+				null,
+				null,
+				CPUConfig.GENERIC_INTEL,
+				new LinuxSyscalls(),
+				0,
+				false);
+	}
+
+	/**
+	 * Creates a new {@link X86Cpu} with the given parameters, which reports every instruction it retires to the given
+	 * trace and profiler and answers CPUID with the given configuration. Blocks of code executed at least
+	 * {@code jitThreshold} times are compiled to JVM bytecode and common pairs of instructions are fused, unless the
+	 * CPU is being traced or profiled.
+	 *
+	 * @param mem The emulated memory.
+	 * @param rf The set of registers.
+	 * @param checkInstructions When enabled, checks instructions before executing them.
+	 * @param stackTop The memory address where the stack starts, meaning the address on which the first <code>PUSH
+	 *     </code> will write.
+	 * @param stackSize The size of the stack in bytes.
+	 * @param tracer The execution trace to write into, or null to disable tracing.
+	 * @param profiler The profiler to count instructions into, or null to disable profiling.
+	 * @param cpuConfig The configuration used to answer CPUID.
+	 * @param syscallTable The system calls available to the emulated program.
+	 * @param jitThreshold The number of executions after which a block is compiled, or 0 to disable the compiler.
+	 * @param macroFusion When enabled, common pairs of instructions are executed as single superinstructions.
+	 */
+	@SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "At the moment we need these objects as they are.")
+	@SuppressWarnings("PMD.ExcessiveParameterList")
+	public X86Cpu(
+			final MemoryController mem,
+			final RegisterFile rf,
+			final boolean checkInstructions,
+			final long stackTop,
+			final long stackSize,
+			final TraceWriter tracer,
+			final Profiler profiler,
+			final CPUConfig cpuConfig,
+			final SyscallTable syscallTable,
+			final int jitThreshold,
+			final boolean macroFusion) {
 		Objects.requireNonNull(mem);
 		Objects.requireNonNull(rf);
 		final long minAllowedStackSize = 1L;
 		if (stackSize < minAllowedStackSize) {
 			throw new IllegalArgumentException(String.format("Invalid stack size: %,d B.", stackSize));
 		}
-		this.mem = mem;
+		if (jitThreshold < 0) {
+			throw new IllegalArgumentException(String.format("Invalid JIT threshold: %,d.", jitThreshold));
+		}
+		this.tracer = tracer;
+		this.profiler = profiler;
+		this.observed = tracer != null || profiler != null;
+		this.memController = mem;
+		this.syscallMem = tracer == null ? mem : mem.withMemory(tracer::wrap);
+		this.atomicMem = tracer == null ? mem : tracer.wrap(mem);
+		this.mem = this.atomicMem;
+		this.lockedAccess = new LockedAccess(this.mem);
 		this.instFetch = new InstructionFetcher(mem, rf);
+		this.stringInstructions = new StringInstructions(rf, mem);
+		this.vectorInstructions = new VectorInstructions(rf);
 		this.rf = rf;
 		this.checkInstructions = checkInstructions;
+		this.cpuConfig = Objects.requireNonNull(cpuConfig);
+		this.syscallTable = Objects.requireNonNull(syscallTable);
 		this.stackTop = ELFLoader.alignAddress(stackTop);
 		this.stackBottom = this.stackTop - stackSize;
+		// Compiled blocks report neither to the tracer nor to the profiler
+		this.jit = jitThreshold == 0 || observed || !(rf instanceof X86RegisterFile)
+				? null
+				: new BlockCache(mem, jitThreshold, checkInstructions);
+		// A fused pair would be reported as a single instruction
+		this.macroFusion = macroFusion && !observed;
+	}
+
+	/**
+	 * Creates a new thread sharing the memory and the configuration of the given CPU, starting from a copy of its
+	 * registers. Since the stack of a thread is allocated by the program itself, stack bounds are not checked.
+	 */
+	private X86Cpu(final X86Cpu parent, final RegisterFile rf) {
+		this.tracer = null;
+		this.profiler = null;
+		this.observed = false;
+		this.memController = parent.memController;
+		this.syscallMem = parent.memController;
+		this.mem = parent.memController;
+		this.atomicMem = parent.memController;
+		this.lockedAccess = new LockedAccess(this.mem);
+		this.instFetch = new InstructionFetcher(parent.memController, rf);
+		this.stringInstructions = new StringInstructions(rf, parent.memController);
+		this.vectorInstructions = new VectorInstructions(rf);
+		this.rf = rf;
+		this.checkInstructions = parent.checkInstructions;
+		this.cpuConfig = parent.cpuConfig;
+		this.syscallTable = parent.syscallTable;
+		this.stackTop = -1L;
+		this.stackBottom = 0L;
+		this.jit = parent.jit == null ? null : parent.jit.forThread();
+		this.macroFusion = parent.macroFusion;
 	}
 
 	@Override
@@ -126,11 +313,98 @@ public class X86Cpu implements X86Emulator {
 	@Override
 	public void execute() {
 		state = State.RUNNING;
-		while (state != State.HALTED) {
-			executeOne();
+		StopReason reason;
+		do {
+			reason = execute(Long.MAX_VALUE);
+		} while (reason == StopReason.BUDGET_EXHAUSTED || reason == StopReason.BREAKPOINT);
+		if (reason == StopReason.FAULT) {
+			throw lastFault;
+		}
+	}
+
+	@Override
+	@SuppressWarnings("PMD.AvoidCatchingGenericException")
+	public StopReason execute(final long maxInstructions) {
+		if (maxInstructions < 0L) {
+			throw new IllegalArgumentException(
+					String.format("Invalid maximum number of instructions: %,d.", maxInstructions));
+		}
+		try {
+			long i = 0L;
+			while (i < maxInstructions) {
+				if (state == State.HALTED) {
+					return StopReason.HALTED;
+				}
+				if (breakpoints.length > 0) {
+					if (i > 0L && isBreakpoint(rf.get(Register64.RIP))) {
+						return StopReason.BREAKPOINT;
+					}
+				} else if (jit != null) {
+					// Compiled blocks cannot stop at breakpoints in the middle, so they run only when there are none
+					final long executed = jit.run(
+							(X86RegisterFile) rf, mem, stackBottom, stackTop, maxInstructions - i, instructionsRetired);
+					if (executed > 0L) {
+						// Compiled blocks run without decoding their instructions again
+						decodeCacheHits.add(executed);
+						i += executed;
+						continue;
+					}
+				}
+				if (macroFusion && breakpoints.length == 0 && maxInstructions - i >= 2L) {
+					// A fused pair cannot stop at a breakpoint on its second instruction
+					i += executeFused();
+				} else {
+					executeOne();
+					i++;
+				}
+			}
+		} catch (final RuntimeException e) {
+			lastFault = e;
+			return StopReason.FAULT;
+		} finally {
+			if (tracer != null) {
+				// Flushing here keeps the instructions leading to a fault
+				tracer.flush();
+			}
+		}
+		return state == State.HALTED ? StopReason.HALTED : StopReason.BUDGET_EXHAUSTED;
+	}
+
+	private boolean isBreakpoint(final long address) {
+		return Arrays.binarySearch(breakpoints, address) >= 0;
+	}
+
+	@Override
+	public Optional<RuntimeException> getLastFault() {
+		return Optional.ofNullable(lastFault);
+	}
+
+	@Override
+	public void addBreakpoint(final long address) {
+		if (!isBreakpoint(address)) {
+			final long[] tmp = Arrays.copyOf(breakpoints, breakpoints.length + 1);
+			tmp[breakpoints.length] = address;
+			Arrays.sort(tmp);
+			breakpoints = tmp;
+		}
+	}
+
+	@Override
+	public void removeBreakpoint(final long address) {
+		final int idx = Arrays.binarySearch(breakpoints, address);
+		if (idx >= 0) {
+			final long[] tmp = new long[breakpoints.length - 1];
+			System.arraycopy(breakpoints, 0, tmp, 0, idx);
+			System.arraycopy(breakpoints, idx + 1, tmp, idx, tmp.length - idx);
+			breakpoints = tmp;
 		}
 	}
 
+	@Override
+	public void clearBreakpoints() {
+		breakpoints = new long[0];
+	}
+
 	private void assertIsRunning() {
 		if (state != State.RUNNING) {
 			throw new IllegalStateException("Cannot execute instruction if the state is not RUNNING.");
@@ -140,11 +414,121 @@ public class X86Cpu implements X86Emulator {
 	@Override
 	public void executeOne() {
 		assertIsRunning();
-		executeOne(InstructionDecoder.fromHex(this.instFetch));
+		if (observed) {
+			executeOneObserved();
+		} else {
+			executeOne(this.instFetch.fetch());
+		}
+		instructionsRetired.increment();
+	}
+
+	/**
+	 * Executes the next instruction, together with the one right after it when the two form one of the pairs recognized
+	 * by {@link MacroFusion}.
+	 *
+	 * @return The number of retired instructions.
+	 */
+	@SuppressWarnings("PMD.AvoidCatchingGenericException")
+	private int executeFused() {
+		assertIsRunning();
+		final Instruction first = this.instFetch.fetch();
+		if (MacroFusion.mayStartPair(first)) {
+			final long afterFirst = rf.get(Register64.RIP);
+			Instruction second;
+			try {
+				second = this.instFetch.fetch();
+				if (checkInstructions) {
+					InstructionChecker.check(second);
+				}
+			} catch (final RuntimeException e) {
+				// Not fused: the error is raised when (and if) the instruction is executed alone
+				second = null;
+			}
+			if (second != null && MacroFusion.isPair(first, second)) {
+				executePair(first, second, afterFirst);
+				instructionsRetired.add(2L);
+				return 2;
+			}
+			rf.set(Register64.RIP, afterFirst);
+		}
+		executeOne(first);
+		instructionsRetired.increment();
+		return 1;
+	}
+
+	private void executePair(final Instruction first, final Instruction second, final long afterFirst) {
+		assertIsRunning();
+		if (checkInstructions) {
+			InstructionChecker.check(first);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug(InstructionEncoder.toIntelSyntax(first, false));
+			logger.debug(InstructionEncoder.toIntelSyntax(second, false));
+		}
+		// The first instruction runs with RIP right after itself, as if executed alone: RIP-relative operands are
+		// computed from there and a fault leaves RIP there.
+		final long afterSecond = rf.get(Register64.RIP);
+		rf.set(Register64.RIP, afterFirst);
+		switch (first.opcode()) {
+			case CMP -> {
+				final long a = getAsLongSX(first.firstOperand());
+				final long b = getAsLongSX(first.secondOperand());
+				final long result = a - b;
+				final boolean carry = Long.compareUnsigned(a, b) < 0;
+				final boolean overflow = MathUtils.willOverflowSub(a, b);
+				rf.setArithmeticFlags(result, carry, overflow);
+				rf.set(Register64.RIP, afterSecond);
+				jumpToIf(
+						getAsLongSX(second.firstOperand()),
+						MacroFusion.condition(second.opcode(), result, carry, overflow));
+			}
+			case TEST -> {
+				final long result = test(first);
+				rf.setArithmeticFlags(result, false, false);
+				rf.set(Register64.RIP, afterSecond);
+				jumpToIf(
+						getAsLongSX(second.firstOperand()),
+						MacroFusion.condition(second.opcode(), result, false, false));
+			}
+			case PUSH -> {
+				push(rf.get(Register64.RBP));
+				rf.set(Register64.RBP, rf.get(Register64.RSP));
+				rf.set(Register64.RIP, afterSecond);
+			}
+			case LEAVE -> {
+				rf.set(Register64.RSP, rf.get(Register64.RBP));
+				popInto(Register64.RBP);
+				popInto(Register64.RIP);
+			}
+			default -> throw new IllegalArgumentException(String.format("Cannot fuse '%s' and '%s'.", first, second));
+		}
+	}
+
+	/** Returns the sign-extended result of a TEST between two registers of the same size. */
+	private long test(final Instruction inst) {
+		if (inst.firstOperand() instanceof final Register32 r1 && inst.secondOperand() instanceof final Register32 r2) {
+			return rf.get(r1) & rf.get(r2);
+		}
+		return rf.get((Register64) inst.firstOperand()) & rf.get((Register64) inst.secondOperand());
+	}
+
+	private void executeOneObserved() {
+		if (tracer != null) {
+			tracer.beforeInstruction(rf);
+		}
+		final long rip = rf.get(Register64.RIP);
+		final Instruction inst = this.instFetch.fetch();
+		final int length = BitUtils.asInt(rf.get(Register64.RIP) - rip);
+		executeOne(inst);
+		if (tracer != null) {
+			tracer.afterInstruction(rip, length, rf);
+		}
+		if (profiler != null) {
+			profiler.record(rip, length, inst.opcode(), rf.get(Register64.RIP));
+		}
 	}
 
 	@Override
-	@SuppressWarnings({"PMD.NcssCount", "PMD.CognitiveComplexity", "PMD.AvoidInstantiatingObjectsInLoops"})
 	public void executeOne(final Instruction inst) {
 		assertIsRunning();
 
@@ -152,8 +536,229 @@ public class X86Cpu implements X86Emulator {
 			InstructionChecker.check(inst);
 		}
 
-		logger.debug(InstructionEncoder.toIntelSyntax(inst, checkInstructions));
+		// With tracing off, the hot loop must not do any string work
+		if (logger.isDebugEnabled()) {
+			logger.debug(InstructionEncoder.toIntelSyntax(inst, false));
+		}
+
+		if (inst.hasLockPrefix() || (isExchange(inst.opcode()) && lockedOperand(inst) != null)) {
+			executeLocked(inst);
+		} else {
+			dispatch(inst);
+		}
+	}
+
+	/** Returns true for the instructions which are atomic on memory even without a LOCK prefix. */
+	private static boolean isExchange(final Opcode opcode) {
+		return opcode == Opcode.XCHG || opcode == Opcode.XADD || opcode == Opcode.CMPXCHG;
+	}
+
+	/** Returns the memory operand of the given instruction, or null if it has none. */
+	private static IndirectOperand lockedOperand(final Instruction inst) {
+		if (inst.hasFirstOperand() && inst.firstOperand() instanceof final IndirectOperand io) {
+			return io;
+		}
+		if (inst.hasSecondOperand() && inst.secondOperand() instanceof final IndirectOperand io) {
+			return io;
+		}
+		return null;
+	}
 
+	/**
+	 * Executes an instruction which must appear atomic to the other threads. The common ones map onto a single atomic
+	 * operation of the memory; any other one runs on a private copy of the memory operand, whose new value is then
+	 * published with a single compare-and-exchange. If another thread modified the operand in the meantime, the
+	 * registers are restored and the instruction is executed again.
+	 */
+	private void executeLocked(final Instruction inst) {
+		final IndirectOperand io = lockedOperand(inst);
+		if (io == null) {
+			throw new IllegalArgumentException(String.format(
+					"LOCK prefix without a memory operand in '%s'.", InstructionEncoder.toIntelSyntax(inst)));
+		}
+		final MemoryAddress address = computeIndirectOperand(io);
+		final int size = io.getPointerSize().bits() / 8;
+		if (executeAtomic(inst, io, address, size)) {
+			return;
+		}
+		saveRegisters();
+		while (true) {
+			final long expected = readZX(address, size);
+			lockedAccess.begin(address.address(), size, expected);
+			final Memory previous = mem;
+			mem = lockedAccess;
+			try {
+				dispatch(inst);
+			} finally {
+				mem = previous;
+			}
+			if (mem.compareAndExchange(address, size, expected, lockedAccess.value()) == expected) {
+				return;
+			}
+			restoreRegisters();
+		}
+	}
+
+	/**
+	 * Executes the given instruction with a single atomic operation, if it has one.
+	 *
+	 * @return False if the instruction must be executed through the generic path.
+	 */
+	@SuppressWarnings("PMD.CognitiveComplexity")
+	private boolean executeAtomic(
+			final Instruction inst, final IndirectOperand io, final MemoryAddress address, final int size) {
+		final boolean isDestination = inst.firstOperand() == io;
+		if (!isDestination && inst.opcode() != Opcode.XCHG) {
+			return false;
+		}
+		final Operand src = isDestination ? inst.secondOperand() : inst.firstOperand();
+		switch (inst.opcode()) {
+			case ADD -> {
+				final long x = valueOf(src);
+				final long old = atomicMem.getAndAdd(address, size, x);
+				updateAddFlags(size, old, x);
+			}
+			case SUB -> {
+				final long x = valueOf(src);
+				final long old = atomicMem.getAndAdd(address, size, -x);
+				updateSubFlags(size, old, x);
+			}
+			case AND -> {
+				final long x = valueOf(src);
+				updateLogicFlags(size, atomicMem.getAndBitwiseAnd(address, size, x) & x);
+			}
+			case OR -> {
+				final long x = valueOf(src);
+				updateLogicFlags(size, atomicMem.getAndBitwiseOr(address, size, x) | x);
+			}
+			case XOR -> {
+				final long x = valueOf(src);
+				updateLogicFlags(size, atomicMem.getAndBitwiseXor(address, size, x) ^ x);
+			}
+			case XADD -> {
+				final long x = valueOf(src);
+				final long old = atomicMem.getAndAdd(address, size, x);
+				setRegister(src, old);
+				updateAddFlags(size, old, x);
+			}
+			case XCHG -> setRegister(src, atomicMem.getAndSet(address, size, valueOf(src)));
+			case CMPXCHG -> {
+				final Operand accumulator = accumulator(size);
+				final long expected = valueOf(accumulator) & Memory.sizeMask(size);
+				final long witness = atomicMem.compareAndExchange(address, size, expected, valueOf(src));
+				updateSubFlags(size, expected, witness);
+				if (witness != expected) {
+					setRegister(accumulator, witness);
+				}
+			}
+			default -> {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Operand accumulator(final int size) {
+		return switch (size) {
+			case 1 -> Register8.AL;
+			case 2 -> Register16.AX;
+			case 4 -> Register32.EAX;
+			default -> Register64.RAX;
+		};
+	}
+
+	private long valueOf(final Operand op) {
+		return switch (op) {
+			case Immediate imm -> getAsLongSX(imm);
+			case GeneralPurposeRegister r -> rf.get(r.descriptor());
+			default -> throw new IllegalArgumentException(String.format("Unknown operand '%s'.", op));
+		};
+	}
+
+	private void setRegister(final Operand op, final long value) {
+		if (!(op instanceof final GeneralPurposeRegister r)) {
+			throw new IllegalArgumentException(String.format("Unknown register '%s'.", op));
+		}
+		rf.set(r.descriptor(), value);
+	}
+
+	/** Returns the register used as pointer by the given operand of a string instruction. */
+	private static RegisterDescriptor pointerOf(final IndirectOperand io) {
+		return ((GeneralPurposeRegister) io.getBase()).descriptor();
+	}
+
+	/** Returns the counter of a repeated string instruction, which has the same size as its pointers. */
+	private static RegisterDescriptor counterOf(final IndirectOperand io) {
+		return io.getBase() instanceof Register32 ? Register32.ECX.descriptor() : Register64.RCX.descriptor();
+	}
+
+	private static StringInstructions.Repeat repeatOf(final Instruction inst) {
+		if (inst.hasRepPrefix()) {
+			return StringInstructions.Repeat.WHILE_EQUAL;
+		}
+		return inst.hasRepnzPrefix() ? StringInstructions.Repeat.WHILE_NOT_EQUAL : StringInstructions.Repeat.NONE;
+	}
+
+	/** Returns the given value truncated to the given number of bytes and sign-extended. */
+	private static long signExtend(final long value, final int size) {
+		final int shift = 64 - 8 * size;
+		return (value << shift) >> shift;
+	}
+
+	private void updateAddFlags(final int size, final long a, final long b) {
+		final long mask = Memory.sizeMask(size);
+		final long result = signExtend(a + b, size);
+		final boolean carry = Long.compareUnsigned(result & mask, a & mask) < 0;
+		final boolean overflow = ((signExtend(a, size) ^ result) & (signExtend(b, size) ^ result)) < 0L;
+		updateRFlags(result, carry, overflow);
+	}
+
+	private void updateSubFlags(final int size, final long a, final long b) {
+		final long mask = Memory.sizeMask(size);
+		final long result = signExtend(a - b, size);
+		final boolean carry = Long.compareUnsigned(a & mask, b & mask) < 0;
+		final boolean overflow = ((signExtend(a, size) ^ signExtend(b, size)) & (signExtend(a, size) ^ result)) < 0L;
+		updateRFlags(result, carry, overflow);
+	}
+
+	private void updateLogicFlags(final int size, final long result) {
+		updateRFlags(signExtend(result, size), false, false);
+	}
+
+	private long readZX(final MemoryAddress address, final int size) {
+		return switch (size) {
+			case 1 -> BitUtils.asLong(mem.read(address));
+			case 2 -> BitUtils.asLong(mem.read2(address));
+			case 4 -> BitUtils.asLong(mem.read4(address));
+			case 8 -> mem.read8(address);
+			default -> throw new IllegalArgumentException(String.format("Invalid access size: %,d bytes.", size));
+		};
+	}
+
+	private void saveRegisters() {
+		final Register64[] regs = Register64.values();
+		for (int i = 0; i < regs.length; i++) {
+			savedRegisters[i] = rf.get(regs[i]);
+		}
+		final RFlags[] flags = RFlags.values();
+		for (int i = 0; i < flags.length; i++) {
+			savedFlags[i] = rf.isSet(flags[i]);
+		}
+	}
+
+	private void restoreRegisters() {
+		final Register64[] regs = Register64.values();
+		for (int i = 0; i < regs.length; i++) {
+			rf.set(regs[i], savedRegisters[i]);
+		}
+		final RFlags[] flags = RFlags.values();
+		for (int i = 0; i < flags.length; i++) {
+			rf.set(flags[i], savedFlags[i]);
+		}
+	}
+
+	@SuppressWarnings({"PMD.NcssCount", "PMD.CognitiveComplexity", "PMD.AvoidInstantiatingObjectsInLoops"})
+	private void dispatch(final Instruction inst) {
 		switch (inst.opcode()) {
 			case SUB -> {
 				switch (inst.firstOperand()) {
@@ -292,15 +897,11 @@ public class X86Cpu implements X86Emulator {
 					throw new IllegalArgumentException(String.format("Don't know what to do with '%s'.", inst));
 				}
 			}
-			case CMP ->
-				op(
-						() -> getAsLongSX(inst.firstOperand()),
-						() -> getAsLongSX(inst.secondOperand()),
-						(a, b) -> a - b,
-						_ -> {},
-						true,
-						MathUtils::willCarrySub,
-						MathUtils::willOverflowSub);
+			case CMP -> {
+				final long a = getAsLongSX(inst.firstOperand());
+				final long b = getAsLongSX(inst.secondOperand());
+				rf.setArithmeticFlags(a - b, Long.compareUnsigned(a, b) < 0, MathUtils.willOverflowSub(a, b));
+			}
 			case TEST -> {
 				if (inst.firstOperand() instanceof final Register8 r1
 						&& inst.secondOperand() instanceof final Register8 r2) {
@@ -320,7 +921,14 @@ public class X86Cpu implements X86Emulator {
 			}
 
 			// Jumps
-			case JMP -> jumpTo(getAsLongSX(inst.firstOperand()));
+			case JMP -> {
+				if (inst.firstOperand() instanceof final Immediate imm) {
+					jumpTo(getAsLongSX(imm));
+				} else {
+					// Indirect jumps are absolute
+					rf.set(Register64.RIP, getAsLongSX(inst.firstOperand()));
+				}
+			}
 			case JE /*, JZ */ -> jumpToIf(getAsLongSX(inst.firstOperand()), rf.isSet(RFlags.ZERO));
 			case JNE /*, JNZ */ -> jumpToIf(getAsLongSX(inst.firstOperand()), !rf.isSet(RFlags.ZERO));
 			case JA /*, JNBE */ ->
@@ -371,41 +979,36 @@ public class X86Cpu implements X86Emulator {
 			case MOV -> {
 				if (inst.firstOperand() instanceof Register64 r) {
 					rf.set(r, getAsLongSX(inst.secondOperand()));
-				} else if (inst.firstOperand() instanceof final Register8 op1
-						&& inst.secondOperand() instanceof final Register8 op2) {
-					rf.set(op1, rf.get(op2));
-				} else if (inst.firstOperand() instanceof final Register16 op1
-						&& inst.secondOperand() instanceof final Register16 op2) {
-					rf.set(op1, rf.get(op2));
-				} else if (inst.firstOperand() instanceof final Register32 op1
-						&& inst.secondOperand() instanceof final Register32 op2) {
-					rf.set(op1, rf.get(op2));
+				} else if (inst.firstOperand() instanceof final GeneralPurposeRegister op1
+						&& inst.secondOperand() instanceof final GeneralPurposeRegister op2) {
+					// Both registers have the same size
+					rf.set(op1.descriptor(), rf.get(op2.descriptor()));
 				} else if (inst.firstOperand() instanceof final Register32 op1
 						&& inst.secondOperand() instanceof final Immediate imm) {
 					rf.set(op1, imm.asInt());
 				} else if (inst.firstOperand() instanceof final IndirectOperand io
 						&& inst.secondOperand() instanceof final Register8 op2) {
-					final MemoryAddress address = computeIndirectOperand(io);
+					final long address = effectiveAddress(io);
 					mem.write(address, rf.get(op2));
 				} else if (inst.firstOperand() instanceof final IndirectOperand io
 						&& inst.secondOperand() instanceof final Register16 op2) {
-					final MemoryAddress address = computeIndirectOperand(io);
+					final long address = effectiveAddress(io);
 					mem.write(address, rf.get(op2));
 				} else if (inst.firstOperand() instanceof final IndirectOperand io
 						&& inst.secondOperand() instanceof final Register32 op2) {
-					final MemoryAddress address = computeIndirectOperand(io);
+					final long address = effectiveAddress(io);
 					mem.write(address, rf.get(op2));
 				} else if (inst.firstOperand() instanceof final IndirectOperand io
 						&& inst.secondOperand() instanceof final Register64 op2) {
-					final MemoryAddress address = computeIndirectOperand(io);
+					final long address = effectiveAddress(io);
 					mem.write(address, rf.get(op2));
 				} else if (inst.firstOperand() instanceof final IndirectOperand io
 						&& inst.secondOperand() instanceof final Immediate imm) {
-					final MemoryAddress address = computeIndirectOperand(io);
+					final long address = effectiveAddress(io);
 					mem.write(address, imm.asInt());
 				} else if (inst.firstOperand() instanceof final Register32 op1
 						&& inst.secondOperand() instanceof final IndirectOperand io) {
-					final MemoryAddress address = computeIndirectOperand(io);
+					final long address = effectiveAddress(io);
 					rf.set(op1, mem.read4(address));
 				} else {
 					throw new IllegalArgumentException(
@@ -415,27 +1018,42 @@ public class X86Cpu implements X86Emulator {
 			case MOVABS -> rf.set((Register64) inst.firstOperand(), ((Immediate) inst.secondOperand()).asLong());
 			case MOVSXD -> rf.set((Register64) inst.firstOperand(), getAsLongSX(inst.secondOperand()));
 			case MOVZX -> rf.set((Register32) inst.firstOperand(), getAsIntZX(inst.secondOperand()));
+			case MOVS -> {
+				final IndirectOperand dst = (IndirectOperand) inst.firstOperand();
+				final IndirectOperand src = (IndirectOperand) inst.secondOperand();
+				stringInstructions.movs(
+						mem,
+						dst.getPointerSize().bits() / 8,
+						counterOf(dst),
+						pointerOf(src),
+						pointerOf(dst),
+						inst.hasRepPrefix() || inst.hasRepnzPrefix());
+			}
 			case STOS -> {
-				if (inst.hasRepPrefix()
-						&& inst.firstOperand() instanceof IndirectOperand io
-						&& inst.secondOperand() instanceof Register64 r2) {
-					final boolean direction = rf.isSet(RFlags.DIRECTION);
-					final long increment =
-							(direction ? -1 : 1) * io.getPointerSize().bits() / 8;
-					final long rax = rf.get(r2);
-					long rcx = rf.get(Register64.RCX);
-					long rdi = rf.get(Register64.RDI);
-
-					while (rcx != 0) {
-						mem.write(new MemoryAddress(rdi), rax);
-						rdi += increment;
-						rcx--;
-					}
-
-					rf.set(Register64.RDI, rdi);
-					rf.set(Register64.RCX, rcx);
-				} else {
-					throw new UnsupportedOperationException("Not implemented.");
+				final IndirectOperand dst = (IndirectOperand) inst.firstOperand();
+				stringInstructions.stos(
+						mem,
+						dst.getPointerSize().bits() / 8,
+						valueOf(inst.secondOperand()),
+						counterOf(dst),
+						pointerOf(dst),
+						inst.hasRepPrefix() || inst.hasRepnzPrefix());
+			}
+			case CMPS -> {
+				final IndirectOperand src = (IndirectOperand) inst.firstOperand();
+				final IndirectOperand dst = (IndirectOperand) inst.secondOperand();
+				final int size = src.getPointerSize().bits() / 8;
+				if (stringInstructions.cmps(
+						mem, size, counterOf(dst), pointerOf(src), pointerOf(dst), repeatOf(inst))) {
+					updateSubFlags(size, stringInstructions.lastFirst(), stringInstructions.lastSecond());
+				}
+			}
+			case SCAS -> {
+				final IndirectOperand dst = (IndirectOperand) inst.secondOperand();
+				final int size = dst.getPointerSize().bits() / 8;
+				if (stringInstructions.scas(
+						mem, size, valueOf(inst.firstOperand()), counterOf(dst), pointerOf(dst), repeatOf(inst))) {
+					updateSubFlags(size, stringInstructions.lastFirst(), stringInstructions.lastSecond());
 				}
 			}
 			case PUSH -> {
@@ -452,37 +1070,34 @@ public class X86Cpu implements X86Emulator {
 			}
 			case POP -> popInto((Register64) inst.firstOperand());
 			case LEA -> {
-				final IndirectOperand src = (IndirectOperand) inst.secondOperand();
+				// LEA computes the offset alone, ignoring any segment override
+				final long address = offset((IndirectOperand) inst.secondOperand());
 				if (inst.firstOperand() instanceof final Register64 dest) {
-					final MemoryAddress address = computeIndirectOperand(src);
-					rf.set(dest, address.address());
-				} else if (inst.firstOperand() instanceof final Register32 dest) {
-					final int address =
-							BitUtils.asInt(computeIndirectOperand(src).address());
 					rf.set(dest, address);
+				} else if (inst.firstOperand() instanceof final Register32 dest) {
+					rf.set(dest, BitUtils.asInt(address));
 				} else {
-					final Register16 dest = (Register16) inst.firstOperand();
-					final short address =
-							BitUtils.asShort(computeIndirectOperand(src).address());
-					rf.set(dest, address);
+					rf.set((Register16) inst.firstOperand(), BitUtils.asShort(address));
 				}
 			}
 			case CALL -> {
 				// This points to the instruction right next to 'CALL ...'
 				final long rip = rf.get(Register64.RIP);
 
-				push(rip);
-
+				// The target is computed before pushing, so that it sees the old RSP
 				final long jumpAddress;
 				if (inst.firstOperand() instanceof final Immediate imm) {
 					final long relativeAddress = getAsLongSX(imm);
 					jumpAddress = rip + relativeAddress;
 				} else if (inst.firstOperand() instanceof final IndirectOperand io) {
-					jumpAddress = computeIndirectOperand(io).address();
+					jumpAddress = getAsLongSX(io);
+				} else if (inst.firstOperand() instanceof final Register64 r) {
+					jumpAddress = rf.get(r);
 				} else {
 					throw new IllegalStateException();
 				}
 
+				push(rip);
 				rf.set(Register64.RIP, jumpAddress);
 			}
 			case RET -> popInto(Register64.RIP);
@@ -531,21 +1146,35 @@ public class X86Cpu implements X86Emulator {
 			case CPUID -> {
 				// CPUID uses only 32-bit registers
 				final int eax = rf.get(Register32.EAX);
-				if (eax < 0 || eax > CPU_CONFIG.getMaxSupportedStandardLeaf()) {
+				if (eax < 0 || eax > cpuConfig.getMaxSupportedStandardLeaf()) {
 					throw new IllegalArgumentException(String.format("Unknown CPUID leaf %d.", eax));
 				}
 
 				final int[] values = new int[4];
-				CPU_CONFIG.setLeafValues(eax, values);
+				cpuConfig.setLeafValues(eax, values);
 				rf.set(Register32.EAX, values[0]);
 				rf.set(Register32.EBX, values[1]);
 				rf.set(Register32.ECX, values[2]);
 				rf.set(Register32.EDX, values[3]);
 			}
-			default ->
-				throw new IllegalArgumentException(
-						String.format("Unknown instruction '%s'.", InstructionEncoder.toIntelSyntax(inst)));
+			default -> {
+				if (!VectorInstructions.isSupported(inst.opcode())) {
+					throw new IllegalArgumentException(
+							String.format("Unknown instruction '%s'.", InstructionEncoder.toIntelSyntax(inst)));
+				}
+				vectorInstructions.execute(mem, inst, memoryOperandAddress(inst));
+			}
+		}
+	}
+
+	/** Returns the effective address of the memory operand of the given instruction, or 0 if it has none. */
+	private long memoryOperandAddress(final Instruction inst) {
+		for (int i = 0; i < inst.getNumOperands(); i++) {
+			if (inst.operand(i) instanceof final IndirectOperand io) {
+				return effectiveAddress(io);
+			}
 		}
+		return 0L;
 	}
 
 	private void popInto(final Register64 reg) {
@@ -554,15 +1183,142 @@ public class X86Cpu implements X86Emulator {
 
 	private void handleSyscall() {
 		// Useful reference: https://filippo.io/linux-syscall-table/
+		syscalls.increment();
 		final int sysCallCode = rf.get(Register32.EAX);
-		final int sysCallExitCode = 60;
-		if (sysCallCode == sysCallExitCode) {
-			final long exitCode = rf.get(Register64.RDI);
-			logger.info("syscall exit %d encountered", exitCode);
-			state = State.HALTED;
-		} else {
+		switch (sysCallCode) {
+			case SYS_CLONE -> rf.set(Register64.RAX, machine == null ? -ENOSYS : sysClone());
+			case SYS_EXIT -> {
+				exitCode = rf.get(Register64.RDI);
+				logger.info("syscall exit %d encountered", exitCode);
+				exitThread();
+			}
+			case SYS_ARCH_PRCTL -> rf.set(Register64.RAX, sysArchPrctl());
+			case SYS_GETTID -> rf.set(Register64.RAX, tid);
+			case SYS_FUTEX -> rf.set(Register64.RAX, machine == null ? -ENOSYS : sysFutex());
+			case SYS_EXIT_GROUP -> {
+				exitCode = rf.get(Register64.RDI);
+				logger.info("syscall exit_group %d encountered", exitCode);
+				if (machine == null) {
+					state = State.HALTED;
+				} else {
+					machine.exitGroup(exitCode);
+				}
+			}
+			default -> rf.set(Register64.RAX, dispatchSyscall(sysCallCode));
+		}
+	}
+
+	private long dispatchSyscall(final int sysCallCode) {
+		final SyscallHandler handler = syscallTable.get(sysCallCode);
+		if (handler == null) {
 			throw new IllegalArgumentException(String.format("Unknown syscall code %,d.", sysCallCode));
 		}
+		syscallArgs[0] = rf.get(Register64.RDI);
+		syscallArgs[1] = rf.get(Register64.RSI);
+		syscallArgs[2] = rf.get(Register64.RDX);
+		syscallArgs[3] = rf.get(Register64.R10);
+		syscallArgs[4] = rf.get(Register64.R8);
+		syscallArgs[5] = rf.get(Register64.R9);
+		return handler.handle(syscallMem, syscallArgs);
+	}
+
+	private void exitThread() {
+		state = State.HALTED;
+		if (machine != null && clearChildTid != 0L) {
+			// This is what lets pthread_join return
+			final MemoryAddress address = new MemoryAddress(clearChildTid);
+			mem.write(address, 0);
+			machine.futexWake(address, 1);
+		}
+	}
+
+	private long sysArchPrctl() {
+		final int code = rf.get(Register32.EDI);
+		final long arg = rf.get(Register64.RSI);
+		switch (code) {
+			case ARCH_SET_FS -> rf.setSegmentBase(SegmentRegister.FS, arg);
+			case ARCH_SET_GS -> rf.setSegmentBase(SegmentRegister.GS, arg);
+			case ARCH_GET_FS -> mem.write(arg, rf.getSegmentBase(SegmentRegister.FS));
+			case ARCH_GET_GS -> mem.write(arg, rf.getSegmentBase(SegmentRegister.GS));
+			default -> {
+				logger.warning("Unsupported arch_prctl code 0x%x.", code);
+				return -EINVAL;
+			}
+		}
+		return 0L;
+	}
+
+	private long sysClone() {
+		final long flags = rf.get(Register64.RDI);
+		final long childStack = rf.get(Register64.RSI);
+		final long parentTid = rf.get(Register64.RDX);
+		final long childTid = rf.get(Register64.R10);
+		if ((flags & (CLONE_VM | CLONE_THREAD)) != (CLONE_VM | CLONE_THREAD)) {
+			logger.warning("clone with flags 0x%x is not supported: only threads can be created.", flags);
+			return -ENOSYS;
+		}
+
+		// The child starts as an exact copy of its parent, vector and segment registers included
+		final X86RegisterFile childRegisters = new X86RegisterFile(rf);
+		childRegisters.set(Register64.RAX, 0L);
+		if (childStack != 0L) {
+			childRegisters.set(Register64.RSP, childStack);
+		}
+		if ((flags & CLONE_SETTLS) != 0L) {
+			childRegisters.setSegmentBase(SegmentRegister.FS, rf.get(Register64.R8));
+		}
+
+		final X86Cpu child = new X86Cpu(this, childRegisters);
+		child.machine = machine;
+		child.tid = machine.newThreadId();
+		if ((flags & CLONE_PARENT_SETTID) != 0L) {
+			mem.write(new MemoryAddress(parentTid), child.tid);
+		}
+		if ((flags & CLONE_CHILD_SETTID) != 0L) {
+			mem.write(new MemoryAddress(childTid), child.tid);
+		}
+		if ((flags & CLONE_CHILD_CLEARTID) != 0L) {
+			child.clearChildTid = childTid;
+		}
+		machine.start(child);
+		return child.tid;
+	}
+
+	private long sysFutex() {
+		final MemoryAddress address = new MemoryAddress(rf.get(Register64.RDI));
+		final int op = rf.get(Register32.ESI) & FUTEX_CMD_MASK;
+		final int value = rf.get(Register32.EDX);
+		return switch (op) {
+			case FUTEX_WAIT -> machine.futexWait(mem, address, value);
+			case FUTEX_WAKE -> machine.futexWake(address, value);
+			default -> {
+				logger.warning("Unsupported futex operation %d.", op);
+				yield -ENOSYS;
+			}
+		};
+	}
+
+	/** Halts this CPU from another thread. The current instruction, if any, is completed. */
+	void halt() {
+		state = State.HALTED;
+	}
+
+	/**
+	 * Attaches this CPU to the given machine as its first thread.
+	 *
+	 * @param machine The machine running this CPU.
+	 */
+	void attach(final X86Machine machine) {
+		this.machine = Objects.requireNonNull(machine);
+	}
+
+	/**
+	 * Returns the thread ID of this CPU.
+	 *
+	 * @return The thread ID.
+	 */
+	int getThreadId() {
+		return tid;
 	}
 
 	private void setIf(final Operand operand, final boolean condition) {
@@ -570,7 +1326,7 @@ public class X86Cpu implements X86Emulator {
 		if (operand instanceof final Register8 r) {
 			rf.set(r, value);
 		} else if (operand instanceof final IndirectOperand io && io.getPointerSize() == PointerSize.BYTE_PTR) {
-			mem.write(computeIndirectOperand(io), value);
+			mem.write(effectiveAddress(io), value);
 		} else {
 			throw new IllegalArgumentException(String.format("Don't know what to do with SETcc and %s.", operand));
 		}
@@ -584,11 +1340,11 @@ public class X86Cpu implements X86Emulator {
 	}
 
 	private void jumpTo(final long offset) {
-		instFetch.setPosition(instFetch.getPosition() + offset);
+		rf.set(Register64.RIP, rf.get(Register64.RIP) + offset);
 	}
 
 	private void op(final IndirectOperand iop, final Register8 op2, final BiFunction<Byte, Byte, Byte> task) {
-		final MemoryAddress address = computeIndirectOperand(iop);
+		final long address = effectiveAddress(iop);
 		op(() -> mem.read(address), () -> rf.get(op2), task, result -> mem.write(address, result), true);
 	}
 
@@ -715,12 +1471,7 @@ public class X86Cpu implements X86Emulator {
 		if (!(value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long)) {
 			throw new AssertionError(String.format("Invalid type: %s.", value.getClass()));
 		}
-		final long x = ((Number) value).longValue();
-		rf.set(RFlags.ZERO, x == 0L);
-		rf.set(RFlags.PARITY, (Long.bitCount(x) % 2) == 0);
-		rf.set(RFlags.SIGN, x < 0L);
-		rf.set(RFlags.CARRY, carryFlag);
-		rf.set(RFlags.OVERFLOW, overflowFlag);
+		rf.setArithmeticFlags(((Number) value).longValue(), carryFlag, overflowFlag);
 		// TODO: add other flags
 	}
 
@@ -773,7 +1524,7 @@ public class X86Cpu implements X86Emulator {
 		}
 
 		rf.set(Register64.RSP, newRSP);
-		mem.write(new MemoryAddress(newRSP), value);
+		mem.write(newRSP, value);
 	}
 
 	/**
@@ -789,7 +1540,7 @@ public class X86Cpu implements X86Emulator {
 			throw new StackUnderflow();
 		}
 
-		final long value = mem.read8(new MemoryAddress(rsp));
+		final long value = mem.read8(rsp);
 
 		// the stack "grows downward", so it "pops upward"
 		final long newRSP = rsp + 8L;
@@ -810,7 +1561,7 @@ public class X86Cpu implements X86Emulator {
 	}
 
 	private int getAsIntZX(final IndirectOperand io) {
-		final MemoryAddress address = computeIndirectOperand(io);
+		final long address = effectiveAddress(io);
 		return switch (io.getPointerSize()) {
 			case BYTE_PTR -> BitUtils.asInt(mem.read(address));
 			case WORD_PTR -> BitUtils.asInt(mem.read2(address));
@@ -824,10 +1575,10 @@ public class X86Cpu implements X86Emulator {
 		return switch (op) {
 			case Immediate imm -> getAsLongSX(imm);
 			case IndirectOperand io -> getAsLongSX(io);
-			case Register8 r -> rf.get(r);
-			case Register16 r -> rf.get(r);
-			case Register32 r -> rf.get(r);
-			case Register64 r -> rf.get(r);
+			case GeneralPurposeRegister r -> {
+				final RegisterDescriptor d = r.descriptor();
+				yield signExtend(rf.get(d), d.width() / 8);
+			}
 			default -> throw new IllegalArgumentException(String.format("Unknown operand '%s'.", op));
 		};
 	}
@@ -846,7 +1597,7 @@ public class X86Cpu implements X86Emulator {
 
 	/** Returns a sign-extended long. */
 	private long getAsLongSX(final IndirectOperand io) {
-		final MemoryAddress address = computeIndirectOperand(io);
+		final long address = effectiveAddress(io);
 		return switch (io.getPointerSize()) {
 			case BYTE_PTR -> mem.read(address);
 			case WORD_PTR -> mem.read2(address);
@@ -864,19 +1615,116 @@ public class X86Cpu implements X86Emulator {
 	 * @return The pointed address.
 	 */
 	public MemoryAddress computeIndirectOperand(final IndirectOperand io) {
-		final long base = io.hasBase()
-				? (io.getBase() instanceof Register64
-						? rf.get((Register64) io.getBase())
-						: BitUtils.asLong(rf.get((Register32) io.getBase())))
-				: 0L;
-		final long index = io.hasIndex()
-				? (io.getIndex() instanceof Register64
-						? rf.get((Register64) io.getIndex())
-						: BitUtils.asLong(rf.get((Register32) io.getIndex())))
-				: 0L;
-		final long scale = io.hasScale() ? io.getScale() : 1L;
-		final long displacement = io.hasDisplacement() ? io.getDisplacement() : 0L;
-		return new MemoryAddress(base + index * scale + displacement);
+		return new MemoryAddress(effectiveAddress(io));
+	}
+
+	private long effectiveAddress(final IndirectOperand io) {
+		// Only FS and GS have a non-zero base in 64-bit mode
+		return io.hasSegment() ? offset(io) + rf.getSegmentBase(io.getSegment()) : offset(io);
+	}
+
+	private long offset(final IndirectOperand io) {
+		// The shape of the computation is decided once, when the operand is decoded, and so are the locations of the
+		// base and index registers: a 32-bit one is read zero-extended, with no type test
+		return switch (io.getAddressingForm()) {
+			case BASE -> rf.get(io.getBaseDescriptor());
+			case BASE_DISPLACEMENT -> rf.get(io.getBaseDescriptor()) + io.getSignedDisplacement();
+			case RIP_RELATIVE -> rf.get(Register64.RIP) + io.getSignedDisplacement();
+			case DISPLACEMENT -> io.getSignedDisplacement();
+			case BASE_INDEX_SCALE_DISPLACEMENT ->
+				rf.get(io.getBaseDescriptor())
+						+ (rf.get(io.getIndexDescriptor()) << io.getScaleShift())
+						+ io.getSignedDisplacement();
+			case INDEX_SCALE_DISPLACEMENT ->
+				(rf.get(io.getIndexDescriptor()) << io.getScaleShift()) + io.getSignedDisplacement();
+		};
+	}
+
+	/**
+	 * Returns the number of instructions fetched from memory and executed to completion.
+	 *
+	 * @return The number of retired instructions.
+	 */
+	public long getInstructionsRetired() {
+		return instructionsRetired.sum();
+	}
+
+	/**
+	 * Returns the number of instructions executed without being decoded again, because they were part of a compiled
+	 * block.
+	 *
+	 * @return The number of decode cache hits.
+	 */
+	public long getDecodeCacheHits() {
+		return decodeCacheHits.sum();
+	}
+
+	/**
+	 * Returns the number of SYSCALL instructions executed.
+	 *
+	 * @return The number of system calls.
+	 */
+	public long getSyscalls() {
+		return syscalls.sum();
+	}
+
+	/**
+	 * Uses the blocks translated ahead of time in the given cache. Has no effect when the JIT compiler is disabled.
+	 *
+	 * @param translations The translation cache of the program being executed.
+	 */
+	public void useTranslationCache(final TranslationCache translations) {
+		Objects.requireNonNull(translations);
+		if (jit != null) {
+			jit.setTranslationCache(translations);
+		}
+	}
+
+	/**
+	 * Returns the number of blocks of code compiled to JVM bytecode.
+	 *
+	 * @return The number of compiled blocks.
+	 */
+	public long getCompiledBlocks() {
+		return jit == null ? 0L : jit.getCompiledBlocks();
+	}
+
+	/**
+	 * Returns the number of compiled blocks entered directly from the previous one, without going through the
+	 * dispatcher.
+	 *
+	 * @return The number of chained blocks.
+	 */
+	public long getChainedBlocks() {
+		return jit == null ? 0L : jit.getChainedBlocks();
+	}
+
+	/**
+	 * Returns the number of compiled blocks dropped because the permissions or the mappings of their memory changed.
+	 *
+	 * @return The number of invalidations of the compiled blocks.
+	 */
+	public long getCompiledBlockInvalidations() {
+		return jit == null ? 0L : jit.getInvalidations();
+	}
+
+	/**
+	 * Returns the code the emulated program passed to the exit syscall. Meaningful only after the program has exited.
+	 *
+	 * @return The exit code.
+	 */
+	public long getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * Returns the system calls available to the emulated program, other than the ones handling threads and exits.
+	 *
+	 * @return The system call table.
+	 */
+	@SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "The table is meant to be configured after creation.")
+	public SyscallTable getSyscallTable() {
+		return syscallTable;
 	}
 
 	@Override
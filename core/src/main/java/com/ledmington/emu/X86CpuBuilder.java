@@ -19,6 +19,10 @@ package com.ledmington.emu;
 
 import java.util.Objects;
 
+import com.ledmington.emu.config.CPUConfig;
+import com.ledmington.emu.config.EmulatorConfig;
+import com.ledmington.emu.syscall.LinuxSyscalls;
+import com.ledmington.emu.syscall.SyscallTable;
 import com.ledmington.mem.MemoryController;
 import com.ledmington.utils.SuppressFBWarnings;
 
@@ -31,6 +35,13 @@ public final class X86CpuBuilder {
 	private boolean checkInstructions = false;
 	private long stackTop = -1L;
 	private long stackSize = -1L;
+	private TraceWriter tracer = null;
+	private Profiler profiler = null;
+	private EmulatorConfig config = EmulatorConfig.getDefault();
+	private CPUConfig cpuConfig = null;
+	private SyscallTable syscalls = null;
+	private int jitThreshold = -1;
+	private Boolean macroFusion = null;
 
 	/** Creates a new X86CpuBuilder with default parameters. */
 	public X86CpuBuilder() {}
@@ -122,6 +133,105 @@ public final class X86CpuBuilder {
 		return this;
 	}
 
+	/**
+	 * Makes the X86Cpu record every instruction it retires into the given trace.
+	 *
+	 * @param tracer The trace to write into.
+	 * @return This instance of X86CpuBuilder.
+	 */
+	@SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The trace is meant to be written by the X86Cpu.")
+	public X86CpuBuilder tracer(final TraceWriter tracer) {
+		assertNotAlreadyBuilt();
+		this.tracer = Objects.requireNonNull(tracer);
+		return this;
+	}
+
+	/**
+	 * Makes the X86Cpu count every instruction it retires into the given profiler.
+	 *
+	 * @param profiler The profiler to be used.
+	 * @return This instance of X86CpuBuilder.
+	 */
+	@SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The profiler is meant to be updated by the X86Cpu.")
+	public X86CpuBuilder profiler(final Profiler profiler) {
+		assertNotAlreadyBuilt();
+		this.profiler = Objects.requireNonNull(profiler);
+		return this;
+	}
+
+	/**
+	 * Takes the instruction checks, the stack, the CPUID configuration, the JIT threshold and the macro-fusion setting
+	 * from the given configuration. Parameters set explicitly after this call take precedence.
+	 *
+	 * @param config The configuration to be used.
+	 * @return This instance of X86CpuBuilder.
+	 */
+	public X86CpuBuilder config(final EmulatorConfig config) {
+		assertNotAlreadyBuilt();
+		this.config = Objects.requireNonNull(config);
+		this.checkInstructions = config.shouldCheckInstructions();
+		this.stackTop = config.getBaseStackAddress();
+		this.stackSize = config.getStackSize();
+		this.cpuConfig = config.getCPUConfig();
+		this.jitThreshold = config.getJitThreshold();
+		this.macroFusion = config.shouldFuseInstructions();
+		return this;
+	}
+
+	/**
+	 * Sets the configuration used to answer CPUID.
+	 *
+	 * @param cpuConfig The CPU configuration.
+	 * @return This instance of X86CpuBuilder.
+	 */
+	public X86CpuBuilder cpuConfig(final CPUConfig cpuConfig) {
+		assertNotAlreadyBuilt();
+		this.cpuConfig = Objects.requireNonNull(cpuConfig);
+		return this;
+	}
+
+	/**
+	 * Sets the system calls available to the emulated program. By default, a new {@link LinuxSyscalls} using the
+	 * standard streams of the host.
+	 *
+	 * @param syscalls The system call table.
+	 * @return This instance of X86CpuBuilder.
+	 */
+	public X86CpuBuilder syscalls(final SyscallTable syscalls) {
+		assertNotAlreadyBuilt();
+		this.syscalls = Objects.requireNonNull(syscalls);
+		return this;
+	}
+
+	/**
+	 * Sets the number of times a block of code must be executed before being compiled. A value of 0 disables the
+	 * compiler.
+	 *
+	 * @param jitThreshold The compilation threshold.
+	 * @return This instance of X86CpuBuilder.
+	 */
+	public X86CpuBuilder jitThreshold(final int jitThreshold) {
+		assertNotAlreadyBuilt();
+		if (jitThreshold < 0) {
+			throw new IllegalArgumentException(String.format("Invalid JIT threshold: %,d.", jitThreshold));
+		}
+		this.jitThreshold = jitThreshold;
+		return this;
+	}
+
+	/**
+	 * Enables or disables the execution of common pairs of instructions (like CMP followed by a conditional jump) as
+	 * single superinstructions.
+	 *
+	 * @param macroFusion True to fuse pairs of instructions.
+	 * @return This instance of X86CpuBuilder.
+	 */
+	public X86CpuBuilder macroFusion(final boolean macroFusion) {
+		assertNotAlreadyBuilt();
+		this.macroFusion = macroFusion;
+		return this;
+	}
+
 	/**
 	 * Creates a new X86Cpu by passing the proper parameters.
 	 *
@@ -137,15 +247,41 @@ public final class X86CpuBuilder {
 		}
 
 		if (this.stackTop == -1L) {
-			this.stackTop = EmulatorConstants.getBaseStackAddress();
+			this.stackTop = config.getBaseStackAddress();
 		}
 
 		if (this.stackSize == -1L) {
-			this.stackSize = EmulatorConstants.getStackSize();
+			this.stackSize = config.getStackSize();
+		}
+
+		if (this.cpuConfig == null) {
+			this.cpuConfig = config.getCPUConfig();
+		}
+
+		if (this.jitThreshold == -1) {
+			this.jitThreshold = config.getJitThreshold();
+		}
+
+		if (this.macroFusion == null) {
+			this.macroFusion = config.shouldFuseInstructions();
+		}
+
+		if (this.syscalls == null) {
+			this.syscalls = new LinuxSyscalls();
 		}
 
 		this.alreadyBuilt = true;
 		return new X86Cpu(
-				this.mem, this.rf, this.checkInstructions, ELFLoader.alignAddress(this.stackTop), this.stackSize);
+				this.mem,
+				this.rf,
+				this.checkInstructions,
+				ELFLoader.alignAddress(this.stackTop),
+				this.stackSize,
+				this.tracer,
+				this.profiler,
+				this.cpuConfig,
+				this.syscalls,
+				this.jitThreshold,
+				this.macroFusion);
 	}
 }
@@ -17,6 +17,8 @@
  */
 package com.ledmington.emu;
 
+import java.util.Optional;
+
 import com.ledmington.cpu.x86.Instruction;
 import com.ledmington.cpu.x86.Opcode;
 
@@ -32,6 +34,41 @@ public interface X86Emulator {
 	 */
 	void execute();
 
+	/**
+	 * Fetches and executes at most the given number of instructions, stopping early if the CPU halts, reaches a
+	 * breakpoint or an instruction faults. A breakpoint on the very first instruction is ignored, so that execution can
+	 * be resumed after stopping on it. Calling this method on a halted CPU returns immediately.
+	 *
+	 * @param maxInstructions The maximum number of instructions to be executed.
+	 * @return The reason why execution stopped.
+	 */
+	StopReason execute(long maxInstructions);
+
+	/**
+	 * Returns the exception raised by the last instruction which caused {@link #execute(long)} to return
+	 * {@link StopReason#FAULT}.
+	 *
+	 * @return The last fault, if any.
+	 */
+	Optional<RuntimeException> getLastFault();
+
+	/**
+	 * Makes {@link #execute(long)} stop before executing the instruction at the given address.
+	 *
+	 * @param address The address of the breakpoint.
+	 */
+	void addBreakpoint(long address);
+
+	/**
+	 * Removes the breakpoint at the given address, if present.
+	 *
+	 * @param address The address of the breakpoint.
+	 */
+	void removeBreakpoint(long address);
+
+	/** Removes all breakpoints. */
+	void clearBreakpoints();
+
 	/** Fetches next instruction and executes it. */
 	void executeOne();
 
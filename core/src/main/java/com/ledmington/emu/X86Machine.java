@@ -0,0 +1,238 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.ledmington.mem.Memory;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.utils.MiniLogger;
+
+/**
+ * An emulated process made of one or more threads, each one being an {@link X86Cpu} with its own registers running on
+ * its own host thread. All threads share the same memory, which must therefore be thread-safe.
+ *
+ * <p>New threads are created by the program itself through the clone syscall and are synchronized through the futex
+ * syscall.
+ */
+public final class X86Machine {
+
+	/** The thread ID of the first thread. */
+	static final int FIRST_TID = 1;
+
+	private static final MiniLogger logger = MiniLogger.getLogger("x86-machine");
+	private static final long EAGAIN = 11L;
+
+	private final X86Cpu boot;
+	private final List<X86Cpu> cpus = new CopyOnWriteArrayList<>();
+	private final Queue<Thread> threads = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger nextTid = new AtomicInteger(FIRST_TID + 1);
+	private final AtomicReference<RuntimeException> firstFault = new AtomicReference<>();
+	private final Lock futexLock = new ReentrantLock();
+	private final Map<Long, Deque<Condition>> futexWaiters = new HashMap<>();
+	private volatile boolean exiting = false;
+	private volatile long exitCode = 0L;
+
+	/**
+	 * Creates a new machine whose first thread is the given CPU.
+	 *
+	 * @param boot The CPU executing the first thread, already loaded with the program to run.
+	 */
+	public X86Machine(final X86Cpu boot) {
+		this.boot = Objects.requireNonNull(boot);
+		boot.attach(this);
+		cpus.add(boot);
+	}
+
+	/**
+	 * Runs the first thread on the calling thread and waits until every thread has terminated. A fault in any thread
+	 * terminates the whole machine and is rethrown here.
+	 */
+	public void run() {
+		boot.turnOn();
+		runThread(boot);
+		Thread t;
+		while ((t = threads.poll()) != null) {
+			try {
+				t.join();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				exitGroup(-1L);
+				throw new IllegalStateException("Interrupted while waiting for the emulated threads.", e);
+			}
+		}
+		final RuntimeException fault = firstFault.get();
+		if (fault != null) {
+			throw fault;
+		}
+	}
+
+	private void runThread(final X86Cpu cpu) {
+		StopReason reason;
+		do {
+			reason = cpu.execute(Long.MAX_VALUE);
+		} while (reason == StopReason.BUDGET_EXHAUSTED || reason == StopReason.BREAKPOINT);
+		if (reason == StopReason.FAULT) {
+			final RuntimeException fault = cpu.getLastFault().orElseThrow();
+			logger.error("Thread %d faulted: %s", cpu.getThreadId(), fault.getMessage());
+			firstFault.compareAndSet(null, fault);
+			exitGroup(-1L);
+		}
+	}
+
+	/**
+	 * Returns the exit code of the program: the one passed to exit_group or, if no thread called it, the one passed to
+	 * exit by the first thread.
+	 *
+	 * @return The exit code.
+	 */
+	public long getExitCode() {
+		return exiting ? exitCode : boot.getExitCode();
+	}
+
+	/**
+	 * Returns the number of threads created so far, including the first one.
+	 *
+	 * @return The number of threads.
+	 */
+	public int getNumThreads() {
+		return cpus.size();
+	}
+
+	int newThreadId() {
+		return nextTid.getAndIncrement();
+	}
+
+	void start(final X86Cpu cpu) {
+		cpus.add(cpu);
+		final Thread t = new Thread(() -> runThread(cpu), "vcpu-" + cpu.getThreadId());
+		// Must be visible to run() before this thread can terminate
+		threads.add(t);
+		if (exiting) {
+			cpu.halt();
+		}
+		t.start();
+	}
+
+	/**
+	 * Halts every thread and wakes up all the ones waiting on a futex.
+	 *
+	 * @param code The exit code of the program.
+	 */
+	void exitGroup(final long code) {
+		futexLock.lock();
+		try {
+			if (!exiting) {
+				exitCode = code;
+				exiting = true;
+			}
+			for (final X86Cpu cpu : cpus) {
+				cpu.halt();
+			}
+			for (final Deque<Condition> waiters : futexWaiters.values()) {
+				for (final Condition c : waiters) {
+					c.signal();
+				}
+			}
+			futexWaiters.clear();
+		} finally {
+			futexLock.unlock();
+		}
+	}
+
+	/**
+	 * Blocks the calling thread until it is woken up, if the 4-byte value at the given address is still the expected
+	 * one. Timeouts are not supported.
+	 *
+	 * @param mem The memory of the calling thread.
+	 * @param address The address of the futex word.
+	 * @param expected The expected value of the futex word.
+	 * @return 0 when woken up, -EAGAIN if the value was not the expected one.
+	 */
+	long futexWait(final Memory mem, final MemoryAddress address, final int expected) {
+		futexLock.lock();
+		try {
+			// Wakers take the same lock, so no wake-up can be lost between this check and the wait
+			if (mem.read4(address) != expected) {
+				return -EAGAIN;
+			}
+			if (exiting) {
+				return 0L;
+			}
+			final Condition c = futexLock.newCondition();
+			final Deque<Condition> waiters = futexWaiters.computeIfAbsent(address.address(), _ -> new ArrayDeque<>());
+			waiters.addLast(c);
+			while (!exiting && waiters.contains(c)) {
+				c.awaitUninterruptibly();
+			}
+			return 0L;
+		} finally {
+			futexLock.unlock();
+		}
+	}
+
+	/**
+	 * Wakes up at most the given number of threads waiting on the futex word at the given address.
+	 *
+	 * @param address The address of the futex word.
+	 * @param maxWaiters The maximum number of threads to be woken up.
+	 * @return The number of threads woken up.
+	 */
+	long futexWake(final MemoryAddress address, final int maxWaiters) {
+		futexLock.lock();
+		try {
+			final Deque<Condition> waiters = futexWaiters.get(address.address());
+			if (waiters == null) {
+				return 0L;
+			}
+			int woken = 0;
+			final Iterator<Condition> it = waiters.iterator();
+			while (woken < maxWaiters && it.hasNext()) {
+				final Condition c = it.next();
+				it.remove();
+				c.signal();
+				woken++;
+			}
+			if (waiters.isEmpty()) {
+				futexWaiters.remove(address.address());
+			}
+			return woken;
+		} finally {
+			futexLock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "X86Machine(threads=" + cpus.size() + ";exiting=" + exiting + ";exitCode=" + exitCode + ")";
+	}
+}
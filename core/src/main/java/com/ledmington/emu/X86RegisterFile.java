@@ -25,6 +25,7 @@ import com.ledmington.cpu.x86.Register16;
 import com.ledmington.cpu.x86.Register32;
 import com.ledmington.cpu.x86.Register64;
 import com.ledmington.cpu.x86.Register8;
+import com.ledmington.cpu.x86.RegisterDescriptor;
 import com.ledmington.cpu.x86.SegmentRegister;
 import com.ledmington.utils.BitUtils;
 
@@ -32,17 +33,41 @@ import com.ledmington.utils.BitUtils;
 @SuppressWarnings("PMD.CyclomaticComplexity")
 public final class X86RegisterFile implements RegisterFile {
 
-	// General-purpose registers
-	private final long[] gpr = new long[16];
+	private static final long ARITHMETIC_FLAGS = (1L << RFlags.ZERO.bit())
+			| (1L << RFlags.PARITY.bit())
+			| (1L << RFlags.SIGN.bit())
+			| (1L << RFlags.CARRY.bit())
+			| (1L << RFlags.OVERFLOW.bit());
+
+	private static final int RIP = RegisterDescriptor.NUM_SLOTS - 1;
+
+	/** The number of vector registers, from XMM0 (or YMM0 or ZMM0) to XMM31. */
+	public static final int NUM_VECTOR_REGISTERS = 32;
+
+	/** The number of 64-bit lanes of each vector register, as wide as a ZMM register. */
+	public static final int VECTOR_LANES = 8;
+
+	// General-purpose registers, followed by the instruction pointer, laid out as described by RegisterDescriptor
+	private final long[] gpr = new long[RegisterDescriptor.NUM_SLOTS];
 
 	// Segment registers
 	private final short[] seg = new short[6];
 
-	// instruction pointer
-	private long rip;
+	// Bases of the FS and GS segments, the only ones which are not flat in 64-bit mode
+	private long fsBase;
+	private long gsBase;
+
+	// Vector registers, each one made of VECTOR_LANES contiguous longs starting from the lowest bits
+	private final long[] vec = new long[NUM_VECTOR_REGISTERS * VECTOR_LANES];
 
 	private long rflags = RFlags.defaultValue();
 
+	// While pending, the arithmetic flags inside rflags are stale and are computed from these on the first read
+	private boolean flagsPending = false;
+	private long flagsResult;
+	private boolean flagsCarry;
+	private boolean flagsOverflow;
+
 	/** Creates the register file initializing every register to 0. */
 	public X86RegisterFile() {}
 
@@ -54,10 +79,12 @@ public final class X86RegisterFile implements RegisterFile {
 	public X86RegisterFile(final ImmutableRegisterFile regFile) {
 		Objects.requireNonNull(regFile);
 		final X86RegisterFile regs = (X86RegisterFile) regFile;
-		System.arraycopy(regs.gpr, 0, this.gpr, 0, 16);
+		System.arraycopy(regs.gpr, 0, this.gpr, 0, RegisterDescriptor.NUM_SLOTS);
 		System.arraycopy(regs.seg, 0, this.seg, 0, 6);
-		this.rip = regs.rip;
-		this.rflags = regs.rflags;
+		this.fsBase = regs.fsBase;
+		this.gsBase = regs.gsBase;
+		System.arraycopy(regs.vec, 0, this.vec, 0, vec.length);
+		this.rflags = regs.rflags();
 	}
 
 	@Override
@@ -74,8 +101,8 @@ public final class X86RegisterFile implements RegisterFile {
 					case DH -> BitUtils.shr(gpr[3], 8);
 					case SPL -> gpr[4];
 					case BPL -> gpr[5];
-					case DIL -> gpr[6];
-					case SIL -> gpr[7];
+					case SIL -> gpr[6];
+					case DIL -> gpr[7];
 					case R8B -> gpr[8];
 					case R9B -> gpr[9];
 					case R10B -> gpr[10];
@@ -100,8 +127,8 @@ public final class X86RegisterFile implements RegisterFile {
 			case DH -> gpr[3] = (gpr[3] & 0xffffffffffff00ffL) | BitUtils.shl(BitUtils.asLong(v), 8);
 			case SPL -> gpr[4] = (gpr[4] & 0xffffffffffffff00L) | BitUtils.asLong(v);
 			case BPL -> gpr[5] = (gpr[5] & 0xffffffffffffff00L) | BitUtils.asLong(v);
-			case DIL -> gpr[6] = (gpr[6] & 0xffffffffffffff00L) | BitUtils.asLong(v);
-			case SIL -> gpr[7] = (gpr[7] & 0xffffffffffffff00L) | BitUtils.asLong(v);
+			case SIL -> gpr[6] = (gpr[6] & 0xffffffffffffff00L) | BitUtils.asLong(v);
+			case DIL -> gpr[7] = (gpr[7] & 0xffffffffffffff00L) | BitUtils.asLong(v);
 			case R8B -> gpr[8] = (gpr[8] & 0xffffffffffffff00L) | BitUtils.asLong(v);
 			case R9B -> gpr[9] = (gpr[9] & 0xffffffffffffff00L) | BitUtils.asLong(v);
 			case R10B -> gpr[10] = (gpr[10] & 0xffffffffffffff00L) | BitUtils.asLong(v);
@@ -159,25 +186,45 @@ public final class X86RegisterFile implements RegisterFile {
 		}
 	}
 
+	@Override
+	public long getSegmentBase(final SegmentRegister r) {
+		return switch (r) {
+			case FS -> fsBase;
+			case GS -> gsBase;
+			default -> 0L;
+		};
+	}
+
+	@Override
+	public void setSegmentBase(final SegmentRegister r, final long base) {
+		switch (r) {
+			case FS -> fsBase = base;
+			case GS -> gsBase = base;
+			default ->
+				throw new IllegalArgumentException(
+						String.format("The base of the %s segment cannot be changed in 64-bit mode.", r.name()));
+		}
+	}
+
 	@Override
 	public void set(final Register16 r, final short v) {
 		switch (r) {
-			case AX -> gpr[0] = (gpr[0] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case BX -> gpr[1] = (gpr[1] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case CX -> gpr[2] = (gpr[2] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case DX -> gpr[3] = (gpr[3] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case SP -> gpr[4] = (gpr[4] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case BP -> gpr[5] = (gpr[5] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case SI -> gpr[6] = (gpr[6] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case DI -> gpr[7] = (gpr[7] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case R8W -> gpr[8] = (gpr[8] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case R9W -> gpr[9] = (gpr[9] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case R10W -> gpr[10] = (gpr[10] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case R11W -> gpr[11] = (gpr[11] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case R12W -> gpr[12] = (gpr[12] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case R13W -> gpr[13] = (gpr[13] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case R14W -> gpr[14] = (gpr[14] & 0xffffffffff0000L) | BitUtils.asLong(v);
-			case R15W -> gpr[15] = (gpr[15] & 0xffffffffff0000L) | BitUtils.asLong(v);
+			case AX -> gpr[0] = (gpr[0] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case BX -> gpr[1] = (gpr[1] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case CX -> gpr[2] = (gpr[2] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case DX -> gpr[3] = (gpr[3] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case SP -> gpr[4] = (gpr[4] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case BP -> gpr[5] = (gpr[5] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case SI -> gpr[6] = (gpr[6] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case DI -> gpr[7] = (gpr[7] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case R8W -> gpr[8] = (gpr[8] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case R9W -> gpr[9] = (gpr[9] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case R10W -> gpr[10] = (gpr[10] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case R11W -> gpr[11] = (gpr[11] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case R12W -> gpr[12] = (gpr[12] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case R13W -> gpr[13] = (gpr[13] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case R14W -> gpr[14] = (gpr[14] & 0xffffffffffff0000L) | BitUtils.asLong(v);
+			case R15W -> gpr[15] = (gpr[15] & 0xffffffffffff0000L) | BitUtils.asLong(v);
 		}
 	}
 
@@ -201,7 +248,7 @@ public final class X86RegisterFile implements RegisterFile {
 					case R13D -> gpr[13];
 					case R14D -> gpr[14];
 					case R15D -> gpr[15];
-					case EIP -> rip;
+					case EIP -> gpr[RIP];
 				});
 	}
 
@@ -225,7 +272,7 @@ public final class X86RegisterFile implements RegisterFile {
 			case R13D -> gpr[13] = BitUtils.asLong(v);
 			case R14D -> gpr[14] = BitUtils.asLong(v);
 			case R15D -> gpr[15] = BitUtils.asLong(v);
-			case EIP -> rip = BitUtils.asLong(v);
+			case EIP -> gpr[RIP] = BitUtils.asLong(v);
 		}
 	}
 
@@ -248,7 +295,7 @@ public final class X86RegisterFile implements RegisterFile {
 			case R13 -> gpr[13];
 			case R14 -> gpr[14];
 			case R15 -> gpr[15];
-			case RIP -> rip;
+			case RIP -> gpr[RIP];
 		};
 	}
 
@@ -271,17 +318,47 @@ public final class X86RegisterFile implements RegisterFile {
 			case R13 -> gpr[13] = v;
 			case R14 -> gpr[14] = v;
 			case R15 -> gpr[15] = v;
-			case RIP -> rip = v;
+			case RIP -> gpr[RIP] = v;
 		}
 	}
 
+	@Override
+	public long get(final RegisterDescriptor r) {
+		return (gpr[r.slot()] >>> r.shift()) & r.mask();
+	}
+
+	@Override
+	public void set(final RegisterDescriptor r, final long v) {
+		final int slot = r.slot();
+		gpr[slot] = (gpr[slot] & r.preservedMask()) | ((v & r.mask()) << r.shift());
+	}
+
 	@Override
 	public boolean isSet(final RFlags f) {
-		return (rflags & (1L << f.bit())) != 0L;
+		if (flagsPending) {
+			// The conditional jumps need only these, which are cheaper to compute than the whole RFLAGS
+			switch (f) {
+				case ZERO -> {
+					return flagsResult == 0L;
+				}
+				case SIGN -> {
+					return flagsResult < 0L;
+				}
+				case CARRY -> {
+					return flagsCarry;
+				}
+				case OVERFLOW -> {
+					return flagsOverflow;
+				}
+				default -> {}
+			}
+		}
+		return (rflags() & (1L << f.bit())) != 0L;
 	}
 
 	@Override
 	public void set(final RFlags f, final boolean v) {
+		rflags();
 		if (v) {
 			set(f);
 		} else {
@@ -291,9 +368,43 @@ public final class X86RegisterFile implements RegisterFile {
 
 	@Override
 	public void resetFlags() {
+		flagsPending = false;
 		rflags = RFlags.defaultValue();
 	}
 
+	@Override
+	public void setArithmeticFlags(final long result, final boolean carry, final boolean overflow) {
+		flagsPending = true;
+		flagsResult = result;
+		flagsCarry = carry;
+		flagsOverflow = overflow;
+	}
+
+	/** Returns RFLAGS, computing the pending arithmetic flags first. */
+	private long rflags() {
+		if (flagsPending) {
+			long f = rflags & ~ARITHMETIC_FLAGS;
+			if (flagsResult == 0L) {
+				f |= 1L << RFlags.ZERO.bit();
+			}
+			if ((Long.bitCount(flagsResult) % 2) == 0) {
+				f |= 1L << RFlags.PARITY.bit();
+			}
+			if (flagsResult < 0L) {
+				f |= 1L << RFlags.SIGN.bit();
+			}
+			if (flagsCarry) {
+				f |= 1L << RFlags.CARRY.bit();
+			}
+			if (flagsOverflow) {
+				f |= 1L << RFlags.OVERFLOW.bit();
+			}
+			rflags = f;
+			flagsPending = false;
+		}
+		return rflags;
+	}
+
 	private void set(final RFlags f) {
 		rflags |= 1L << f.bit();
 	}
@@ -302,6 +413,105 @@ public final class X86RegisterFile implements RegisterFile {
 		rflags &= ~(1L << f.bit());
 	}
 
+	/**
+	 * Returns the general-purpose register with the given index, in the order RAX, RBX, RCX, RDX, RSP, RBP, RSI, RDI,
+	 * R8, ..., R15.
+	 *
+	 * @param idx The index of the register.
+	 * @return The value of the register.
+	 */
+	long getGpr(final int idx) {
+		return gpr[idx];
+	}
+
+	/**
+	 * Sets the general-purpose register with the given index, in the same order as {@link #getGpr(int)}.
+	 *
+	 * @param idx The index of the register.
+	 * @param v The new value of the register.
+	 */
+	void setGpr(final int idx, final long v) {
+		gpr[idx] = v;
+	}
+
+	/**
+	 * Returns the whole RFLAGS register.
+	 *
+	 * @return The value of RFLAGS.
+	 */
+	long getRFlags() {
+		return rflags();
+	}
+
+	/**
+	 * Sets the whole RFLAGS register.
+	 *
+	 * @param v The new value of RFLAGS.
+	 */
+	void setRFlags(final long v) {
+		flagsPending = false;
+		rflags = v;
+	}
+
+	private static int vectorIndex(final int register, final int lane) {
+		return Objects.checkIndex(register, NUM_VECTOR_REGISTERS) * VECTOR_LANES
+				+ Objects.checkIndex(lane, VECTOR_LANES);
+	}
+
+	@Override
+	public long getVectorLane(final int register, final int lane) {
+		return vec[vectorIndex(register, lane)];
+	}
+
+	@Override
+	public void setVectorLane(final int register, final int lane, final long v) {
+		vec[vectorIndex(register, lane)] = v;
+	}
+
+	/**
+	 * Sets the instruction pointer.
+	 *
+	 * @param v The new value of RIP.
+	 */
+	void setRip(final long v) {
+		gpr[RIP] = v;
+	}
+
+	/**
+	 * Copies every register into the given array, in the slot order used by execution traces: the 16 general-purpose
+	 * registers, RIP, RFLAGS, the 6 segment registers (zero-extended), the FS and GS bases and the vector lanes.
+	 *
+	 * @param dst The array to be filled, at least {@link TraceFormat#TOTAL_SLOTS} long.
+	 */
+	void copyTo(final long[] dst) {
+		System.arraycopy(gpr, 0, dst, 0, 16);
+		dst[TraceFormat.RIP_SLOT] = gpr[RIP];
+		dst[TraceFormat.RFLAGS_SLOT] = rflags();
+		for (int i = 0; i < seg.length; i++) {
+			dst[TraceFormat.FIRST_SEGMENT_SLOT + i] = BitUtils.asLong(seg[i]);
+		}
+		dst[TraceFormat.FS_BASE_SLOT] = fsBase;
+		dst[TraceFormat.GS_BASE_SLOT] = gsBase;
+		System.arraycopy(vec, 0, dst, TraceFormat.FIRST_VECTOR_SLOT, vec.length);
+	}
+
+	/**
+	 * Overwrites every register with the values in the given array, laid out as in {@link #copyTo(long[])}.
+	 *
+	 * @param src The values to be copied.
+	 */
+	void copyFrom(final long[] src) {
+		System.arraycopy(src, 0, gpr, 0, 16);
+		gpr[RIP] = src[TraceFormat.RIP_SLOT];
+		setRFlags(src[TraceFormat.RFLAGS_SLOT]);
+		for (int i = 0; i < seg.length; i++) {
+			seg[i] = BitUtils.asShort(src[TraceFormat.FIRST_SEGMENT_SLOT + i]);
+		}
+		fsBase = src[TraceFormat.FS_BASE_SLOT];
+		gsBase = src[TraceFormat.GS_BASE_SLOT];
+		System.arraycopy(src, TraceFormat.FIRST_VECTOR_SLOT, vec, 0, vec.length);
+	}
+
 	@Override
 	public String toString() {
 		return "X86RegisterFile("
@@ -312,8 +522,9 @@ public final class X86RegisterFile implements RegisterFile {
 				+ Arrays.stream(SegmentRegister.values())
 						.map(r -> String.format("%s=0x%016x", r.name(), get(r)))
 						.collect(Collectors.joining(","))
+				+ String.format(",FS_BASE=0x%016x,GS_BASE=0x%016x", fsBase, gsBase)
 				+ ",RFLAGS="
-				+ String.format("0x%016x", rflags) + ")";
+				+ String.format("0x%016x", rflags()) + ")";
 	}
 
 	@Override
@@ -325,8 +536,10 @@ public final class X86RegisterFile implements RegisterFile {
 		for (final short s : seg) {
 			h = 31 * h + Short.hashCode(s);
 		}
-		h = 31 * h + Long.hashCode(rip);
-		h = 31 * h + Long.hashCode(rflags);
+		h = 31 * h + Long.hashCode(fsBase);
+		h = 31 * h + Long.hashCode(gsBase);
+		h = 31 * h + Arrays.hashCode(vec);
+		h = 31 * h + Long.hashCode(rflags());
 		return h;
 	}
 
@@ -343,7 +556,9 @@ public final class X86RegisterFile implements RegisterFile {
 		}
 		return Arrays.equals(this.gpr, regs.gpr)
 				&& Arrays.equals(this.seg, regs.seg)
-				&& this.rip == regs.rip
-				&& this.rflags == regs.rflags;
+				&& this.fsBase == regs.fsBase
+				&& this.gsBase == regs.gsBase
+				&& Arrays.equals(this.vec, regs.vec)
+				&& this.rflags() == regs.rflags();
 	}
 }
@@ -0,0 +1,258 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu.config;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import com.ledmington.mem.MemoryInitializer;
+
+/**
+ * The immutable configuration of a single emulator instance. Since nothing is shared between instances, differently
+ * configured emulators can run concurrently inside the same JVM.
+ */
+public final class EmulatorConfig {
+
+	private static final EmulatorConfig DEFAULT = builder().build();
+
+	private final Supplier<MemoryInitializer> memoryInitializer;
+	private final boolean breakOnWrongPermissions;
+	private final boolean breakWhenReadingUninitializedMemory;
+	private final long baseAddress;
+	private final long baseStackAddress;
+	private final long stackSize;
+	private final long baseStackValue;
+	private final boolean checkInstructions;
+	private final CPUConfig cpuConfig;
+	private final Path sysroot;
+	private final int jitThreshold;
+	private final boolean macroFusion;
+	private final Path translationCacheDirectory;
+
+	/**
+	 * Returns a new EmulatorConfigBuilder, whose parameters are initialized with the default values.
+	 *
+	 * @return A new EmulatorConfigBuilder.
+	 */
+	public static EmulatorConfigBuilder builder() {
+		return new EmulatorConfigBuilder();
+	}
+
+	/**
+	 * Returns the default configuration.
+	 *
+	 * @return The default configuration.
+	 */
+	public static EmulatorConfig getDefault() {
+		return DEFAULT;
+	}
+
+	// Only the builder can create instances
+	@SuppressWarnings("PMD.ExcessiveParameterList")
+	EmulatorConfig(
+			final Supplier<MemoryInitializer> memoryInitializer,
+			final boolean breakOnWrongPermissions,
+			final boolean breakWhenReadingUninitializedMemory,
+			final long baseAddress,
+			final long baseStackAddress,
+			final long stackSize,
+			final long baseStackValue,
+			final boolean checkInstructions,
+			final CPUConfig cpuConfig,
+			final Path sysroot,
+			final int jitThreshold,
+			final boolean macroFusion,
+			final Path translationCacheDirectory) {
+		this.memoryInitializer = Objects.requireNonNull(memoryInitializer);
+		this.breakOnWrongPermissions = breakOnWrongPermissions;
+		this.breakWhenReadingUninitializedMemory = breakWhenReadingUninitializedMemory;
+		this.baseAddress = baseAddress;
+		this.baseStackAddress = baseStackAddress;
+		this.stackSize = stackSize;
+		this.baseStackValue = baseStackValue;
+		this.checkInstructions = checkInstructions;
+		this.cpuConfig = Objects.requireNonNull(cpuConfig);
+		this.sysroot = Objects.requireNonNull(sysroot);
+		this.jitThreshold = jitThreshold;
+		this.macroFusion = macroFusion;
+		this.translationCacheDirectory = translationCacheDirectory;
+	}
+
+	/**
+	 * Returns a new EmulatorConfigBuilder whose parameters are initialized with the ones of this configuration.
+	 *
+	 * @return A new EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder toBuilder() {
+		final EmulatorConfigBuilder b = new EmulatorConfigBuilder()
+				.memoryInitializer(memoryInitializer)
+				.breakOnWrongPermissions(breakOnWrongPermissions)
+				.breakWhenReadingUninitializedMemory(breakWhenReadingUninitializedMemory)
+				.baseAddress(baseAddress)
+				.baseStackAddress(baseStackAddress)
+				.stackSize(stackSize)
+				.baseStackValue(baseStackValue)
+				.checkInstructions(checkInstructions)
+				.cpuConfig(cpuConfig)
+				.sysroot(sysroot)
+				.jitThreshold(jitThreshold)
+				.macroFusion(macroFusion);
+		if (translationCacheDirectory != null) {
+			b.translationCacheDirectory(translationCacheDirectory);
+		}
+		return b;
+	}
+
+	/**
+	 * Returns a new memory initializer for a single emulated memory. Each call returns a different instance, so that
+	 * concurrent emulators never share a non-thread-safe random generator.
+	 *
+	 * @return A new {@link MemoryInitializer}.
+	 */
+	public MemoryInitializer newMemoryInitializer() {
+		return Objects.requireNonNull(memoryInitializer.get());
+	}
+
+	/**
+	 * Indicates whether the emulator should break when memory access permissions are violated.
+	 *
+	 * @return {@code true} if the emulator should break on wrong permissions, {@code false} otherwise.
+	 */
+	public boolean shouldBreakOnWrongPermissions() {
+		return breakOnWrongPermissions;
+	}
+
+	/**
+	 * Indicates whether the emulator should break when attempting to read uninitialized memory.
+	 *
+	 * @return {@code true} if the emulator should break when reading uninitialized memory, {@code false} otherwise.
+	 */
+	public boolean shouldBreakWhenReadingUninitializedMemory() {
+		return breakWhenReadingUninitializedMemory;
+	}
+
+	/**
+	 * Returns the base address where the emulator loads executable files.
+	 *
+	 * @return The base address.
+	 */
+	public long getBaseAddress() {
+		return baseAddress;
+	}
+
+	/**
+	 * Returns the base stack address used by the emulator.
+	 *
+	 * @return The base stack address.
+	 */
+	public long getBaseStackAddress() {
+		return baseStackAddress;
+	}
+
+	/**
+	 * Returns the stack size used by the emulator.
+	 *
+	 * @return The stack size in bytes.
+	 */
+	public long getStackSize() {
+		return stackSize;
+	}
+
+	/**
+	 * Returns the value placed at the base of the stack.
+	 *
+	 * @return The base stack value.
+	 */
+	public long getBaseStackValue() {
+		return baseStackValue;
+	}
+
+	/**
+	 * Indicates whether the emulator should perform instruction validation checks.
+	 *
+	 * @return {@code true} if instruction checks are enabled; {@code false} otherwise.
+	 */
+	public boolean shouldCheckInstructions() {
+		return checkInstructions;
+	}
+
+	/**
+	 * Returns the configuration of the emulated CPU, used to answer CPUID.
+	 *
+	 * @return The CPU configuration.
+	 */
+	public CPUConfig getCPUConfig() {
+		return cpuConfig;
+	}
+
+	/**
+	 * Returns the directory where the shared libraries needed by dynamically-linked programs are looked for.
+	 *
+	 * @return The root of the library search paths.
+	 */
+	public Path getSysroot() {
+		return sysroot;
+	}
+
+	/**
+	 * Returns the number of times a block of code must be executed before being compiled. A value of 0 means that the
+	 * compiler is disabled.
+	 *
+	 * @return The compilation threshold.
+	 */
+	public int getJitThreshold() {
+		return jitThreshold;
+	}
+
+	/**
+	 * Indicates whether common pairs of instructions (like CMP followed by a conditional jump) are executed as single
+	 * superinstructions.
+	 *
+	 * @return {@code true} if macro-fusion is enabled; {@code false} otherwise.
+	 */
+	public boolean shouldFuseInstructions() {
+		return macroFusion;
+	}
+
+	/**
+	 * Returns the directory where the blocks of the executables translated ahead of time are persisted, if any.
+	 *
+	 * @return The directory of the translation caches, or an empty Optional if they are disabled.
+	 */
+	public Optional<Path> getTranslationCacheDirectory() {
+		return Optional.ofNullable(translationCacheDirectory);
+	}
+
+	@Override
+	public String toString() {
+		return "EmulatorConfig(breakOnWrongPermissions=" + breakOnWrongPermissions
+				+ ";breakWhenReadingUninitializedMemory=" + breakWhenReadingUninitializedMemory
+				+ ";baseAddress=" + String.format("0x%x", baseAddress)
+				+ ";baseStackAddress=" + String.format("0x%x", baseStackAddress)
+				+ ";stackSize=" + stackSize
+				+ ";baseStackValue=" + String.format("0x%x", baseStackValue)
+				+ ";checkInstructions=" + checkInstructions
+				+ ";sysroot=" + sysroot
+				+ ";jitThreshold=" + jitThreshold
+				+ ";macroFusion=" + macroFusion
+				+ ";translationCacheDirectory=" + translationCacheDirectory
+				+ ")";
+	}
+}
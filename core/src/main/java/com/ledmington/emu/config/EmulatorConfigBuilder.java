@@ -0,0 +1,246 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu.config;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import com.ledmington.mem.MemoryInitializer;
+
+/** A builder class for the {@link EmulatorConfig}. */
+public final class EmulatorConfigBuilder {
+
+	private boolean alreadyBuilt = false;
+	private Supplier<MemoryInitializer> memoryInitializer = MemoryInitializer::random;
+	private boolean breakOnWrongPermissions = true;
+	private boolean breakWhenReadingUninitializedMemory = true;
+	private long baseAddress = 0L; // This is the value gdb uses, why?
+	private long baseStackAddress = 0x0000_7fff_ffff_dc50L; // This is the value gdb uses, why?
+	private long stackSize = 8L * 1024L * 1024L;
+	// TODO: do we actually need this?
+	private long baseStackValue = 0L; // This is the value gdb uses, why?
+	private boolean checkInstructions = true;
+	private CPUConfig cpuConfig = CPUConfig.GENERIC_INTEL;
+	private Path sysroot = Path.of("/");
+	private int jitThreshold = 1000;
+	private boolean macroFusion = true;
+	private Path translationCacheDirectory = null;
+
+	/** Creates a new EmulatorConfigBuilder with default parameters. */
+	public EmulatorConfigBuilder() {}
+
+	private void assertNotAlreadyBuilt() {
+		if (alreadyBuilt) {
+			throw new IllegalStateException("This instance of EmulatorConfigBuilder has already been used.");
+		}
+	}
+
+	/**
+	 * Sets the factory of the memory initializers. It is called once for each emulated memory.
+	 *
+	 * @param memoryInitializer The factory of memory initializers.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder memoryInitializer(final Supplier<MemoryInitializer> memoryInitializer) {
+		assertNotAlreadyBuilt();
+		this.memoryInitializer = Objects.requireNonNull(memoryInitializer);
+		return this;
+	}
+
+	/**
+	 * Sets whether the emulator should break when memory access permissions are violated.
+	 *
+	 * @param b {@code true} to enable breaking on permission violations; {@code false} to disable.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder breakOnWrongPermissions(final boolean b) {
+		assertNotAlreadyBuilt();
+		this.breakOnWrongPermissions = b;
+		return this;
+	}
+
+	/**
+	 * Sets whether the emulator should break when attempting to read uninitialized memory.
+	 *
+	 * @param b {@code true} to enable breaking when reading uninitialized memory; {@code false} to disable.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder breakWhenReadingUninitializedMemory(final boolean b) {
+		assertNotAlreadyBuilt();
+		this.breakWhenReadingUninitializedMemory = b;
+		return this;
+	}
+
+	/**
+	 * Sets the base address where the emulator loads executable files.
+	 *
+	 * @param baseAddress The new base address.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder baseAddress(final long baseAddress) {
+		assertNotAlreadyBuilt();
+		this.baseAddress = baseAddress;
+		return this;
+	}
+
+	/**
+	 * Sets the base stack address used by the emulator.
+	 *
+	 * @param baseStackAddress The new base stack address.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder baseStackAddress(final long baseStackAddress) {
+		assertNotAlreadyBuilt();
+		this.baseStackAddress = baseStackAddress;
+		return this;
+	}
+
+	/**
+	 * Sets the stack size used by the emulator.
+	 *
+	 * @param stackSize The new stack size in bytes.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder stackSize(final long stackSize) {
+		assertNotAlreadyBuilt();
+		final long minStackSize = 1L;
+		if (stackSize < minStackSize) {
+			throw new IllegalArgumentException(String.format("Invalid stack size: %,d B.", stackSize));
+		}
+		this.stackSize = stackSize;
+		return this;
+	}
+
+	/**
+	 * Sets the value to be placed at the base of the stack.
+	 *
+	 * @param baseStackValue The new base stack value.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder baseStackValue(final long baseStackValue) {
+		assertNotAlreadyBuilt();
+		this.baseStackValue = baseStackValue;
+		return this;
+	}
+
+	/**
+	 * Sets whether the emulator should perform instruction validation checks.
+	 *
+	 * @param b {@code true} to enable instruction checking; {@code false} to disable.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder checkInstructions(final boolean b) {
+		assertNotAlreadyBuilt();
+		this.checkInstructions = b;
+		return this;
+	}
+
+	/**
+	 * Sets the configuration of the emulated CPU.
+	 *
+	 * @param cpuConfig The CPU configuration.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder cpuConfig(final CPUConfig cpuConfig) {
+		assertNotAlreadyBuilt();
+		this.cpuConfig = Objects.requireNonNull(cpuConfig);
+		return this;
+	}
+
+	/**
+	 * Sets the directory where the shared libraries needed by dynamically-linked programs are looked for, as if it was
+	 * the root of the filesystem.
+	 *
+	 * @param sysroot The root of the library search paths.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder sysroot(final Path sysroot) {
+		assertNotAlreadyBuilt();
+		this.sysroot = Objects.requireNonNull(sysroot);
+		return this;
+	}
+
+	/**
+	 * Sets the number of times a block of code must be executed before being compiled to JVM bytecode. A value of 0
+	 * disables the compiler, so that every instruction is interpreted.
+	 *
+	 * @param jitThreshold The compilation threshold.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder jitThreshold(final int jitThreshold) {
+		assertNotAlreadyBuilt();
+		if (jitThreshold < 0) {
+			throw new IllegalArgumentException(String.format("Invalid JIT threshold: %,d.", jitThreshold));
+		}
+		this.jitThreshold = jitThreshold;
+		return this;
+	}
+
+	/**
+	 * Enables or disables the execution of common pairs of instructions (like CMP followed by a conditional jump) as
+	 * single superinstructions. Enabled by default.
+	 *
+	 * @param macroFusion True to fuse pairs of instructions.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder macroFusion(final boolean macroFusion) {
+		assertNotAlreadyBuilt();
+		this.macroFusion = macroFusion;
+		return this;
+	}
+
+	/**
+	 * Sets the directory where the blocks of the executables are translated ahead of time and persisted, so that later
+	 * runs of the same executable skip warm-up. By default, nothing is persisted.
+	 *
+	 * @param translationCacheDirectory The directory of the translation caches.
+	 * @return This instance of EmulatorConfigBuilder.
+	 */
+	public EmulatorConfigBuilder translationCacheDirectory(final Path translationCacheDirectory) {
+		assertNotAlreadyBuilt();
+		this.translationCacheDirectory = Objects.requireNonNull(translationCacheDirectory);
+		return this;
+	}
+
+	/**
+	 * Creates a new EmulatorConfig with the given parameters.
+	 *
+	 * @return A new EmulatorConfig.
+	 */
+	public EmulatorConfig build() {
+		if (alreadyBuilt) {
+			throw new IllegalStateException("Cannot build the same EmulatorConfigBuilder twice.");
+		}
+		alreadyBuilt = true;
+		return new EmulatorConfig(
+				memoryInitializer,
+				breakOnWrongPermissions,
+				breakWhenReadingUninitializedMemory,
+				baseAddress,
+				baseStackAddress,
+				stackSize,
+				baseStackValue,
+				checkInstructions,
+				cpuConfig,
+				sysroot,
+				jitThreshold,
+				macroFusion,
+				translationCacheDirectory);
+	}
+}
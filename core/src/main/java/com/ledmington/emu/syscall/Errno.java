@@ -0,0 +1,91 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu.syscall;
+
+/** The Linux error codes returned by the emulated system calls. */
+public enum Errno {
+
+	/** Operation not permitted. */
+	EPERM(1),
+
+	/** No such file or directory. */
+	ENOENT(2),
+
+	/** Input/output error. */
+	EIO(5),
+
+	/** Bad file descriptor. */
+	EBADF(9),
+
+	/** Resource temporarily unavailable. */
+	EAGAIN(11),
+
+	/** Cannot allocate memory. */
+	ENOMEM(12),
+
+	/** Permission denied. */
+	EACCES(13),
+
+	/** Bad address. */
+	EFAULT(14),
+
+	/** File exists. */
+	EEXIST(17),
+
+	/** Not a directory. */
+	ENOTDIR(20),
+
+	/** Is a directory. */
+	EISDIR(21),
+
+	/** Invalid argument. */
+	EINVAL(22),
+
+	/** Inappropriate ioctl for device. */
+	ENOTTY(25),
+
+	/** Illegal seek. */
+	ESPIPE(29),
+
+	/** Function not implemented. */
+	ENOSYS(38);
+
+	private final int code;
+
+	Errno(final int code) {
+		this.code = code;
+	}
+
+	/**
+	 * Returns the positive code of this error.
+	 *
+	 * @return The error code.
+	 */
+	public int code() {
+		return code;
+	}
+
+	/**
+	 * Returns the value a system call returns in RAX to report this error.
+	 *
+	 * @return The negated error code.
+	 */
+	public long asReturnValue() {
+		return -code;
+	}
+}
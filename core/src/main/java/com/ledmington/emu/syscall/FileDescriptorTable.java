@@ -0,0 +1,137 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu.syscall;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.channels.Channel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** The open files of an emulated process, indexed by file descriptor. It is safe to share between threads. */
+final class FileDescriptorTable {
+
+	/**
+	 * An open file.
+	 *
+	 * @param channel The channel to read from or write to, or null for a directory.
+	 * @param path The path of the file, or null if it is not a file on disk (like the standard streams).
+	 * @param flushable What to flush after each write, or null.
+	 */
+	record OpenFile(Channel channel, Path path, Flushable flushable) {}
+
+	private final Lock lock = new ReentrantLock();
+	private final Map<Integer, OpenFile> files = new HashMap<>();
+
+	/**
+	 * Returns the file with the given descriptor.
+	 *
+	 * @param fd The file descriptor.
+	 * @return The open file, or null if there is none.
+	 */
+	OpenFile get(final long fd) {
+		if (fd < 0L || fd > Integer.MAX_VALUE) {
+			return null;
+		}
+		lock.lock();
+		try {
+			return files.get((int) fd);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Places the given file at the given descriptor, replacing the previous one (if any) without closing it.
+	 *
+	 * @param fd The file descriptor.
+	 * @param file The open file.
+	 */
+	void set(final int fd, final OpenFile file) {
+		Objects.requireNonNull(file);
+		lock.lock();
+		try {
+			files.put(fd, file);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Places the given file at the lowest free descriptor, as POSIX requires.
+	 *
+	 * @param file The open file.
+	 * @return The new file descriptor.
+	 */
+	int add(final OpenFile file) {
+		Objects.requireNonNull(file);
+		lock.lock();
+		try {
+			int fd = 0;
+			while (files.containsKey(fd)) {
+				fd++;
+			}
+			files.put(fd, file);
+			return fd;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the file with the given descriptor.
+	 *
+	 * @param fd The file descriptor.
+	 * @return True if the descriptor was open.
+	 * @throws IOException If closing the underlying channel fails.
+	 */
+	boolean close(final long fd) throws IOException {
+		if (fd < 0L || fd > Integer.MAX_VALUE) {
+			return false;
+		}
+		final OpenFile file;
+		lock.lock();
+		try {
+			file = files.remove((int) fd);
+		} finally {
+			lock.unlock();
+		}
+		if (file == null) {
+			return false;
+		}
+		if (file.channel() != null && file.path() != null) {
+			// The standard streams belong to the host
+			file.channel().close();
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		lock.lock();
+		try {
+			return "FileDescriptorTable(files=" + files + ")";
+		} finally {
+			lock.unlock();
+		}
+	}
+}
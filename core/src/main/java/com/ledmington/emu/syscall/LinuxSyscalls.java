@@ -0,0 +1,695 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu.syscall;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.ledmington.emu.syscall.FileDescriptorTable.OpenFile;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.exc.IllegalMemoryAccessException;
+import com.ledmington.utils.MiniLogger;
+
+/**
+ * The Linux x86-64 system calls for file I/O, memory management and time. Data is moved between guest buffers and
+ * host files in blocks, through the bulk transfers of the memory and NIO channels. Guest paths are host paths: relative
+ * ones are resolved against the working directory given at construction.
+ *
+ * <p>Any handler can be replaced, or a new one added, through {@link #register(int, SyscallHandler)}. Instances are
+ * safe to share between the threads of the same process.
+ *
+ * <p>Useful reference: <a href="https://filippo.io/linux-syscall-table/">here</a>.
+ */
+@SuppressWarnings({"PMD.CouplingBetweenObjects", "PMD.TooManyMethods", "PMD.GodClass"})
+public final class LinuxSyscalls implements SyscallTable {
+
+	private static final MiniLogger logger = MiniLogger.getLogger("syscalls");
+
+	// System call numbers
+	private static final int SYS_READ = 0;
+	private static final int SYS_WRITE = 1;
+	private static final int SYS_OPEN = 2;
+	private static final int SYS_CLOSE = 3;
+	private static final int SYS_FSTAT = 5;
+	private static final int SYS_LSEEK = 8;
+	private static final int SYS_MMAP = 9;
+	private static final int SYS_MPROTECT = 10;
+	private static final int SYS_MUNMAP = 11;
+	private static final int SYS_BRK = 12;
+	private static final int SYS_MSYNC = 26;
+	private static final int SYS_IOCTL = 16;
+	private static final int SYS_GETPID = 39;
+	private static final int SYS_CLOCK_GETTIME = 228;
+	private static final int SYS_OPENAT = 257;
+	private static final int MAX_SYSCALLS = 512;
+
+	// Flags of open and openat
+	private static final int O_ACCMODE = 3;
+	private static final int O_WRONLY = 1;
+	private static final int O_RDWR = 2;
+	private static final int O_CREAT = 0x40;
+	private static final int O_EXCL = 0x80;
+	private static final int O_TRUNC = 0x200;
+	private static final int O_APPEND = 0x400;
+	private static final int O_DIRECTORY = 0x10000;
+	private static final long AT_FDCWD = -100L;
+
+	// Flags of mmap and mprotect
+	private static final long PROT_READ = 1L;
+	private static final long PROT_WRITE = 2L;
+	private static final long PROT_EXEC = 4L;
+	private static final long MAP_SHARED = 0x01L;
+	private static final long MAP_FIXED = 0x10L;
+	private static final long MAP_ANONYMOUS = 0x20L;
+
+	private static final long PAGE_SIZE = 4096L;
+	private static final int MAX_PATH_LENGTH = 4096;
+
+	/** The largest block moved at once between a guest buffer and a host channel. */
+	private static final int BLOCK_SIZE = 64 * 1024;
+
+	private static final int STAT_SIZE = 144;
+	private static final int S_IFCHR = 0x2000;
+	private static final int S_IFDIR = 0x4000;
+	private static final int S_IFREG = 0x8000;
+
+	/** The process ID, equal to the thread ID of the first thread. */
+	private static final long PID = 1L;
+
+	/** Where anonymous mappings are placed when the program does not choose an address. */
+	private static final long DEFAULT_MMAP_BASE = 0x0000_7000_0000_0000L;
+
+	/** The maximum size of the heap grown through brk. */
+	private static final long MAX_HEAP_SIZE = 1L << 30;
+
+	/**
+	 * Backs every anonymous mapping: being empty, its pages read as zeroes, and being mapped privately, a page is only
+	 * allocated when first written.
+	 */
+	private static final MemorySegment ZEROES = MemorySegment.ofArray(new byte[0]);
+
+	private final SyscallHandler[] handlers = new SyscallHandler[MAX_SYSCALLS];
+	private final FileDescriptorTable files = new FileDescriptorTable();
+	private final Path workingDirectory;
+
+	/** Guards the program break and the address of the next mapping. */
+	private final Lock memoryLock = new ReentrantLock();
+
+	private long initialBreak = 0L;
+	private long currentBreak = 0L;
+
+	/** The end of the pages mapped for the heap so far, aligned to a page. */
+	private long heapEnd = 0L;
+	private long nextMapping = DEFAULT_MMAP_BASE;
+
+	/**
+	 * Creates the system calls of a new process, whose standard streams are the given ones.
+	 *
+	 * @param stdin The standard input of the program.
+	 * @param stdout The standard output of the program.
+	 * @param stderr The standard error of the program.
+	 * @param workingDirectory The directory relative paths are resolved against.
+	 */
+	public LinuxSyscalls(
+			final InputStream stdin,
+			final OutputStream stdout,
+			final OutputStream stderr,
+			final Path workingDirectory) {
+		Objects.requireNonNull(stdin);
+		Objects.requireNonNull(stdout);
+		Objects.requireNonNull(stderr);
+		this.workingDirectory = workingDirectory.toAbsolutePath();
+		files.set(0, new OpenFile(Channels.newChannel(stdin), null, null));
+		files.set(1, new OpenFile(Channels.newChannel(stdout), null, stdout));
+		files.set(2, new OpenFile(Channels.newChannel(stderr), null, stderr));
+
+		register(SYS_READ, this::read);
+		register(SYS_WRITE, this::write);
+		register(SYS_OPEN, (mem, args) -> openat(mem, new long[] {AT_FDCWD, args[0], args[1], args[2]}));
+		register(SYS_CLOSE, (_, args) -> close(args[0]));
+		register(SYS_FSTAT, this::fstat);
+		register(SYS_LSEEK, (_, args) -> lseek(args[0], args[1], args[2]));
+		register(SYS_MMAP, this::mmap);
+		register(SYS_MPROTECT, this::mprotect);
+		register(SYS_MUNMAP, this::munmap);
+		register(SYS_BRK, (mem, args) -> brk(mem, args[0]));
+		// Shared mappings write straight into the page cache of the host
+		register(SYS_MSYNC, (_, _) -> 0L);
+		// No terminal is ever emulated, so that the C library fully buffers the standard output
+		register(SYS_IOCTL, (_, _) -> Errno.ENOTTY.asReturnValue());
+		register(SYS_GETPID, (_, _) -> PID);
+		register(SYS_CLOCK_GETTIME, this::clockGettime);
+		register(SYS_OPENAT, this::openat);
+	}
+
+	/** Creates the system calls of a new process using the standard streams of the host. */
+	public LinuxSyscalls() {
+		this(System.in, System.out, System.err, Path.of(""));
+	}
+
+	/**
+	 * Sets the handler of the given system call, replacing the previous one.
+	 *
+	 * @param number The number of the system call.
+	 * @param handler The new handler.
+	 */
+	public void register(final int number, final SyscallHandler handler) {
+		if (number < 0 || number >= MAX_SYSCALLS) {
+			throw new IllegalArgumentException(String.format("Invalid syscall number: %,d.", number));
+		}
+		handlers[number] = Objects.requireNonNull(handler);
+	}
+
+	@Override
+	public SyscallHandler get(final int number) {
+		return number < 0 || number >= MAX_SYSCALLS ? null : handlers[number];
+	}
+
+	/**
+	 * Sets the initial program break, which must be right after the data of the loaded program.
+	 *
+	 * @param address The initial program break.
+	 */
+	public void setProgramBreak(final long address) {
+		memoryLock.lock();
+		try {
+			this.initialBreak = address;
+			this.currentBreak = address;
+			this.heapEnd = alignToPage(address);
+		} finally {
+			memoryLock.unlock();
+		}
+	}
+
+	private static long alignToPage(final long address) {
+		return (address + PAGE_SIZE - 1L) & -PAGE_SIZE;
+	}
+
+	private long read(final MemoryController mem, final long[] args) {
+		final OpenFile file = files.get(args[0]);
+		if (file == null) {
+			return Errno.EBADF.asReturnValue();
+		}
+		if (!(file.channel() instanceof final ReadableByteChannel ch)) {
+			return file.channel() == null ? Errno.EISDIR.asReturnValue() : Errno.EBADF.asReturnValue();
+		}
+		final long address = args[1];
+		final long count = args[2];
+		final byte[] block = new byte[(int) Math.min(count, BLOCK_SIZE)];
+		long total = 0L;
+		try {
+			while (total < count) {
+				final int n = ch.read(ByteBuffer.wrap(block, 0, (int) Math.min(count - total, block.length)));
+				if (n <= 0) {
+					break;
+				}
+				mem.write(new MemoryAddress(address + total), block, 0, n);
+				total += n;
+				if (n < block.length) {
+					// Do not wait for more data than what is available now
+					break;
+				}
+			}
+		} catch (final IOException e) {
+			logger.warning("read failed: %s", e.getMessage());
+			return total > 0L ? total : Errno.EIO.asReturnValue();
+		} catch (final IllegalMemoryAccessException e) {
+			return total > 0L ? total : Errno.EFAULT.asReturnValue();
+		}
+		return total;
+	}
+
+	private long write(final MemoryController mem, final long[] args) {
+		final OpenFile file = files.get(args[0]);
+		if (file == null || !(file.channel() instanceof final WritableByteChannel ch)) {
+			return Errno.EBADF.asReturnValue();
+		}
+		final long address = args[1];
+		final long count = args[2];
+		final byte[] block = new byte[(int) Math.min(count, BLOCK_SIZE)];
+		long total = 0L;
+		try {
+			while (total < count) {
+				final int n = (int) Math.min(count - total, block.length);
+				mem.read(new MemoryAddress(address + total), block, 0, n);
+				final ByteBuffer bb = ByteBuffer.wrap(block, 0, n);
+				while (bb.hasRemaining()) {
+					ch.write(bb);
+				}
+				total += n;
+			}
+			if (file.flushable() != null) {
+				file.flushable().flush();
+			}
+		} catch (final IOException e) {
+			logger.warning("write failed: %s", e.getMessage());
+			return total > 0L ? total : Errno.EIO.asReturnValue();
+		} catch (final IllegalMemoryAccessException e) {
+			return total > 0L ? total : Errno.EFAULT.asReturnValue();
+		}
+		return total;
+	}
+
+	/** Reads a NUL-terminated string from the guest memory. */
+	private static String readString(final MemoryController mem, final long address) {
+		final byte[] bytes = new byte[MAX_PATH_LENGTH];
+		int length = 0;
+		while (length < bytes.length) {
+			final byte b = mem.read(new MemoryAddress(address + length));
+			if (b == 0) {
+				break;
+			}
+			bytes[length++] = b;
+		}
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private long openat(final MemoryController mem, final long[] args) {
+		final int flags = (int) args[2];
+		final Path path;
+		try {
+			final Path p = Path.of(readString(mem, args[1]));
+			if (p.isAbsolute()) {
+				path = p;
+			} else if (args[0] == AT_FDCWD) {
+				path = workingDirectory.resolve(p);
+			} else {
+				final OpenFile dir = files.get(args[0]);
+				if (dir == null) {
+					return Errno.EBADF.asReturnValue();
+				}
+				if (dir.path() == null || dir.channel() != null) {
+					return Errno.ENOTDIR.asReturnValue();
+				}
+				path = dir.path().resolve(p);
+			}
+		} catch (final IllegalMemoryAccessException e) {
+			return Errno.EFAULT.asReturnValue();
+		} catch (final InvalidPathException e) {
+			return Errno.ENOENT.asReturnValue();
+		}
+
+		if (Files.isDirectory(path)) {
+			if ((flags & O_ACCMODE) != 0) {
+				return Errno.EISDIR.asReturnValue();
+			}
+			return files.add(new OpenFile(null, path, null));
+		}
+		if ((flags & O_DIRECTORY) != 0) {
+			return Files.exists(path) ? Errno.ENOTDIR.asReturnValue() : Errno.ENOENT.asReturnValue();
+		}
+
+		try {
+			final FileChannel ch = FileChannel.open(path, openOptions(flags));
+			return files.add(new OpenFile(ch, path, null));
+		} catch (final NoSuchFileException e) {
+			return Errno.ENOENT.asReturnValue();
+		} catch (final FileAlreadyExistsException e) {
+			return Errno.EEXIST.asReturnValue();
+		} catch (final AccessDeniedException e) {
+			return Errno.EACCES.asReturnValue();
+		} catch (final NotDirectoryException e) {
+			return Errno.ENOTDIR.asReturnValue();
+		} catch (final IOException e) {
+			logger.warning("openat '%s' failed: %s", path, e.getMessage());
+			return Errno.EIO.asReturnValue();
+		}
+	}
+
+	private static Set<OpenOption> openOptions(final int flags) {
+		final Set<OpenOption> options = new HashSet<>();
+		switch (flags & O_ACCMODE) {
+			case O_WRONLY -> options.add(StandardOpenOption.WRITE);
+			case O_RDWR -> {
+				options.add(StandardOpenOption.READ);
+				options.add(StandardOpenOption.WRITE);
+			}
+			default -> options.add(StandardOpenOption.READ);
+		}
+		if ((flags & O_CREAT) != 0) {
+			options.add((flags & O_EXCL) != 0 ? StandardOpenOption.CREATE_NEW : StandardOpenOption.CREATE);
+		}
+		if ((flags & O_TRUNC) != 0 && (flags & O_ACCMODE) != 0) {
+			options.add(StandardOpenOption.TRUNCATE_EXISTING);
+		}
+		if ((flags & O_APPEND) != 0) {
+			options.add(StandardOpenOption.APPEND);
+		}
+		return options;
+	}
+
+	private long close(final long fd) {
+		try {
+			return files.close(fd) ? 0L : Errno.EBADF.asReturnValue();
+		} catch (final IOException e) {
+			return Errno.EIO.asReturnValue();
+		}
+	}
+
+	private long lseek(final long fd, final long offset, final long whence) {
+		final OpenFile file = files.get(fd);
+		if (file == null) {
+			return Errno.EBADF.asReturnValue();
+		}
+		if (!(file.channel() instanceof final SeekableByteChannel ch)) {
+			return Errno.ESPIPE.asReturnValue();
+		}
+		try {
+			final long base =
+					switch ((int) whence) {
+						case 0 -> 0L;
+						case 1 -> ch.position();
+						case 2 -> ch.size();
+						default -> -1L;
+					};
+			if (base < 0L || base + offset < 0L) {
+				return Errno.EINVAL.asReturnValue();
+			}
+			ch.position(base + offset);
+			return base + offset;
+		} catch (final IOException e) {
+			return Errno.EIO.asReturnValue();
+		}
+	}
+
+	private long fstat(final MemoryController mem, final long[] args) {
+		final OpenFile file = files.get(args[0]);
+		if (file == null) {
+			return Errno.EBADF.asReturnValue();
+		}
+		final ByteBuffer stat = ByteBuffer.allocate(STAT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		if (file.path() == null) {
+			// A character device, like a terminal
+			stat.putLong(16, 1L);
+			stat.putInt(24, S_IFCHR | 0620);
+			stat.putLong(56, PAGE_SIZE);
+		} else {
+			try {
+				fillStat(stat, file.path());
+			} catch (final IOException e) {
+				return Errno.EIO.asReturnValue();
+			}
+		}
+		try {
+			mem.write(new MemoryAddress(args[1]), stat.array());
+		} catch (final IllegalMemoryAccessException e) {
+			return Errno.EFAULT.asReturnValue();
+		}
+		return 0L;
+	}
+
+	/** Fills a {@code struct stat} with the attributes of the given file. */
+	private static void fillStat(final ByteBuffer stat, final Path path) throws IOException {
+		final BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		int mode = (attrs.isDirectory() ? S_IFDIR | 0755 : S_IFREG | 0644);
+		long nlink = 1L;
+		try {
+			// Only available on POSIX hosts
+			final Map<String, Object> unix = Files.readAttributes(path, "unix:dev,ino,mode,nlink,uid,gid");
+			stat.putLong(0, ((Number) unix.get("dev")).longValue());
+			stat.putLong(8, ((Number) unix.get("ino")).longValue());
+			mode = ((Number) unix.get("mode")).intValue();
+			nlink = ((Number) unix.get("nlink")).longValue();
+			stat.putInt(28, ((Number) unix.get("uid")).intValue());
+			stat.putInt(32, ((Number) unix.get("gid")).intValue());
+		} catch (final UnsupportedOperationException | IllegalArgumentException e) {
+			logger.debug("No POSIX attributes for '%s'", path);
+		}
+		stat.putLong(16, nlink);
+		stat.putInt(24, mode);
+		stat.putLong(48, attrs.size());
+		stat.putLong(56, PAGE_SIZE);
+		stat.putLong(64, (attrs.size() + 511L) / 512L);
+		putTime(stat, 72, attrs.lastAccessTime().toInstant());
+		putTime(stat, 88, attrs.lastModifiedTime().toInstant());
+		putTime(stat, 104, attrs.lastModifiedTime().toInstant());
+	}
+
+	private static void putTime(final ByteBuffer bb, final int index, final Instant t) {
+		bb.putLong(index, t.getEpochSecond());
+		bb.putLong(index + 8, t.getNano());
+	}
+
+	private long mmap(final MemoryController mem, final long[] args) {
+		final long address = args[0];
+		final long length = args[1];
+		final long prot = args[2];
+		final long flags = args[3];
+		final long offset = args[5];
+		if (length <= 0L || (offset & (PAGE_SIZE - 1L)) != 0L) {
+			return Errno.EINVAL.asReturnValue();
+		}
+		final long size = alignToPage(length);
+
+		final OpenFile file;
+		if ((flags & MAP_ANONYMOUS) == 0L) {
+			file = files.get(args[4]);
+			if (file == null) {
+				return Errno.EBADF.asReturnValue();
+			}
+			if (!(file.channel() instanceof FileChannel)) {
+				return Errno.EACCES.asReturnValue();
+			}
+		} else {
+			file = null;
+		}
+
+		final long start;
+		memoryLock.lock();
+		try {
+			if ((flags & MAP_FIXED) != 0L) {
+				if ((address & (PAGE_SIZE - 1L)) != 0L) {
+					return Errno.EINVAL.asReturnValue();
+				}
+				start = address;
+			} else {
+				start = nextMapping;
+				nextMapping += size;
+			}
+		} finally {
+			memoryLock.unlock();
+		}
+
+		if (file == null) {
+			// A fixed mapping may replace a previous one
+			mem.unmap(new MemoryAddress(start), size);
+			mapAnonymous(mem, start, size);
+		} else {
+			// Writes to a read-only shared mapping are forbidden anyway, so it can be mapped as a private one
+			final boolean shared = (flags & MAP_SHARED) != 0L && (prot & PROT_WRITE) != 0L;
+			final long result = mapFile(mem, (FileChannel) file.channel(), start, size, offset, shared);
+			if (result != 0L) {
+				return result;
+			}
+		}
+		setPermissions(mem, start, size, prot);
+		return start;
+	}
+
+	/** Maps the given page-aligned range as zeroes, without allocating it. */
+	private static void mapAnonymous(final MemoryController mem, final long address, final long size) {
+		try {
+			mem.map(new MemoryAddress(address), size, ZEROES, false);
+		} catch (final UnsupportedOperationException e) {
+			// The memory cannot map host segments: we fall back to filling the range
+			mem.initialize(new MemoryAddress(address), size, (byte) 0x00);
+		}
+	}
+
+	/**
+	 * Maps the given range of a file in memory, so that it is never copied on the heap. The pages past the end of the
+	 * file read as zeroes.
+	 */
+	private static long mapFile(
+			final MemoryController mem,
+			final FileChannel ch,
+			final long address,
+			final long size,
+			final long fileOffset,
+			final boolean shared) {
+		try {
+			final long available = Math.max(0L, Math.min(size, ch.size() - fileOffset));
+			final MemorySegment segment = ch.map(
+					shared ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+					fileOffset,
+					available,
+					Arena.ofAuto());
+			mem.map(new MemoryAddress(address), size, segment, shared);
+		} catch (final NonReadableChannelException | NonWritableChannelException e) {
+			return Errno.EACCES.asReturnValue();
+		} catch (final UnsupportedOperationException e) {
+			// The memory cannot map host segments: we fall back to a copy
+			try {
+				mem.initialize(new MemoryAddress(address), size, (byte) 0x00);
+				copyFromFile(mem, ch, fileOffset, address, size);
+			} catch (final IOException ioe) {
+				logger.warning("mmap failed: %s", ioe.getMessage());
+				return Errno.EIO.asReturnValue();
+			}
+		} catch (final IOException e) {
+			logger.warning("mmap failed: %s", e.getMessage());
+			return Errno.EIO.asReturnValue();
+		}
+		return 0L;
+	}
+
+	/** Copies the given range of a file into memory, without changing the position of the channel. */
+	private static void copyFromFile(
+			final MemoryController mem,
+			final FileChannel ch,
+			final long fileOffset,
+			final long address,
+			final long length)
+			throws IOException {
+		final byte[] block = new byte[(int) Math.min(length, BLOCK_SIZE)];
+		long done = 0L;
+		while (done < length) {
+			final int n = ch.read(
+					ByteBuffer.wrap(block, 0, (int) Math.min(length - done, block.length)), fileOffset + done);
+			if (n <= 0) {
+				// The rest of the mapping past the end of the file stays zeroed
+				break;
+			}
+			mem.initialize(new MemoryAddress(address + done), n == block.length ? block : trim(block, n));
+			done += n;
+		}
+	}
+
+	private static byte[] trim(final byte[] block, final int length) {
+		final byte[] tmp = new byte[length];
+		System.arraycopy(block, 0, tmp, 0, length);
+		return tmp;
+	}
+
+	private static void setPermissions(
+			final MemoryController mem, final long start, final long size, final long prot) {
+		mem.setPermissions(
+				new MemoryAddress(start),
+				size,
+				(prot & PROT_READ) != 0L,
+				(prot & PROT_WRITE) != 0L,
+				(prot & PROT_EXEC) != 0L);
+	}
+
+	private long mprotect(final MemoryController mem, final long[] args) {
+		if ((args[0] & (PAGE_SIZE - 1L)) != 0L || args[1] < 0L) {
+			return Errno.EINVAL.asReturnValue();
+		}
+		setPermissions(mem, args[0], alignToPage(args[1]), args[2]);
+		return 0L;
+	}
+
+	private long munmap(final MemoryController mem, final long[] args) {
+		if ((args[0] & (PAGE_SIZE - 1L)) != 0L || args[1] <= 0L) {
+			return Errno.EINVAL.asReturnValue();
+		}
+		mem.unmap(new MemoryAddress(args[0]), alignToPage(args[1]));
+		mem.setPermissions(new MemoryAddress(args[0]), alignToPage(args[1]), false, false, false);
+		return 0L;
+	}
+
+	private long brk(final MemoryController mem, final long address) {
+		memoryLock.lock();
+		try {
+			if (initialBreak == 0L || address < initialBreak || address - initialBreak > MAX_HEAP_SIZE) {
+				// Invalid requests (including brk(0)) just return the current break
+				return currentBreak;
+			}
+			if (address > currentBreak) {
+				// Only the tail of the last page, or a heap shrunk before, is already there and must be cleared
+				final long end = Math.min(address, heapEnd);
+				if (end > currentBreak) {
+					mem.initialize(new MemoryAddress(currentBreak), end - currentBreak, (byte) 0x00);
+				}
+				if (address > heapEnd) {
+					final long newEnd = alignToPage(address);
+					mapAnonymous(mem, heapEnd, newEnd - heapEnd);
+					heapEnd = newEnd;
+				}
+				mem.setPermissions(new MemoryAddress(currentBreak), address - currentBreak, true, true, false);
+			}
+			currentBreak = address;
+			return currentBreak;
+		} finally {
+			memoryLock.unlock();
+		}
+	}
+
+	private long clockGettime(final MemoryController mem, final long[] args) {
+		final long clockId = args[0];
+		final long seconds;
+		final long nanos;
+		if (clockId == 0L) {
+			// CLOCK_REALTIME
+			final Instant now = Instant.now();
+			seconds = now.getEpochSecond();
+			nanos = now.getNano();
+		} else if (clockId > 0L && clockId <= 11L) {
+			// Every other clock is treated as CLOCK_MONOTONIC
+			final long t = System.nanoTime();
+			seconds = TimeUnit.NANOSECONDS.toSeconds(t);
+			nanos = t - TimeUnit.SECONDS.toNanos(seconds);
+		} else {
+			return Errno.EINVAL.asReturnValue();
+		}
+		try {
+			mem.write(new MemoryAddress(args[1]), seconds);
+			mem.write(new MemoryAddress(args[1] + 8L), nanos);
+		} catch (final IllegalMemoryAccessException e) {
+			return Errno.EFAULT.asReturnValue();
+		}
+		return 0L;
+	}
+
+	@Override
+	public String toString() {
+		return "LinuxSyscalls(workingDirectory=" + workingDirectory + ";files=" + files + ")";
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu.syscall;
+
+import com.ledmington.mem.MemoryController;
+
+/** The implementation of a single system call. */
+@FunctionalInterface
+public interface SyscallHandler {
+
+	/**
+	 * Executes the system call.
+	 *
+	 * @param mem The memory of the calling process. Accesses to it are checked against the permissions of the guest.
+	 * @param args The six arguments of the system call, in the order RDI, RSI, RDX, R10, R8 and R9.
+	 * @return The value to be placed in RAX: the result, or a negated {@link Errno} code on failure.
+	 */
+	long handle(MemoryController mem, long[] args);
+}
@@ -0,0 +1,33 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu.syscall;
+
+/**
+ * The set of system calls available to an emulated program. Process and thread control (exit, exit_group, clone,
+ * futex and gettid) is handled by the CPU itself, since it needs to change its state.
+ */
+public interface SyscallTable {
+
+	/**
+	 * Returns the handler of the given system call.
+	 *
+	 * @param number The number of the system call, as found in RAX.
+	 * @return The handler, or null if the system call is not supported.
+	 */
+	SyscallHandler get(int number);
+}
@@ -126,6 +126,26 @@ public final class DebuggingX86RegisterFile implements RegisterFile {
 		return this.rf.get(r);
 	}
 
+	@Override
+	public long getSegmentBase(final SegmentRegister r) {
+		return this.rf.getSegmentBase(r);
+	}
+
+	@Override
+	public void setSegmentBase(final SegmentRegister r, final long base) {
+		this.rf.setSegmentBase(r, base);
+	}
+
+	@Override
+	public void setVectorLane(final int register, final int lane, final long v) {
+		this.rf.setVectorLane(register, lane, v);
+	}
+
+	@Override
+	public long getVectorLane(final int register, final int lane) {
+		return this.rf.getVectorLane(register, lane);
+	}
+
 	@Override
 	public boolean isSet(final RFlags f) {
 		return this.rf.isSet(f);
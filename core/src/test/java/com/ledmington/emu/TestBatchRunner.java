@@ -0,0 +1,258 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.emu.config.EmulatorConfig;
+import com.ledmington.mem.MemoryInitializer;
+
+final class TestBatchRunner {
+
+	private static final long LOAD_ADDRESS = 0x40_0000L;
+	private static final int CODE_OFFSET = 0x80;
+	private static final int SHSTRTAB_OFFSET = 0x90;
+	private static final int SHT_OFFSET = 0xa8;
+	private static final String SHSTRTAB = "\0.text\0.shstrtab\0";
+	private static final int DTOR_OFFSET = 0x90;
+	private static final int FINI_ARRAY_OFFSET = 0xa0;
+	private static final int DYNAMIC_OFFSET = 0xa8;
+	private static final int DTOR_SHSTRTAB_OFFSET = 0xc8;
+	private static final int DTOR_SHT_OFFSET = 0xf0;
+	private static final String DTOR_SHSTRTAB = "\0.text\0.shstrtab\0.fini_array\0.dynamic\0";
+
+	private final EmulatorConfig config = EmulatorConfig.builder()
+			.memoryInitializer(MemoryInitializer::zero)
+			.stackSize(64L * 1024L)
+			.build();
+	private final List<Path> files = new ArrayList<>();
+
+	/**
+	 * Builds the smallest static executable which exits with the given code: a single loadable segment containing
+	 * "mov edi,code ; mov eax,60 ; syscall" plus the .text and .shstrtab sections.
+	 */
+	private static byte[] exitProgram(final int exitCode) {
+		final ByteBuffer bb = ByteBuffer.allocate(SHT_OFFSET + 3 * 64).order(ByteOrder.LITTLE_ENDIAN);
+		final int codeLength = 12;
+
+		// File header
+		bb.put(new byte[] {0x7f, 'E', 'L', 'F', 2, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+		bb.putShort((short) 2) // ET_EXEC
+				.putShort((short) 0x3e) // x86-64
+				.putInt(1)
+				.putLong(LOAD_ADDRESS + CODE_OFFSET)
+				.putLong(0x40L)
+				.putLong(SHT_OFFSET)
+				.putInt(0)
+				.putShort((short) 64)
+				.putShort((short) 56)
+				.putShort((short) 1)
+				.putShort((short) 64)
+				.putShort((short) 3)
+				.putShort((short) 2);
+
+		// Program header: a single readable and executable PT_LOAD covering the whole file
+		bb.putInt(1).putInt(5).putLong(0L).putLong(LOAD_ADDRESS).putLong(LOAD_ADDRESS);
+		bb.putLong(bb.capacity()).putLong(bb.capacity()).putLong(0x1000L);
+
+		bb.position(CODE_OFFSET);
+		bb.put((byte) 0xbf).putInt(exitCode); // mov edi,exitCode
+		bb.put((byte) 0xb8).putInt(60); // mov eax,60
+		bb.put((byte) 0x0f).put((byte) 0x05); // syscall
+
+		bb.position(SHSTRTAB_OFFSET);
+		bb.put(SHSTRTAB.getBytes(StandardCharsets.US_ASCII));
+
+		// Section headers: NULL, .text and .shstrtab
+		bb.position(SHT_OFFSET + 64);
+		bb.putInt(1).putInt(1).putLong(6L).putLong(LOAD_ADDRESS + CODE_OFFSET).putLong(CODE_OFFSET);
+		bb.putLong(codeLength).putInt(0).putInt(0).putLong(16L).putLong(0L);
+		bb.putInt(7).putInt(3).putLong(0L).putLong(0L).putLong(SHSTRTAB_OFFSET);
+		bb.putLong(SHSTRTAB.length()).putInt(0).putInt(0).putLong(1L).putLong(0L);
+
+		return bb.array();
+	}
+
+	/**
+	 * Builds a static executable which exits with code 0 and has the given address as the only entry of its
+	 * .fini_array, whose size comes from the .dynamic section. The code at DTOR_OFFSET exits with the given code.
+	 */
+	private static byte[] programWithDestructor(final long destructor, final int destructorExitCode) {
+		final ByteBuffer bb = ByteBuffer.allocate(DTOR_SHT_OFFSET + 5 * 64).order(ByteOrder.LITTLE_ENDIAN);
+
+		// File header
+		bb.put(new byte[] {0x7f, 'E', 'L', 'F', 2, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+		bb.putShort((short) 2) // ET_EXEC
+				.putShort((short) 0x3e) // x86-64
+				.putInt(1)
+				.putLong(LOAD_ADDRESS + CODE_OFFSET)
+				.putLong(0x40L)
+				.putLong(DTOR_SHT_OFFSET)
+				.putInt(0)
+				.putShort((short) 64)
+				.putShort((short) 56)
+				.putShort((short) 1)
+				.putShort((short) 64)
+				.putShort((short) 5)
+				.putShort((short) 4);
+
+		// Program header: a single readable, writable and executable PT_LOAD covering the whole file
+		bb.putInt(1).putInt(7).putLong(0L).putLong(LOAD_ADDRESS).putLong(LOAD_ADDRESS);
+		bb.putLong(bb.capacity()).putLong(bb.capacity()).putLong(0x1000L);
+
+		bb.position(CODE_OFFSET);
+		bb.put((byte) 0xbf).putInt(0); // mov edi,0
+		bb.put((byte) 0xb8).putInt(60); // mov eax,60
+		bb.put((byte) 0x0f).put((byte) 0x05); // syscall
+
+		bb.position(DTOR_OFFSET);
+		bb.put((byte) 0xbf).putInt(destructorExitCode); // mov edi,destructorExitCode
+		bb.put((byte) 0xb8).putInt(60); // mov eax,60
+		bb.put((byte) 0x0f).put((byte) 0x05); // syscall
+
+		bb.position(FINI_ARRAY_OFFSET);
+		bb.putLong(destructor);
+
+		// DT_FINI_ARRAYSZ and DT_NULL
+		bb.position(DYNAMIC_OFFSET);
+		bb.putLong(28L).putLong(8L).putLong(0L).putLong(0L);
+
+		bb.position(DTOR_SHSTRTAB_OFFSET);
+		bb.put(DTOR_SHSTRTAB.getBytes(StandardCharsets.US_ASCII));
+
+		// Section headers: NULL, .text, .fini_array, .dynamic and .shstrtab
+		bb.position(DTOR_SHT_OFFSET + 64);
+		bb.putInt(1).putInt(1).putLong(6L).putLong(LOAD_ADDRESS + CODE_OFFSET).putLong(CODE_OFFSET);
+		bb.putLong(FINI_ARRAY_OFFSET - CODE_OFFSET).putInt(0).putInt(0).putLong(16L).putLong(0L);
+		bb.putInt(17).putInt(15).putLong(3L).putLong(LOAD_ADDRESS + FINI_ARRAY_OFFSET);
+		bb.putLong(FINI_ARRAY_OFFSET).putLong(8L).putInt(0).putInt(0).putLong(8L).putLong(8L);
+		bb.putInt(29).putInt(6).putLong(3L).putLong(LOAD_ADDRESS + DYNAMIC_OFFSET).putLong(DYNAMIC_OFFSET);
+		bb.putLong(32L).putInt(0).putInt(0).putLong(8L).putLong(16L);
+		bb.putInt(7).putInt(3).putLong(0L).putLong(0L).putLong(DTOR_SHSTRTAB_OFFSET);
+		bb.putLong(DTOR_SHSTRTAB.length()).putInt(0).putInt(0).putLong(1L).putLong(0L);
+
+		return bb.array();
+	}
+
+	private String writeProgram(final int exitCode) throws IOException {
+		return write(exitProgram(exitCode));
+	}
+
+	private String write(final byte[] program) throws IOException {
+		final Path p = Files.createTempFile("emu-batch-", ".x");
+		files.add(p);
+		Files.write(p, program);
+		return p.toString();
+	}
+
+	@BeforeEach
+	void setup() {
+		files.clear();
+	}
+
+	@AfterEach
+	void teardown() throws IOException {
+		for (final Path p : files) {
+			Files.deleteIfExists(p);
+		}
+	}
+
+	@Test
+	void invalidParameters() {
+		assertThrows(IllegalArgumentException.class, () -> new BatchRunner(config, 0, 1L));
+		assertThrows(IllegalArgumentException.class, () -> new BatchRunner(config, 1, -1L));
+	}
+
+	@Test
+	void runsManyProgramsConcurrently() throws IOException, InterruptedException {
+		final int numJobs = 64;
+		final List<BatchJob> jobs = new ArrayList<>(numJobs);
+		for (int i = 0; i < numJobs; i++) {
+			jobs.add(BatchJob.of(writeProgram(i)));
+		}
+
+		final List<BatchResult> results = new BatchRunner(config, 8, Long.MAX_VALUE).run(jobs);
+
+		assertEquals(numJobs, results.size());
+		for (int i = 0; i < numJobs; i++) {
+			final BatchResult r = results.get(i);
+			assertEquals(jobs.get(i), r.job());
+			assertEquals(StopReason.HALTED, r.reason(), () -> r.fault().toString());
+			assertEquals(i, r.exitCode());
+			assertEquals(3L, r.instructions());
+			assertEquals(i == 0, r.isSuccess());
+		}
+	}
+
+	@Test
+	void instructionBudget() throws IOException, InterruptedException {
+		final BatchResult r = new BatchRunner(config, 1, 2L)
+				.run(List.of(BatchJob.of(writeProgram(0))))
+				.getFirst();
+		assertEquals(StopReason.BUDGET_EXHAUSTED, r.reason());
+		assertEquals(2L, r.instructions());
+		assertFalse(r.isSuccess());
+	}
+
+	@Test
+	void missingFileIsAFault() throws InterruptedException {
+		final BatchResult r = new BatchRunner(config)
+				.run(List.of(BatchJob.of("this-file-does-not-exist.x")))
+				.getFirst();
+		assertEquals(StopReason.FAULT, r.reason());
+		assertTrue(r.fault().isPresent());
+		assertFalse(r.isSuccess());
+	}
+
+	@Test
+	void runsDestructors() throws IOException, InterruptedException {
+		final BatchResult r = new BatchRunner(config)
+				.run(List.of(BatchJob.of(write(programWithDestructor(LOAD_ADDRESS + DTOR_OFFSET, 42)))))
+				.getFirst();
+		assertEquals(StopReason.HALTED, r.reason(), () -> r.fault().toString());
+		assertEquals(42, r.exitCode());
+		assertEquals(6L, r.instructions());
+	}
+
+	@Test
+	void failingDestructorIsAFault() throws IOException, InterruptedException {
+		final BatchResult r = new BatchRunner(config)
+				.run(List.of(BatchJob.of(write(programWithDestructor(0x10L, 42)))))
+				.getFirst();
+		assertEquals(StopReason.FAULT, r.reason());
+		assertTrue(r.fault().isPresent());
+		assertEquals(0, r.exitCode());
+		assertFalse(r.isSuccess());
+	}
+}
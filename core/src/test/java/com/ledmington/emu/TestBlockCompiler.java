@@ -0,0 +1,317 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.x86.GeneralInstruction;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.IndirectOperand;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.PointerSize;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+
+final class TestBlockCompiler {
+
+	static final long CODE_ADDRESS = 0x1000L;
+	static final long DATA_ADDRESS = 0x4000L;
+	private static final long STACK_TOP = 0x10000L;
+	private static final long STACK_SIZE = 0x1000L;
+
+	private static final int LOOP = 5;
+	private static final int FUNCTION = 26;
+
+	private static IndirectOperand qword(final Register64 base, final int displacement) {
+		return IndirectOperand.builder()
+				.pointer(PointerSize.QWORD_PTR)
+				.base(base)
+				.displacement(displacement)
+				.build();
+	}
+
+	/**
+	 * A loop summing and shuffling values through registers, memory and the stack, calling a function directly, through
+	 * a register and through memory.
+	 */
+	private static Instruction program(final int idx, final long[] offsets) {
+		final IntFunction<Immediate> rel = target -> new Immediate((int) (offsets[target] - offsets[idx + 1]));
+		return switch (idx) {
+			case 0 -> new GeneralInstruction(Opcode.MOV, Register32.ECX, new Immediate(100));
+			case 1 -> new GeneralInstruction(Opcode.MOV, Register32.EAX, new Immediate(0));
+			case 2 -> new GeneralInstruction(Opcode.MOVABS, Register64.RBX, new Immediate(DATA_ADDRESS));
+			case 3 -> new GeneralInstruction(Opcode.MOVABS, Register64.RBP, new Immediate(offsets[FUNCTION]));
+			case 4 -> new GeneralInstruction(Opcode.MOV, qword(Register64.RBX, 0), Register64.RBP);
+			// loop:
+			case 5 -> new GeneralInstruction(Opcode.ADD, Register64.RAX, Register64.RCX);
+			case 6 ->
+				new GeneralInstruction(
+						Opcode.LEA,
+						Register64.RDX,
+						IndirectOperand.builder()
+								.pointer(PointerSize.QWORD_PTR)
+								.base(Register64.RAX)
+								.index(Register64.RCX)
+								.scale(2)
+								.displacement((byte) 3)
+								.build());
+			case 7 -> new GeneralInstruction(Opcode.MOV, qword(Register64.RBX, 8), Register64.RDX);
+			case 8 -> new GeneralInstruction(Opcode.MOV, Register64.RSI, qword(Register64.RBX, 8));
+			case 9 -> new GeneralInstruction(Opcode.PUSH, Register64.RSI);
+			case 10 -> new GeneralInstruction(Opcode.POP, Register64.RDI);
+			case 11 -> new GeneralInstruction(Opcode.AND, Register32.EDI, Register32.EAX);
+			case 12 -> new GeneralInstruction(Opcode.AND, Register32.EDX, new Immediate(0xff));
+			case 13 -> new GeneralInstruction(Opcode.CALL, rel.apply(FUNCTION));
+			case 14 -> new GeneralInstruction(Opcode.SUB, Register64.R9, Register64.RDI);
+			case 15 -> new GeneralInstruction(Opcode.CALL, Register64.RBP);
+			case 16 -> new GeneralInstruction(Opcode.ADD, Register32.R10D, Register32.EDX);
+			case 17 -> new GeneralInstruction(Opcode.CALL, qword(Register64.RBX, 0));
+			case 18 -> new GeneralInstruction(Opcode.SHR, Register64.RDI, new Immediate((byte) 3));
+			case 19 -> new GeneralInstruction(Opcode.TEST, Register64.RDI, Register64.RDI);
+			case 20 -> new GeneralInstruction(Opcode.CMOVNE, Register64.R11, Register64.RDI);
+			case 21 -> new GeneralInstruction(Opcode.SUB, Register64.RCX, new Immediate((byte) 1));
+			case 22 -> new GeneralInstruction(Opcode.CMP, Register64.RCX, new Immediate((byte) 0));
+			case 23 -> new GeneralInstruction(Opcode.JNE, rel.apply(LOOP));
+			case 24 -> new GeneralInstruction(Opcode.HLT);
+			case 25 -> new GeneralInstruction(Opcode.NOP);
+			// function:
+			case 26 -> new GeneralInstruction(Opcode.ADD, Register64.R8, Register64.RDX);
+			case 27 -> new GeneralInstruction(Opcode.RET);
+			default -> throw new IllegalArgumentException(String.format("Invalid index %,d.", idx));
+		};
+	}
+
+	static MemoryController load() {
+		final MemoryController mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), true, false);
+		final int n = FUNCTION + 2;
+		final long[] offsets = new long[n + 1];
+		// Every jump uses a 32-bit displacement, so the first pass already gives the final layout
+		for (int pass = 0; pass < 2; pass++) {
+			long pos = CODE_ADDRESS;
+			for (int i = 0; i < n; i++) {
+				final byte[] hex = InstructionEncoder.toHex(true, program(i, offsets));
+				if (pass == 1) {
+					mem.initialize(new MemoryAddress(pos), hex);
+					mem.setPermissions(new MemoryAddress(pos), hex.length, true, false, true);
+				}
+				offsets[i] = pos;
+				pos += hex.length;
+			}
+			offsets[n] = pos;
+		}
+		mem.initialize(new MemoryAddress(DATA_ADDRESS), new byte[16]);
+		mem.setPermissions(new MemoryAddress(DATA_ADDRESS), 16L, true, true, false);
+		mem.setPermissions(new MemoryAddress(STACK_TOP - STACK_SIZE), STACK_SIZE, true, true, false);
+		return mem;
+	}
+
+	static X86Cpu cpu(final MemoryController mem, final int jitThreshold) {
+		final X86RegisterFile rf = new X86RegisterFile();
+		rf.set(Register64.RSP, STACK_TOP);
+		final X86Cpu cpu = X86Cpu.builder()
+				.memory(mem)
+				.registerFile(rf)
+				.stackTop(STACK_TOP)
+				.stackSize(STACK_SIZE)
+				.jitThreshold(jitThreshold)
+				.build();
+		cpu.setInstructionPointer(CODE_ADDRESS);
+		return cpu;
+	}
+
+	private static String fault(final X86Cpu cpu) {
+		return cpu.getLastFault().map(Throwable::toString).orElse("No fault.");
+	}
+
+	static void assertSameState(final X86Cpu expected, final X86Cpu actual) {
+		final X86RegisterFile a = (X86RegisterFile) expected.getRegisters();
+		final X86RegisterFile b = (X86RegisterFile) actual.getRegisters();
+		for (final Register64 r : Register64.values()) {
+			assertEquals(a.get(r), b.get(r), () -> String.format("Wrong value for %s.", r));
+		}
+		assertEquals(a.getRFlags(), b.getRFlags(), "Wrong RFLAGS.");
+		assertEquals(expected.getInstructionsRetired(), actual.getInstructionsRetired());
+	}
+
+	@Test
+	void sameResultAsInterpreter() {
+		final X86Cpu interpreted = cpu(load(), 0);
+		final X86Cpu compiled = cpu(load(), 1);
+		assertEquals(StopReason.HALTED, interpreted.execute(Long.MAX_VALUE), () -> fault(interpreted));
+		assertEquals(StopReason.HALTED, compiled.execute(Long.MAX_VALUE), () -> fault(compiled));
+		assertSameState(interpreted, compiled);
+		assertEquals(0L, interpreted.getCompiledBlocks());
+		assertTrue(compiled.getCompiledBlocks() > 0L);
+	}
+
+	@Test
+	void chainsCompiledBlocks() {
+		final X86Cpu interpreted = cpu(load(), 0);
+		final X86Cpu compiled = cpu(load(), 1);
+		assertEquals(StopReason.HALTED, interpreted.execute(Long.MAX_VALUE), () -> fault(interpreted));
+		assertEquals(StopReason.HALTED, compiled.execute(Long.MAX_VALUE), () -> fault(compiled));
+		assertSameState(interpreted, compiled);
+		// Every iteration goes through seven blocks (four in the loop and three calls), all chained to each other
+		assertTrue(
+				compiled.getChainedBlocks() > 90L * 7L,
+				() -> String.format("Only %,d chained blocks.", compiled.getChainedBlocks()));
+	}
+
+	@Test
+	void compiledBlocksAreDecodeCacheHits() {
+		final X86Cpu interpreted = cpu(load(), 0);
+		final X86Cpu compiled = cpu(load(), 1);
+		assertEquals(StopReason.HALTED, interpreted.execute(Long.MAX_VALUE), () -> fault(interpreted));
+		assertEquals(StopReason.HALTED, compiled.execute(Long.MAX_VALUE), () -> fault(compiled));
+		assertEquals(0L, interpreted.getDecodeCacheHits());
+		// Most of the instructions retired by the compiled run were not decoded again
+		assertTrue(compiled.getDecodeCacheHits() > compiled.getInstructionsRetired() / 2L);
+		assertTrue(compiled.getDecodeCacheHits() <= compiled.getInstructionsRetired());
+	}
+
+	@Test
+	void sameResultWithTimeSlices() {
+		final X86Cpu interpreted = cpu(load(), 0);
+		final X86Cpu compiled = cpu(load(), 2);
+		StopReason reason;
+		do {
+			reason = interpreted.execute(7L);
+			assertEquals(reason, compiled.execute(7L));
+			assertSameState(interpreted, compiled);
+		} while (reason == StopReason.BUDGET_EXHAUSTED);
+		assertEquals(StopReason.HALTED, reason);
+	}
+
+	@Test
+	void faultsLikeInterpreter() {
+		final MemoryController mem1 = load();
+		final MemoryController mem2 = load();
+		// The first store now faults, after the block has already modified some registers
+		mem1.setPermissions(new MemoryAddress(DATA_ADDRESS), 16L, true, false, false);
+		mem2.setPermissions(new MemoryAddress(DATA_ADDRESS), 16L, true, false, false);
+		final X86Cpu interpreted = cpu(mem1, 0);
+		final X86Cpu compiled = cpu(mem2, 1);
+		assertEquals(StopReason.FAULT, interpreted.execute(Long.MAX_VALUE));
+		assertEquals(StopReason.FAULT, compiled.execute(Long.MAX_VALUE));
+		assertSame(
+				interpreted.getLastFault().orElseThrow().getClass(),
+				compiled.getLastFault().orElseThrow().getClass());
+		final X86RegisterFile a = (X86RegisterFile) interpreted.getRegisters();
+		final X86RegisterFile b = (X86RegisterFile) compiled.getRegisters();
+		for (final Register64 r : Register64.values()) {
+			assertEquals(a.get(r), b.get(r), () -> String.format("Wrong value for %s.", r));
+		}
+		assertEquals(a.getRFlags(), b.getRFlags(), "Wrong RFLAGS.");
+	}
+
+	/** A loop which increments the given register forever, without touching memory. */
+	private static byte[] counterLoop(final Register64 counter) {
+		final Instruction add = new GeneralInstruction(Opcode.ADD, counter, new Immediate((byte) 1));
+		final Instruction cmp = new GeneralInstruction(Opcode.CMP, Register64.RCX, new Immediate((byte) 1));
+		final int length = InstructionEncoder.toHex(true, add, cmp).length + 6;
+		return InstructionEncoder.toHex(true, add, cmp, new GeneralInstruction(Opcode.JNE, new Immediate(-length)));
+	}
+
+	private static MemoryController loadLoop(final boolean writable) {
+		final MemoryController mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), true, false);
+		final byte[] code = counterLoop(Register64.RAX);
+		mem.initialize(new MemoryAddress(CODE_ADDRESS), code);
+		mem.setPermissions(new MemoryAddress(CODE_ADDRESS), code.length, true, writable, true);
+		mem.setPermissions(new MemoryAddress(STACK_TOP - STACK_SIZE), STACK_SIZE, true, true, false);
+		return mem;
+	}
+
+	@Test
+	void faultsWhenCompiledCodeIsNoLongerExecutable() {
+		final MemoryController mem = loadLoop(false);
+		final X86Cpu cpu = cpu(mem, 1);
+		assertEquals(StopReason.BUDGET_EXHAUSTED, cpu.execute(300L), () -> fault(cpu));
+		assertTrue(cpu.getCompiledBlocks() > 0L);
+
+		mem.setPermissions(new MemoryAddress(CODE_ADDRESS), counterLoop(Register64.RAX).length, true, false, false);
+		final long before = cpu.getInstructionsRetired();
+		assertEquals(StopReason.FAULT, cpu.execute(300L));
+		assertEquals(before, cpu.getInstructionsRetired());
+		assertEquals(1L, cpu.getCompiledBlockInvalidations());
+	}
+
+	@Test
+	void keepsCompiledCodeWhenUnrelatedPermissionsChange() {
+		final MemoryController mem = loadLoop(false);
+		final X86Cpu cpu = cpu(mem, 1);
+		assertEquals(StopReason.BUDGET_EXHAUSTED, cpu.execute(300L), () -> fault(cpu));
+		final long compiled = cpu.getCompiledBlocks();
+		assertTrue(compiled > 0L);
+
+		// Like a heap growing or a library being loaded elsewhere
+		mem.setPermissions(new MemoryAddress(DATA_ADDRESS), 16L, true, true, false);
+		mem.unmap(new MemoryAddress(DATA_ADDRESS + 0x1000L), 4096L);
+		assertEquals(StopReason.BUDGET_EXHAUSTED, cpu.execute(300L), () -> fault(cpu));
+		assertEquals(200L, cpu.getRegisters().get(Register64.RAX));
+		assertEquals(0L, cpu.getCompiledBlockInvalidations());
+		assertEquals(compiled, cpu.getCompiledBlocks());
+	}
+
+	@Test
+	void runsTheNewCodeAfterRemapping() {
+		final MemoryController mem = loadLoop(false);
+		final X86Cpu cpu = cpu(mem, 1);
+		assertEquals(StopReason.BUDGET_EXHAUSTED, cpu.execute(300L), () -> fault(cpu));
+		final X86RegisterFile rf = (X86RegisterFile) cpu.getRegisters();
+		assertEquals(100L, rf.get(Register64.RAX));
+
+		final byte[] code = counterLoop(Register64.RBX);
+		mem.unmap(new MemoryAddress(CODE_ADDRESS), 4096L);
+		mem.initialize(new MemoryAddress(CODE_ADDRESS), code);
+		mem.setPermissions(new MemoryAddress(CODE_ADDRESS), code.length, true, false, true);
+		assertEquals(StopReason.BUDGET_EXHAUSTED, cpu.execute(300L), () -> fault(cpu));
+		assertEquals(100L, rf.get(Register64.RAX));
+		assertEquals(100L, rf.get(Register64.RBX));
+	}
+
+	@Test
+	void runsTheNewCodeAfterItIsOverwritten() {
+		final MemoryController mem = loadLoop(true);
+		final X86Cpu cpu = cpu(mem, 1);
+		assertEquals(StopReason.BUDGET_EXHAUSTED, cpu.execute(300L), () -> fault(cpu));
+		final long compiled = cpu.getCompiledBlocks();
+		assertTrue(compiled > 0L);
+
+		// A store from the program itself, which does not change the permissions
+		final byte[] code = counterLoop(Register64.RBX);
+		mem.write(new MemoryAddress(CODE_ADDRESS), code, 0, code.length);
+		assertEquals(StopReason.BUDGET_EXHAUSTED, cpu.execute(300L), () -> fault(cpu));
+		final X86RegisterFile rf = (X86RegisterFile) cpu.getRegisters();
+		assertEquals(100L, rf.get(Register64.RAX));
+		assertEquals(100L, rf.get(Register64.RBX));
+		assertEquals(0L, cpu.getCompiledBlockInvalidations());
+		assertTrue(cpu.getCompiledBlocks() > compiled);
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.x86.GeneralInstruction;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+
+final class TestBudgetedExecution {
+
+	private static final long CODE_ADDRESS = 0x1000L;
+	private static final long STACK_TOP = 0x10000L;
+	private static final long STACK_SIZE = 0x1000L;
+	private static final int NUM_MOVS = 5;
+
+	private MemoryController mem;
+	private X86Cpu cpu;
+	private long[] addresses;
+
+	@BeforeEach
+	void setup() {
+		mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), true, false);
+		addresses = new long[NUM_MOVS + 1];
+		long pos = CODE_ADDRESS;
+		for (int i = 0; i <= NUM_MOVS; i++) {
+			final Instruction inst = i < NUM_MOVS
+					? new GeneralInstruction(Opcode.MOV, Register32.EAX, new Immediate(i + 1))
+					: new GeneralInstruction(Opcode.HLT);
+			final byte[] hex = InstructionEncoder.toHex(true, inst);
+			mem.initialize(new MemoryAddress(pos), hex);
+			mem.setPermissions(new MemoryAddress(pos), hex.length, true, false, true);
+			addresses[i] = pos;
+			pos += hex.length;
+		}
+
+		final RegisterFile rf = new X86RegisterFile();
+		rf.set(Register64.RSP, STACK_TOP);
+		cpu = X86Cpu.builder()
+				.memory(mem)
+				.registerFile(rf)
+				.stackTop(STACK_TOP)
+				.stackSize(STACK_SIZE)
+				.build();
+		cpu.setInstructionPointer(CODE_ADDRESS);
+	}
+
+	private long rax() {
+		return cpu.getRegisters().get(Register64.RAX);
+	}
+
+	@Test
+	void invalidBudget() {
+		assertThrows(IllegalArgumentException.class, () -> cpu.execute(-1L));
+	}
+
+	@Test
+	void zeroBudget() {
+		assertEquals(StopReason.BUDGET_EXHAUSTED, cpu.execute(0L));
+		assertEquals(0L, cpu.getInstructionsRetired());
+	}
+
+	@Test
+	void timeSlices() {
+		assertEquals(StopReason.BUDGET_EXHAUSTED, cpu.execute(2L));
+		assertEquals(2L, rax());
+		assertEquals(StopReason.BUDGET_EXHAUSTED, cpu.execute(2L));
+		assertEquals(4L, rax());
+		assertEquals(StopReason.HALTED, cpu.execute(100L));
+		assertEquals(NUM_MOVS, rax());
+		assertEquals(NUM_MOVS + 1L, cpu.getInstructionsRetired());
+		assertEquals(StopReason.HALTED, cpu.execute(100L));
+		assertEquals(NUM_MOVS + 1L, cpu.getInstructionsRetired());
+	}
+
+	@Test
+	void stopsAtBreakpointAndResumes() {
+		cpu.addBreakpoint(addresses[3]);
+		assertEquals(StopReason.BREAKPOINT, cpu.execute(100L));
+		assertEquals(addresses[3], cpu.getRegisters().get(Register64.RIP));
+		assertEquals(3L, rax());
+		assertEquals(StopReason.HALTED, cpu.execute(100L));
+		assertEquals(NUM_MOVS, rax());
+	}
+
+	@Test
+	void removedBreakpointsAreIgnored() {
+		cpu.addBreakpoint(addresses[1]);
+		cpu.addBreakpoint(addresses[2]);
+		cpu.addBreakpoint(addresses[3]);
+		cpu.removeBreakpoint(addresses[2]);
+		assertEquals(StopReason.BREAKPOINT, cpu.execute(100L));
+		assertEquals(1L, rax());
+		assertEquals(StopReason.BREAKPOINT, cpu.execute(100L));
+		assertEquals(3L, rax());
+		cpu.clearBreakpoints();
+		cpu.addBreakpoint(addresses[0]);
+		assertEquals(StopReason.HALTED, cpu.execute(100L));
+	}
+
+	@Test
+	void executeIgnoresBreakpoints() {
+		cpu.addBreakpoint(addresses[2]);
+		cpu.execute();
+		assertEquals(NUM_MOVS, rax());
+	}
+
+	@Test
+	void fault() {
+		// Make the third instruction not executable
+		mem.setPermissions(new MemoryAddress(addresses[2]), 1L, true, false, false);
+		assertEquals(StopReason.FAULT, cpu.execute(100L));
+		assertTrue(cpu.getLastFault().isPresent());
+		assertEquals(2L, rax());
+
+		cpu.setInstructionPointer(CODE_ADDRESS);
+		final RuntimeException e = assertThrows(RuntimeException.class, () -> cpu.execute());
+		assertSame(cpu.getLastFault().orElseThrow(), e);
+	}
+}
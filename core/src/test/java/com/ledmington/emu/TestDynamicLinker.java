@@ -0,0 +1,159 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.elf.ELF;
+import com.ledmington.elf.ELFParser;
+import com.ledmington.elf.section.rel.RelocationAddendEntry;
+import com.ledmington.elf.section.rel.RelocationAddendEntryType;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+
+final class TestDynamicLinker {
+
+	private static final Path LIBC = Path.of("/lib/x86_64-linux-gnu/libc.so.6");
+	private static final Path EXECUTABLE = Path.of("/usr/bin/true");
+	private static final long EXECUTABLE_BASE = 0x5555_5555_4000L;
+
+	private final SharedLibraryCache cache = new SharedLibraryCache();
+	private MemoryController mem;
+
+	@BeforeEach
+	void setup() {
+		Assumptions.assumeTrue(Files.isRegularFile(LIBC), "host libc was not found, skipping.");
+		mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), false, false, true, true, false);
+	}
+
+	@Test
+	void gnuHashLookupFindsExportedSymbols() throws IOException {
+		final DynamicObject libc = cache.get(LIBC, DynamicLinker.LIBRARY_BASE);
+		for (final String name : List.of("__libc_start_main", "malloc", "printf", "stdout")) {
+			final int idx = libc.lookup(name);
+			assertTrue(idx > 0, () -> String.format("Expected to find '%s'.", name));
+			assertEquals(name, libc.getSymbolName(idx));
+		}
+	}
+
+	@Test
+	void gnuHashLookupRejectsMissingSymbols() throws IOException {
+		final DynamicObject libc = cache.get(LIBC, DynamicLinker.LIBRARY_BASE);
+		assertEquals(-1, libc.lookup("this_symbol_does_not_exist"));
+		assertEquals(-1, libc.lookup(""));
+	}
+
+	@Test
+	void librariesAreCachedPerBaseAddress() throws IOException {
+		final DynamicObject first = cache.get(LIBC, DynamicLinker.LIBRARY_BASE);
+		final DynamicObject second = cache.get(LIBC, DynamicLinker.LIBRARY_BASE);
+		assertSame(first, second);
+		assertEquals(1L, cache.getMisses());
+		assertEquals(1L, cache.getHits());
+
+		final DynamicObject moved = cache.get(LIBC, DynamicLinker.LIBRARY_BASE + 0x100_0000L);
+		assertNotEquals(first.getBase(), moved.getBase());
+		assertEquals(2, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void leastRecentlyUsedLibrariesAreEvicted() throws IOException {
+		final SharedLibraryCache small = new SharedLibraryCache(2);
+		final DynamicObject first = small.get(LIBC, DynamicLinker.LIBRARY_BASE);
+		small.get(LIBC, DynamicLinker.LIBRARY_BASE + 0x100_0000L);
+		assertSame(first, small.get(LIBC, DynamicLinker.LIBRARY_BASE));
+
+		// The library at the second address is the least recently used one
+		small.get(LIBC, DynamicLinker.LIBRARY_BASE + 0x200_0000L);
+		assertEquals(2, small.size());
+		assertEquals(1L, small.getEvictions());
+		assertSame(first, small.get(LIBC, DynamicLinker.LIBRARY_BASE));
+		assertEquals(3L, small.getMisses());
+
+		small.get(LIBC, DynamicLinker.LIBRARY_BASE + 0x100_0000L);
+		assertEquals(4L, small.getMisses());
+		assertEquals(2L, small.getEvictions());
+		assertEquals(2, small.size());
+	}
+
+	@Test
+	void defaultCacheIsBounded() {
+		assertEquals(SharedLibraryCache.DEFAULT_MAX_SIZE, SharedLibraryCache.getDefault().getMaxSize());
+		assertThrows(IllegalArgumentException.class, () -> new SharedLibraryCache(0));
+	}
+
+	@Test
+	void missingLibrariesAreReported() throws IOException {
+		Assumptions.assumeTrue(Files.isRegularFile(EXECUTABLE), "host executable was not found, skipping.");
+		final ELF exe = ELFParser.parse(Files.readAllBytes(EXECUTABLE));
+		final Path emptySysroot = Files.createTempDirectory("sysroot");
+		try {
+			final DynamicLinker linker = new DynamicLinker(mem, cache, emptySysroot, r -> r);
+			assertThrows(NoSuchFileException.class, () -> linker.link(exe, EXECUTABLE_BASE));
+		} finally {
+			Files.delete(emptySysroot);
+		}
+	}
+
+	@Test
+	void linkHostExecutable() throws IOException {
+		Assumptions.assumeTrue(Files.isRegularFile(EXECUTABLE), "host executable was not found, skipping.");
+		final ELF exe = ELFParser.parse(Files.readAllBytes(EXECUTABLE));
+		final DynamicLinker linker = new DynamicLinker(mem, cache, Path.of("/"), r -> r);
+
+		final List<DynamicObject> libraries = linker.link(exe, EXECUTABLE_BASE);
+
+		assertEquals("libc.so.6", libraries.getFirst().getName());
+		final DynamicObject libc = libraries.getFirst();
+		final DynamicObject main = DynamicObject.executable("<main>", exe, EXECUTABLE_BASE);
+		int checked = 0;
+		for (final RelocationAddendEntry rae : main.getSymbolicRelocations()) {
+			if (rae.type() != RelocationAddendEntryType.R_X86_64_GLOB_DAT
+					&& rae.type() != RelocationAddendEntryType.R_X86_64_JUMP_SLOT) {
+				continue;
+			}
+			final int idx = libc.lookup(main.getSymbolName(rae.symbolTableIndex()));
+			if (idx < 0) {
+				continue;
+			}
+			final long expected = libc.getBase() + libc.getSymbol(idx).value();
+			assertEquals(expected, mem.read8(new MemoryAddress(EXECUTABLE_BASE + rae.offset())));
+			checked++;
+		}
+		assertTrue(checked > 0, "Expected at least one symbol to be bound to libc.");
+	}
+}
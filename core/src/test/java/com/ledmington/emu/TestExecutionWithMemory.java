@@ -400,7 +400,7 @@ final class TestExecutionWithMemory {
 				new GeneralInstruction(Opcode.HLT));
 
 		// Start the CPU
-		assertDoesNotThrow(cpu::execute);
+		assertDoesNotThrow(() -> cpu.execute());
 	}
 
 	@Test
@@ -455,6 +455,6 @@ final class TestExecutionWithMemory {
 				new GeneralInstruction(Opcode.HLT));
 
 		// Start the CPU
-		assertDoesNotThrow(cpu::execute);
+		assertDoesNotThrow(() -> cpu.execute());
 	}
 }
@@ -0,0 +1,110 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.x86.GeneralInstruction;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+import com.ledmington.mem.exc.IllegalExecutionException;
+
+final class TestInstructionFetcher {
+
+	private static final Instruction[] CODE = {
+		new GeneralInstruction(Opcode.NOP),
+		new GeneralInstruction(Opcode.MOV, Register32.EAX, new Immediate(0x12345678)),
+		new GeneralInstruction(Opcode.MOVABS, Register64.RBX, new Immediate(0x1122334455667788L)),
+		new GeneralInstruction(Opcode.ADD, Register64.RAX, Register64.RBX),
+		new GeneralInstruction(Opcode.HLT)
+	};
+
+	private final MemoryController mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), true, true);
+	private final X86RegisterFile rf = new X86RegisterFile();
+	private final InstructionFetcher fetcher = new InstructionFetcher(mem, rf);
+
+	private byte[] load(final long address, final long executableBytes) {
+		final byte[] hex = InstructionEncoder.toHex(true, CODE);
+		mem.initialize(new MemoryAddress(address), hex);
+		mem.setPermissions(new MemoryAddress(address), executableBytes, true, false, true);
+		rf.set(Register64.RIP, address);
+		return hex;
+	}
+
+	private void assertFetchesAll(final long address) {
+		long rip = address;
+		for (final Instruction inst : CODE) {
+			assertEquals(inst, fetcher.fetch());
+			rip += InstructionEncoder.toHex(inst, true).length;
+			assertEquals(rip, rf.get(Register64.RIP));
+		}
+	}
+
+	@Test
+	void fetchesConsecutiveInstructions() {
+		final byte[] hex = load(0x1000L, 0x1000L);
+		assertFetchesAll(0x1000L);
+		assertEquals(0x1000L + hex.length, rf.get(Register64.RIP));
+		// A single check for the whole page
+		assertEquals(1L, mem.getExecuteChecks());
+	}
+
+	@Test
+	void fetchesAcrossPages() {
+		final long address = 0x2000L - 6L;
+		load(address, 0x1000L);
+		assertFetchesAll(address);
+	}
+
+	@Test
+	void seesModifiedCode() {
+		load(0x1000L, 0x1000L);
+		assertEquals(CODE[0], fetcher.fetch());
+		mem.initialize(new MemoryAddress(0x1000L), InstructionEncoder.toHex(CODE[4], true));
+		rf.set(Register64.RIP, 0x1000L);
+		assertEquals(CODE[4], fetcher.fetch());
+	}
+
+	@Test
+	void rejectsInstructionsEndingInNonExecutableMemory() {
+		// Only the NOP and the first byte of the MOV are executable
+		load(0x1000L, 2L);
+		assertEquals(CODE[0], fetcher.fetch());
+		assertThrows(IllegalExecutionException.class, fetcher::fetch);
+	}
+
+	@Test
+	void revalidatesWhenPermissionsChange() {
+		load(0x1000L, 0x1000L);
+		assertEquals(CODE[0], fetcher.fetch());
+		mem.setPermissions(new MemoryAddress(0x1000L), 0x1000L, true, false, false);
+		rf.set(Register64.RIP, 0x1000L);
+		assertThrows(IllegalExecutionException.class, fetcher::fetch);
+	}
+}
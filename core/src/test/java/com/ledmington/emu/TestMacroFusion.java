@@ -0,0 +1,214 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.x86.GeneralInstruction;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.IndirectOperand;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.PointerSize;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+import com.ledmington.utils.BitUtils;
+
+final class TestMacroFusion {
+
+	private static final long CODE_ADDRESS = 0x1000L;
+	private static final long STACK_TOP = 0x10000L;
+	private static final long STACK_SIZE = 0x1000L;
+	private static final long DATA_ADDRESS = 0x2000L;
+
+	private static final Opcode[] CONDITIONAL_JUMPS = {
+		Opcode.JO, Opcode.JNO, Opcode.JB, Opcode.JAE, Opcode.JE, Opcode.JNE, Opcode.JBE, Opcode.JA,
+		Opcode.JS, Opcode.JNS, Opcode.JP, Opcode.JNP, Opcode.JL, Opcode.JGE, Opcode.JLE, Opcode.JG
+	};
+	private static final long[] VALUES = {0L, 1L, -1L, 7L, 0x8000_0000L, Long.MIN_VALUE, Long.MAX_VALUE};
+
+	private static X86Cpu cpu(final boolean macroFusion, final long rax, final long rbx, final Instruction... code) {
+		final MemoryController mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), true, false);
+		final byte[] hex = InstructionEncoder.toHex(true, code);
+		mem.initialize(new MemoryAddress(CODE_ADDRESS), hex);
+		mem.setPermissions(new MemoryAddress(CODE_ADDRESS), hex.length, true, false, true);
+		mem.setPermissions(new MemoryAddress(STACK_TOP - STACK_SIZE), STACK_SIZE, true, true, false);
+		// A global variable holding the same value as RBX
+		mem.initialize(new MemoryAddress(DATA_ADDRESS), rbx);
+		mem.setPermissions(new MemoryAddress(DATA_ADDRESS), 8L, true, false, false);
+		final X86RegisterFile rf = new X86RegisterFile();
+		rf.set(Register64.RSP, STACK_TOP);
+		rf.set(Register64.RAX, rax);
+		rf.set(Register64.RBX, rbx);
+		final X86Cpu cpu = X86Cpu.builder()
+				.memory(mem)
+				.registerFile(rf)
+				.stackTop(STACK_TOP)
+				.stackSize(STACK_SIZE)
+				.jitThreshold(0)
+				.macroFusion(macroFusion)
+				.build();
+		cpu.setInstructionPointer(CODE_ADDRESS);
+		return cpu;
+	}
+
+	/** A comparison followed by the given jump over an instruction writing into RCX. */
+	private static Instruction[] compareAndJump(final Instruction compare, final Opcode jcc) {
+		final Instruction skipped = new GeneralInstruction(Opcode.MOV, Register32.ECX, new Immediate(1));
+		final int skippedLength = InstructionEncoder.toHex(skipped, true).length;
+		return new Instruction[] {
+			compare,
+			new GeneralInstruction(jcc, new Immediate(skippedLength)),
+			skipped,
+			new GeneralInstruction(Opcode.HLT)
+		};
+	}
+
+	private static void assertSameExecution(final long rax, final long rbx, final Instruction... code) {
+		final X86Cpu plain = cpu(false, rax, rbx, code);
+		final X86Cpu fused = cpu(true, rax, rbx, code);
+		assertEquals(StopReason.HALTED, plain.execute(Long.MAX_VALUE));
+		assertEquals(StopReason.HALTED, fused.execute(Long.MAX_VALUE));
+		final X86RegisterFile a = (X86RegisterFile) plain.getRegisters();
+		final X86RegisterFile b = (X86RegisterFile) fused.getRegisters();
+		assertEquals(a, b, () -> String.format("Expected %s but was %s.", a, b));
+		assertEquals(plain.getInstructionsRetired(), fused.getInstructionsRetired());
+	}
+
+	private static Stream<Arguments> jumpsAndValues() {
+		final Stream.Builder<Arguments> args = Stream.builder();
+		for (final Opcode jcc : CONDITIONAL_JUMPS) {
+			for (final long a : VALUES) {
+				for (final long b : VALUES) {
+					args.add(Arguments.of(jcc, a, b));
+				}
+			}
+		}
+		return args.build();
+	}
+
+	@ParameterizedTest
+	@MethodSource("jumpsAndValues")
+	void compareAndJumpLikeInterpreter(final Opcode jcc, final long a, final long b) {
+		assertSameExecution(
+				a, b, compareAndJump(new GeneralInstruction(Opcode.CMP, Register64.RAX, Register64.RBX), jcc));
+	}
+
+	/** Returns {@code CMP QWORD PTR [RIP+disp],RAX} placed at CODE_ADDRESS and reading from the given address. */
+	private static Instruction compareWithGlobal(final long address) {
+		final int length = InstructionEncoder.toHex(ripRelativeCompare(0), true).length;
+		return ripRelativeCompare(BitUtils.asInt(address - (CODE_ADDRESS + length)));
+	}
+
+	private static Instruction ripRelativeCompare(final int displacement) {
+		return new GeneralInstruction(
+				Opcode.CMP,
+				IndirectOperand.builder()
+						.pointer(PointerSize.QWORD_PTR)
+						.base(Register64.RIP)
+						.displacement(displacement)
+						.build(),
+				Register64.RAX);
+	}
+
+	@ParameterizedTest
+	@MethodSource("jumpsAndValues")
+	void compareGlobalAndJumpLikeInterpreter(final Opcode jcc, final long a, final long b) {
+		assertSameExecution(a, b, compareAndJump(compareWithGlobal(DATA_ADDRESS), jcc));
+	}
+
+	@Test
+	void faultInComparisonLeavesRipAfterIt() {
+		final Instruction[] code = compareAndJump(compareWithGlobal(0x10_0000L), Opcode.JE);
+		final X86Cpu plain = cpu(false, 0L, 0L, code);
+		final X86Cpu fused = cpu(true, 0L, 0L, code);
+		assertEquals(StopReason.FAULT, plain.execute(Long.MAX_VALUE));
+		assertEquals(StopReason.FAULT, fused.execute(Long.MAX_VALUE));
+		final long afterCompare = CODE_ADDRESS + InstructionEncoder.toHex(code[0], true).length;
+		assertEquals(afterCompare, plain.getRegisters().get(Register64.RIP));
+		assertEquals(afterCompare, fused.getRegisters().get(Register64.RIP));
+	}
+
+	@ParameterizedTest
+	@MethodSource("jumpsAndValues")
+	void testAndJumpLikeInterpreter(final Opcode jcc, final long a, final long b) {
+		assertSameExecution(
+				a, b, compareAndJump(new GeneralInstruction(Opcode.TEST, Register64.RAX, Register64.RBX), jcc));
+		assertSameExecution(
+				a, b, compareAndJump(new GeneralInstruction(Opcode.TEST, Register32.EAX, Register32.EBX), jcc));
+	}
+
+	@Test
+	void prologueAndEpilogueLikeInterpreter() {
+		final Instruction call = new GeneralInstruction(Opcode.CALL, new Immediate(1));
+		assertSameExecution(
+				0L,
+				0L,
+				call,
+				new GeneralInstruction(Opcode.HLT),
+				// function:
+				new GeneralInstruction(Opcode.PUSH, Register64.RBP),
+				new GeneralInstruction(Opcode.MOV, Register64.RBP, Register64.RSP),
+				new GeneralInstruction(Opcode.PUSH, Register64.RAX),
+				new GeneralInstruction(Opcode.LEAVE),
+				new GeneralInstruction(Opcode.RET));
+	}
+
+	@Test
+	void recognizesPairs() {
+		final Instruction cmp = new GeneralInstruction(Opcode.CMP, Register64.RAX, Register64.RBX);
+		final Instruction je = new GeneralInstruction(Opcode.JE, new Immediate(0));
+		final Instruction pushRbp = new GeneralInstruction(Opcode.PUSH, Register64.RBP);
+		final Instruction movRbpRsp = new GeneralInstruction(Opcode.MOV, Register64.RBP, Register64.RSP);
+		final Instruction leave = new GeneralInstruction(Opcode.LEAVE);
+		final Instruction ret = new GeneralInstruction(Opcode.RET);
+		assertTrue(MacroFusion.isPair(cmp, je));
+		assertTrue(MacroFusion.isPair(pushRbp, movRbpRsp));
+		assertTrue(MacroFusion.isPair(leave, ret));
+		assertFalse(MacroFusion.isPair(je, cmp));
+		assertFalse(MacroFusion.isPair(cmp, ret));
+		assertFalse(MacroFusion.isPair(new GeneralInstruction(Opcode.PUSH, Register64.RBX), movRbpRsp));
+		assertFalse(MacroFusion.isPair(pushRbp, new GeneralInstruction(Opcode.MOV, Register64.RSP, Register64.RBP)));
+		assertFalse(MacroFusion.mayStartPair(new GeneralInstruction(Opcode.ADD, Register64.RAX, Register64.RBX)));
+	}
+
+	@Test
+	void budgetIsNeverExceeded() {
+		final Instruction[] code =
+				compareAndJump(new GeneralInstruction(Opcode.CMP, Register64.RAX, Register64.RBX), Opcode.JNE);
+		final X86Cpu cpu = cpu(true, 1L, 2L, code);
+		assertEquals(StopReason.BUDGET_EXHAUSTED, cpu.execute(1L));
+		assertEquals(1L, cpu.getInstructionsRetired());
+		assertEquals(StopReason.HALTED, cpu.execute(Long.MAX_VALUE));
+		assertEquals(3L, cpu.getInstructionsRetired());
+	}
+}
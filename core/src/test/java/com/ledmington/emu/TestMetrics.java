@@ -0,0 +1,84 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.x86.GeneralInstruction;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+
+final class TestMetrics {
+
+	private static final long CODE_ADDRESS = 0x1000L;
+	private static final long STACK_TOP = 0x10000L;
+	private static final long STACK_SIZE = 0x1000L;
+
+	@Test
+	void countersAfterExecution() {
+		final Instruction[] code = {
+			new GeneralInstruction(Opcode.MOV, Register32.EAX, new Immediate(60)),
+			new GeneralInstruction(Opcode.PUSH, Register64.RAX),
+			new GeneralInstruction(Opcode.POP, Register64.RBX),
+			new GeneralInstruction(Opcode.SYSCALL)
+		};
+		final PagedMemory ram = new PagedMemory(MemoryInitializer.zero());
+		final MemoryController mem = new MemoryController(ram, true, false);
+		final byte[] hex = InstructionEncoder.toHex(true, code);
+		mem.initialize(new MemoryAddress(CODE_ADDRESS), hex);
+		mem.setPermissions(new MemoryAddress(CODE_ADDRESS), hex.length, true, false, true);
+		mem.setPermissions(new MemoryAddress(STACK_TOP - STACK_SIZE), STACK_SIZE, true, true, false);
+
+		final RegisterFile rf = new X86RegisterFile();
+		rf.set(Register64.RSP, STACK_TOP);
+		final X86Cpu cpu = X86Cpu.builder()
+				.memory(mem)
+				.registerFile(rf)
+				.stackTop(STACK_TOP)
+				.stackSize(STACK_SIZE)
+				.build();
+		final Metrics metrics = new Metrics(cpu, mem, ram);
+		final MetricsSnapshot before = metrics.snapshot();
+
+		cpu.setInstructionPointer(CODE_ADDRESS);
+		cpu.execute();
+
+		final MetricsSnapshot after = metrics.snapshot();
+		assertEquals(code.length, after.instructionsRetired() - before.instructionsRetired());
+		assertEquals(1L, after.syscalls());
+		assertEquals(code.length, after.decodeCacheMisses());
+		assertEquals(0.0, after.decodeCacheHitRate());
+		assertEquals(1L, after.writeChecks() - before.writeChecks());
+		assertEquals(1L, after.readChecks() - before.readChecks());
+		// The whole code fits in a single page, which is checked only once
+		assertEquals(1L, after.executeChecks() - before.executeChecks());
+		assertTrue(after.allocatedPages() >= 2L, () -> String.format("Expected at least 2 pages but were %,d.", after.allocatedPages()));
+		assertTrue(after.instructionsPerSecondSince(before) > 0.0);
+	}
+}
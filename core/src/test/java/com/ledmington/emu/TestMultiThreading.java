@@ -0,0 +1,349 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.x86.GeneralInstruction;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.IndirectOperand;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.LegacyPrefix;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.PointerSize;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.cpu.x86.Register8;
+import com.ledmington.cpu.x86.SegmentRegister;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+
+final class TestMultiThreading {
+
+	private static final long CODE_ADDRESS = 0x1000L;
+	private static final long DATA_ADDRESS = 0x2000L;
+	private static final long STACK_TOP = 0x10000L;
+	private static final long STACK_SIZE = 0x1000L;
+
+	private static final Instruction LOCK_ADD = new GeneralInstruction(
+			LegacyPrefix.LOCK,
+			Opcode.ADD,
+			IndirectOperand.builder()
+					.pointer(PointerSize.BYTE_PTR)
+					.base(Register64.RBX)
+					.build(),
+			Register8.CL);
+
+	private MemoryController mem;
+
+	@BeforeEach
+	void setup() {
+		mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), false, false);
+	}
+
+	private X86Cpu newCpu() {
+		final RegisterFile rf = new X86RegisterFile();
+		rf.set(Register64.RSP, STACK_TOP);
+		rf.set(Register64.RBX, DATA_ADDRESS);
+		rf.set(Register64.RCX, 1L);
+		return X86Cpu.builder()
+				.memory(mem)
+				.registerFile(rf)
+				.stackTop(STACK_TOP)
+				.stackSize(STACK_SIZE)
+				.build();
+	}
+
+	private static Instruction mov(final Register32 r, final int value) {
+		return new GeneralInstruction(Opcode.MOV, r, new Immediate(value));
+	}
+
+	private static Instruction lockAdd(final SegmentRegister segment) {
+		return new GeneralInstruction(
+				LegacyPrefix.LOCK,
+				Opcode.ADD,
+				IndirectOperand.builder()
+						.pointer(PointerSize.BYTE_PTR)
+						.segment(segment)
+						.base(Register64.RBX)
+						.build(),
+				Register8.CL);
+	}
+
+	@Test
+	void lockedAddIsAtomic() throws InterruptedException {
+		final int numThreads = 4;
+		final int increments = 60;
+		final List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < numThreads; t++) {
+			final X86Cpu cpu = newCpu();
+			threads.add(Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < increments; i++) {
+					cpu.executeOne(LOCK_ADD);
+				}
+			}));
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		assertEquals((byte) (numThreads * increments), mem.read(new MemoryAddress(DATA_ADDRESS)));
+	}
+
+	@Test
+	void lockedAddOnQwordIsAtomic() throws InterruptedException {
+		final Instruction inst = new GeneralInstruction(
+				LegacyPrefix.LOCK,
+				Opcode.ADD,
+				IndirectOperand.builder()
+						.pointer(PointerSize.QWORD_PTR)
+						.base(Register64.RBX)
+						.build(),
+				new Immediate((byte) 3));
+		final int numThreads = 4;
+		final int increments = 1_000;
+		final List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < numThreads; t++) {
+			final X86Cpu cpu = newCpu();
+			threads.add(Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < increments; i++) {
+					cpu.executeOne(inst);
+				}
+			}));
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		assertEquals(3L * numThreads * increments, mem.read8(new MemoryAddress(DATA_ADDRESS)));
+	}
+
+	@Test
+	void lockedAddSetsFlags() {
+		final X86Cpu cpu = newCpu();
+		mem.write(new MemoryAddress(DATA_ADDRESS), (byte) -1);
+		cpu.executeOne(LOCK_ADD);
+		assertEquals((byte) 0, mem.read(new MemoryAddress(DATA_ADDRESS)));
+		assertTrue(cpu.getRegisters().isSet(RFlags.ZERO));
+		assertTrue(cpu.getRegisters().isSet(RFlags.CARRY));
+		assertFalse(cpu.getRegisters().isSet(RFlags.OVERFLOW));
+	}
+
+	@Test
+	void exchangeAndAdd() {
+		final X86Cpu cpu = newCpu();
+		mem.write(new MemoryAddress(DATA_ADDRESS), 40);
+		cpu.executeOne(mov(Register32.ECX, 2));
+		cpu.executeOne(new GeneralInstruction(
+				LegacyPrefix.LOCK,
+				Opcode.XADD,
+				IndirectOperand.builder()
+						.pointer(PointerSize.DWORD_PTR)
+						.base(Register64.RBX)
+						.build(),
+				Register32.ECX));
+		assertEquals(40, cpu.getRegisters().get(Register32.ECX));
+		assertEquals(42, mem.read4(new MemoryAddress(DATA_ADDRESS)));
+	}
+
+	@Test
+	void compareAndExchange() {
+		final X86Cpu cpu = newCpu();
+		final Instruction cmpxchg = new GeneralInstruction(
+				LegacyPrefix.LOCK,
+				Opcode.CMPXCHG,
+				IndirectOperand.builder()
+						.pointer(PointerSize.QWORD_PTR)
+						.base(Register64.RBX)
+						.build(),
+				Register64.RCX);
+		mem.write(new MemoryAddress(DATA_ADDRESS), 5L);
+
+		// Fails, loading the current value into RAX
+		cpu.executeOne(new GeneralInstruction(Opcode.MOVABS, Register64.RAX, new Immediate(7L)));
+		cpu.executeOne(cmpxchg);
+		assertFalse(cpu.getRegisters().isSet(RFlags.ZERO));
+		assertEquals(5L, cpu.getRegisters().get(Register64.RAX));
+		assertEquals(5L, mem.read8(new MemoryAddress(DATA_ADDRESS)));
+
+		// Succeeds, writing RCX
+		cpu.executeOne(cmpxchg);
+		assertTrue(cpu.getRegisters().isSet(RFlags.ZERO));
+		assertEquals(1L, mem.read8(new MemoryAddress(DATA_ADDRESS)));
+	}
+
+	@Test
+	void exchangeWithMemory() {
+		final X86Cpu cpu = newCpu();
+		mem.write(new MemoryAddress(DATA_ADDRESS), 0x1122334455667788L);
+		cpu.executeOne(new GeneralInstruction(
+				Opcode.XCHG,
+				IndirectOperand.builder()
+						.pointer(PointerSize.QWORD_PTR)
+						.base(Register64.RBX)
+						.build(),
+				Register64.RCX));
+		assertEquals(0x1122334455667788L, cpu.getRegisters().get(Register64.RCX));
+		assertEquals(1L, mem.read8(new MemoryAddress(DATA_ADDRESS)));
+	}
+
+	@Test
+	void lockWithoutMemoryOperand() {
+		final X86Cpu cpu = newCpu();
+		assertThrows(
+				IllegalArgumentException.class,
+				() -> cpu.executeOne(
+						new GeneralInstruction(LegacyPrefix.LOCK, Opcode.ADD, Register8.AL, Register8.CL)));
+	}
+
+	@Test
+	void threadSyscalls() {
+		final X86Cpu cpu = newCpu();
+		final X86Machine machine = new X86Machine(cpu);
+		cpu.executeOne(mov(Register32.EAX, 186));
+		cpu.executeOne(new GeneralInstruction(Opcode.SYSCALL));
+		assertEquals(1L, cpu.getRegisters().get(Register64.RAX));
+
+		// FUTEX_WAIT on a value which has already changed does not block
+		mem.write(new MemoryAddress(DATA_ADDRESS), 5);
+		cpu.executeOne(mov(Register32.EAX, 202));
+		cpu.executeOne(mov(Register32.EDI, (int) DATA_ADDRESS));
+		cpu.executeOne(mov(Register32.ESI, 0));
+		cpu.executeOne(mov(Register32.EDX, 4));
+		cpu.executeOne(new GeneralInstruction(Opcode.SYSCALL));
+		assertEquals(-11L, cpu.getRegisters().get(Register64.RAX));
+
+		// FUTEX_WAKE with nobody waiting
+		cpu.executeOne(mov(Register32.EAX, 202));
+		cpu.executeOne(mov(Register32.ESI, 1));
+		cpu.executeOne(new GeneralInstruction(Opcode.SYSCALL));
+		assertEquals(0L, cpu.getRegisters().get(Register64.RAX));
+		assertEquals(1, machine.getNumThreads());
+	}
+
+	@Test
+	void cloneRunsBothThreads() {
+		final byte[] code = InstructionEncoder.toHex(
+				true,
+				mov(Register32.EAX, 56),
+				// CLONE_VM | CLONE_THREAD
+				mov(Register32.EDI, 0x10100),
+				mov(Register32.ESI, 0),
+				new GeneralInstruction(Opcode.SYSCALL),
+				LOCK_ADD,
+				mov(Register32.EAX, 60),
+				mov(Register32.EDI, 7),
+				new GeneralInstruction(Opcode.SYSCALL));
+		mem.initialize(new MemoryAddress(CODE_ADDRESS), code);
+		mem.initialize(new MemoryAddress(DATA_ADDRESS), 8L, (byte) 0);
+		final X86Cpu cpu = newCpu();
+		cpu.setInstructionPointer(CODE_ADDRESS);
+
+		final X86Machine machine = new X86Machine(cpu);
+		machine.run();
+
+		assertEquals(2, machine.getNumThreads());
+		assertEquals((byte) 2, mem.read(new MemoryAddress(DATA_ADDRESS)));
+		assertEquals(7L, machine.getExitCode());
+	}
+
+	@Test
+	void archPrctlSetsSegmentBases() {
+		final X86Cpu cpu = newCpu();
+		mem.initialize(new MemoryAddress(DATA_ADDRESS), 32L, (byte) 0);
+		mem.write(new MemoryAddress(DATA_ADDRESS + 16L), 0x1122334455667788L);
+
+		// ARCH_SET_FS
+		cpu.executeOne(mov(Register32.EAX, 158));
+		cpu.executeOne(mov(Register32.EDI, 0x1002));
+		cpu.executeOne(mov(Register32.ESI, 16));
+		cpu.executeOne(new GeneralInstruction(Opcode.SYSCALL));
+		assertEquals(0L, cpu.getRegisters().get(Register64.RAX));
+		assertEquals(16L, cpu.getRegisters().getSegmentBase(SegmentRegister.FS));
+		assertEquals(0L, cpu.getRegisters().getSegmentBase(SegmentRegister.GS));
+
+		// The base is added to memory operands with an FS override, but not to LEA
+		final IndirectOperand fsRbx = IndirectOperand.builder()
+				.pointer(PointerSize.QWORD_PTR)
+				.segment(SegmentRegister.FS)
+				.base(Register64.RBX)
+				.build();
+		cpu.executeOne(new GeneralInstruction(Opcode.MOV, Register64.RDX, fsRbx));
+		assertEquals(0x1122334455667788L, cpu.getRegisters().get(Register64.RDX));
+		cpu.executeOne(new GeneralInstruction(Opcode.LEA, Register64.RDX, fsRbx));
+		assertEquals(DATA_ADDRESS, cpu.getRegisters().get(Register64.RDX));
+
+		// ARCH_GET_FS
+		cpu.executeOne(mov(Register32.EAX, 158));
+		cpu.executeOne(mov(Register32.EDI, 0x1003));
+		cpu.executeOne(mov(Register32.ESI, (int) DATA_ADDRESS));
+		cpu.executeOne(new GeneralInstruction(Opcode.SYSCALL));
+		assertEquals(0L, cpu.getRegisters().get(Register64.RAX));
+		assertEquals(16L, mem.read8(new MemoryAddress(DATA_ADDRESS)));
+
+		// Unknown code
+		cpu.executeOne(mov(Register32.EAX, 158));
+		cpu.executeOne(mov(Register32.EDI, 0x2000));
+		cpu.executeOne(new GeneralInstruction(Opcode.SYSCALL));
+		assertEquals(-22L, cpu.getRegisters().get(Register64.RAX));
+	}
+
+	@Test
+	void cloneSetsTheThreadPointerAndCopiesTheRegisterFile() {
+		final byte[] code = InstructionEncoder.toHex(
+				true,
+				// arch_prctl(ARCH_SET_GS, 16): inherited by the child
+				mov(Register32.EAX, 158),
+				mov(Register32.EDI, 0x1001),
+				mov(Register32.ESI, 16),
+				new GeneralInstruction(Opcode.SYSCALL),
+				// clone(CLONE_VM | CLONE_THREAD | CLONE_SETTLS, 0, 0, 0, 8)
+				mov(Register32.EAX, 56),
+				mov(Register32.EDI, 0x90100),
+				mov(Register32.ESI, 0),
+				mov(Register32.R8D, 8),
+				new GeneralInstruction(Opcode.SYSCALL),
+				lockAdd(SegmentRegister.FS),
+				lockAdd(SegmentRegister.GS),
+				mov(Register32.EAX, 60),
+				mov(Register32.EDI, 0),
+				new GeneralInstruction(Opcode.SYSCALL));
+		mem.initialize(new MemoryAddress(CODE_ADDRESS), code);
+		mem.initialize(new MemoryAddress(DATA_ADDRESS), 24L, (byte) 0);
+		final X86Cpu cpu = newCpu();
+		cpu.setInstructionPointer(CODE_ADDRESS);
+
+		new X86Machine(cpu).run();
+
+		// The parent keeps a zero FS base, the child got the one passed to clone
+		assertEquals((byte) 1, mem.read(new MemoryAddress(DATA_ADDRESS)));
+		assertEquals((byte) 1, mem.read(new MemoryAddress(DATA_ADDRESS + 8L)));
+		assertEquals((byte) 2, mem.read(new MemoryAddress(DATA_ADDRESS + 16L)));
+		assertEquals(0L, cpu.getRegisters().getSegmentBase(SegmentRegister.FS));
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.ledmington.cpu.x86.Opcode;
+
+final class TestProfiler {
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 2, 16, 1024})
+	void counterMapKeepsAllKeys(final int initialCapacity) {
+		final LongCounterMap map = new LongCounterMap(initialCapacity);
+		final int n = 5_000;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j <= i % 7; j++) {
+				map.increment(0x400000L + 3L * i);
+			}
+		}
+		assertEquals(n, map.size());
+		for (int i = 0; i < n; i++) {
+			final long key = 0x400000L + 3L * i;
+			final long expected = i % 7 + 1;
+			assertEquals(expected, map.get(key), () -> String.format("Wrong count for key 0x%x.", key));
+		}
+		assertEquals(0L, map.get(0L));
+	}
+
+	@Test
+	void countsOpcodesAddressesAndBlocks() {
+		final Profiler p = new Profiler();
+		// A loop of 3 instructions executed 10 times, followed by a RET
+		for (int i = 0; i < 10; i++) {
+			p.record(0x1000L, 3, Opcode.ADD, 0x1003L);
+			p.record(0x1003L, 3, Opcode.CMP, 0x1006L);
+			p.record(0x1006L, 2, Opcode.JNE, i == 9 ? 0x1008L : 0x1000L);
+		}
+		p.record(0x1008L, 1, Opcode.RET, 0x2000L);
+
+		assertEquals(31L, p.getTotalInstructions());
+		assertEquals(10L, p.getCount(Opcode.ADD));
+		assertEquals(10L, p.getCount(Opcode.JNE));
+		assertEquals(1L, p.getCount(Opcode.RET));
+		assertEquals(0L, p.getCount(Opcode.MOV));
+		assertEquals(10L, p.getAddressCount(0x1003L));
+		assertEquals(10L, p.getBlockCount(0x1000L));
+		assertEquals(0L, p.getBlockCount(0x1003L));
+		// The fall-through after a conditional jump starts a new block
+		assertEquals(1L, p.getBlockCount(0x1008L));
+	}
+
+	@Test
+	void collapsedStacks() {
+		final Symbolizer sym = new Symbolizer(
+				new long[] {0x3000L, 0x1000L, 0x2000L},
+				new long[] {0x10L, 0x100L, 0x10L},
+				new String[] {"bar", "main", "foo"});
+		final Profiler p = new Profiler();
+		p.record(0x1000L, 5, Opcode.CALL, 0x2000L);
+		p.record(0x2000L, 5, Opcode.CALL, 0x3000L);
+		p.record(0x3000L, 1, Opcode.NOP, 0x3001L);
+		p.record(0x3001L, 1, Opcode.RET, 0x2005L);
+		p.record(0x2005L, 1, Opcode.RET, 0x1005L);
+		p.record(0x1005L, 1, Opcode.HLT, 0x1006L);
+
+		final List<String> lines = Arrays.asList(p.getCollapsedStacks(sym).split("\n"));
+		assertEquals(List.of("main 2", "main;foo 2", "main;foo;bar 2"), lines);
+	}
+
+	@Test
+	void hotSpotReportIsSymbolized() {
+		final Symbolizer sym = new Symbolizer(new long[] {0x1000L}, new long[] {0x100L}, new String[] {"main"});
+		final Profiler p = new Profiler();
+		p.record(0x1000L, 1, Opcode.NOP, 0x1001L);
+		p.record(0x1001L, 1, Opcode.HLT, 0x1002L);
+		final String report = p.getHotSpotReport(sym, 10);
+		assertTrue(report.contains("main+0x1"), () -> String.format("Expected a symbolized address in:%n%s", report));
+		assertTrue(report.contains("HLT"), () -> String.format("Expected the HLT opcode in:%n%s", report));
+	}
+
+	@Test
+	void symbolizer() {
+		final Symbolizer sym =
+				new Symbolizer(new long[] {0x1000L, 0x2000L}, new long[] {0x10L, 0L}, new String[] {"f", "g"});
+		assertEquals("f", sym.symbolize(0x1000L));
+		assertEquals("f+0xf", sym.symbolize(0x100fL));
+		assertEquals("0x1010", sym.symbolize(0x1010L));
+		assertEquals("g", sym.symbolize(0x2000L));
+		assertEquals("0x2001", sym.symbolize(0x2001L));
+		assertEquals("0xfff", sym.symbolize(0xfffL));
+		assertEquals("f", sym.functionName(0x1008L));
+	}
+}
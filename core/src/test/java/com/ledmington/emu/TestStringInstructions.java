@@ -0,0 +1,299 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.ledmington.cpu.x86.GeneralInstruction;
+import com.ledmington.cpu.x86.IndirectOperand;
+import com.ledmington.cpu.x86.LegacyPrefix;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.PointerSize;
+import com.ledmington.cpu.x86.Register;
+import com.ledmington.cpu.x86.Register16;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.cpu.x86.Register8;
+import com.ledmington.cpu.x86.SegmentRegister;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+import com.ledmington.mem.exc.IllegalReadException;
+import com.ledmington.mem.exc.IllegalWriteException;
+
+final class TestStringInstructions {
+
+	private static final long SRC = 0x10_0000L;
+	private static final long DST = 0x20_0000L;
+	private static final long REGION_SIZE = 0x4000L;
+
+	private RegisterFile rf;
+	private MemoryController mem;
+	private X86Cpu cpu;
+
+	@BeforeEach
+	void setup() {
+		rf = new X86RegisterFile();
+		mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), true, true);
+		for (final long start : new long[] {SRC, DST}) {
+			mem.initialize(new MemoryAddress(start), REGION_SIZE, (byte) 0x00);
+			mem.setPermissions(new MemoryAddress(start), REGION_SIZE, true, true, false);
+		}
+		cpu = X86Cpu.builder().memory(mem).registerFile(rf).build();
+	}
+
+	private static IndirectOperand at(final SegmentRegister segment, final Register64 base, final PointerSize size) {
+		return IndirectOperand.builder().pointer(size).segment(segment).base(base).build();
+	}
+
+	private byte[] read(final long start, final int length) {
+		final byte[] result = new byte[length];
+		mem.read(new MemoryAddress(start), result, 0, length);
+		return result;
+	}
+
+	private static Stream<Arguments> accumulators() {
+		return Stream.of(
+				Arguments.of(Register8.AL, PointerSize.BYTE_PTR),
+				Arguments.of(Register16.AX, PointerSize.WORD_PTR),
+				Arguments.of(Register32.EAX, PointerSize.DWORD_PTR),
+				Arguments.of(Register64.RAX, PointerSize.QWORD_PTR));
+	}
+
+	@ParameterizedTest
+	@MethodSource("accumulators")
+	void repStosWritesOnlyTheElements(final Register accumulator, final PointerSize size) {
+		final int elementSize = size.bits() / 8;
+		final int count = 1500;
+		rf.set(Register64.RAX, 0x8877665544332211L);
+		rf.set(Register64.RCX, count);
+		rf.set(Register64.RDI, DST + 1L);
+
+		cpu.executeOne(new GeneralInstruction(
+				LegacyPrefix.REP, Opcode.STOS, at(SegmentRegister.ES, Register64.RDI, size), accumulator));
+
+		final byte[] expected = new byte[count * elementSize + 2];
+		for (int i = 0; i < count * elementSize; i++) {
+			expected[1 + i] = (byte) (0x11 * (1 + i % elementSize));
+		}
+		assertArrayEquals(expected, read(DST, expected.length));
+		assertEquals(0L, rf.get(Register64.RCX));
+		assertEquals(DST + 1L + (long) count * elementSize, rf.get(Register64.RDI));
+	}
+
+	@Test
+	void repMovsCopiesAcrossPages() {
+		final byte[] data = new byte[10_000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		mem.initialize(new MemoryAddress(SRC + 3L), data);
+		rf.set(Register64.RCX, data.length);
+		rf.set(Register64.RSI, SRC + 3L);
+		rf.set(Register64.RDI, DST + 5L);
+
+		cpu.executeOne(new GeneralInstruction(
+				LegacyPrefix.REP,
+				Opcode.MOVS,
+				at(SegmentRegister.ES, Register64.RDI, PointerSize.BYTE_PTR),
+				at(SegmentRegister.DS, Register64.RSI, PointerSize.BYTE_PTR)));
+
+		assertArrayEquals(data, read(DST + 5L, data.length));
+		assertEquals(0L, rf.get(Register64.RCX));
+		assertEquals(SRC + 3L + data.length, rf.get(Register64.RSI));
+		assertEquals(DST + 5L + data.length, rf.get(Register64.RDI));
+	}
+
+	@Test
+	void overlappingRepMovsRepeatsThePattern() {
+		mem.initialize(new MemoryAddress(SRC), new byte[] {1, 2, 3});
+		rf.set(Register64.RCX, 100L);
+		rf.set(Register64.RSI, SRC);
+		rf.set(Register64.RDI, SRC + 3L);
+
+		cpu.executeOne(new GeneralInstruction(
+				LegacyPrefix.REP,
+				Opcode.MOVS,
+				at(SegmentRegister.ES, Register64.RDI, PointerSize.BYTE_PTR),
+				at(SegmentRegister.DS, Register64.RSI, PointerSize.BYTE_PTR)));
+
+		final byte[] expected = new byte[103];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = (byte) (1 + i % 3);
+		}
+		assertArrayEquals(expected, read(SRC, expected.length));
+	}
+
+	@Test
+	void backwardRepMovs() {
+		final byte[] data = new byte[8 * 1000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 7);
+		}
+		mem.initialize(new MemoryAddress(SRC), data);
+		rf.set(RFlags.DIRECTION, true);
+		rf.set(Register64.RCX, 1000L);
+		rf.set(Register64.RSI, SRC + data.length - 8L);
+		rf.set(Register64.RDI, DST + data.length - 8L);
+
+		cpu.executeOne(new GeneralInstruction(
+				LegacyPrefix.REP,
+				Opcode.MOVS,
+				at(SegmentRegister.ES, Register64.RDI, PointerSize.QWORD_PTR),
+				at(SegmentRegister.DS, Register64.RSI, PointerSize.QWORD_PTR)));
+
+		assertArrayEquals(data, read(DST, data.length));
+		assertEquals(0L, rf.get(Register64.RCX));
+		assertEquals(SRC - 8L, rf.get(Register64.RSI));
+		assertEquals(DST - 8L, rf.get(Register64.RDI));
+	}
+
+	@Test
+	void repeCmpsStopsAfterFirstDifference() {
+		final byte[] data = new byte[5000];
+		Arrays.fill(data, (byte) 0x42);
+		mem.initialize(new MemoryAddress(SRC), data);
+		data[4321] = 0x40;
+		mem.initialize(new MemoryAddress(DST), data);
+		rf.set(Register64.RCX, 5000L);
+		rf.set(Register64.RSI, SRC);
+		rf.set(Register64.RDI, DST);
+
+		cpu.executeOne(new GeneralInstruction(
+				LegacyPrefix.REP,
+				Opcode.CMPS,
+				at(SegmentRegister.DS, Register64.RSI, PointerSize.BYTE_PTR),
+				at(SegmentRegister.ES, Register64.RDI, PointerSize.BYTE_PTR)));
+
+		assertEquals(5000L - 4322L, rf.get(Register64.RCX));
+		assertEquals(SRC + 4322L, rf.get(Register64.RSI));
+		assertEquals(DST + 4322L, rf.get(Register64.RDI));
+		assertFalse(rf.isSet(RFlags.ZERO));
+		assertFalse(rf.isSet(RFlags.CARRY));
+	}
+
+	@Test
+	void repneScasFindsTheTerminator() {
+		final byte[] string = new byte[6000];
+		Arrays.fill(string, (byte) 'a');
+		string[5555] = 0;
+		mem.initialize(new MemoryAddress(SRC), string);
+		rf.set(Register64.RAX, 0L);
+		rf.set(Register64.RCX, -1L);
+		rf.set(Register64.RDI, SRC);
+
+		cpu.executeOne(new GeneralInstruction(
+				LegacyPrefix.REPNZ,
+				Opcode.SCAS,
+				Register8.AL,
+				at(SegmentRegister.ES, Register64.RDI, PointerSize.BYTE_PTR)));
+
+		// The classic strlen: length = -RCX - 2
+		assertEquals(5555L, -rf.get(Register64.RCX) - 2L);
+		assertEquals(SRC + 5556L, rf.get(Register64.RDI));
+		assertTrue(rf.isSet(RFlags.ZERO));
+	}
+
+	@Test
+	void zeroCountDoesNothing() {
+		rf.set(Register64.RCX, 0L);
+		rf.set(Register64.RDI, DST);
+		rf.set(RFlags.ZERO, true);
+
+		cpu.executeOne(new GeneralInstruction(
+				LegacyPrefix.REPNZ,
+				Opcode.SCAS,
+				Register8.AL,
+				at(SegmentRegister.ES, Register64.RDI, PointerSize.BYTE_PTR)));
+
+		assertEquals(DST, rf.get(Register64.RDI));
+		assertTrue(rf.isSet(RFlags.ZERO));
+	}
+
+	@Test
+	void faultingRepStosCompletesThePreviousElements() {
+		final long limit = DST + 0x2000L;
+		mem.setPermissions(new MemoryAddress(limit), REGION_SIZE - 0x2000L, true, false, false);
+		rf.set(Register64.RAX, 0xffL);
+		rf.set(Register64.RCX, 0x3000L);
+		rf.set(Register64.RDI, DST + 0x800L);
+
+		assertThrows(
+				IllegalWriteException.class,
+				() -> cpu.executeOne(new GeneralInstruction(
+						LegacyPrefix.REP,
+						Opcode.STOS,
+						at(SegmentRegister.ES, Register64.RDI, PointerSize.BYTE_PTR),
+						Register8.AL)));
+
+		assertEquals(limit, rf.get(Register64.RDI));
+		assertEquals(0x3000L - (0x2000L - 0x800L), rf.get(Register64.RCX));
+		final byte[] expected = new byte[0x1800];
+		Arrays.fill(expected, (byte) 0xff);
+		assertArrayEquals(expected, read(DST + 0x800L, expected.length));
+	}
+
+	@Test
+	void faultingBackwardRepMovsCompletesThePreviousElements() {
+		mem.setPermissions(new MemoryAddress(SRC), 0x100L, false, false, false);
+		rf.set(RFlags.DIRECTION, true);
+		rf.set(Register64.RCX, 0x200L);
+		rf.set(Register64.RSI, SRC + 0x1ffL);
+		rf.set(Register64.RDI, DST + 0x1ffL);
+
+		assertThrows(
+				IllegalReadException.class,
+				() -> cpu.executeOne(new GeneralInstruction(
+						LegacyPrefix.REP,
+						Opcode.MOVS,
+						at(SegmentRegister.ES, Register64.RDI, PointerSize.BYTE_PTR),
+						at(SegmentRegister.DS, Register64.RSI, PointerSize.BYTE_PTR))));
+
+		assertEquals(SRC + 0xffL, rf.get(Register64.RSI));
+		assertEquals(DST + 0xffL, rf.get(Register64.RDI));
+		assertEquals(0x100L, rf.get(Register64.RCX));
+	}
+
+	@Test
+	void singleStosWritesOneElement() {
+		rf.set(Register64.RAX, 0x11223344L);
+		rf.set(Register64.RCX, 10L);
+		rf.set(Register64.RDI, DST);
+
+		cpu.executeOne(new GeneralInstruction(
+				Opcode.STOS, at(SegmentRegister.ES, Register64.RDI, PointerSize.DWORD_PTR), Register32.EAX));
+
+		assertArrayEquals(new byte[] {0x44, 0x33, 0x22, 0x11, 0x00}, read(DST, 5));
+		assertEquals(10L, rf.get(Register64.RCX));
+		assertEquals(DST + 4L, rf.get(Register64.RDI));
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.x86.GeneralInstruction;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.cpu.x86.SegmentRegister;
+import com.ledmington.emu.syscall.LinuxSyscalls;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+
+final class TestTracing {
+
+	private static final long CODE_ADDRESS = 0x1000L;
+	private static final long STACK_TOP = 0x10000L;
+	private static final long STACK_SIZE = 0x1000L;
+	private static final long VALUE = 0x1122334455667788L;
+	private static final long BUFFER = 0x2000L;
+
+	private static int length(final Instruction inst) {
+		return InstructionEncoder.toHex(inst, true).length;
+	}
+
+	@Test
+	void recordAndReadBack() {
+		final Instruction[] code = {
+			new GeneralInstruction(Opcode.MOVABS, Register64.RAX, new Immediate(VALUE)),
+			new GeneralInstruction(Opcode.PUSH, Register64.RAX),
+			new GeneralInstruction(Opcode.POP, Register64.RBX),
+			new GeneralInstruction(Opcode.SUB, Register64.RAX, Register64.RBX),
+			new GeneralInstruction(Opcode.HLT)
+		};
+		final MemoryController mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), true, true);
+		final byte[] hex = InstructionEncoder.toHex(true, code);
+		mem.initialize(new MemoryAddress(CODE_ADDRESS), hex);
+		mem.setPermissions(new MemoryAddress(CODE_ADDRESS), hex.length, true, false, true);
+		mem.setPermissions(new MemoryAddress(STACK_TOP - STACK_SIZE), STACK_SIZE, true, true, false);
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final RegisterFile rf = new X86RegisterFile();
+		rf.set(Register64.RSP, STACK_TOP);
+		try (TraceWriter tracer = new TraceWriter(Channels.newChannel(baos))) {
+			final X86Cpu cpu = X86Cpu.builder()
+					.memory(mem)
+					.registerFile(rf)
+					.stackTop(STACK_TOP)
+					.stackSize(STACK_SIZE)
+					.tracer(tracer)
+					.build();
+			cpu.setInstructionPointer(CODE_ADDRESS);
+			cpu.execute();
+			assertEquals(code.length, tracer.getRecordCount());
+		}
+
+		final TraceReader reader = new TraceReader(ByteBuffer.wrap(baos.toByteArray()));
+		long rip = CODE_ADDRESS;
+		for (final Instruction inst : code) {
+			assertTrue(reader.next(), () -> String.format("Missing record for '%s'.", inst));
+			final long expectedRip = rip;
+			assertEquals(
+					expectedRip,
+					reader.getInstructionAddress(),
+					() -> String.format(
+							"Expected '%s' at 0x%x but was at 0x%x.", inst, expectedRip, reader.getInstructionAddress()));
+			assertEquals(length(inst), reader.getInstructionLength());
+			assertEquals(rip + length(inst), reader.getRegisters().get(Register64.RIP));
+			rip += length(inst);
+
+			switch (inst.opcode()) {
+				case MOVABS -> {
+					assertTrue(reader.hasChanged(Register64.RAX));
+					assertEquals(VALUE, reader.getRegisters().get(Register64.RAX));
+					assertEquals(0, reader.getNumMemoryWrites());
+				}
+				case PUSH -> {
+					assertTrue(reader.hasChanged(Register64.RSP));
+					assertEquals(1, reader.getNumMemoryWrites());
+					assertEquals(STACK_TOP - 8L, reader.getMemoryWriteAddress(0));
+					assertEquals(8, reader.getMemoryWriteSize(0));
+					assertEquals(VALUE, reader.getMemoryWriteValue(0));
+				}
+				case POP -> {
+					assertTrue(reader.hasChanged(Register64.RBX));
+					assertEquals(VALUE, reader.getRegisters().get(Register64.RBX));
+					assertEquals(STACK_TOP, reader.getRegisters().get(Register64.RSP));
+				}
+				case SUB -> {
+					assertTrue(reader.hasChanged(Register64.RAX));
+					assertTrue(reader.hasChangedFlags());
+					assertTrue(reader.getRegisters().isSet(RFlags.ZERO));
+				}
+				default -> assertFalse(reader.hasChanged(Register64.RAX));
+			}
+		}
+		assertFalse(reader.next(), "Expected the trace to end after HLT.");
+	}
+
+	@Test
+	void recordSyscallWrites() {
+		final byte[] input = "0123456789".getBytes(StandardCharsets.UTF_8);
+		final Instruction[] code = {
+			// read(0, BUFFER, input.length)
+			new GeneralInstruction(Opcode.MOV, Register32.EAX, new Immediate(0)),
+			new GeneralInstruction(Opcode.MOV, Register32.EDI, new Immediate(0)),
+			new GeneralInstruction(Opcode.MOV, Register32.ESI, new Immediate((int) BUFFER)),
+			new GeneralInstruction(Opcode.MOV, Register32.EDX, new Immediate(input.length)),
+			new GeneralInstruction(Opcode.SYSCALL),
+			new GeneralInstruction(Opcode.HLT)
+		};
+		final MemoryController mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), true, false);
+		final byte[] hex = InstructionEncoder.toHex(true, code);
+		mem.initialize(new MemoryAddress(CODE_ADDRESS), hex);
+		mem.setPermissions(new MemoryAddress(CODE_ADDRESS), hex.length, true, false, true);
+		mem.setPermissions(new MemoryAddress(BUFFER), 16L, true, true, false);
+		mem.setPermissions(new MemoryAddress(STACK_TOP - STACK_SIZE), STACK_SIZE, true, true, false);
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final RegisterFile rf = new X86RegisterFile();
+		rf.set(Register64.RSP, STACK_TOP);
+		try (TraceWriter tracer = new TraceWriter(Channels.newChannel(baos))) {
+			final X86Cpu cpu = X86Cpu.builder()
+					.memory(mem)
+					.registerFile(rf)
+					.stackTop(STACK_TOP)
+					.stackSize(STACK_SIZE)
+					.syscalls(new LinuxSyscalls(
+							new ByteArrayInputStream(input),
+							new ByteArrayOutputStream(),
+							new ByteArrayOutputStream(),
+							Path.of("")))
+					.tracer(tracer)
+					.build();
+			cpu.setInstructionPointer(CODE_ADDRESS);
+			cpu.execute();
+		}
+
+		// Replaying the trace on an empty memory must rebuild the buffer filled by the kernel
+		final MemoryController replayed = new MemoryController(new PagedMemory(MemoryInitializer.zero()), false, false);
+		final TraceReader reader = new TraceReader(ByteBuffer.wrap(baos.toByteArray()));
+		for (int i = 0; i < 5; i++) {
+			assertTrue(reader.next());
+			reader.replayWrites(replayed);
+		}
+		assertTrue(reader.getNumMemoryWrites() > 0, "Expected the syscall to record the buffer it filled.");
+		assertEquals(input.length, reader.getRegisters().get(Register64.RAX));
+		final byte[] actual = new byte[input.length];
+		replayed.read(new MemoryAddress(BUFFER), actual, 0, actual.length);
+		assertEquals(new String(input, StandardCharsets.UTF_8), new String(actual, StandardCharsets.UTF_8));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {384, 1024, 65_536})
+	void manyRecordsAcrossChunks(final int chunkBytes) {
+		final int n = 10_000;
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final X86RegisterFile rf = new X86RegisterFile();
+		try (TraceWriter tracer = new TraceWriter(Channels.newChannel(baos), chunkBytes)) {
+			for (int i = 0; i < n; i++) {
+				tracer.beforeInstruction(rf);
+				final long rip = rf.get(Register64.RIP);
+				rf.set(Register64.RIP, rip + 3L);
+				rf.set(Register64.RCX, i);
+				tracer.recordWrite(0x7fff0000L - 8L * i, 8, i * 31L);
+				tracer.afterInstruction(rip, 3, rf);
+			}
+		}
+
+		final TraceReader reader = new TraceReader(ByteBuffer.wrap(baos.toByteArray()));
+		for (int i = 0; i < n; i++) {
+			assertTrue(reader.next());
+			assertEquals(3L * i, reader.getInstructionAddress());
+			assertEquals(3, reader.getInstructionLength());
+			assertEquals(i, reader.getRegisters().get(Register64.RCX));
+			assertEquals(1, reader.getNumMemoryWrites());
+			assertEquals(0x7fff0000L - 8L * i, reader.getMemoryWriteAddress(0));
+			assertEquals(i * 31L, reader.getMemoryWriteValue(0));
+		}
+		assertFalse(reader.next());
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {384, 65_536})
+	void vectorLanesAndSegmentBases(final int chunkBytes) {
+		final int n = 1_000;
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final X86RegisterFile rf = new X86RegisterFile();
+		try (TraceWriter tracer = new TraceWriter(Channels.newChannel(baos), chunkBytes)) {
+			for (int i = 0; i < n; i++) {
+				tracer.beforeInstruction(rf);
+				final long rip = rf.get(Register64.RIP);
+				rf.set(Register64.RIP, rip + 4L);
+				rf.setVectorLane(i % 32, i % 8, i + 1L);
+				if (i % 100 == 0) {
+					rf.setSegmentBase(SegmentRegister.FS, 0x7000L + i);
+				}
+				tracer.afterInstruction(rip, 4, rf);
+			}
+		}
+
+		final TraceReader reader = new TraceReader(ByteBuffer.wrap(baos.toByteArray()));
+		final X86RegisterFile expected = new X86RegisterFile();
+		for (int i = 0; i < n; i++) {
+			assertTrue(reader.next());
+			expected.set(Register64.RIP, 4L * (i + 1));
+			expected.setVectorLane(i % 32, i % 8, i + 1L);
+			if (i % 100 == 0) {
+				expected.setSegmentBase(SegmentRegister.FS, 0x7000L + i);
+			}
+			assertEquals(expected, reader.getRegisters());
+			assertTrue(reader.hasChangedVector(i % 32));
+			assertFalse(reader.hasChangedVector((i + 1) % 32));
+		}
+		assertFalse(reader.next());
+	}
+
+	@Test
+	void replayWrites() {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final X86RegisterFile rf = new X86RegisterFile();
+		try (TraceWriter tracer = new TraceWriter(Channels.newChannel(baos))) {
+			tracer.beforeInstruction(rf);
+			tracer.recordWrite(0x2000L, 4, 0xdeadbeefL);
+			tracer.afterInstruction(0L, 1, rf);
+		}
+
+		final MemoryController mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), false, false);
+		final TraceReader reader = new TraceReader(ByteBuffer.wrap(baos.toByteArray()));
+		assertTrue(reader.next());
+		reader.replayWrites(mem);
+		assertEquals(0xdeadbeef, mem.read4(new MemoryAddress(0x2000L)));
+	}
+
+	@Test
+	void olderVersion() {
+		final ByteBuffer bb = ByteBuffer.allocate(TraceFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		bb.putLong(TraceFormat.MAGIC);
+		bb.putShort((short) 1);
+		bb.putShort((short) TraceFormat.NUM_SLOTS);
+		bb.putInt(0);
+		assertThrows(IllegalArgumentException.class, () -> new TraceReader(bb.flip()));
+	}
+
+	@Test
+	void invalidMagic() {
+		final ByteBuffer bb = ByteBuffer.allocate(TraceFormat.HEADER_BYTES);
+		assertThrows(IllegalArgumentException.class, () -> new TraceReader(bb));
+	}
+}
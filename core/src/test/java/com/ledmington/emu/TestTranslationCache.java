@@ -0,0 +1,136 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.mem.MemoryController;
+
+final class TestTranslationCache {
+
+	private static final String KEY = "test";
+	private static final long[] ROOTS = {TestBlockCompiler.CODE_ADDRESS};
+	private static final LongPredicate IS_CODE =
+			a -> a >= TestBlockCompiler.CODE_ADDRESS && a < TestBlockCompiler.DATA_ADDRESS;
+
+	private Path directory;
+	private Path file;
+
+	@BeforeEach
+	void setup() throws IOException {
+		directory = Files.createTempDirectory("emu-aot-");
+		file = directory.resolve("test.aot");
+	}
+
+	@AfterEach
+	void teardown() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			for (final Path p : files.toList()) {
+				Files.delete(p);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	private TranslationCache open(final long baseAddress, final boolean checkInstructions) throws IOException {
+		return TranslationCache.open(
+				file, KEY, TestBlockCompiler.load(), ROOTS, IS_CODE, baseAddress, checkInstructions);
+	}
+
+	@Test
+	void translatesOnceThenLoads() throws IOException {
+		final TranslationCache first = open(0L, true);
+		assertFalse(first.wasLoaded());
+		assertTrue(first.size() > 0);
+		assertTrue(Files.isRegularFile(file));
+
+		final TranslationCache second = open(0L, true);
+		assertTrue(second.wasLoaded());
+		assertEquals(first.size(), second.size());
+	}
+
+	@Test
+	void runsTranslatedBlocksWithoutWarmUp() throws IOException {
+		open(0L, true);
+		final X86Cpu interpreted = TestBlockCompiler.cpu(TestBlockCompiler.load(), 0);
+		final MemoryController mem = TestBlockCompiler.load();
+		final X86Cpu translated = TestBlockCompiler.cpu(mem, Integer.MAX_VALUE);
+		translated.useTranslationCache(TranslationCache.open(file, KEY, mem, ROOTS, IS_CODE, 0L, true));
+		assertEquals(StopReason.HALTED, interpreted.execute(Long.MAX_VALUE));
+		assertEquals(StopReason.HALTED, translated.execute(Long.MAX_VALUE));
+		TestBlockCompiler.assertSameState(interpreted, translated);
+		assertTrue(translated.getCompiledBlocks() > 0L);
+	}
+
+	@Test
+	void rebuildsForDifferentBaseAddress() throws IOException {
+		open(0L, true);
+		assertFalse(open(0x1000L, true).wasLoaded());
+		assertTrue(open(0x1000L, true).wasLoaded());
+	}
+
+	@Test
+	void rebuildsUncheckedTranslationsWhenChecking() throws IOException {
+		open(0L, false);
+		assertTrue(open(0L, false).wasLoaded());
+		assertFalse(open(0L, true).wasLoaded());
+		// Checked translations are fine also without checks
+		assertTrue(open(0L, false).wasLoaded());
+	}
+
+	@Test
+	void rebuildsCorruptedFile() throws IOException {
+		Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+		final TranslationCache cache = open(0L, true);
+		assertFalse(cache.wasLoaded());
+		assertTrue(cache.size() > 0);
+	}
+
+	@Test
+	void rebuildsTamperedFile() throws IOException {
+		open(0L, true);
+		final byte[] contents = Files.readAllBytes(file);
+		// Flip a bit inside the last class file
+		contents[contents.length - 1] ^= 1;
+		Files.write(file, contents);
+		final TranslationCache cache = open(0L, true);
+		assertFalse(cache.wasLoaded());
+		assertTrue(cache.size() > 0);
+		assertTrue(open(0L, true).wasLoaded());
+	}
+
+	@Test
+	void rebuildsFileOfAnotherExecutable() throws IOException {
+		open(0L, true);
+		final TranslationCache cache = TranslationCache.open(
+				file, "another", TestBlockCompiler.load(), ROOTS, IS_CODE, 0L, true);
+		assertFalse(cache.wasLoaded());
+	}
+}
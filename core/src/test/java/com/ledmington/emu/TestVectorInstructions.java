@@ -0,0 +1,212 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.cpu.x86.GeneralInstruction;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.IndirectOperand;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.PointerSize;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.cpu.x86.RegisterXMM;
+import com.ledmington.cpu.x86.RegisterYMM;
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+
+final class TestVectorInstructions {
+
+	private static final long DATA = 0x10_0000L;
+	private static final long REGION_SIZE = 0x1000L;
+
+	private RegisterFile rf;
+	private MemoryController mem;
+	private X86Cpu cpu;
+
+	@BeforeEach
+	void setup() {
+		rf = new X86RegisterFile();
+		mem = new MemoryController(new PagedMemory(MemoryInitializer.zero()), true, true);
+		mem.initialize(new MemoryAddress(DATA), REGION_SIZE, (byte) 0x00);
+		mem.setPermissions(new MemoryAddress(DATA), REGION_SIZE, true, true, false);
+		cpu = X86Cpu.builder().memory(mem).registerFile(rf).build();
+		rf.set(Register64.RSI, DATA);
+	}
+
+	private static IndirectOperand at(final PointerSize size) {
+		return IndirectOperand.builder().pointer(size).base(Register64.RSI).build();
+	}
+
+	private void setVector(final int register, final long... lanes) {
+		for (int i = 0; i < lanes.length; i++) {
+			rf.setVectorLane(register, i, lanes[i]);
+		}
+	}
+
+	private void assertVector(final int register, final long... lanes) {
+		for (int i = 0; i < lanes.length; i++) {
+			assertEquals(lanes[i], rf.getVectorLane(register, i), String.format("Lane %d", i));
+		}
+	}
+
+	@Test
+	void pxorClearsTheRegister() {
+		setVector(3, 0x1234L, -1L, 7L);
+		cpu.executeOne(new GeneralInstruction(Opcode.PXOR, RegisterXMM.XMM3, RegisterXMM.XMM3));
+		// Legacy SSE instructions leave the upper part of the YMM register untouched
+		assertVector(3, 0L, 0L, 7L);
+	}
+
+	@Test
+	void vexInstructionsClearTheUpperLanes() {
+		setVector(1, 0x0f0fL, 0xf0f0L, 5L, 6L);
+		setVector(2, 0x00ffL, 0x00ffL);
+		cpu.executeOne(new GeneralInstruction(Opcode.VPXOR, RegisterXMM.XMM1, RegisterXMM.XMM1, RegisterXMM.XMM2));
+		assertVector(1, 0x0ff0L, 0xf00fL, 0L, 0L);
+	}
+
+	@Test
+	void movdquRoundTrip() {
+		mem.write(new MemoryAddress(DATA), 0x0123456789abcdefL);
+		mem.write(new MemoryAddress(DATA + 8L), 0xfedcba9876543210L);
+		cpu.executeOne(new GeneralInstruction(Opcode.MOVDQU, RegisterXMM.XMM4, at(PointerSize.XMMWORD_PTR)));
+		assertVector(4, 0x0123456789abcdefL, 0xfedcba9876543210L);
+
+		rf.set(Register64.RSI, DATA + 0x100L);
+		cpu.executeOne(new GeneralInstruction(Opcode.MOVDQU, at(PointerSize.XMMWORD_PTR), RegisterXMM.XMM4));
+		assertEquals(0x0123456789abcdefL, mem.read8(new MemoryAddress(DATA + 0x100L)));
+		assertEquals(0xfedcba9876543210L, mem.read8(new MemoryAddress(DATA + 0x108L)));
+	}
+
+	@Test
+	void findTheTerminatorOfAString() {
+		final byte[] text = "hello, world".getBytes(StandardCharsets.US_ASCII);
+		for (int i = 0; i < text.length; i++) {
+			mem.write(new MemoryAddress(DATA + i), text[i]);
+		}
+		cpu.executeOne(new GeneralInstruction(Opcode.PXOR, RegisterXMM.XMM0, RegisterXMM.XMM0));
+		cpu.executeOne(new GeneralInstruction(Opcode.PCMPEQB, RegisterXMM.XMM0, at(PointerSize.XMMWORD_PTR)));
+		cpu.executeOne(new GeneralInstruction(Opcode.PMOVMSKB, Register32.EAX, RegisterXMM.XMM0));
+		assertEquals(0xf000, rf.get(Register32.EAX));
+		assertEquals(text.length, Integer.numberOfTrailingZeros(rf.get(Register32.EAX)));
+	}
+
+	@Test
+	void vpcmpeqbOnYmmRegisters() {
+		setVector(1, 0x1122334455667788L, 0L, -1L, 0x00ff00ff00ff00ffL);
+		setVector(2, 0x1122334455667700L, 1L, -1L, 0L);
+		cpu.executeOne(new GeneralInstruction(Opcode.VPCMPEQB, RegisterYMM.YMM3, RegisterYMM.YMM1, RegisterYMM.YMM2));
+		assertVector(3, 0xffffffffffffff00L, 0xffffffffffffff00L, -1L, 0xff00ff00ff00ff00L);
+		cpu.executeOne(new GeneralInstruction(Opcode.VPMOVMSKB, Register32.EDX, RegisterYMM.YMM3));
+		assertEquals(0xaaff_fefe, rf.get(Register32.EDX));
+	}
+
+	@Test
+	void packedAdditionsDoNotCarryAcrossElements() {
+		setVector(0, 0xffffffff00000001L, 0x7fffffff80000000L);
+		setVector(1, 0x0000000100000002L, 0x0000000180000000L);
+		cpu.executeOne(new GeneralInstruction(Opcode.PADDD, RegisterXMM.XMM0, RegisterXMM.XMM1));
+		assertVector(0, 0x0000000000000003L, 0x8000000000000000L);
+	}
+
+	@Test
+	void packedSubtractionsDoNotBorrowAcrossElements() {
+		setVector(0, 0x0001020304050600L, 0L);
+		setVector(1, 0x0101010101010101L, 0x0101010101010101L);
+		cpu.executeOne(new GeneralInstruction(Opcode.PSUBB, RegisterXMM.XMM0, RegisterXMM.XMM1));
+		assertVector(0, 0xff000102030405ffL, 0xffffffffffffffffL);
+	}
+
+	@Test
+	void pshufbReversesTheBytes() {
+		setVector(0, 0x0706050403020100L, 0x0f0e0d0c0b0a0908L);
+		setVector(1, 0x08090a0b0c0d0e0fL, 0x8001020304050607L);
+		cpu.executeOne(new GeneralInstruction(Opcode.PSHUFB, RegisterXMM.XMM0, RegisterXMM.XMM1));
+		assertVector(0, 0x08090a0b0c0d0e0fL, 0x0001020304050607L);
+	}
+
+	@Test
+	void palignrConcatenatesTheSources() {
+		setVector(0, 0x1716151413121110L, 0x1f1e1d1c1b1a1918L);
+		setVector(1, 0x0706050403020100L, 0x0f0e0d0c0b0a0908L);
+		cpu.executeOne(
+				new GeneralInstruction(Opcode.PALIGNR, RegisterXMM.XMM0, RegisterXMM.XMM1, new Immediate((byte) 3)));
+		assertVector(0, 0x0a09080706050403L, 0x1211100f0e0d0c0bL);
+	}
+
+	@Test
+	void byteShiftsMoveWholeBytes() {
+		setVector(0, 0x0706050403020100L, 0x0f0e0d0c0b0a0908L);
+		cpu.executeOne(new GeneralInstruction(Opcode.PSLLDQ, RegisterXMM.XMM0, new Immediate((byte) 2)));
+		assertVector(0, 0x0504030201000000L, 0x0d0c0b0a09080706L);
+		cpu.executeOne(new GeneralInstruction(Opcode.PSRLDQ, RegisterXMM.XMM0, new Immediate((byte) 9)));
+		assertVector(0, 0x000d0c0b0a090807L, 0L);
+	}
+
+	@Test
+	void punpcklbwInterleavesTheLowBytes() {
+		setVector(0, 0x0706050403020100L, -1L);
+		setVector(1, 0x1716151413121110L, -1L);
+		cpu.executeOne(new GeneralInstruction(Opcode.PUNPCKLBW, RegisterXMM.XMM0, RegisterXMM.XMM1));
+		assertVector(0, 0x1303120211011000L, 0x1707160615051404L);
+	}
+
+	@Test
+	void vpbroadcastbFillsTheWholeRegister() {
+		setVector(1, 0x2aL);
+		cpu.executeOne(new GeneralInstruction(Opcode.VPBROADCASTB, RegisterYMM.YMM0, RegisterXMM.XMM1));
+		assertVector(0, 0x2a2a2a2a2a2a2a2aL, 0x2a2a2a2a2a2a2a2aL, 0x2a2a2a2a2a2a2a2aL, 0x2a2a2a2a2a2a2a2aL, 0L);
+	}
+
+	@Test
+	void vzeroallClearsTheAvxRegisters() {
+		for (int r = 0; r < X86RegisterFile.NUM_VECTOR_REGISTERS; r++) {
+			setVector(r, 1L, 2L, 3L, 4L);
+		}
+		cpu.executeOne(new GeneralInstruction(Opcode.VZEROALL));
+		assertVector(15, 0L, 0L, 0L, 0L);
+		// The registers above XMM15 are not affected
+		assertVector(16, 1L, 2L, 3L, 4L);
+	}
+
+	@Test
+	void movqClearsTheUpperHalf() {
+		setVector(0, -1L, -1L);
+		rf.set(Register64.RAX, 0x1234L);
+		cpu.executeOne(new GeneralInstruction(Opcode.MOVQ, RegisterXMM.XMM0, Register64.RAX));
+		assertVector(0, 0x1234L, 0L);
+	}
+
+	@Test
+	void unsupportedInstructionsAreRejected() {
+		assertThrows(
+				IllegalArgumentException.class,
+				() -> cpu.executeOne(new GeneralInstruction(
+						Opcode.PCMPISTRI, RegisterXMM.XMM0, RegisterXMM.XMM1, new Immediate((byte) 0x0c))));
+	}
+}
@@ -31,6 +31,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import com.ledmington.cpu.x86.GeneralPurposeRegister;
 import com.ledmington.cpu.x86.Register16;
 import com.ledmington.cpu.x86.Register32;
 import com.ledmington.cpu.x86.Register64;
@@ -321,6 +322,82 @@ final class TestX86RegisterFile {
 		}
 	}
 
+	private static Stream<Arguments> allGeneralPurposeRegisters() {
+		return Stream.of(ALL_8_BIT_REGISTERS, ALL_16_BIT_REGISTERS, ALL_32_BIT_REGISTERS, ALL_64_BIT_REGISTERS)
+				.flatMap(Arrays::stream)
+				.map(Arguments::of);
+	}
+
+	private static long typedGet(final X86RegisterFile rf, final GeneralPurposeRegister r) {
+		return switch (r) {
+			case Register8 r8 -> BitUtils.asLong(rf.get(r8));
+			case Register16 r16 -> BitUtils.asLong(rf.get(r16));
+			case Register32 r32 -> BitUtils.asLong(rf.get(r32));
+			case Register64 r64 -> rf.get(r64);
+		};
+	}
+
+	private static void typedSet(final X86RegisterFile rf, final GeneralPurposeRegister r, final long v) {
+		switch (r) {
+			case Register8 r8 -> rf.set(r8, BitUtils.asByte(v));
+			case Register16 r16 -> rf.set(r16, BitUtils.asShort(v));
+			case Register32 r32 -> rf.set(r32, BitUtils.asInt(v));
+			case Register64 r64 -> rf.set(r64, v);
+		}
+	}
+
+	private void randomizeGeneralPurposeRegisters() {
+		for (final Register64 r : ALL_64_BIT_REGISTERS) {
+			regFile.set(r, RNG.nextLong());
+		}
+	}
+
+	@ParameterizedTest
+	@MethodSource("allGeneralPurposeRegisters")
+	void descriptorReadsMatchTypedReads(final GeneralPurposeRegister r) {
+		randomizeGeneralPurposeRegisters();
+		assertEquals(
+				typedGet(regFile, r),
+				regFile.get(r.descriptor()),
+				() -> String.format("Expected descriptor of %s to read the same value as the register.", r));
+	}
+
+	@ParameterizedTest
+	@MethodSource("allGeneralPurposeRegisters")
+	void descriptorWritesMatchTypedWrites(final GeneralPurposeRegister r) {
+		randomizeGeneralPurposeRegisters();
+		final X86RegisterFile expected = new X86RegisterFile(regFile);
+		final long x = RNG.nextLong();
+
+		typedSet(expected, r, x);
+		regFile.set(r.descriptor(), x);
+
+		assertEquals(
+				expected, regFile, () -> String.format("Expected descriptor of %s to write like the register.", r));
+	}
+
+	private static Stream<Arguments> allVectorRegisters() {
+		return IntStream.range(0, X86RegisterFile.NUM_VECTOR_REGISTERS).mapToObj(Arguments::of);
+	}
+
+	@ParameterizedTest
+	@MethodSource("allVectorRegisters")
+	void vectorLanesAreIndependent(final int r) {
+		final long[] values = new long[X86RegisterFile.VECTOR_LANES];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = RNG.nextLong();
+			regFile.setVectorLane(r, i, values[i]);
+		}
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], regFile.getVectorLane(r, i));
+		}
+
+		final X86RegisterFile copy = new X86RegisterFile(regFile);
+		assertEquals(regFile, copy);
+		copy.setVectorLane(r, 0, ~values[0]);
+		assertFalse(regFile.equals(copy), "Expected the copy to have its own vector registers.");
+	}
+
 	private static Stream<Arguments> allSegmentRegisters() {
 		return Arrays.stream(ALL_SEGMENT_REGISTERS).map(Arguments::of);
 	}
@@ -384,4 +461,50 @@ final class TestX86RegisterFile {
 			assertFalse(regFile.isSet(other), () -> String.format("Expected flag %s to be not set but wasn't", other));
 		}
 	}
+
+	private static Stream<Arguments> arithmeticResults() {
+		return Stream.of(0L, 1L, -1L, 3L, 0x80L, Long.MIN_VALUE, Long.MAX_VALUE)
+				.flatMap(r -> Stream.of(
+						Arguments.of(r, false, false),
+						Arguments.of(r, true, false),
+						Arguments.of(r, false, true),
+						Arguments.of(r, true, true)));
+	}
+
+	@ParameterizedTest
+	@MethodSource("arithmeticResults")
+	void lazyFlagsAreTheSameAsEagerOnes(final long result, final boolean carry, final boolean overflow) {
+		regFile.set(RFlags.DIRECTION, true);
+		final X86RegisterFile eager = new X86RegisterFile(regFile);
+		regFile.setArithmeticFlags(result, carry, overflow);
+		eager.set(RFlags.ZERO, result == 0L);
+		eager.set(RFlags.PARITY, (Long.bitCount(result) % 2) == 0);
+		eager.set(RFlags.SIGN, result < 0L);
+		eager.set(RFlags.CARRY, carry);
+		eager.set(RFlags.OVERFLOW, overflow);
+
+		for (final RFlags f : RFlags.values()) {
+			assertEquals(eager.isSet(f), regFile.isSet(f), () -> String.format("Wrong value for flag %s.", f));
+		}
+		assertEquals(eager.getRFlags(), regFile.getRFlags());
+		assertEquals(eager, regFile);
+	}
+
+	@ParameterizedTest
+	@MethodSource("allRFlags")
+	void writingAFlagKeepsPendingOnes(final RFlags f) {
+		regFile.setArithmeticFlags(-1L, true, true);
+		regFile.set(f, false);
+
+		for (final RFlags other : RFlags.values()) {
+			if (f == other) {
+				continue;
+			}
+			final boolean expected = other == RFlags.PARITY
+					|| other == RFlags.SIGN
+					|| other == RFlags.CARRY
+					|| other == RFlags.OVERFLOW;
+			assertEquals(expected, regFile.isSet(other), () -> String.format("Wrong value for flag %s.", other));
+		}
+	}
 }
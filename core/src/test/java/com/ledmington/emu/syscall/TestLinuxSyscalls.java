@@ -0,0 +1,360 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.emu.syscall;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.mem.MemoryAddress;
+import com.ledmington.mem.MemoryController;
+import com.ledmington.mem.MemoryInitializer;
+import com.ledmington.mem.PagedMemory;
+import com.ledmington.mem.exc.IllegalMemoryAccessException;
+
+final class TestLinuxSyscalls {
+
+	private static final int SYS_READ = 0;
+	private static final int SYS_WRITE = 1;
+	private static final int SYS_CLOSE = 3;
+	private static final int SYS_FSTAT = 5;
+	private static final int SYS_LSEEK = 8;
+	private static final int SYS_MMAP = 9;
+	private static final int SYS_MUNMAP = 11;
+	private static final int SYS_BRK = 12;
+	private static final int SYS_CLOCK_GETTIME = 228;
+	private static final int SYS_OPENAT = 257;
+
+	private static final long AT_FDCWD = -100L;
+	private static final long O_RDONLY = 0L;
+	private static final long O_RDWR = 2L;
+	private static final long O_CREAT = 0x40L;
+	private static final long O_EXCL = 0x80L;
+
+	/** A readable and writable buffer for the arguments of the system calls. */
+	private static final long BUFFER = 0x1000L;
+
+	private static final long BUFFER_SIZE = 0x2_0000L;
+	private static final long PATH = BUFFER + BUFFER_SIZE - 0x1000L;
+
+	private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+	private Path dir;
+	private PagedMemory paged;
+	private MemoryController mem;
+	private LinuxSyscalls sys;
+
+	@BeforeEach
+	void setup() throws IOException {
+		dir = Files.createTempDirectory("emu-syscalls");
+		paged = new PagedMemory(MemoryInitializer.zero());
+		mem = new MemoryController(paged, true, false);
+		mem.initialize(new MemoryAddress(BUFFER), BUFFER_SIZE, (byte) 0x00);
+		mem.setPermissions(new MemoryAddress(BUFFER), BUFFER_SIZE, true, true, false);
+		final byte[] stdin = "hello".getBytes(StandardCharsets.UTF_8);
+		sys = new LinuxSyscalls(new ByteArrayInputStream(stdin), stdout, stdout, dir);
+	}
+
+	@AfterEach
+	void teardown() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (final Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(p);
+			}
+		}
+	}
+
+	private long call(final int number, final long... args) {
+		final long[] full = new long[6];
+		System.arraycopy(args, 0, full, 0, args.length);
+		return sys.get(number).handle(mem, full);
+	}
+
+	private void putBytes(final long address, final byte[] bytes) {
+		mem.write(new MemoryAddress(address), bytes);
+	}
+
+	private byte[] getBytes(final long address, final int length) {
+		final byte[] b = new byte[length];
+		mem.read(new MemoryAddress(address), b, 0, length);
+		return b;
+	}
+
+	private long readTimespec(final long address) {
+		return mem.read8(new MemoryAddress(address)) * 1_000_000_000L + mem.read8(new MemoryAddress(address + 8L));
+	}
+
+	private long open(final String name, final long flags) {
+		final byte[] path = (name + "\0").getBytes(StandardCharsets.UTF_8);
+		putBytes(PATH, path);
+		return call(SYS_OPENAT, AT_FDCWD, PATH, flags, 0644L);
+	}
+
+	@Test
+	void unknownSyscalls() {
+		assertNull(sys.get(-1));
+		assertNull(sys.get(10_000));
+		assertNull(sys.get(60));
+	}
+
+	@Test
+	void registerCustomHandler() {
+		sys.register(39, (_, _) -> 1234L);
+		assertEquals(1234L, call(39));
+		assertThrows(IllegalArgumentException.class, () -> sys.register(-1, (_, _) -> 0L));
+	}
+
+	@Test
+	void writeToStdout() {
+		final byte[] msg = "Hello, World!\n".getBytes(StandardCharsets.UTF_8);
+		putBytes(BUFFER, msg);
+		assertEquals(msg.length, call(SYS_WRITE, 1L, BUFFER, msg.length));
+		assertArrayEquals(msg, stdout.toByteArray());
+	}
+
+	@Test
+	void readFromStdin() {
+		assertEquals(5L, call(SYS_READ, 0L, BUFFER, 100L));
+		assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), getBytes(BUFFER, 5));
+		assertEquals(0L, call(SYS_READ, 0L, BUFFER, 100L));
+	}
+
+	@Test
+	void badFileDescriptor() {
+		assertEquals(Errno.EBADF.asReturnValue(), call(SYS_WRITE, 42L, BUFFER, 1L));
+		assertEquals(Errno.EBADF.asReturnValue(), call(SYS_READ, -1L, BUFFER, 1L));
+		assertEquals(Errno.EBADF.asReturnValue(), call(SYS_CLOSE, 42L));
+	}
+
+	@Test
+	void unreadableBuffer() {
+		assertEquals(Errno.EFAULT.asReturnValue(), call(SYS_WRITE, 1L, 0x100_0000L, 4L));
+		assertEquals(0, stdout.size());
+	}
+
+	@Test
+	void openMissingFile() {
+		assertEquals(Errno.ENOENT.asReturnValue(), open("missing.txt", O_RDONLY));
+	}
+
+	@Test
+	void createWriteSeekAndRead() throws IOException {
+		final long fd = open("file.txt", O_RDWR | O_CREAT);
+		assertEquals(3L, fd);
+
+		// Bigger than a single block, to test the transfer in chunks
+		final byte[] data = new byte[100_000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		putBytes(BUFFER, data);
+		assertEquals(data.length, call(SYS_WRITE, fd, BUFFER, data.length));
+		assertArrayEquals(data, Files.readAllBytes(dir.resolve("file.txt")));
+
+		assertEquals(10L, call(SYS_LSEEK, fd, 10L, 0L));
+		mem.initialize(new MemoryAddress(BUFFER), 100L, (byte) 0x00);
+		assertEquals(100L, call(SYS_READ, fd, BUFFER, 100L));
+		for (int i = 0; i < 100; i++) {
+			assertEquals(data[10 + i], getBytes(BUFFER + i, 1)[0]);
+		}
+		assertEquals(data.length, call(SYS_LSEEK, fd, 0L, 2L));
+		assertEquals(Errno.EINVAL.asReturnValue(), call(SYS_LSEEK, fd, -1L, 0L));
+		assertEquals(0L, call(SYS_CLOSE, fd));
+		assertEquals(Errno.EBADF.asReturnValue(), call(SYS_READ, fd, BUFFER, 1L));
+	}
+
+	@Test
+	void exclusiveCreation() throws IOException {
+		Files.writeString(dir.resolve("a.txt"), "a");
+		assertEquals(Errno.EEXIST.asReturnValue(), open("a.txt", O_RDWR | O_CREAT | O_EXCL));
+	}
+
+	@Test
+	void lowestFreeDescriptor() {
+		final long first = open("a.txt", O_RDWR | O_CREAT);
+		final long second = open("b.txt", O_RDWR | O_CREAT);
+		assertEquals(first + 1L, second);
+		assertEquals(0L, call(SYS_CLOSE, first));
+		assertEquals(first, open("c.txt", O_RDWR | O_CREAT));
+	}
+
+	@Test
+	void stdioIsNotSeekable() {
+		assertEquals(Errno.ESPIPE.asReturnValue(), call(SYS_LSEEK, 1L, 0L, 0L));
+	}
+
+	@Test
+	void fstatOfRegularFile() throws IOException {
+		Files.write(dir.resolve("f"), new byte[1234]);
+		final long fd = open("f", O_RDONLY);
+		assertEquals(0L, call(SYS_FSTAT, fd, BUFFER));
+		assertEquals(1234L, mem.read8(new MemoryAddress(BUFFER + 48L)));
+		assertEquals(0x8000L, mem.read8(new MemoryAddress(BUFFER + 24L)) & 0xf000L);
+	}
+
+	@Test
+	void fstatOfStdout() {
+		assertEquals(0L, call(SYS_FSTAT, 1L, BUFFER));
+		assertEquals(0x2000L, mem.read8(new MemoryAddress(BUFFER + 24L)) & 0xf000L);
+	}
+
+	@Test
+	void anonymousMapping() {
+		final long address = call(SYS_MMAP, 0L, 5000L, 3L, 0x22L, -1L, 0L);
+		assertTrue(address > 0L);
+		assertEquals(0L, address & 0xfffL);
+		mem.write(new MemoryAddress(address + 8191L), (byte) 0x12);
+		assertEquals((byte) 0x12, mem.read(new MemoryAddress(address + 8191L)));
+		assertEquals((byte) 0x00, mem.read(new MemoryAddress(address)));
+
+		assertEquals(0L, call(SYS_MUNMAP, address, 5000L));
+		assertThrows(IllegalMemoryAccessException.class, () -> mem.read(new MemoryAddress(address)));
+	}
+
+	@Test
+	void anonymousMappingIsNotAllocatedEagerly() {
+		final long allocated = paged.getAllocatedPages();
+		final long address = call(SYS_MMAP, 0L, 1L << 30, 3L, 0x22L, -1L, 0L);
+		assertEquals(allocated, paged.getAllocatedPages());
+		assertEquals(0L, mem.read8(new MemoryAddress(address + (1L << 29))));
+
+		mem.write(new MemoryAddress(address + (1L << 29)), (byte) 0x56);
+		assertEquals(allocated + 1L, paged.getAllocatedPages());
+		assertEquals((byte) 0x56, mem.read(new MemoryAddress(address + (1L << 29))));
+	}
+
+	@Test
+	void readOnlyMapping() {
+		final long address = call(SYS_MMAP, 0L, 4096L, 1L, 0x22L, -1L, 0L);
+		assertThrows(IllegalMemoryAccessException.class, () -> mem.write(new MemoryAddress(address), (byte) 1));
+	}
+
+	@Test
+	void emptyMapping() {
+		assertEquals(Errno.EINVAL.asReturnValue(), call(SYS_MMAP, 0L, 0L, 3L, 0x22L, -1L, 0L));
+	}
+
+	@Test
+	void fileMapping() throws IOException {
+		final byte[] data = "mapped file contents".getBytes(StandardCharsets.UTF_8);
+		Files.write(dir.resolve("m"), data);
+		final long fd = open("m", O_RDONLY);
+		final long address = call(SYS_MMAP, 0L, data.length, 1L, 0x02L, fd, 0L);
+		assertArrayEquals(data, getBytes(address, data.length));
+		assertEquals((byte) 0x00, mem.read(new MemoryAddress(address + data.length)));
+	}
+
+	@Test
+	void privateFileMapping() throws IOException {
+		final byte[] data = "private".getBytes(StandardCharsets.UTF_8);
+		Files.write(dir.resolve("p"), data);
+		final long fd = open("p", O_RDONLY);
+		final long address = call(SYS_MMAP, 0L, data.length, 3L, 0x02L, fd, 0L);
+		mem.write(new MemoryAddress(address), (byte) 'P');
+		assertEquals((byte) 'P', mem.read(new MemoryAddress(address)));
+		assertArrayEquals(data, Files.readAllBytes(dir.resolve("p")));
+	}
+
+	@Test
+	void sharedFileMapping() throws IOException {
+		Files.write(dir.resolve("s"), "shared".getBytes(StandardCharsets.UTF_8));
+		final long fd = open("s", O_RDWR);
+		final long address = call(SYS_MMAP, 0L, 6L, 3L, 0x01L, fd, 0L);
+		mem.write(new MemoryAddress(address), (byte) 'S');
+		assertEquals(0L, call(SYS_MUNMAP, address, 6L));
+		assertEquals("Shared", Files.readString(dir.resolve("s")));
+	}
+
+	@Test
+	void sharedWritableMappingOfReadOnlyFile() throws IOException {
+		Files.write(dir.resolve("r"), new byte[16]);
+		final long fd = open("r", O_RDONLY);
+		assertEquals(Errno.EACCES.asReturnValue(), call(SYS_MMAP, 0L, 16L, 3L, 0x01L, fd, 0L));
+	}
+
+	@Test
+	void brk() {
+		final long start = 0x10_0000L;
+		sys.setProgramBreak(start);
+		assertEquals(start, call(SYS_BRK, 0L));
+		assertEquals(start + 0x2000L, call(SYS_BRK, start + 0x2000L));
+		mem.write(new MemoryAddress(start + 0x1fffL), (byte) 0x34);
+		assertEquals((byte) 0x34, mem.read(new MemoryAddress(start + 0x1fffL)));
+		assertEquals(start + 0x2000L, call(SYS_BRK, start - 1L));
+	}
+
+	@Test
+	void brkGrowsLazily() {
+		final long start = 0x10_0000L;
+		sys.setProgramBreak(start);
+		final long allocated = paged.getAllocatedPages();
+		assertEquals(start + (1L << 29), call(SYS_BRK, start + (1L << 29)));
+		assertEquals(allocated, paged.getAllocatedPages());
+		assertEquals(0L, mem.read8(new MemoryAddress(start + (1L << 28))));
+	}
+
+	@Test
+	void brkClearsTheMemoryGivenBack() {
+		final long start = 0x10_0000L;
+		sys.setProgramBreak(start);
+		call(SYS_BRK, start + 0x10L);
+		mem.write(new MemoryAddress(start + 0x8L), (byte) 0x78);
+		call(SYS_BRK, start);
+		call(SYS_BRK, start + 0x10L);
+		assertEquals((byte) 0x00, mem.read(new MemoryAddress(start + 0x8L)));
+	}
+
+	@Test
+	void clockGettime() {
+		final long before = System.currentTimeMillis() / 1000L;
+		assertEquals(0L, call(SYS_CLOCK_GETTIME, 0L, BUFFER));
+		final long seconds = mem.read8(new MemoryAddress(BUFFER));
+		final long nanos = mem.read8(new MemoryAddress(BUFFER + 8L));
+		assertTrue(seconds >= before && seconds <= before + 1L);
+		assertTrue(nanos >= 0L && nanos < 1_000_000_000L);
+
+		assertEquals(0L, call(SYS_CLOCK_GETTIME, 1L, BUFFER));
+		final long t1 = readTimespec(BUFFER);
+		assertEquals(0L, call(SYS_CLOCK_GETTIME, 1L, BUFFER));
+		final long t2 = readTimespec(BUFFER);
+		assertFalse(t2 < t1);
+
+		assertEquals(Errno.EINVAL.asReturnValue(), call(SYS_CLOCK_GETTIME, -5L, BUFFER));
+	}
+
+	@Test
+	void defaultTable() {
+		assertNotNull(new LinuxSyscalls().get(SYS_WRITE));
+	}
+}
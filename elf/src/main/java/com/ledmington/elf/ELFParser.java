@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
 import com.ledmington.elf.section.BasicProgBitsSection;
@@ -48,6 +50,7 @@ import com.ledmington.elf.section.note.GnuGoldVersion;
 import com.ledmington.elf.section.note.GnuPropertySection;
 import com.ledmington.elf.section.note.NoteABITagSection;
 import com.ledmington.elf.section.note.SystemtapUSDTSection;
+import com.ledmington.elf.section.rel.RelativeRelocationSection;
 import com.ledmington.elf.section.rel.RelocationAddendSection;
 import com.ledmington.elf.section.rel.RelocationSection;
 import com.ledmington.elf.section.sym.DynamicSymbolTableSection;
@@ -62,6 +65,8 @@ public final class ELFParser {
 
 	private static final MiniLogger logger = MiniLogger.getLogger("elf-parser");
 
+	private static final Lock LOCK = new ReentrantLock();
+
 	private static ReadOnlyByteBuffer b;
 
 	private ELFParser() {}
@@ -91,18 +96,25 @@ public final class ELFParser {
 	}
 
 	/**
-	 * Parses the given byte-array and returns an {@link ELF} file object.
+	 * Parses the given byte-array and returns an {@link ELF} file object. Since the state of the parser is static,
+	 * concurrent calls are serialized.
 	 *
 	 * @param bytes The byte-array to be parsed.
 	 * @return An ELF file object.
 	 */
 	public static ELF parse(final byte[] bytes) {
-		b = new ReadOnlyByteBufferV1(bytes);
-		final FileHeader fileHeader = parseFileHeader();
-		final PHTEntry[] programHeaderTable = parseProgramHeaderTable(fileHeader);
-		final SectionHeader[] sectionHeaderTable = parseSectionHeaderTable(fileHeader);
-		final Section[] sectionTable = parseSectionTable(fileHeader, sectionHeaderTable);
-		return new ELF(fileHeader, programHeaderTable, sectionTable);
+		// A ReentrantLock, unlike synchronized, does not pin the carrier of a waiting virtual thread
+		LOCK.lock();
+		try {
+			b = new ReadOnlyByteBufferV1(bytes);
+			final FileHeader fileHeader = parseFileHeader();
+			final PHTEntry[] programHeaderTable = parseProgramHeaderTable(fileHeader);
+			final SectionHeader[] sectionHeaderTable = parseSectionHeaderTable(fileHeader);
+			final Section[] sectionTable = parseSectionTable(fileHeader, sectionHeaderTable);
+			return new ELF(fileHeader, programHeaderTable, sectionTable);
+		} finally {
+			LOCK.unlock();
+		}
 	}
 
 	private static void expect(final boolean condition, final Supplier<String> message) {
@@ -438,6 +450,8 @@ public final class ELFParser {
 				sectionTable[k] = new RelocationAddendSection(name, sh, b, fileHeader.is32Bit(), fileHeader.isa());
 			} else if (typeName.equals(SectionHeaderType.SHT_REL.getName())) {
 				sectionTable[k] = new RelocationSection(name, sh, b, fileHeader.is32Bit());
+			} else if (typeName.equals(SectionHeaderType.SHT_RELR.getName())) {
+				sectionTable[k] = new RelativeRelocationSection(name, sh, b, fileHeader.is32Bit());
 			} else if (GnuVersionSection.getStandardName().equals(name)) {
 				sectionTable[k] = new GnuVersionSection(sh, b);
 			} else if (GnuVersionRequirementsSection.getStandardName().equals(name)) {
@@ -204,6 +204,18 @@ public enum DynamicTableEntryTag {
 	/** The total size, in bytes, of the DT_PREINIT_ARRAY array. */
 	DT_PREINIT_ARRAYSZ(33L, "PREINIT_ARRAYSZ"),
 
+	/** The total size, in bytes, of the DT_RELR relocation table. */
+	DT_RELRSZ(35L, "RELRSZ"),
+
+	/**
+	 * The address of a relocation table in the compact RELR format, which only contains relative relocations without
+	 * addends.
+	 */
+	DT_RELR(36L, "RELR"),
+
+	/** The size, in bytes, of the DT_RELR relocation entry. */
+	DT_RELRENT(37L, "RELRENT"),
+
 	/** Holds the address of .gnu.hash. */
 	DT_GNU_HASH(0x000000006ffffef5L, "GNU_HASH"),
 
@@ -111,8 +111,8 @@ public enum SectionHeaderType {
 	 */
 	SHT_SYMTAB_SHNDX(0x00000012, "SYMTAB_SHNDX", "Extended section indices"),
 
-	/** Number of defined types. */
-	SHT_NUM(0x00000013, "NUM", "Number of defined types"),
+	/** Relative relocations in the compact RELR format. */
+	SHT_RELR(0x00000013, "RELR", "Relative relocations"),
 
 	/** GNU-style hash table (bloom filter?). */
 	SHT_GNU_HASH(0x6ffffff6, "GNU_HASH", "GNU Hash table"),
@@ -17,8 +17,10 @@
  */
 package com.ledmington.elf.section.gnu;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.function.IntPredicate;
 
 import com.ledmington.elf.section.LoadableSection;
 import com.ledmington.elf.section.SectionHeader;
@@ -82,7 +84,9 @@ public final class GnuHashSection implements LoadableSection {
 			buckets[i] = b.read4();
 		}
 
-		this.chains = new int[BitUtils.asInt(b.getPosition() - sectionHeader.getFileOffset()) / 4];
+		// The chains take the rest of the section
+		final long chainsBytes = sectionHeader.getSectionSize() - (b.getPosition() - sectionHeader.getFileOffset());
+		this.chains = new int[BitUtils.asInt(chainsBytes) / 4];
 		for (int i = 0; i < chains.length; i++) {
 			this.chains[i] = b.read4();
 		}
@@ -182,6 +186,46 @@ public final class GnuHashSection implements LoadableSection {
 		return chains[idx];
 	}
 
+	/**
+	 * Looks up the symbol with the given name. The bloom filter rejects most of the names which are not present
+	 * without touching the buckets, then only the chain of symbols with the same hash is scanned.
+	 *
+	 * @param name The name of the symbol.
+	 * @param hasName Tells whether the symbol with the given index in the dynamic symbol table has the given name.
+	 * @return The index of the symbol in the dynamic symbol table, or -1 if it is not present.
+	 */
+	public int lookup(final String name, final IntPredicate hasName) {
+		Objects.requireNonNull(hasName);
+		if (buckets.length == 0 || bloom.length == 0) {
+			return -1;
+		}
+		final int h = hash(name.getBytes(StandardCharsets.UTF_8));
+		final int bitsPerWord = is32Bit ? 32 : 64;
+		final long word = bloom[Integer.remainderUnsigned(Integer.divideUnsigned(h, bitsPerWord), bloom.length)];
+		final long mask = (1L << Integer.remainderUnsigned(h, bitsPerWord))
+				| (1L << Integer.remainderUnsigned(h >>> bloomShift, bitsPerWord));
+		if ((word & mask) != mask) {
+			return -1;
+		}
+
+		int idx = buckets[Integer.remainderUnsigned(h, buckets.length)];
+		if (idx < symIndex) {
+			return -1;
+		}
+		while (idx - symIndex < chains.length) {
+			final int chainHash = chains[idx - symIndex];
+			if ((chainHash | 1) == (h | 1) && hasName.test(idx)) {
+				return idx;
+			}
+			if ((chainHash & 1) != 0) {
+				// End of the chain
+				break;
+			}
+			idx++;
+		}
+		return -1;
+	}
+
 	@Override
 	public String getName() {
 		return name;
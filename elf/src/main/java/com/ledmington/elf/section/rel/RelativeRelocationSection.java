@@ -0,0 +1,167 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.elf.section.rel;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+import com.ledmington.elf.section.LoadableSection;
+import com.ledmington.elf.section.SectionHeader;
+import com.ledmington.utils.BitUtils;
+import com.ledmington.utils.ReadOnlyByteBuffer;
+import com.ledmington.utils.WriteOnlyByteBuffer;
+import com.ledmington.utils.WriteOnlyByteBufferV1;
+
+/**
+ * An ELF table of relative relocations in the compact RELR format. Each even entry is the address of a word to be
+ * relocated, while each odd entry is a bitmap of which of the following words need to be relocated, too. A useful
+ * reference can be found <a href="https://groups.google.com/g/generic-abi/c/bX460iggiKg">here</a>.
+ */
+public final class RelativeRelocationSection implements LoadableSection {
+
+	private final String name;
+	private final SectionHeader header;
+	private final boolean is32Bit;
+	private final boolean isLittleEndian;
+	private final long[] entries;
+
+	/**
+	 * Creates a RelativeRelocationSection with the given data.
+	 *
+	 * @param name The name of this section.
+	 * @param sectionHeader The header of this section.
+	 * @param b The ReadOnlyByteBuffer to read data from.
+	 * @param is32Bit Used for the size of each entry.
+	 */
+	public RelativeRelocationSection(
+			final String name, final SectionHeader sectionHeader, final ReadOnlyByteBuffer b, final boolean is32Bit) {
+		this.name = Objects.requireNonNull(name);
+		this.header = Objects.requireNonNull(sectionHeader);
+		this.is32Bit = is32Bit;
+		this.isLittleEndian = b.isLittleEndian();
+
+		b.setPosition(sectionHeader.getFileOffset());
+		final int nEntries = (int) (sectionHeader.getSectionSize() / (is32Bit ? 4L : 8L));
+		this.entries = new long[nEntries];
+		for (int i = 0; i < nEntries; i++) {
+			entries[i] = is32Bit ? BitUtils.asLong(b.read4()) : b.read8();
+		}
+	}
+
+	/**
+	 * Returns the number of entries (addresses and bitmaps) in this section.
+	 *
+	 * @return The number of entries.
+	 */
+	public int getNumEntries() {
+		return entries.length;
+	}
+
+	/**
+	 * Returns the i-th entry, which is either an address or a bitmap.
+	 *
+	 * @param idx The index of the entry.
+	 * @return The i-th entry.
+	 */
+	public long getEntry(final int idx) {
+		return entries[idx];
+	}
+
+	/**
+	 * Decodes this table, passing to the given action the address (relative to the base of the object) of each word to
+	 * be relocated, in increasing order.
+	 *
+	 * @param action The action to perform on each address.
+	 */
+	public void forEachAddress(final LongConsumer action) {
+		Objects.requireNonNull(action);
+		final long wordSize = is32Bit ? 4L : 8L;
+		final int bitsPerBitmap = is32Bit ? 31 : 63;
+		long where = 0L;
+		for (final long entry : entries) {
+			if ((entry & 1L) == 0L) {
+				action.accept(entry);
+				where = entry + wordSize;
+			} else {
+				for (int i = 0; i < bitsPerBitmap; i++) {
+					if ((entry & (1L << (i + 1))) != 0L) {
+						action.accept(where + i * wordSize);
+					}
+				}
+				where += bitsPerBitmap * wordSize;
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public SectionHeader header() {
+		return header;
+	}
+
+	@Override
+	public byte[] getLoadableContent() {
+		final WriteOnlyByteBuffer bb = new WriteOnlyByteBufferV1(entries.length * (is32Bit ? 4 : 8), isLittleEndian);
+		for (final long entry : entries) {
+			if (is32Bit) {
+				bb.write(BitUtils.asInt(entry));
+			} else {
+				bb.write(entry);
+			}
+		}
+		return bb.array();
+	}
+
+	@Override
+	public String toString() {
+		return "RelativeRelocationSection(name=" + name + ";header=" + header + ";is32Bit=" + is32Bit + ";entries="
+				+ Arrays.toString(entries) + ")";
+	}
+
+	@Override
+	public int hashCode() {
+		int h = 17;
+		h = 31 * h + name.hashCode();
+		h = 31 * h + header.hashCode();
+		h = 31 * h + (is32Bit ? 1 : 0);
+		h = 31 * h + Arrays.hashCode(entries);
+		return h;
+	}
+
+	@Override
+	public boolean equals(final Object other) {
+		if (other == null) {
+			return false;
+		}
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof final RelativeRelocationSection rrs)) {
+			return false;
+		}
+		return this.name.equals(rrs.name)
+				&& this.header.equals(rrs.header)
+				&& this.is32Bit == rrs.is32Bit
+				&& Arrays.equals(this.entries, rrs.entries);
+	}
+}
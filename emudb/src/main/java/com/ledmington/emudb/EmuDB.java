@@ -48,16 +48,17 @@ import com.ledmington.elf.section.sym.SymbolTableEntryType;
 import com.ledmington.elf.section.sym.SymbolTableSection;
 import com.ledmington.emu.ELFLoader;
 import com.ledmington.emu.Emu;
-import com.ledmington.emu.EmulatorConstants;
 import com.ledmington.emu.ExecutionContext;
 import com.ledmington.emu.ImmutableRegisterFile;
 import com.ledmington.emu.RFlags;
 import com.ledmington.emu.RegisterFile;
+import com.ledmington.emu.StopReason;
 import com.ledmington.emu.X86Cpu;
+import com.ledmington.emu.X86Emulator;
+import com.ledmington.emu.config.EmulatorConfig;
 import com.ledmington.mem.Memory;
 import com.ledmington.mem.MemoryAddress;
 import com.ledmington.mem.MemoryController;
-import com.ledmington.mem.MemoryInitializer;
 import com.ledmington.mem.PagedMemory;
 import com.ledmington.utils.ReadOnlyByteBuffer;
 import com.ledmington.utils.TerminalUtils;
@@ -77,17 +78,20 @@ import org.jline.terminal.TerminalBuilder;
 })
 public final class EmuDB {
 
+	/** How many instructions to execute at once when running without stepping. */
+	private static final long INSTRUCTIONS_PER_CHUNK = 1L << 16;
+
 	private static final PrintWriter out = System.console() == null
 			? new PrintWriter(System.out, false, StandardCharsets.UTF_8)
 			: System.console().writer();
 
+	private final EmulatorConfig config = EmulatorConfig.getDefault();
 	private Path filepath = null;
 	private String[] savedArguments = null;
 	private ExecutionContext context = null;
 	private ELF currentFile = null; // TODO: should we put this into ExecutionContext, too?
 	private ELFLoader loader = null; // TODO: should we put this into ExecutionContext, too?
 	private final List<Breakpoint> breakpoints = new ArrayList<>();
-	private long lastBreakpointAddress = -1L; // last breakpoint we hit
 
 	private final Map<String, Command> commands = Map.ofEntries(
 			Map.entry("quit", new Command("Terminates the debugger", ignored -> System.exit(0))),
@@ -120,8 +124,8 @@ public final class EmuDB {
 	private void showStack() {
 		final int maxStackTraceDepth = 100; // TODO: is this a sane value?
 
-		final long baseStackAddress = EmulatorConstants.getBaseStackAddress();
-		final long stackSize = EmulatorConstants.getStackSize();
+		final long baseStackAddress = config.getBaseStackAddress();
+		final long stackSize = config.getStackSize();
 		final long stackTop = ELFLoader.alignAddress(baseStackAddress); // highest address (initial RSP)
 		final long stackBottom = stackTop - stackSize; // lowest address (stack limit)
 
@@ -317,16 +321,18 @@ public final class EmuDB {
 		final int maxInstructions = 5;
 		final ReadOnlyByteBuffer bb = new MemoryByteBuffer(address, context.memory());
 
+		final StringBuilder sb = new StringBuilder();
 		for (int i = 0; i < maxInstructions; i++) {
 			final long pos = bb.getPosition();
-			String str;
+			sb.setLength(0);
 			try {
 				final Instruction decoded = InstructionDecoder.fromHex(bb);
-				str = InstructionEncoder.toIntelSyntax(decoded);
+				InstructionEncoder.toIntelSyntax(sb, decoded, false, 0, false);
 			} catch (final DecodingException e) {
-				str = "<unknown: " + e.getMessage() + ">";
+				sb.setLength(0);
+				sb.append("<unknown: ").append(e.getMessage()).append('>');
 			}
-			out.printf("0x%016x : %s%n", pos, str);
+			out.printf("0x%016x : %s%n", pos, sb);
 		}
 	}
 
@@ -443,37 +449,40 @@ public final class EmuDB {
 			return;
 		}
 
-		executeOneInstruction();
+		this.context.cpu().turnOn();
+		reportStop(this.context.cpu().execute(1L));
 
 		final long here = this.context.cpu().getRegisters().get(Register64.RIP);
 		out.printf("%s0x%016x%s%n", TerminalUtils.ANSI_BLUE, here, TerminalUtils.ANSI_RESET);
 	}
 
-	private boolean executeOneInstruction() {
-		final Optional<Integer> breakpointIndex = checkBreakpoints();
-		final boolean hasHitABreakpoint = breakpointIndex.isPresent();
-		if (hasHitABreakpoint) {
-			final Breakpoint b = this.breakpoints.get(breakpointIndex.orElseThrow());
-			// set interrupt flag when hitting a breakpoint
-			((RegisterFile) this.context.cpu().getRegisters()).set(RFlags.INTERRUPT_ENABLE, true);
-			out.printf(
-					"Breakpoint %,d, %s0x%016x%s in %s%s%s ()%n",
-					breakpointIndex.orElseThrow(),
-					TerminalUtils.ANSI_BLUE,
-					b.address(),
-					TerminalUtils.ANSI_RESET,
-					TerminalUtils.ANSI_YELLOW,
-					b.name(),
-					TerminalUtils.ANSI_RESET);
-		} else {
-			this.context.cpu().turnOn();
-			this.context.cpu().executeOne();
+	private void reportStop(final StopReason reason) {
+		switch (reason) {
+			case BREAKPOINT -> {
+				final long here = this.context.cpu().getRegisters().get(Register64.RIP);
+				for (int i = 0; i < this.breakpoints.size(); i++) {
+					final Breakpoint b = this.breakpoints.get(i);
+					if (config.getBaseAddress() + b.address() == here) {
+						// set interrupt flag when hitting a breakpoint
+						((RegisterFile) this.context.cpu().getRegisters()).set(RFlags.INTERRUPT_ENABLE, true);
+						out.printf(
+								"Breakpoint %,d, %s0x%016x%s in %s%s%s ()%n",
+								i,
+								TerminalUtils.ANSI_BLUE,
+								b.address(),
+								TerminalUtils.ANSI_RESET,
+								TerminalUtils.ANSI_YELLOW,
+								b.name(),
+								TerminalUtils.ANSI_RESET);
+						break;
+					}
+				}
+			}
+			case FAULT -> out.println(this.context.cpu().getLastFault().orElseThrow());
+			case HALTED, BUDGET_EXHAUSTED -> {}
 		}
-
-		return hasHitABreakpoint;
 	}
 
-	@SuppressWarnings("PMD.AvoidCatchingGenericException")
 	private void runFile(final String... args) {
 		if (hasNotLoadedFile()) {
 			if (args.length == 0) {
@@ -491,47 +500,30 @@ public final class EmuDB {
 		out.println();
 		out.println();
 
-		try {
-			this.context.cpu().turnOn();
-			while (true) {
-				final boolean hasHitABreakpoint = executeOneInstruction();
-				if (hasHitABreakpoint) {
-					break;
-				}
-			}
-		} catch (final RuntimeException e) {
-			out.println(e);
+		final X86Emulator cpu = this.context.cpu();
+		cpu.clearBreakpoints();
+		for (final Breakpoint b : this.breakpoints) {
+			cpu.addBreakpoint(config.getBaseAddress() + b.address());
 		}
-	}
 
-	private Optional<Integer> checkBreakpoints() {
-		final long here = this.context.cpu().getRegisters().get(Register64.RIP);
-		// TODO: can be optimized into a HashMap
-		for (int i = 0; i < this.breakpoints.size(); i++) {
-			final long breakpointAddress =
-					EmulatorConstants.getBaseAddress() + this.breakpoints.get(i).address();
-			if (here == breakpointAddress && here != lastBreakpointAddress) {
-				lastBreakpointAddress = breakpointAddress;
-				return Optional.of(i);
-			}
-		}
-		lastBreakpointAddress = -1L;
-		return Optional.empty();
+		cpu.turnOn();
+		StopReason reason;
+		do {
+			reason = cpu.execute(INSTRUCTIONS_PER_CHUNK);
+		} while (reason == StopReason.BUDGET_EXHAUSTED);
+		reportStop(reason);
 	}
 
 	private ExecutionContext createDefaultExecutionContext() {
-		final Memory rawMem = new PagedMemory(MemoryInitializer.random());
+		final Memory rawMem = new PagedMemory(config.newMemoryInitializer());
 		// Proper memory controller for execution (checks permissions)
 		final MemoryController mc = new MemoryController(
 				rawMem,
-				EmulatorConstants.shouldBreakOnWrongPermissions(),
-				EmulatorConstants.shouldBreakWhenReadingUninitializedMemory());
+				config.shouldBreakOnWrongPermissions(),
+				config.shouldBreakWhenReadingUninitializedMemory());
 		// Memory controller used directly by the debugger (does not check permissions)
 		final MemoryController mem = new MemoryController(rawMem, false, false);
-		final X86Cpu cpu = X86Cpu.builder()
-				.memory(mc)
-				.checkInstructions(EmulatorConstants.shouldCheckInstruction())
-				.build();
+		final X86Cpu cpu = X86Cpu.builder().memory(mc).config(config).build();
 
 		this.loader = new ELFLoader(cpu, mc);
 
@@ -565,11 +557,11 @@ public final class EmuDB {
 
 		this.context = createDefaultExecutionContext();
 
-		final Emu emu = new Emu(this.context, this.loader);
+		final Emu emu = new Emu(this.context, this.loader, config);
 		emu.load(filename, commandLineArguments);
 
 		final FileHeader fh = this.currentFile.getFileHeader();
-		this.context.cpu().setInstructionPointer(EmulatorConstants.getBaseAddress() + fh.entryPointVirtualAddress());
+		this.context.cpu().setInstructionPointer(config.getBaseAddress() + fh.entryPointVirtualAddress());
 	}
 
 	private int levenshteinDistance(final String a, final String b) {
@@ -41,7 +41,6 @@ import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
-import com.ledmington.cpu.InstructionDecoder;
 import com.ledmington.cpu.InstructionEncoder;
 import com.ledmington.cpu.x86.Instruction;
 import com.ledmington.cpu.x86.Register64;
@@ -50,11 +49,11 @@ import com.ledmington.cpu.x86.exc.DecodingException;
 import com.ledmington.cpu.x86.exc.InvalidLegacyOpcode;
 import com.ledmington.elf.ELFParser;
 import com.ledmington.emu.ELFLoader;
-import com.ledmington.emu.EmulatorConstants;
 import com.ledmington.emu.ImmutableRegisterFile;
 import com.ledmington.emu.InstructionFetcher;
 import com.ledmington.emu.RFlags;
 import com.ledmington.emu.RegisterFile;
+import com.ledmington.emu.config.EmulatorConfig;
 import com.ledmington.mem.MemoryAddress;
 import com.ledmington.mem.MemoryController;
 import com.ledmington.mem.PagedMemory;
@@ -69,6 +68,7 @@ public final class EmulatorView extends Stage {
 	// The CPU used to emulate
 	private X86CpuAdapter cpu;
 	// The memory controller used by the CPU
+	private final EmulatorConfig config = EmulatorConfig.getDefault();
 	private MemoryController mem;
 	private final Button stepBtn = new Button();
 	private final Button runBtn = new Button();
@@ -231,8 +231,8 @@ public final class EmulatorView extends Stage {
 
 	private void loadFile(final File file) {
 		logger.info("Loading file '%s'", file.toString());
-		this.mem = new MemoryController(new PagedMemory(EmulatorConstants.getMemoryInitializer()), false, false);
-		this.cpu = new X86CpuAdapter(mem);
+		this.mem = new MemoryController(new PagedMemory(config.newMemoryInitializer()), false, false);
+		this.cpu = new X86CpuAdapter(mem, config);
 
 		// TODO: implement this
 		final String[] args = {file.toString()};
@@ -241,10 +241,7 @@ public final class EmulatorView extends Stage {
 		loader.load(
 				ELFParser.parse(file.toPath().toString()),
 				args,
-				EmulatorConstants.getBaseAddress(),
-				EmulatorConstants.getBaseStackAddress(),
-				EmulatorConstants.getStackSize(),
-				EmulatorConstants.getBaseStackValue());
+				config);
 
 		updateRegisters();
 		updateCode();
@@ -288,19 +285,19 @@ public final class EmulatorView extends Stage {
 			regFile.set(Register64.RIP, rip);
 			sb.append("0x").append(String.format("%0" + (2 * ADDRESS_BYTES) + "x", rip));
 
-			String instString;
+			sb.append(" : ");
 			try {
-				final Instruction inst = InstructionDecoder.fromHex(new InstructionFetcher(this.mem, regFile));
-				instString = InstructionEncoder.toIntelSyntax(inst);
+				final Instruction inst = new InstructionFetcher(this.mem, regFile).fetch();
+				InstructionEncoder.toIntelSyntax(sb, inst, false, 0, false);
 				rip = regFile.get(Register64.RIP);
 			} catch (final InvalidLegacyOpcode e) {
-				instString = "(bad)";
+				sb.append("(bad)");
 				rip = startRIP + 1L;
 			} catch (final DecodingException e) {
-				instString = String.format(".byte 0x%02x", this.mem.readCode(new MemoryAddress(rip)));
+				sb.append(String.format(".byte 0x%02x", this.mem.readCode(new MemoryAddress(rip))));
 				rip = startRIP + 1L;
 			}
-			sb.append(" : ").append(instString).append('\n');
+			sb.append('\n');
 		}
 		this.codeArea.setText(sb.toString());
 		regFile.set(Register64.RIP, originalRIP);
@@ -17,84 +17,45 @@
  */
 package com.ledmington.view;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-
-import com.ledmington.cpu.x86.Instruction;
-import com.ledmington.emu.EmulatorConstants;
+import com.ledmington.emu.StopReason;
 import com.ledmington.emu.X86Cpu;
 import com.ledmington.emu.X86RegisterFile;
+import com.ledmington.emu.config.EmulatorConfig;
+import com.ledmington.emu.syscall.LinuxSyscalls;
 import com.ledmington.mem.MemoryController;
 
-// TODO: refactor avoiding inheritance (and avoiding two queues)
+// TODO: refactor avoiding inheritance
 public final class X86CpuAdapter extends X86Cpu {
 
-	private final BlockingQueue<Object> execute = new ArrayBlockingQueue<>(1);
-	private final BlockingQueue<Object> executionCompleted = new ArrayBlockingQueue<>(1);
+	/** How many instructions to execute between two checks for interruption of the running thread. */
+	private static final long INSTRUCTIONS_PER_CHUNK = 1L << 16;
 
-	public X86CpuAdapter(final MemoryController mem) {
+	public X86CpuAdapter(final MemoryController mem, final EmulatorConfig config) {
 		super(
 				mem,
 				new X86RegisterFile(),
 				true,
-				EmulatorConstants.getBaseStackAddress(),
-				EmulatorConstants.getStackSize());
-	}
-
-	private void waitToStartExecution() {
-		try {
-			execute.take();
-		} catch (final InterruptedException e) {
-			throw new IllegalStateException(e);
-		}
-	}
-
-	private void sendExecutionCompleted() {
-		try {
-			executionCompleted.put(new Object());
-		} catch (final InterruptedException e) {
-			throw new IllegalStateException(e);
-		}
-	}
-
-	private void sendExecutionMessage() {
-		try {
-			execute.put(new Object());
-		} catch (final InterruptedException e) {
-			throw new IllegalStateException(e);
-		}
-	}
-
-	private void waitForExecutionCompleted() {
-		try {
-			executionCompleted.take();
-		} catch (final InterruptedException e) {
-			throw new IllegalStateException(e);
-		}
-	}
-
-	@Override
-	public void executeOne(final Instruction inst) {
-		// block until the user wants to execute
-		waitToStartExecution();
-
-		super.executeOne(inst);
-
-		// signal the user that we are done executing
-		sendExecutionCompleted();
-	}
-
-	public void doExecuteOne() {
-		sendExecutionMessage();
-
-		// block until execution completed
-		waitForExecutionCompleted();
-	}
-
-	public void doExecute() {
-		super.state = State.RUNNING;
-		while (state != State.HALTED) {
-			this.doExecuteOne();
-		}
+				config.getBaseStackAddress(),
+				config.getStackSize(),
+				null,
+				null,
+				config.getCPUConfig(),
+				new LinuxSyscalls(),
+				config.getJitThreshold(),
+				config.shouldFuseInstructions());
+	}
+
+	public StopReason doExecuteOne() {
+		turnOn();
+		return execute(1L);
+	}
+
+	public StopReason doExecute() {
+		turnOn();
+		StopReason reason;
+		do {
+			reason = execute(INSTRUCTIONS_PER_CHUNK);
+		} while (reason == StopReason.BUDGET_EXHAUSTED && !Thread.currentThread().isInterrupted());
+		return reason;
 	}
 }
@@ -0,0 +1,93 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.id;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Timeout;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ledmington.cpu.Assembler;
+import com.ledmington.utils.MiniLogger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Timeout(time = 5)
+public class Assembling {
+
+	static {
+		MiniLogger.setMinimumLevel(MiniLogger.LoggingLevel.ERROR);
+	}
+
+	private static final String[] BODY = {
+		"  push rbp",
+		"  mov rbp,rsp",
+		"  mov QWORD PTR [rbp-0x08],rdi",
+		"  mov rax,QWORD PTR [rbp-0x08]",
+		"  lea rcx,[rax+rbx*4+0x12345678]",
+		"  add eax,0x00000001 ; increment",
+		"  cmp DWORD PTR [rip+0x000c6a86],eax",
+		"  jne .L%d",
+		"  vpxor xmm0,xmm0,xmm0",
+		"  xor eax,eax",
+		"  call .L%d",
+		"  pop rbp",
+		"  ret"
+	};
+
+	// each function is made of 14 lines
+	@Param({"1000", "10000"})
+	private int functions;
+
+	private String source;
+
+	@Setup
+	public void setup() {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < functions; i++) {
+			sb.append(".L").append(i).append(":\n");
+			for (final String line : BODY) {
+				sb.append(String.format(line, (i + 1) % functions)).append('\n');
+			}
+		}
+		source = sb.toString();
+	}
+
+	@Benchmark
+	public void assemble(final Blackhole bh) {
+		bh.consume(Assembler.assemble(source, false));
+	}
+
+	@Benchmark
+	public void assembleAndCheck(final Blackhole bh) {
+		bh.consume(Assembler.assemble(source, true));
+	}
+}
@@ -17,6 +17,7 @@
  */
 package com.ledmington.id;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 
 import org.openjdk.jmh.annotations.Benchmark;
@@ -31,6 +32,7 @@ import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
 
 import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.StreamingEncoder;
 import com.ledmington.cpu.x86.GeneralInstruction;
 import com.ledmington.cpu.x86.Immediate;
 import com.ledmington.cpu.x86.IndirectOperand;
@@ -63,8 +65,31 @@ public class Encoding {
 					.build(),
 			new Immediate((short) 0xbeef));
 
+	private final Instruction[] code = new Instruction[] {
+		inst,
+		new GeneralInstruction(Opcode.PUSH, Register64.RBP),
+		new GeneralInstruction(Opcode.MOV, Register64.RBP, Register64.RSP),
+		new GeneralInstruction(Opcode.XOR, Register64.RAX, Register64.RAX),
+		new GeneralInstruction(Opcode.POP, Register64.RBP),
+		new GeneralInstruction(Opcode.RET),
+		new GeneralInstruction(Opcode.HLT)
+	};
+	private final StreamingEncoder encoder = new StreamingEncoder(false);
+	private final ByteBuffer output = ByteBuffer.allocateDirect(4096);
+
 	@Benchmark
 	public void encode(final Blackhole bh) {
 		bh.consume(InstructionEncoder.toHex(inst, false));
 	}
+
+	@Benchmark
+	public void encodeAllToArray(final Blackhole bh) {
+		bh.consume(InstructionEncoder.toHex(false, code));
+	}
+
+	@Benchmark
+	public void encodeAllToReusedBuffer(final Blackhole bh) {
+		output.clear();
+		bh.consume(encoder.encode(output, code));
+	}
 }
@@ -0,0 +1,93 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.id;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Timeout;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ledmington.cpu.InstructionDecoder;
+import com.ledmington.cpu.InstructionEncoder;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.utils.MiniLogger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Timeout(time = 5)
+public class Formatting {
+
+	static {
+		MiniLogger.setMinimumLevel(MiniLogger.LoggingLevel.ERROR);
+	}
+
+	private static final String[] SOURCE = {
+		"push rbp",
+		"mov rbp,rsp",
+		"sub rsp,0x00000020",
+		"mov QWORD PTR [rbp-0x08],rdi",
+		"mov DWORD PTR [rbp-0x0c],esi",
+		"mov rax,QWORD PTR [rbp-0x08]",
+		"lea rcx,[rax+rbx*4+0x12345678]",
+		"movzx eax,BYTE PTR [rax]",
+		"cmp DWORD PTR [rip+0x000c6a86],eax",
+		"jne 0x12",
+		"vmovdqu YMMWORD PTR [rcx+r10*1-0x40],ymm2",
+		"vpxor xmm0,xmm0,xmm0",
+		"lock cmpxchg QWORD PTR [rsi],rdx",
+		"rep stos QWORD PTR es:[rdi],rax",
+		"xor eax,eax",
+		"leave",
+		"ret"
+	};
+
+	private final Instruction[] listing =
+			Arrays.stream(SOURCE).map(InstructionDecoder::fromIntelSyntax).toArray(Instruction[]::new);
+	private final StringBuilder sb = new StringBuilder();
+
+	@Benchmark
+	public void listingWithStrings(final Blackhole bh) {
+		final StringBuilder out = new StringBuilder();
+		for (final Instruction inst : listing) {
+			out.append(InstructionEncoder.toIntelSyntax(inst, false, 6, true)).append('\n');
+		}
+		bh.consume(out.toString());
+	}
+
+	@Benchmark
+	public void listingIntoReusedBuilder(final Blackhole bh) {
+		sb.setLength(0);
+		for (final Instruction inst : listing) {
+			InstructionEncoder.toIntelSyntax(sb, inst, false, 6, true);
+			sb.append('\n');
+		}
+		bh.consume(sb);
+	}
+}
@@ -0,0 +1,509 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.cpu;
+
+import static com.ledmington.utils.BitUtils.asByte;
+import static com.ledmington.utils.BitUtils.asShort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.ledmington.cpu.AssemblyLexer.TokenType;
+import com.ledmington.cpu.x86.Immediate;
+import com.ledmington.cpu.x86.IndirectOperandBuilder;
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.cpu.x86.InstructionBuilder;
+import com.ledmington.cpu.x86.LegacyPrefix;
+import com.ledmington.cpu.x86.MaskRegister;
+import com.ledmington.cpu.x86.Opcode;
+import com.ledmington.cpu.x86.Operand;
+import com.ledmington.cpu.x86.PointerSize;
+import com.ledmington.cpu.x86.Register;
+import com.ledmington.cpu.x86.Register16;
+import com.ledmington.cpu.x86.Register32;
+import com.ledmington.cpu.x86.Register64;
+import com.ledmington.cpu.x86.Register8;
+import com.ledmington.cpu.x86.RegisterMMX;
+import com.ledmington.cpu.x86.RegisterXMM;
+import com.ledmington.cpu.x86.RegisterYMM;
+import com.ledmington.cpu.x86.RegisterZMM;
+import com.ledmington.cpu.x86.Registers;
+import com.ledmington.cpu.x86.SegmentRegister;
+import com.ledmington.cpu.x86.SegmentedAddress;
+import com.ledmington.utils.WriteOnlyByteBuffer;
+import com.ledmington.utils.WriteOnlyByteBufferV1;
+
+/**
+ * A two-pass assembler for x86_64 code written in Intel's syntax (the same syntax produced by
+ * {@link InstructionEncoder#toIntelSyntax(Instruction)}), which produces a flat binary.
+ *
+ * <p>Each line may contain any number of label definitions ("name:"), followed by an optional instruction or
+ * directive. Comments start with ';' or '#'. Labels may be used as targets of CALL, JMP and conditional jumps, which
+ * are always encoded with a 32-bit relative displacement: the first pass encodes every instruction, leaving the
+ * displacements to be patched by the second pass, once all labels are known.
+ *
+ * <p>Supported directives are ".byte", ".intel_syntax", ".text", ".globl" and ".global". Immediates and displacements
+ * must be hexadecimal and their size is determined by their number of digits, just like in
+ * {@link InstructionDecoder#fromIntelSyntax(String)}.
+ */
+public final class Assembler {
+
+	private static final PerfectHashTable<Opcode> MNEMONICS = new PerfectHashTable<>(Arrays.stream(Opcode.values())
+			.filter(op -> op != Opcode.BND_JMP)
+			.collect(Collectors.toUnmodifiableMap(Opcode::mnemonic, Function.identity())));
+	private static final PerfectHashTable<Register> REGISTERS = new PerfectHashTable<>(Stream.of(
+					Arrays.stream(Register8.values()),
+					Arrays.stream(Register16.values()),
+					Arrays.stream(Register32.values()),
+					Arrays.stream(Register64.values()),
+					Arrays.stream(RegisterMMX.values()),
+					Arrays.stream(RegisterXMM.values()),
+					Arrays.stream(RegisterYMM.values()),
+					Arrays.stream(RegisterZMM.values()),
+					Arrays.stream(MaskRegister.values()),
+					Arrays.stream(SegmentRegister.values()))
+			.flatMap(x -> x)
+			.collect(Collectors.toUnmodifiableMap(Operand::toIntelSyntax, x -> (Register) x)));
+	private static final PerfectHashTable<PointerSize> POINTER_SIZES = new PerfectHashTable<>(Map.of(
+			"byte", PointerSize.BYTE_PTR,
+			"word", PointerSize.WORD_PTR,
+			"dword", PointerSize.DWORD_PTR,
+			"qword", PointerSize.QWORD_PTR,
+			"xmmword", PointerSize.XMMWORD_PTR,
+			"ymmword", PointerSize.YMMWORD_PTR,
+			"zmmword", PointerSize.ZMMWORD_PTR));
+	private static final PerfectHashTable<LegacyPrefix> PREFIXES = new PerfectHashTable<>(Map.of(
+			"lock", LegacyPrefix.LOCK,
+			"rep", LegacyPrefix.REP,
+			"repe", LegacyPrefix.REP,
+			"repz", LegacyPrefix.REP,
+			"repnz", LegacyPrefix.REPNZ,
+			"repne", LegacyPrefix.REPNZ));
+	private static final Set<Opcode> RELATIVE_BRANCHES = EnumSet.of(
+			Opcode.CALL,
+			Opcode.JMP,
+			Opcode.JA,
+			Opcode.JAE,
+			Opcode.JB,
+			Opcode.JBE,
+			Opcode.JE,
+			Opcode.JG,
+			Opcode.JGE,
+			Opcode.JL,
+			Opcode.JLE,
+			Opcode.JNE,
+			Opcode.JNS,
+			Opcode.JO,
+			Opcode.JNO,
+			Opcode.JNP,
+			Opcode.JP,
+			Opcode.JS);
+	private static final Set<Opcode> COMPRESSED_DISPLACEMENT_OPCODES =
+			EnumSet.of(Opcode.VPTERNLOGD, Opcode.VPMINUB, Opcode.VPMINUD);
+	private static final int COMPRESSED_DISPLACEMENT_FACTOR = 32;
+
+	/** A 32-bit relative displacement which will be patched in the second pass. */
+	private record Fixup(String label, int position, int line) {}
+
+	private final AssemblyLexer lexer;
+	private final boolean check;
+	private final WriteOnlyByteBuffer output;
+	private final Map<String, Integer> labels = new HashMap<>();
+	private final List<Fixup> fixups = new ArrayList<>();
+	private String pendingLabel = null;
+
+	private Assembler(final CharSequence source, final boolean check) {
+		this.lexer = new AssemblyLexer(source);
+		this.check = check;
+		this.output = new WriteOnlyByteBufferV1(Math.max(16, source.length() / 4), true);
+	}
+
+	/**
+	 * Assembles the given source code into a flat binary, checking each instruction for validity.
+	 *
+	 * @param source The source code, in Intel's syntax.
+	 * @return The encoded instructions.
+	 */
+	public static byte[] assemble(final CharSequence source) {
+		return assemble(source, true);
+	}
+
+	/**
+	 * Assembles the given source code into a flat binary.
+	 *
+	 * @param source The source code, in Intel's syntax.
+	 * @param check When enabled, each instruction is checked for validity before being encoded.
+	 * @return The encoded instructions.
+	 */
+	public static byte[] assemble(final CharSequence source, final boolean check) {
+		Objects.requireNonNull(source);
+		final Assembler asm = new Assembler(source, check);
+		asm.firstPass();
+		asm.secondPass();
+		return asm.output.array();
+	}
+
+	private void firstPass() {
+		lexer.next();
+		while (lexer.type() != TokenType.END) {
+			try {
+				parseLine();
+			} catch (final IllegalArgumentException e) {
+				throw new IllegalArgumentException(
+						String.format("Line %,d: %s", lexer.line(), e.getMessage()), e);
+			}
+		}
+	}
+
+	private void secondPass() {
+		final int size = output.getSize();
+		for (final Fixup f : fixups) {
+			final Integer target = labels.get(f.label());
+			if (target == null) {
+				throw new IllegalArgumentException(
+						String.format("Line %,d: Undefined label '%s'.", f.line(), f.label()));
+			}
+			output.setPosition(f.position());
+			// the displacement is relative to the end of the instruction
+			output.write(target - (f.position() + 4));
+		}
+		output.setPosition(size);
+	}
+
+	private void parseLine() {
+		while (lexer.type() == TokenType.IDENTIFIER) {
+			final int start = lexer.start();
+			final int end = lexer.end();
+			if (lexer.next() != TokenType.COLON) {
+				parseStatement(start, end);
+				break;
+			}
+			final String label = lexer.source().subSequence(start, end).toString();
+			if (labels.putIfAbsent(label, output.getPosition()) != null) {
+				throw new IllegalArgumentException(String.format("Label '%s' defined twice.", label));
+			}
+			lexer.next();
+		}
+		if (lexer.type() == TokenType.NEWLINE) {
+			lexer.next();
+		} else if (lexer.type() != TokenType.END) {
+			throw new IllegalArgumentException(String.format("Unexpected '%s'.", lexer.text()));
+		}
+	}
+
+	private void parseStatement(final int start, final int end) {
+		final CharSequence src = lexer.source();
+		if (src.charAt(start) == '.') {
+			parseDirective(start, end);
+			return;
+		}
+
+		final InstructionBuilder ib = Instruction.builder();
+		int mnemonicStart = start;
+		int mnemonicEnd = end;
+		final LegacyPrefix prefix = PREFIXES.get(src, start, end);
+		if (prefix != null) {
+			ib.prefix(prefix);
+			if (lexer.type() != TokenType.IDENTIFIER) {
+				throw new IllegalArgumentException(String.format("Expected an opcode but was '%s'.", lexer.text()));
+			}
+			mnemonicStart = lexer.start();
+			mnemonicEnd = lexer.end();
+			lexer.next();
+		}
+
+		Opcode opcode = MNEMONICS.get(src, mnemonicStart, mnemonicEnd);
+		if (opcode == null && mnemonicEnd - mnemonicStart == 3 && "bnd".contentEquals(src.subSequence(mnemonicStart, mnemonicEnd))) {
+			if (!lexer.is("jmp")) {
+				throw new IllegalArgumentException("Expected 'jmp' after 'bnd'.");
+			}
+			lexer.next();
+			opcode = Opcode.BND_JMP;
+		}
+		if (opcode == null) {
+			throw new IllegalArgumentException(
+					String.format("Unknown opcode '%s'.", src.subSequence(mnemonicStart, mnemonicEnd)));
+		}
+		ib.opcode(opcode);
+
+		pendingLabel = null;
+		if (lexer.type() != TokenType.NEWLINE && lexer.type() != TokenType.END) {
+			parseOperands(ib, opcode);
+		}
+
+		final Instruction inst = ib.build();
+		if (pendingLabel != null && !RELATIVE_BRANCHES.contains(opcode)) {
+			throw new IllegalArgumentException(String.format(
+					"Label '%s' can only be used as target of a relative branch.", pendingLabel));
+		}
+		InstructionEncoder.toHex(output, check, inst);
+		if (pendingLabel != null) {
+			fixups.add(new Fixup(pendingLabel, output.getPosition() - 4, lexer.line()));
+		}
+	}
+
+	private void parseOperands(final InstructionBuilder ib, final Opcode opcode) {
+		final Operand first = parseOperand(null, 1);
+		ib.op(first);
+		if (lexer.type() == TokenType.LEFT_BRACE) {
+			parseMask(ib);
+		}
+		if (lexer.type() != TokenType.COMMA) {
+			return;
+		}
+		lexer.next();
+
+		final Operand second = parseOperand(first, 1);
+		ib.op(second);
+		if (lexer.type() != TokenType.COMMA) {
+			return;
+		}
+		lexer.next();
+
+		final int compression = (COMPRESSED_DISPLACEMENT_OPCODES.contains(opcode)
+						&& first instanceof final Register r1
+						&& Registers.requiresEvexExtension(r1)
+						&& second instanceof final Register r2
+						&& Registers.requiresEvexExtension(r2))
+				? COMPRESSED_DISPLACEMENT_FACTOR
+				: 1;
+		ib.op(parseOperand(null, compression));
+		if (lexer.type() != TokenType.COMMA) {
+			return;
+		}
+		lexer.next();
+
+		ib.op(parseOperand(null, 1));
+		if (lexer.type() == TokenType.COMMA) {
+			throw new IllegalArgumentException("Too many operands.");
+		}
+	}
+
+	private void parseMask(final InstructionBuilder ib) {
+		expect(TokenType.IDENTIFIER);
+		if (!(REGISTERS.get(lexer.source(), lexer.start(), lexer.end()) instanceof final MaskRegister mask)) {
+			throw new IllegalArgumentException(String.format("Unknown destination mask: '%s'.", lexer.text()));
+		}
+		ib.mask(mask);
+		expect(TokenType.RIGHT_BRACE);
+		if (lexer.next() == TokenType.LEFT_BRACE) {
+			expect(TokenType.IDENTIFIER);
+			if (!lexer.is("z")) {
+				throw new IllegalArgumentException(String.format("Unknown destination mask: '%s'.", lexer.text()));
+			}
+			ib.maskZero();
+			expect(TokenType.RIGHT_BRACE);
+			lexer.next();
+		}
+	}
+
+	private Operand parseOperand(final Operand previousOperand, final int compression) {
+		return switch (lexer.type()) {
+			case NUMBER -> {
+				final Immediate imm = parseImmediate();
+				lexer.next();
+				yield imm;
+			}
+			case LEFT_BRACKET -> parseIndirectOperand(defaultPointer(previousOperand), null, compression);
+			case IDENTIFIER -> {
+				final CharSequence src = lexer.source();
+				final Register r = REGISTERS.get(src, lexer.start(), lexer.end());
+				if (r != null) {
+					if (lexer.next() == TokenType.COLON && r instanceof final SegmentRegister seg) {
+						yield parseSegmentOverride(null, seg, previousOperand, compression);
+					}
+					yield r;
+				}
+				final PointerSize ptr = POINTER_SIZES.get(src, lexer.start(), lexer.end());
+				if (ptr != null) {
+					expect(TokenType.IDENTIFIER);
+					if (!lexer.is("ptr")) {
+						throw new IllegalArgumentException(String.format("Expected 'PTR' but was '%s'.", lexer.text()));
+					}
+					if (lexer.next() == TokenType.IDENTIFIER
+							&& REGISTERS.get(src, lexer.start(), lexer.end()) instanceof final SegmentRegister seg) {
+						expect(TokenType.COLON);
+						yield parseSegmentOverride(ptr, seg, previousOperand, compression);
+					}
+					yield parseIndirectOperand(ptr, null, compression);
+				}
+				if (pendingLabel != null || previousOperand != null) {
+					throw new IllegalArgumentException(String.format("Unexpected label '%s'.", lexer.text()));
+				}
+				pendingLabel = lexer.text();
+				lexer.next();
+				// placeholder for the 32-bit relative displacement
+				yield new Immediate(0);
+			}
+			default -> throw new IllegalArgumentException(String.format("Unexpected '%s'.", lexer.text()));
+		};
+	}
+
+	// LEA-like instructions have no explicit pointer size in front of the indirect operand
+	private static PointerSize defaultPointer(final Operand previousOperand) {
+		return previousOperand == null ? PointerSize.QWORD_PTR : PointerSize.fromSize(previousOperand.bits());
+	}
+
+	private Operand parseSegmentOverride(
+			final PointerSize explicitPointer,
+			final SegmentRegister seg,
+			final Operand previousOperand,
+			final int compression) {
+		if (lexer.next() == TokenType.NUMBER) {
+			if (explicitPointer != null) {
+				throw new IllegalArgumentException("Segmented addresses cannot have an explicit pointer size.");
+			}
+			final Immediate imm = parseImmediate();
+			lexer.next();
+			return new SegmentedAddress(seg, imm);
+		}
+		return parseIndirectOperand(
+				explicitPointer == null ? defaultPointer(previousOperand) : explicitPointer, seg, compression);
+	}
+
+	private Operand parseIndirectOperand(final PointerSize pointer, final SegmentRegister seg, final int compression) {
+		if (lexer.type() != TokenType.LEFT_BRACKET) {
+			throw new IllegalArgumentException(String.format("Expected '[' but was '%s'.", lexer.text()));
+		}
+		final IndirectOperandBuilder iob = new IndirectOperandBuilder().pointer(pointer);
+		if (seg != null) {
+			iob.segment(seg);
+		}
+
+		boolean hasBase = false;
+		boolean isNegative = false;
+		while (true) {
+			lexer.next();
+			if (lexer.type() == TokenType.NUMBER) {
+				parseDisplacement(iob, isNegative, compression);
+			} else if (lexer.type() == TokenType.IDENTIFIER
+					&& REGISTERS.get(lexer.source(), lexer.start(), lexer.end()) instanceof final Register r) {
+				if (isNegative) {
+					throw new IllegalArgumentException("Registers cannot be subtracted.");
+				}
+				if (lexer.next() == TokenType.STAR) {
+					expect(TokenType.NUMBER);
+					iob.index(r).scale((int) lexer.value());
+					lexer.next();
+				} else if (hasBase) {
+					iob.index(r);
+				} else {
+					iob.base(r);
+					hasBase = true;
+				}
+			} else {
+				throw new IllegalArgumentException(String.format("Invalid indirect operand term '%s'.", lexer.text()));
+			}
+
+			switch (lexer.type()) {
+				case PLUS -> isNegative = false;
+				case MINUS -> isNegative = true;
+				case RIGHT_BRACKET -> {
+					lexer.next();
+					return iob.build();
+				}
+				default -> throw new IllegalArgumentException(String.format("Expected ']' but was '%s'.", lexer.text()));
+			}
+		}
+	}
+
+	private void parseDisplacement(final IndirectOperandBuilder iob, final boolean isNegative, final int compression) {
+		if (!lexer.isHexNumber() || lexer.digits() > 8) {
+			throw new IllegalArgumentException(String.format("Invalid displacement '%s'.", lexer.text()));
+		}
+		final int value = (int) lexer.value();
+		final int disp = isNegative ? -value : value;
+		if (lexer.digits() == 8) {
+			iob.displacement(disp);
+		} else {
+			iob.displacement(asByte(disp / compression));
+		}
+		lexer.next();
+	}
+
+	private Immediate parseImmediate() {
+		if (!lexer.isHexNumber()) {
+			throw new IllegalArgumentException(
+					String.format("Immediate values must be hexadecimal but was '%s'.", lexer.text()));
+		}
+		final int digits = lexer.digits();
+		final long value = lexer.value();
+		if (digits <= 2) {
+			return new Immediate(asByte((int) value));
+		}
+		if (digits <= 4) {
+			return new Immediate(asShort((int) value));
+		}
+		if (digits <= 8) {
+			return new Immediate((int) value);
+		}
+		return new Immediate(value);
+	}
+
+	private void parseDirective(final int start, final int end) {
+		final CharSequence src = lexer.source();
+		final String directive = src.subSequence(start, end).toString();
+		switch (directive) {
+			case ".byte" -> {
+				while (true) {
+					if (lexer.type() != TokenType.NUMBER) {
+						throw new IllegalArgumentException(String.format("Expected a number but was '%s'.", lexer.text()));
+					}
+					final long value = lexer.value();
+					if (value > 0xffL) {
+						throw new IllegalArgumentException(String.format("Value too big for a byte: '%s'.", lexer.text()));
+					}
+					output.write(asByte((int) value));
+					if (lexer.next() != TokenType.COMMA) {
+						break;
+					}
+					lexer.next();
+				}
+			}
+			case ".intel_syntax", ".text", ".globl", ".global" -> {
+				// nothing to do, just skip the arguments
+				while (lexer.type() != TokenType.NEWLINE && lexer.type() != TokenType.END) {
+					lexer.next();
+				}
+			}
+			default -> throw new IllegalArgumentException(String.format("Unknown directive '%s'.", directive));
+		}
+	}
+
+	private void expect(final TokenType type) {
+		if (lexer.next() != type) {
+			throw new IllegalArgumentException(String.format(
+					"Expected %s but was '%s'.", type.name().toLowerCase(Locale.US), lexer.text()));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Assembler(check=" + check + ";labels=" + labels.size() + ";fixups=" + fixups.size() + ")";
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.cpu;
+
+import java.util.Objects;
+
+/**
+ * A tokenizer for Intel-syntax assembly source code. Tokens are never materialized as strings: the lexer only keeps
+ * track of the boundaries of the current token inside the source.
+ *
+ * <p>Comments start with ';' or '#' and extend until the end of the line.
+ */
+final class AssemblyLexer {
+
+	/** The kinds of tokens recognized by the lexer. */
+	enum TokenType {
+		/** A mnemonic, a register, a keyword, a label or a directive. */
+		IDENTIFIER,
+		/** A decimal or hexadecimal number. */
+		NUMBER,
+		/** A ','. */
+		COMMA,
+		/** A ':'. */
+		COLON,
+		/** A '['. */
+		LEFT_BRACKET,
+		/** A ']'. */
+		RIGHT_BRACKET,
+		/** A '{'. */
+		LEFT_BRACE,
+		/** A '}'. */
+		RIGHT_BRACE,
+		/** A '+'. */
+		PLUS,
+		/** A '-'. */
+		MINUS,
+		/** A '*'. */
+		STAR,
+		/** The end of a line. */
+		NEWLINE,
+		/** The end of the source. */
+		END
+	}
+
+	private final CharSequence src;
+	private final int length;
+	private int position = 0;
+	private int line = 1;
+	private TokenType type = TokenType.NEWLINE;
+	private int start = 0;
+	private int end = 0;
+
+	/**
+	 * Creates a new lexer over the given source.
+	 *
+	 * @param src The source code.
+	 */
+	AssemblyLexer(final CharSequence src) {
+		this.src = Objects.requireNonNull(src);
+		this.length = src.length();
+	}
+
+	private static boolean isIdentifierStart(final char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '.' || c == '$';
+	}
+
+	private static boolean isIdentifierPart(final char c) {
+		return isIdentifierStart(c) || isDigit(c);
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static int hexDigit(final char c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		}
+		if (c >= 'a' && c <= 'f') {
+			return c - 'a' + 10;
+		}
+		if (c >= 'A' && c <= 'F') {
+			return c - 'A' + 10;
+		}
+		return -1;
+	}
+
+	/**
+	 * Advances to the next token.
+	 *
+	 * @return The type of the new current token.
+	 */
+	TokenType next() {
+		if (type == TokenType.NEWLINE && end > 0) {
+			line++;
+		}
+		skipBlanksAndComments();
+		start = position;
+		if (position >= length) {
+			end = position;
+			type = TokenType.END;
+			return type;
+		}
+		final char c = src.charAt(position++);
+		type = switch (c) {
+			case '\n' -> TokenType.NEWLINE;
+			case ',' -> TokenType.COMMA;
+			case ':' -> TokenType.COLON;
+			case '[' -> TokenType.LEFT_BRACKET;
+			case ']' -> TokenType.RIGHT_BRACKET;
+			case '{' -> TokenType.LEFT_BRACE;
+			case '}' -> TokenType.RIGHT_BRACE;
+			case '+' -> TokenType.PLUS;
+			case '-' -> TokenType.MINUS;
+			case '*' -> TokenType.STAR;
+			default -> {
+				if (isIdentifierStart(c)) {
+					while (position < length && isIdentifierPart(src.charAt(position))) {
+						position++;
+					}
+					yield TokenType.IDENTIFIER;
+				}
+				if (isDigit(c)) {
+					while (position < length && isIdentifierPart(src.charAt(position))) {
+						position++;
+					}
+					yield TokenType.NUMBER;
+				}
+				throw new IllegalArgumentException(String.format("Unexpected character '%c'.", c));
+			}
+		};
+		end = position;
+		return type;
+	}
+
+	private void skipBlanksAndComments() {
+		while (position < length) {
+			final char c = src.charAt(position);
+			if (c == ';' || c == '#') {
+				while (position < length && src.charAt(position) != '\n') {
+					position++;
+				}
+			} else if (c == ' ' || c == '\t' || c == '\r') {
+				position++;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the type of the current token.
+	 *
+	 * @return The type of the current token.
+	 */
+	TokenType type() {
+		return type;
+	}
+
+	/**
+	 * Returns the source code being tokenized.
+	 *
+	 * @return The source code.
+	 */
+	CharSequence source() {
+		return src;
+	}
+
+	/**
+	 * Returns the index of the first character of the current token.
+	 *
+	 * @return The start of the current token.
+	 */
+	int start() {
+		return start;
+	}
+
+	/**
+	 * Returns the index right after the last character of the current token.
+	 *
+	 * @return The end of the current token.
+	 */
+	int end() {
+		return end;
+	}
+
+	/**
+	 * Returns the line (starting from 1) of the current token.
+	 *
+	 * @return The current line.
+	 */
+	int line() {
+		return line;
+	}
+
+	/**
+	 * Returns the text of the current token. This allocates a new String.
+	 *
+	 * @return The text of the current token.
+	 */
+	String text() {
+		return src.subSequence(start, end).toString();
+	}
+
+	/**
+	 * Checks whether the current token is the given keyword, ignoring case.
+	 *
+	 * @param keyword The lowercase keyword.
+	 * @return True if the current token is an identifier equal to the given keyword, false otherwise.
+	 */
+	boolean is(final String keyword) {
+		if (type != TokenType.IDENTIFIER || end - start != keyword.length()) {
+			return false;
+		}
+		for (int i = 0; i < keyword.length(); i++) {
+			final char c = src.charAt(start + i);
+			if ((c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c) != keyword.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the current token is a hexadecimal number ("0x...").
+	 *
+	 * @return True if the current token is a hexadecimal number, false otherwise.
+	 */
+	boolean isHexNumber() {
+		return type == TokenType.NUMBER
+				&& end - start > 2
+				&& src.charAt(start) == '0'
+				&& (src.charAt(start + 1) == 'x' || src.charAt(start + 1) == 'X');
+	}
+
+	/**
+	 * Returns the number of significant digits of the current numeric token, excluding the "0x" prefix.
+	 *
+	 * @return The number of digits.
+	 */
+	int digits() {
+		return isHexNumber() ? end - start - 2 : end - start;
+	}
+
+	/**
+	 * Returns the unsigned value of the current numeric token.
+	 *
+	 * @return The value of the current number.
+	 */
+	long value() {
+		if (type != TokenType.NUMBER) {
+			throw new IllegalArgumentException(String.format("Expected a number but was '%s'.", text()));
+		}
+		final boolean hex = isHexNumber();
+		final int radix = hex ? 16 : 10;
+		final int maxDigits = hex ? 16 : 19;
+		if (digits() > maxDigits) {
+			throw new IllegalArgumentException(String.format("Number too long: '%s'.", text()));
+		}
+		long x = 0L;
+		for (int i = hex ? start + 2 : start; i < end; i++) {
+			final int d = hexDigit(src.charAt(i));
+			if (d < 0 || d >= radix) {
+				throw new IllegalArgumentException(String.format("Invalid number: '%s'.", text()));
+			}
+			x = x * radix + d;
+		}
+		return x;
+	}
+
+	@Override
+	public String toString() {
+		return "AssemblyLexer(line=" + line + ";type=" + type + ";start=" + start + ";end=" + end + ")";
+	}
+}
@@ -105,28 +105,40 @@ public final class InstructionDecoder {
 	private static final byte ADDRESS_SIZE_OVERRIDE_PREFIX = (byte) 0x67;
 	private static final byte MODRM_MOD_NO_DISP = (byte) 0b11;
 	private static final byte CS_SEGMENT_OVERRIDE_PREFIX = (byte) 0x2e;
-	private static final Map<String, Opcode> fromStringToOpcode =
-			Arrays.stream(Opcode.values()).collect(Collectors.toUnmodifiableMap(Opcode::mnemonic, x -> x));
-	private static final Map<String, Register> fromStringToRegister = Stream.of(
-					Arrays.stream(Register8.values()),
-					Arrays.stream(Register16.values()),
-					Arrays.stream(Register32.values()),
-					Arrays.stream(Register64.values()),
-					Arrays.stream(RegisterMMX.values()),
-					Arrays.stream(RegisterXMM.values()),
-					Arrays.stream(RegisterYMM.values()),
-					Arrays.stream(RegisterZMM.values()),
-					Arrays.stream(MaskRegister.values()),
-					Arrays.stream(SegmentRegister.values()))
-			.flatMap(x -> x)
-			.collect(Collectors.toUnmodifiableMap(Operand::toIntelSyntax, x -> x));
-	private static final Map<String, SegmentRegister> fromStringToSegment = Arrays.stream(SegmentRegister.values())
-			.collect(Collectors.toUnmodifiableMap(Operand::toIntelSyntax, x -> x));
-	private static final Map<String, MaskRegister> fromStringToMask =
-			Arrays.stream(MaskRegister.values()).collect(Collectors.toUnmodifiableMap(Operand::toIntelSyntax, x -> x));
+	private static final byte FS_SEGMENT_OVERRIDE_PREFIX = (byte) 0x64;
+	private static final byte GS_SEGMENT_OVERRIDE_PREFIX = (byte) 0x65;
 
 	private InstructionDecoder() {}
 
+	/**
+	 * The lookup tables needed only to parse Intel's syntax, built the first time they are needed instead of whenever
+	 * an instruction is decoded from bytes.
+	 */
+	private static final class IntelSyntax {
+
+		private static final Map<String, Opcode> fromStringToOpcode =
+				Arrays.stream(Opcode.values()).collect(Collectors.toUnmodifiableMap(Opcode::mnemonic, x -> x));
+		private static final Map<String, Register> fromStringToRegister = Stream.of(
+						Arrays.stream(Register8.values()),
+						Arrays.stream(Register16.values()),
+						Arrays.stream(Register32.values()),
+						Arrays.stream(Register64.values()),
+						Arrays.stream(RegisterMMX.values()),
+						Arrays.stream(RegisterXMM.values()),
+						Arrays.stream(RegisterYMM.values()),
+						Arrays.stream(RegisterZMM.values()),
+						Arrays.stream(MaskRegister.values()),
+						Arrays.stream(SegmentRegister.values()))
+				.flatMap(x -> x)
+				.collect(Collectors.toUnmodifiableMap(Operand::toIntelSyntax, x -> x));
+		private static final Map<String, SegmentRegister> fromStringToSegment = Arrays.stream(SegmentRegister.values())
+				.collect(Collectors.toUnmodifiableMap(Operand::toIntelSyntax, x -> x));
+		private static final Map<String, MaskRegister> fromStringToMask = Arrays.stream(MaskRegister.values())
+				.collect(Collectors.toUnmodifiableMap(Operand::toIntelSyntax, x -> x));
+
+		private IntelSyntax() {}
+	}
+
 	/**
 	 * Decodes an x86_64 instruction from its representation in Intel's syntax.
 	 *
@@ -163,10 +175,10 @@ public final class InstructionDecoder {
 			}
 		}
 
-		if (!fromStringToOpcode.containsKey(opcodeString)) {
+		if (!IntelSyntax.fromStringToOpcode.containsKey(opcodeString)) {
 			throw new IllegalArgumentException(String.format("Unknown opcode '%s'.", opcodeString));
 		}
-		final Opcode opcode = fromStringToOpcode.get(opcodeString);
+		final Opcode opcode = IntelSyntax.fromStringToOpcode.get(opcodeString);
 		ib.opcode(opcode);
 
 		skipWhitespaces(it);
@@ -185,8 +197,8 @@ public final class InstructionDecoder {
 			final String[] splitted = args[0].split("\\{");
 			args[0] = splitted[0];
 			final String maskString = splitted[1].split("}")[0].strip();
-			if (fromStringToMask.containsKey(maskString)) {
-				ib.mask(fromStringToMask.get(maskString));
+			if (IntelSyntax.fromStringToMask.containsKey(maskString)) {
+				ib.mask(IntelSyntax.fromStringToMask.get(maskString));
 			} else {
 				throw new IllegalArgumentException(String.format("Unknown destination mask: '%s'.", maskString));
 			}
@@ -264,9 +276,9 @@ public final class InstructionDecoder {
 	@SuppressWarnings("PMD.AvoidDeeplyNestedIfStmts")
 	private static Operand parseOperand(
 			final String input, final Operand previousOperand, final Optional<Integer> compressedDisplacement) {
-		if (fromStringToRegister.containsKey(input)) {
+		if (IntelSyntax.fromStringToRegister.containsKey(input)) {
 			// It's a register
-			return fromStringToRegister.get(input);
+			return IntelSyntax.fromStringToRegister.get(input);
 		}
 		if (input.startsWith("ds:")) {
 			return new SegmentedAddress(SegmentRegister.DS, parseImmediate(input.split("0x")[1]));
@@ -307,8 +319,8 @@ public final class InstructionDecoder {
 		if (it.current() != '[') {
 			// try reading segment register
 			final String seg = readUntil(it, ':').strip();
-			if (fromStringToSegment.containsKey(seg)) {
-				final SegmentRegister segReg = fromStringToSegment.get(seg);
+			if (IntelSyntax.fromStringToSegment.containsKey(seg)) {
+				final SegmentRegister segReg = IntelSyntax.fromStringToSegment.get(seg);
 				iob.segment(segReg);
 				skipWhitespaces(it);
 				it.next();
@@ -358,11 +370,11 @@ public final class InstructionDecoder {
 		}
 
 		if (baseString != null) {
-			final Register reg = fromStringToRegister.get(baseString);
+			final Register reg = IntelSyntax.fromStringToRegister.get(baseString);
 			iob.base(reg);
 		}
 		if (indexString != null) {
-			iob.index(fromStringToRegister.get(indexString));
+			iob.index(IntelSyntax.fromStringToRegister.get(indexString));
 		}
 		if (scaleString != null) {
 			iob.scale(
@@ -432,7 +444,7 @@ public final class InstructionDecoder {
 		while (b.getPosition() < nBytesToDecode) {
 			final long pos = b.getPosition();
 			final Instruction inst = fromHex(b);
-			{ // Debugging info
+			if (logger.isDebugEnabled()) {
 				final long codeLen = b.getPosition() - pos;
 				b.setPosition(pos);
 				logger.debug(
@@ -441,7 +453,7 @@ public final class InstructionDecoder {
 						IntStream.range(0, (int) codeLen)
 								.mapToObj(i -> String.format("%02x", b.read1()))
 								.collect(Collectors.joining(" ")),
-						InstructionEncoder.toIntelSyntax(inst, checkInstructions, 0, false));
+						InstructionEncoder.toIntelSyntax(inst, false, 0, false));
 			}
 			if (checkInstructions) {
 				InstructionChecker.check(inst);
@@ -3124,9 +3136,12 @@ public final class InstructionDecoder {
 				}
 				yield ib.opcode(Opcode.MOVS).op(op1).op(op2).build();
 			}
-			case CMPS_M8_OPCODE ->
-				Instruction.builder()
-						.opcode(Opcode.CMPS)
+			case CMPS_M8_OPCODE -> {
+				final InstructionBuilder ib = Instruction.builder();
+				if (pref.p1().isPresent()) {
+					ib.prefix(pref.p1().orElseThrow());
+				}
+				yield ib.opcode(Opcode.CMPS)
 						.op(IndirectOperand.builder()
 								.pointer(PointerSize.BYTE_PTR)
 								.segment(SegmentRegister.DS)
@@ -3138,9 +3153,13 @@ public final class InstructionDecoder {
 								.base(Register64.RDI)
 								.build())
 						.build();
-			case CMPS_M32_OPCODE ->
-				Instruction.builder()
-						.opcode(Opcode.CMPS)
+			}
+			case CMPS_M32_OPCODE -> {
+				final InstructionBuilder ib = Instruction.builder();
+				if (pref.p1().isPresent()) {
+					ib.prefix(pref.p1().orElseThrow());
+				}
+				yield ib.opcode(Opcode.CMPS)
 						.op(IndirectOperand.builder()
 								.pointer(PointerSize.DWORD_PTR)
 								.segment(SegmentRegister.DS)
@@ -3152,6 +3171,7 @@ public final class InstructionDecoder {
 								.base(Register64.RDI)
 								.build())
 						.build();
+			}
 			case STOS_R8_OPCODE -> {
 				final Operand op1 = IndirectOperand.builder()
 						.pointer(PointerSize.BYTE_PTR)
@@ -3197,9 +3217,12 @@ public final class InstructionDecoder {
 								.base(Register64.RSI)
 								.build())
 						.build();
-			case SCAS_R8_OPCODE ->
-				Instruction.builder()
-						.opcode(Opcode.SCAS)
+			case SCAS_R8_OPCODE -> {
+				final InstructionBuilder ib = Instruction.builder();
+				if (pref.p1().isPresent()) {
+					ib.prefix(pref.p1().orElseThrow());
+				}
+				yield ib.opcode(Opcode.SCAS)
 						.op(Register8.AL)
 						.op(IndirectOperand.builder()
 								.pointer(PointerSize.BYTE_PTR)
@@ -3207,9 +3230,13 @@ public final class InstructionDecoder {
 								.base(Register64.RDI)
 								.build())
 						.build();
-			case SCAS_R32_OPCODE ->
-				Instruction.builder()
-						.opcode(Opcode.SCAS)
+			}
+			case SCAS_R32_OPCODE -> {
+				final InstructionBuilder ib = Instruction.builder();
+				if (pref.p1().isPresent()) {
+					ib.prefix(pref.p1().orElseThrow());
+				}
+				yield ib.opcode(Opcode.SCAS)
 						.op(Register32.EAX)
 						.op(IndirectOperand.builder()
 								.pointer(PointerSize.DWORD_PTR)
@@ -3217,6 +3244,7 @@ public final class InstructionDecoder {
 								.base(Register64.RDI)
 								.build())
 						.build();
+			}
 			case MOVSXD_OPCODE -> {
 				final ModRM modrm = modrm(b);
 				yield Instruction.builder()
@@ -4597,6 +4625,11 @@ public final class InstructionDecoder {
 
 		if (isIndirectOperandNeeded(modrm)) {
 			// indirect operand needed
+			if (pref.p2().isPresent() && pref.p2().orElseThrow() == FS_SEGMENT_OVERRIDE_PREFIX) {
+				iob.segment(SegmentRegister.FS);
+			} else if (pref.p2().isPresent() && pref.p2().orElseThrow() == GS_SEGMENT_OVERRIDE_PREFIX) {
+				iob.segment(SegmentRegister.GS);
+			}
 			if ((modrm.mod() == (byte) 0b00 && modrm.rm() == (byte) 0b101)
 					|| (modrm.mod() == (byte) 0b00 && sib.base() == (byte) 0b101)
 					|| modrm.mod() == (byte) 0b10) {
@@ -4652,8 +4685,6 @@ public final class InstructionDecoder {
 		final byte SS_SEGMENT_OVERRIDE_PREFIX = (byte) 0x36;
 		final byte DS_SEGMENT_OVERRIDE_PREFIX = (byte) 0x3e;
 		final byte ES_SEGMENT_OVERRIDE_PREFIX = (byte) 0x26;
-		final byte FS_SEGMENT_OVERRIDE_PREFIX = (byte) 0x64;
-		final byte GS_SEGMENT_OVERRIDE_PREFIX = (byte) 0x65;
 		final byte BRANCH_NOT_TAKEN_PREFIX = (byte) 0x2e;
 		final byte BRANCH_TAKEN_PREFIX = (byte) 0x3e;
 		return prefix == CS_SEGMENT_OVERRIDE_PREFIX
@@ -24,10 +24,12 @@ import static com.ledmington.utils.BitUtils.not;
 import static com.ledmington.utils.BitUtils.or;
 import static com.ledmington.utils.BitUtils.shl;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 
 import com.ledmington.cpu.x86.DisplacementType;
 import com.ledmington.cpu.x86.Immediate;
@@ -85,6 +87,8 @@ public final class InstructionEncoder {
 	private static final byte OPCODE_GROUP_9_PREFIX = (byte) 0xc7;
 	private static final byte OPCODE_GROUP_15_PREFIX = (byte) 0xae;
 	private static final byte CS_SEGMENT_OVERRIDE_PREFIX = (byte) 0x2e;
+	private static final byte FS_SEGMENT_OVERRIDE_PREFIX = (byte) 0x64;
+	private static final byte GS_SEGMENT_OVERRIDE_PREFIX = (byte) 0x65;
 	private static final Map<Opcode, Byte> CONDITIONAL_JUMPS_OPCODES = Map.ofEntries(
 			Map.entry(Opcode.JO, (byte) 0x00),
 			Map.entry(Opcode.JNO, (byte) 0x01),
@@ -156,34 +160,98 @@ public final class InstructionEncoder {
 			Map.entry(Opcode.IDIV, (byte) 0b111), Map.entry(Opcode.DIV, (byte) 0b110), Map.entry(Opcode.MUL, (byte)
 					0b100));
 
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final String[] POINTER_SIZE_NAMES = Arrays.stream(PointerSize.values())
+			.map(p -> p.name().replace('_', ' '))
+			.toArray(String[]::new);
+	private static final String[] LEGACY_PREFIX_NAMES = Arrays.stream(LegacyPrefix.values())
+			.map(p -> p.name().toLowerCase(Locale.US))
+			.toArray(String[]::new);
+
 	private InstructionEncoder() {}
 
-	private static String operandString(final Instruction inst, final Operand op, final boolean shortHex) {
-		return switch (op) {
-			case IndirectOperand io -> {
-				final Opcode code = inst.opcode();
-				final boolean requiresExplicitPointerSize = code != Opcode.LEA
-						&& code != Opcode.LDDQU
-						&& code != Opcode.FXSAVE
-						&& code != Opcode.FXRSTOR
-						&& code != Opcode.XSAVE
-						&& code != Opcode.XRSTOR
-						&& code != Opcode.XSAVEC;
-				final Optional<Integer> compressedDisplacement =
-						((code == Opcode.VPTERNLOGD || code == Opcode.VPMINUB || code == Opcode.VPMINUD)
-										&& inst.firstOperand() instanceof final Register r1
-										&& Registers.requiresEvexExtension(r1)
-										&& inst.secondOperand() instanceof final Register r2
-										&& Registers.requiresEvexExtension(r2))
-								? Optional.of(32)
-								: Optional.empty();
-				yield io.toIntelSyntax(requiresExplicitPointerSize, compressedDisplacement, shortHex);
-			}
-			case Immediate imm -> imm.toIntelSyntax(shortHex);
-			case Register r -> r.toIntelSyntax();
-			case SegmentedAddress sa -> sa.toIntelSyntax();
+	private static void appendHex(final Appendable out, final long value, final int minDigits, final boolean shortHex)
+			throws IOException {
+		final int significantDigits = Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(value) + 3) / 4);
+		final int digits = shortHex ? significantDigits : Math.max(minDigits, significantDigits);
+		out.append('0').append('x');
+		for (int i = digits - 1; i >= 0; i--) {
+			out.append(HEX_DIGITS[(int) (value >>> (4 * i)) & 0xf]);
+		}
+	}
+
+	private static void appendImmediate(final Appendable out, final Immediate imm, final boolean shortHex)
+			throws IOException {
+		switch (imm.bits()) {
+			case 8 -> appendHex(out, imm.asByte() & 0xffL, 2, shortHex);
+			case 16 -> appendHex(out, imm.asShort() & 0xffffL, 4, shortHex);
+			case 32 -> appendHex(out, imm.asInt() & 0xffffffffL, 8, shortHex);
+			default -> appendHex(out, imm.asLong(), 16, shortHex);
+		}
+	}
+
+	private static void appendIndirectOperand(
+			final Appendable out, final Instruction inst, final IndirectOperand io, final boolean shortHex)
+			throws IOException {
+		final Opcode code = inst.opcode();
+		final boolean requiresExplicitPointerSize = code != Opcode.LEA
+				&& code != Opcode.LDDQU
+				&& code != Opcode.FXSAVE
+				&& code != Opcode.FXRSTOR
+				&& code != Opcode.XSAVE
+				&& code != Opcode.XRSTOR
+				&& code != Opcode.XSAVEC;
+		if (requiresExplicitPointerSize) {
+			out.append(POINTER_SIZE_NAMES[io.getPointerSize().ordinal()]).append(' ');
+		}
+		if (io.hasSegment()) {
+			out.append(io.getSegment().toIntelSyntax()).append(':');
+		}
+		out.append('[');
+		if (io.hasBase()) {
+			out.append(io.getBase().toIntelSyntax());
+		}
+		if (io.hasIndex()) {
+			if (io.hasBase()) {
+				out.append('+');
+			}
+			out.append(io.getIndex().toIntelSyntax());
+			if (io.hasScale()) {
+				out.append('*').append((char) ('0' + io.getScale()));
+			}
+		}
+		if (io.hasDisplacement()) {
+			final int disp = io.getDisplacement();
+			out.append(disp < 0 ? '-' : '+');
+			if (io.getDisplacementType() == DisplacementType.LONG) {
+				appendHex(out, Math.abs((long) disp) & 0xffffffffL, 8, shortHex);
+			} else {
+				final boolean isCompressed = (code == Opcode.VPTERNLOGD
+								|| code == Opcode.VPMINUB
+								|| code == Opcode.VPMINUD)
+						&& inst.firstOperand() instanceof final Register r1
+						&& Registers.requiresEvexExtension(r1)
+						&& inst.secondOperand() instanceof final Register r2
+						&& Registers.requiresEvexExtension(r2);
+				final int x = isCompressed ? disp * 32 : asByte(disp);
+				appendHex(out, Math.abs(x) & 0xffffffffL, 2, shortHex);
+			}
+		}
+		out.append(']');
+	}
+
+	private static void appendOperand(
+			final Appendable out, final Instruction inst, final Operand op, final boolean shortHex) throws IOException {
+		switch (op) {
+			case IndirectOperand io -> appendIndirectOperand(out, inst, io, shortHex);
+			case Immediate imm -> appendImmediate(out, imm, shortHex);
+			case Register r -> out.append(r.toIntelSyntax());
+			case SegmentedAddress sa -> {
+				out.append(sa.segment().toIntelSyntax()).append(':');
+				appendImmediate(out, sa.immediate(), false);
+			}
 			default -> throw new IllegalArgumentException(String.format("Unknown operand type: '%s'.", op));
-		};
+		}
 	}
 
 	/**
@@ -217,9 +285,58 @@ public final class InstructionEncoder {
 	 * @param shortHex When enabled, does not add leading zeroes to immediates and/or indirect operand displacements.
 	 * @return The input instruction encoded in intel syntax.
 	 */
-	@SuppressWarnings("PMD.AvoidDeeplyNestedIfStmts")
 	public static String toIntelSyntax(
 			final Instruction inst, final boolean checkInstructions, final int opcodePad, final boolean shortHex) {
+		final StringBuilder sb = new StringBuilder(32);
+		toIntelSyntax(sb, inst, checkInstructions, opcodePad, shortHex);
+		return sb.toString();
+	}
+
+	/**
+	 * Appends the intel syntax representation of the given instruction to the given StringBuilder, without allocating
+	 * any intermediate object.
+	 *
+	 * @param sb The StringBuilder to append to.
+	 * @param inst The instruction to be encoded.
+	 * @param checkInstructions When enabled, checks the instruction before encoding it.
+	 * @param opcodePad Number of spaces to pad the opcode with in the string.
+	 * @param shortHex When enabled, does not add leading zeroes to immediates and/or indirect operand displacements.
+	 */
+	public static void toIntelSyntax(
+			final StringBuilder sb,
+			final Instruction inst,
+			final boolean checkInstructions,
+			final int opcodePad,
+			final boolean shortHex) {
+		Objects.requireNonNull(sb);
+		try {
+			toIntelSyntax((Appendable) sb, inst, checkInstructions, opcodePad, shortHex);
+		} catch (final IOException e) {
+			// a StringBuilder never throws
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Appends the intel syntax representation of the given instruction to the given Appendable, without allocating
+	 * any intermediate object.
+	 *
+	 * @param out The Appendable to append to.
+	 * @param inst The instruction to be encoded.
+	 * @param checkInstructions When enabled, checks the instruction before encoding it.
+	 * @param opcodePad Number of spaces to pad the opcode with in the string.
+	 * @param shortHex When enabled, does not add leading zeroes to immediates and/or indirect operand displacements.
+	 * @throws IOException If the given Appendable throws.
+	 */
+	@SuppressWarnings("PMD.AvoidDeeplyNestedIfStmts")
+	public static void toIntelSyntax(
+			final Appendable out,
+			final Instruction inst,
+			final boolean checkInstructions,
+			final int opcodePad,
+			final boolean shortHex)
+			throws IOException {
+		Objects.requireNonNull(out);
 		Objects.requireNonNull(inst);
 		if (opcodePad < 0) {
 			throw new IllegalArgumentException(String.format("Invalid opcode pad value: %,d.", opcodePad));
@@ -227,37 +344,38 @@ public final class InstructionEncoder {
 		if (checkInstructions) {
 			InstructionChecker.check(inst);
 		}
-		final StringBuilder sb = new StringBuilder();
 		if (inst.hasPrefix()) {
-			sb.append(inst.getPrefix().name().toLowerCase(Locale.US)).append(' ');
+			out.append(LEGACY_PREFIX_NAMES[inst.getPrefix().ordinal()]).append(' ');
 		}
 
 		final String opcode = inst.opcode().mnemonic();
-		sb.append(opcode);
+		out.append(opcode);
 
 		if (inst.hasFirstOperand()) {
-			if (opcode.length() < opcodePad) {
-				sb.repeat(" ", opcodePad - opcode.length());
+			for (int i = opcode.length(); i < opcodePad; i++) {
+				out.append(' ');
 			}
-			sb.append(' ').append(operandString(inst, inst.firstOperand(), shortHex));
+			out.append(' ');
+			appendOperand(out, inst, inst.firstOperand(), shortHex);
 			if (inst.hasDestinationMask()) {
-				sb.append('{').append(inst.getDestinationMask().toIntelSyntax()).append('}');
+				out.append('{').append(inst.getDestinationMask().toIntelSyntax()).append('}');
 			}
 			if (inst.hasZeroDestinationMask()) {
-				sb.append("{z}");
+				out.append("{z}");
 			}
 			if (inst.hasSecondOperand()) {
-				sb.append(',').append(operandString(inst, inst.secondOperand(), shortHex));
+				out.append(',');
+				appendOperand(out, inst, inst.secondOperand(), shortHex);
 				if (inst.hasThirdOperand()) {
-					sb.append(',').append(operandString(inst, inst.thirdOperand(), shortHex));
+					out.append(',');
+					appendOperand(out, inst, inst.thirdOperand(), shortHex);
 					if (inst.hasFourthOperand()) {
-						sb.append(',').append(operandString(inst, inst.fourthOperand(), shortHex));
+						out.append(',');
+						appendOperand(out, inst, inst.fourthOperand(), shortHex);
 					}
 				}
 			}
 		}
-
-		return sb.toString();
 	}
 
 	/**
@@ -289,6 +407,24 @@ public final class InstructionEncoder {
 		return wb.array();
 	}
 
+	/**
+	 * Encodes the given instructions into raw bytes, writing them into the given buffer starting from its current
+	 * position. No intermediate buffers are allocated.
+	 *
+	 * @param wb The buffer to write the encoded bytes into.
+	 * @param check When enabled, each instruction is checked for validity before being encoded.
+	 * @param code The instructions to be encoded.
+	 * @return The number of bytes written.
+	 */
+	public static int toHex(final WriteOnlyByteBuffer wb, final boolean check, final Instruction... code) {
+		Objects.requireNonNull(wb);
+		final int start = wb.getPosition();
+		for (final Instruction inst : code) {
+			toHex(wb, Objects.requireNonNull(inst), check);
+		}
+		return wb.getPosition() - start;
+	}
+
 	private static void toHex(final WriteOnlyByteBuffer wb, final Instruction inst, final boolean check) {
 		if (check) {
 			InstructionChecker.check(inst);
@@ -322,6 +458,15 @@ public final class InstructionEncoder {
 				&& io.getSegment() == SegmentRegister.CS) {
 			wb.write(CS_SEGMENT_OVERRIDE_PREFIX);
 		}
+		for (int i = 0; i < inst.getNumOperands(); i++) {
+			if (inst.operand(i) instanceof final IndirectOperand io && io.hasSegment()) {
+				if (io.getSegment() == SegmentRegister.FS) {
+					wb.write(FS_SEGMENT_OVERRIDE_PREFIX);
+				} else if (io.getSegment() == SegmentRegister.GS) {
+					wb.write(GS_SEGMENT_OVERRIDE_PREFIX);
+				}
+			}
+		}
 		if ((inst.hasFirstOperand() && requiresAddressSizeOverride(inst.firstOperand()))
 				|| (inst.hasSecondOperand() && requiresAddressSizeOverride(inst.secondOperand()))) {
 			wb.write(ADDRESS_SIZE_OVERRIDE_PREFIX);
@@ -0,0 +1,187 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.cpu;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable, case-insensitive table of ASCII keys built with the "hash and displace" technique: each key is hashed
+ * once into a bucket, and each bucket stores the displacement which maps all of its keys to distinct slots. Lookups
+ * hash the key exactly once, probe exactly one slot and never allocate, so they can be performed directly on a portion
+ * of a larger {@link CharSequence}.
+ *
+ * @param <V> The type of the values.
+ */
+final class PerfectHashTable<V> {
+
+	private static final int MAX_DISPLACEMENT = 1 << 20;
+
+	private final int bucketMask;
+	private final int slotMask;
+	private final int[] displacements;
+	private final String[] keys;
+	private final Object[] values;
+
+	/**
+	 * Builds a new PerfectHashTable containing the given mappings. Keys are compared ignoring the case of ASCII
+	 * letters.
+	 *
+	 * @param entries The mappings to be stored.
+	 */
+	PerfectHashTable(final Map<String, V> entries) {
+		Objects.requireNonNull(entries);
+		final int n = Math.max(1, entries.size());
+		final int numBuckets = Integer.highestOneBit(Math.max(1, n / 2)) << 1;
+		final int numSlots = Integer.highestOneBit(n) << 2;
+		this.bucketMask = numBuckets - 1;
+		this.slotMask = numSlots - 1;
+		this.displacements = new int[numBuckets];
+		this.keys = new String[numSlots];
+		this.values = new Object[numSlots];
+
+		final List<List<String>> buckets = new ArrayList<>(numBuckets);
+		for (int i = 0; i < numBuckets; i++) {
+			buckets.add(new ArrayList<>());
+		}
+		for (final String key : entries.keySet()) {
+			final long h = hash(key, 0, key.length());
+			buckets.get(bucket(h)).add(key);
+		}
+
+		final Integer[] order = new Integer[numBuckets];
+		Arrays.setAll(order, i -> i);
+		Arrays.sort(order, (a, b) -> Integer.compare(buckets.get(b).size(), buckets.get(a).size()));
+
+		final boolean[] used = new boolean[numSlots];
+		final int[] candidate = new int[n];
+		for (final int b : order) {
+			final List<String> bucket = buckets.get(b);
+			if (bucket.isEmpty()) {
+				break;
+			}
+			final int d = findDisplacement(bucket, used, candidate);
+			displacements[b] = d;
+			for (int i = 0; i < bucket.size(); i++) {
+				final String key = bucket.get(i);
+				used[candidate[i]] = true;
+				keys[candidate[i]] = key.toLowerCase(Locale.US);
+				values[candidate[i]] = Objects.requireNonNull(entries.get(key));
+			}
+		}
+	}
+
+	private int findDisplacement(final List<String> bucket, final boolean[] used, final int[] candidate) {
+		for (int d = 0; d < MAX_DISPLACEMENT; d++) {
+			if (fits(bucket, used, candidate, d)) {
+				return d;
+			}
+		}
+		throw new IllegalArgumentException(String.format("Cannot build a perfect hash table for keys %s.", bucket));
+	}
+
+	private boolean fits(final List<String> bucket, final boolean[] used, final int[] candidate, final int d) {
+		for (int i = 0; i < bucket.size(); i++) {
+			final String key = bucket.get(i);
+			final int s = slot(hash(key, 0, key.length()), d);
+			if (used[s]) {
+				return false;
+			}
+			for (int j = 0; j < i; j++) {
+				if (candidate[j] == s) {
+					if (key.equalsIgnoreCase(bucket.get(j))) {
+						throw new IllegalArgumentException(String.format("Duplicate key '%s'.", key));
+					}
+					return false;
+				}
+			}
+			candidate[i] = s;
+		}
+		return true;
+	}
+
+	private static char toLowerCase(final char c) {
+		return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	private static long hash(final CharSequence s, final int start, final int end) {
+		// 64-bit FNV-1a
+		long h = 0xcbf29ce484222325L;
+		for (int i = start; i < end; i++) {
+			h ^= toLowerCase(s.charAt(i));
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	private int bucket(final long h) {
+		return (int) (h >>> 32) & bucketMask;
+	}
+
+	private int slot(final long h, final int d) {
+		// murmur3 finalizer
+		long x = h + d * 0x9e3779b97f4a7c15L;
+		x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+		x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return (int) (x ^ (x >>> 33)) & slotMask;
+	}
+
+	/**
+	 * Returns the value associated to the characters of the given sequence between {@code start} (inclusive) and
+	 * {@code end} (exclusive), if any.
+	 *
+	 * @param s The sequence containing the key.
+	 * @param start The index of the first character of the key.
+	 * @param end The index right after the last character of the key.
+	 * @return The associated value or null.
+	 */
+	@SuppressWarnings("unchecked")
+	V get(final CharSequence s, final int start, final int end) {
+		final long h = hash(s, start, end);
+		final int idx = slot(h, displacements[bucket(h)]);
+		final String key = keys[idx];
+		if (key == null || key.length() != end - start) {
+			return null;
+		}
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) != toLowerCase(s.charAt(start + i))) {
+				return null;
+			}
+		}
+		return (V) values[idx];
+	}
+
+	/**
+	 * Returns the value associated to the given key, if any.
+	 *
+	 * @param key The key.
+	 * @return The associated value or null.
+	 */
+	V get(final CharSequence key) {
+		return get(key, 0, key.length());
+	}
+
+	@Override
+	public String toString() {
+		return "PerfectHashTable(buckets=" + displacements.length + ";slots=" + keys.length + ")";
+	}
+}
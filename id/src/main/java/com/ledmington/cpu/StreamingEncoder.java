@@ -0,0 +1,165 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.cpu;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.ledmington.cpu.x86.Instruction;
+import com.ledmington.utils.MemorySegmentWriter;
+
+/**
+ * Encodes sequences of instructions directly into caller-supplied buffers. The encoding of each instruction is cached,
+ * so that encoding an already-seen instruction is a single bulk copy with no allocation and no re-checking.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+public final class StreamingEncoder {
+
+	private static final int DEFAULT_MAX_CACHED_ENCODINGS = 1024;
+
+	private final boolean check;
+	private final Map<Instruction, byte[]> cache;
+
+	/**
+	 * Creates a new StreamingEncoder which remembers at most the given number of encodings, evicting the least
+	 * recently used ones.
+	 *
+	 * @param check When enabled, each instruction is checked for validity the first time it is encoded.
+	 * @param maxCachedEncodings The maximum number of encodings to be cached.
+	 */
+	public StreamingEncoder(final boolean check, final int maxCachedEncodings) {
+		if (maxCachedEncodings < 0) {
+			throw new IllegalArgumentException(
+					String.format("Invalid maximum number of cached encodings: %,d.", maxCachedEncodings));
+		}
+		this.check = check;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = -1817204738473524186L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Instruction, byte[]> eldest) {
+				return size() > maxCachedEncodings;
+			}
+		};
+	}
+
+	/**
+	 * Creates a new StreamingEncoder with a default cache size.
+	 *
+	 * @param check When enabled, each instruction is checked for validity the first time it is encoded.
+	 */
+	public StreamingEncoder(final boolean check) {
+		this(check, DEFAULT_MAX_CACHED_ENCODINGS);
+	}
+
+	private byte[] encodeAndCache(final MemorySegment dst, final Instruction inst) {
+		final MemorySegmentWriter wb = new MemorySegmentWriter(dst, true);
+		InstructionEncoder.toHex(wb, check, inst);
+		final byte[] encoded = wb.array();
+		cache.put(inst, encoded);
+		return encoded;
+	}
+
+	/**
+	 * Encodes the given instruction at the current position of the given buffer, advancing it.
+	 *
+	 * @param dst The buffer to write into.
+	 * @param inst The instruction to be encoded.
+	 * @return The number of bytes written.
+	 * @throws IndexOutOfBoundsException If the remaining space in the buffer is not enough.
+	 */
+	public int encode(final ByteBuffer dst, final Instruction inst) {
+		Objects.requireNonNull(dst);
+		Objects.requireNonNull(inst);
+		final byte[] cached = cache.get(inst);
+		if (cached != null) {
+			dst.put(cached);
+			return cached.length;
+		}
+		final byte[] encoded = encodeAndCache(MemorySegment.ofBuffer(dst), inst);
+		dst.position(dst.position() + encoded.length);
+		return encoded.length;
+	}
+
+	/**
+	 * Encodes the given instructions contiguously at the current position of the given buffer, advancing it.
+	 *
+	 * @param dst The buffer to write into.
+	 * @param code The instructions to be encoded.
+	 * @return The number of bytes written.
+	 * @throws IndexOutOfBoundsException If the remaining space in the buffer is not enough.
+	 */
+	public int encode(final ByteBuffer dst, final Instruction... code) {
+		int written = 0;
+		for (final Instruction inst : code) {
+			written += encode(dst, inst);
+		}
+		return written;
+	}
+
+	/**
+	 * Encodes the given instructions contiguously inside the given segment, starting at the given offset.
+	 *
+	 * @param dst The segment to write into.
+	 * @param offset The offset (in bytes) inside the segment where to write the first instruction.
+	 * @param code The instructions to be encoded.
+	 * @return The offset right after the last byte written.
+	 * @throws IndexOutOfBoundsException If the segment is not big enough.
+	 */
+	public long encode(final MemorySegment dst, final long offset, final Instruction... code) {
+		Objects.requireNonNull(dst);
+		long pos = offset;
+		for (final Instruction inst : code) {
+			Objects.requireNonNull(inst);
+			final byte[] cached = cache.get(inst);
+			if (cached != null) {
+				MemorySegment.copy(cached, 0, dst, ValueLayout.JAVA_BYTE, pos, cached.length);
+				pos += cached.length;
+			} else {
+				pos += encodeAndCache(dst.asSlice(pos), inst).length;
+			}
+		}
+		return pos;
+	}
+
+	/**
+	 * Returns the encoding of the given instruction, reusing the cached one if present.
+	 *
+	 * @param inst The instruction to be encoded.
+	 * @return A new array containing the encoded instruction.
+	 */
+	public byte[] toHex(final Instruction inst) {
+		Objects.requireNonNull(inst);
+		byte[] encoded = cache.get(inst);
+		if (encoded == null) {
+			encoded = InstructionEncoder.toHex(inst, check);
+			cache.put(inst, encoded);
+		}
+		return encoded.clone();
+	}
+
+	@Override
+	public String toString() {
+		return "StreamingEncoder(check=" + check + ";cachedEncodings=" + cache.size() + ")";
+	}
+}
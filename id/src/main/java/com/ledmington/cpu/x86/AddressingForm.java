@@ -0,0 +1,43 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.cpu.x86;
+
+/**
+ * The shape of the address computation of an {@link IndirectOperand}, known as soon as the operand is built, so that
+ * computing the address does not need to inspect which components are present.
+ */
+public enum AddressingForm {
+
+	/** [base]. */
+	BASE,
+
+	/** [base+displacement]. */
+	BASE_DISPLACEMENT,
+
+	/** [rip+displacement]. */
+	RIP_RELATIVE,
+
+	/** [displacement]. */
+	DISPLACEMENT,
+
+	/** [base+index*scale] and [base+index*scale+displacement]. */
+	BASE_INDEX_SCALE_DISPLACEMENT,
+
+	/** [index*scale+displacement]. */
+	INDEX_SCALE_DISPLACEMENT
+}
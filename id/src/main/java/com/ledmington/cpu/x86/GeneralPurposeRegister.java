@@ -0,0 +1,32 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.cpu.x86;
+
+/**
+ * An x86 general-purpose register of any size, which lives inside one of the 64-bit registers (or inside the
+ * instruction pointer).
+ */
+public sealed interface GeneralPurposeRegister extends Register permits Register8, Register16, Register32, Register64 {
+
+	/**
+	 * Returns where this register lives inside the 64-bit registers and how it is read and written.
+	 *
+	 * @return The descriptor of this register.
+	 */
+	RegisterDescriptor descriptor();
+}
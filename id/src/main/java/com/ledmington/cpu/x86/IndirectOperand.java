@@ -48,6 +48,13 @@ public final class IndirectOperand implements Operand {
 	private final Integer displacement;
 	private final DisplacementType displacementType;
 
+	// Precomputed, so that computing the address needs neither to inspect the components nor to unbox them
+	private final AddressingForm form;
+	private final int scaleShift;
+	private final long signedDisplacement;
+	private final RegisterDescriptor baseDescriptor;
+	private final RegisterDescriptor indexDescriptor;
+
 	/**
 	 * Returns a fresh instance of IndirectOperandBuilder.
 	 *
@@ -123,6 +130,22 @@ public final class IndirectOperand implements Operand {
 		this.scale = scale;
 		this.displacement = displacement;
 		this.displacementType = displacementType;
+
+		if (isB) {
+			this.form = AddressingForm.BASE;
+		} else if (isBD) {
+			this.form = base == Register64.RIP ? AddressingForm.RIP_RELATIVE : AddressingForm.BASE_DISPLACEMENT;
+		} else if (isD) {
+			this.form = AddressingForm.DISPLACEMENT;
+		} else if (isISD) {
+			this.form = AddressingForm.INDEX_SCALE_DISPLACEMENT;
+		} else {
+			this.form = AddressingForm.BASE_INDEX_SCALE_DISPLACEMENT;
+		}
+		this.scaleShift = hasScale ? Integer.numberOfTrailingZeros(scale) : 0;
+		this.signedDisplacement = hasDisplacement ? displacement : 0L;
+		this.baseDescriptor = hasBase ? ((GeneralPurposeRegister) base).descriptor() : null;
+		this.indexDescriptor = hasIndex ? ((GeneralPurposeRegister) index).descriptor() : null;
 	}
 
 	/**
@@ -144,6 +167,17 @@ public final class IndirectOperand implements Operand {
 		return base;
 	}
 
+	/**
+	 * Returns the location of the base register of this indirect operand, so that it can be read without inspecting
+	 * its type.
+	 *
+	 * @return The descriptor of the base register.
+	 */
+	public RegisterDescriptor getBaseDescriptor() {
+		Objects.requireNonNull(this.baseDescriptor, "No base register.");
+		return baseDescriptor;
+	}
+
 	/**
 	 * Returns true if this indirect operand has a base operand.
 	 *
@@ -182,6 +216,17 @@ public final class IndirectOperand implements Operand {
 		return index;
 	}
 
+	/**
+	 * Returns the location of the index register of this indirect operand, so that it can be read without inspecting
+	 * its type.
+	 *
+	 * @return The descriptor of the index register.
+	 */
+	public RegisterDescriptor getIndexDescriptor() {
+		Objects.requireNonNull(this.indexDescriptor, "No index register.");
+		return indexDescriptor;
+	}
+
 	/**
 	 * Returns true if this indirect operand has an index register.
 	 *
@@ -227,6 +272,35 @@ public final class IndirectOperand implements Operand {
 		return displacement;
 	}
 
+	/**
+	 * Returns the shape of the address computation of this indirect operand.
+	 *
+	 * @return The addressing form of this indirect operand.
+	 */
+	public AddressingForm getAddressingForm() {
+		return form;
+	}
+
+	/**
+	 * Returns the number of bits to shift the index register left by, which is equivalent to multiplying it by the
+	 * scale. In case there is no scale, it is 0.
+	 *
+	 * @return The base-2 logarithm of the scale of this indirect operand.
+	 */
+	public int getScaleShift() {
+		return scaleShift;
+	}
+
+	/**
+	 * Returns the displacement of this indirect operand, sign-extended to 64 bits. In case there is no displacement, it
+	 * is 0.
+	 *
+	 * @return The sign-extended displacement of this indirect operand.
+	 */
+	public long getSignedDisplacement() {
+		return signedDisplacement;
+	}
+
 	/**
 	 * Returns the type of displacement.
 	 *
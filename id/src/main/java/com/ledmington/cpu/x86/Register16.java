@@ -20,57 +20,62 @@ package com.ledmington.cpu.x86;
 import java.util.Locale;
 
 /** An x86 16-bit general-purpose register. */
-public enum Register16 implements Register {
+public enum Register16 implements GeneralPurposeRegister {
 
 	/** The register AX. */
-	AX,
+	AX(0),
 
 	/** The register BX. */
-	BX,
+	BX(1),
 
 	/** The register CX. */
-	CX,
+	CX(2),
 
 	/** The register DX. */
-	DX,
+	DX(3),
 
 	/** The register SI. */
-	SI,
+	SI(6),
 
 	/** The register DI. */
-	DI,
+	DI(7),
 
 	/** The register SP. */
-	SP,
+	SP(4),
 
 	/** The register BP. */
-	BP,
+	BP(5),
 
 	/** The register R8W. */
-	R8W,
+	R8W(8),
 
 	/** The register R9W. */
-	R9W,
+	R9W(9),
 
 	/** The register R10W. */
-	R10W,
+	R10W(10),
 
 	/** The register R11W. */
-	R11W,
+	R11W(11),
 
 	/** The register R12W. */
-	R12W,
+	R12W(12),
 
 	/** The register R13W. */
-	R13W,
+	R13W(13),
 
 	/** The register R14W. */
-	R14W,
+	R14W(14),
 
 	/** The register R15W. */
-	R15W;
+	R15W(15);
 
 	private final String mnemonic = name().toLowerCase(Locale.US);
+	private final RegisterDescriptor descriptor;
+
+	Register16(final int slot) {
+		this.descriptor = new RegisterDescriptor(this, slot, 0, 16);
+	}
 
 	/**
 	 * Returns the 16-bit register corresponding to the given byte.
@@ -132,6 +137,11 @@ public enum Register16 implements Register {
 		};
 	}
 
+	@Override
+	public RegisterDescriptor descriptor() {
+		return descriptor;
+	}
+
 	@Override
 	public int bits() {
 		return 16;
@@ -20,60 +20,65 @@ package com.ledmington.cpu.x86;
 import java.util.Locale;
 
 /** An x86 32-bit general-purpose register. */
-public enum Register32 implements Register {
+public enum Register32 implements GeneralPurposeRegister {
 
 	/** The register EAX. */
-	EAX,
+	EAX(0),
 
 	/** The register EBX. */
-	EBX,
+	EBX(1),
 
 	/** The register ECX. */
-	ECX,
+	ECX(2),
 
 	/** The register EDX. */
-	EDX,
+	EDX(3),
 
 	/** The register ESI. */
-	ESI,
+	ESI(6),
 
 	/** The register EDI. */
-	EDI,
+	EDI(7),
 
 	/** The register ESP. */
-	ESP,
+	ESP(4),
 
 	/** The register EBP. */
-	EBP,
+	EBP(5),
 
 	/** The register R8D. */
-	R8D,
+	R8D(8),
 
 	/** The register R9D. */
-	R9D,
+	R9D(9),
 
 	/** The register R10D. */
-	R10D,
+	R10D(10),
 
 	/** The register R11D. */
-	R11D,
+	R11D(11),
 
 	/** The register R12D. */
-	R12D,
+	R12D(12),
 
 	/** The register R13D. */
-	R13D,
+	R13D(13),
 
 	/** The register R14D. */
-	R14D,
+	R14D(14),
 
 	/** The register R15D. */
-	R15D,
+	R15D(15),
 
 	/** The instruction pointer register EIP. */
-	EIP;
+	EIP(16);
 
 	private final String mnemonic = name().toLowerCase(Locale.US);
+	private final RegisterDescriptor descriptor;
+
+	Register32(final int slot) {
+		this.descriptor = new RegisterDescriptor(this, slot, 0, 32);
+	}
 
 	/**
 	 * Returns the 32-bit register corresponding to the given byte.
@@ -137,6 +142,11 @@ public enum Register32 implements Register {
 		};
 	}
 
+	@Override
+	public RegisterDescriptor descriptor() {
+		return descriptor;
+	}
+
 	@Override
 	public int bits() {
 		return 32;
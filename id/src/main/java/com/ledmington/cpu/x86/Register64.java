@@ -20,60 +20,65 @@ package com.ledmington.cpu.x86;
 import java.util.Locale;
 
 /** An x86 64-bit general-purpose register. */
-public enum Register64 implements Register {
+public enum Register64 implements GeneralPurposeRegister {
 
 	/** The register RAX. Usually contains the return value of a function call. */
-	RAX,
+	RAX(0),
 
 	/** The register RBX. */
-	RBX,
+	RBX(1),
 
 	/** The register RCX. */
-	RCX,
+	RCX(2),
 
 	/** The register RDX. */
-	RDX,
+	RDX(3),
 
 	/** The register RSI. */
-	RSI,
+	RSI(6),
 
 	/** The register RDI. */
-	RDI,
+	RDI(7),
 
 	/** The register RBP. Usually points to the base (the start) of the current stack frame. */
-	RBP,
+	RBP(5),
 
 	/** The register RSP. Usually points to the top (the end) of the current stack frame. */
-	RSP,
+	RSP(4),
 
 	/** The register R8. */
-	R8,
+	R8(8),
 
 	/** The register R9. */
-	R9,
+	R9(9),
 
 	/** The register R10. */
-	R10,
+	R10(10),
 
 	/** The register R11. */
-	R11,
+	R11(11),
 
 	/** The register R12. */
-	R12,
+	R12(12),
 
 	/** The register R13. */
-	R13,
+	R13(13),
 
 	/** The register R14. */
-	R14,
+	R14(14),
 
 	/** The register R15. */
-	R15,
+	R15(15),
 
 	/** The instruction pointer register RIP. */
-	RIP;
+	RIP(16);
 
 	private final String mnemonic = name().toLowerCase(Locale.US);
+	private final RegisterDescriptor descriptor;
+
+	Register64(final int slot) {
+		this.descriptor = new RegisterDescriptor(this, slot, 0, 64);
+	}
 
 	/**
 	 * Returns the 64-bit register corresponding to the given byte.
@@ -136,6 +141,11 @@ public enum Register64 implements Register {
 		};
 	}
 
+	@Override
+	public RegisterDescriptor descriptor() {
+		return descriptor;
+	}
+
 	@Override
 	public int bits() {
 		return 64;
@@ -21,69 +21,78 @@ import java.util.Locale;
 
 /** An x86 8-bit general-purpose register. */
 @SuppressWarnings("PMD.CyclomaticComplexity")
-public enum Register8 implements Register {
+public enum Register8 implements GeneralPurposeRegister {
 
 	/** The register AL. */
-	AL,
+	AL(0),
 
 	/** The register BL. */
-	BL,
+	BL(1),
 
 	/** The register CL. */
-	CL,
+	CL(2),
 
 	/** The register DL. */
-	DL,
+	DL(3),
 
 	/** The register AH. */
-	AH,
+	AH(0, 8),
 
 	/** The register BH. */
-	BH,
+	BH(1, 8),
 
 	/** The register CH. */
-	CH,
+	CH(2, 8),
 
 	/** The register DH. */
-	DH,
+	DH(3, 8),
 
 	/** The register DIL. */
-	DIL,
+	DIL(7),
 
 	/** The register SIL. */
-	SIL,
+	SIL(6),
 
 	/** The register BPL. */
-	BPL,
+	BPL(5),
 
 	/** The register SPL. */
-	SPL,
+	SPL(4),
 
 	/** The register R8B. */
-	R8B,
+	R8B(8),
 
 	/** The register R9B. */
-	R9B,
+	R9B(9),
 
 	/** The register R10B. */
-	R10B,
+	R10B(10),
 
 	/** The register R11B. */
-	R11B,
+	R11B(11),
 
 	/** The register R12B. */
-	R12B,
+	R12B(12),
 
 	/** The register R13B. */
-	R13B,
+	R13B(13),
 
 	/** The register R14B. */
-	R14B,
+	R14B(14),
 
 	/** The register R15B. */
-	R15B;
+	R15B(15);
 
 	private final String mnemonic = name().toLowerCase(Locale.US);
+	private final RegisterDescriptor descriptor;
+
+	Register8(final int slot) {
+		this(slot, 0);
+	}
+
+	Register8(final int slot, final int shift) {
+		this.descriptor = new RegisterDescriptor(this, slot, shift, 8);
+	}
 
 	/**
 	 * Returns the 8-bit register corresponding to the given byte.
@@ -160,6 +169,11 @@ public enum Register8 implements Register {
 		};
 	}
 
+	@Override
+	public RegisterDescriptor descriptor() {
+		return descriptor;
+	}
+
 	@Override
 	public int bits() {
 		return 8;
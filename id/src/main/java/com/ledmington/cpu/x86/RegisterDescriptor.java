@@ -0,0 +1,130 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.cpu.x86;
+
+import java.util.Objects;
+
+/**
+ * The location of a general-purpose register inside the 64-bit registers, computed once for each register so that it
+ * can be read and written with no branches: reading is {@code (slot >>> shift) & mask}, writing is
+ * {@code (slot & preservedMask) | ((value & mask) << shift)}.
+ *
+ * <p>Slots are numbered in the order RAX, RBX, RCX, RDX, RSP, RBP, RSI, RDI, R8, ..., R15, followed by the instruction
+ * pointer.
+ */
+public final class RegisterDescriptor {
+
+	/** The number of 64-bit slots: the 16 general-purpose registers and the instruction pointer. */
+	public static final int NUM_SLOTS = 17;
+
+	private final GeneralPurposeRegister register;
+	private final int slot;
+	private final int shift;
+	private final int width;
+	private final long mask;
+	private final long preservedMask;
+
+	/* default */ RegisterDescriptor(
+			final GeneralPurposeRegister register, final int slot, final int shift, final int width) {
+		this.register = Objects.requireNonNull(register);
+		if (slot < 0 || slot >= NUM_SLOTS) {
+			throw new IllegalArgumentException(String.format("Invalid register slot: %,d.", slot));
+		}
+		if (width != 8 && width != 16 && width != 32 && width != 64) {
+			throw new IllegalArgumentException(String.format("Invalid register width: %,d.", width));
+		}
+		if (shift < 0 || shift + width > 64) {
+			throw new IllegalArgumentException(String.format("Invalid register shift: %,d.", shift));
+		}
+		this.slot = slot;
+		this.shift = shift;
+		this.width = width;
+		this.mask = -1L >>> (64 - width);
+		// Writing a 32-bit register zero-extends it into the whole 64-bit one, smaller ones are merged
+		this.preservedMask = width >= 32 ? 0L : ~(mask << shift);
+	}
+
+	/**
+	 * Returns the register described by this object.
+	 *
+	 * @return The register.
+	 */
+	public GeneralPurposeRegister register() {
+		return register;
+	}
+
+	/**
+	 * Returns the index of the 64-bit register containing this one.
+	 *
+	 * @return The slot of this register.
+	 */
+	public int slot() {
+		return slot;
+	}
+
+	/**
+	 * Returns the position of the lowest bit of this register inside its slot: 8 for AH, BH, CH and DH, 0 otherwise.
+	 *
+	 * @return The shift of this register.
+	 */
+	public int shift() {
+		return shift;
+	}
+
+	/**
+	 * Returns the size of this register in bits.
+	 *
+	 * @return The width of this register.
+	 */
+	public int width() {
+		return width;
+	}
+
+	/**
+	 * Checks whether writing this register clears the upper bits of its slot.
+	 *
+	 * @return True for 32-bit and 64-bit registers, false otherwise.
+	 */
+	public boolean zeroExtends() {
+		return preservedMask == 0L;
+	}
+
+	/**
+	 * Returns the mask of the bits of this register, before shifting.
+	 *
+	 * @return The mask of the value of this register.
+	 */
+	public long mask() {
+		return mask;
+	}
+
+	/**
+	 * Returns the mask of the bits of the slot which are left untouched when writing this register.
+	 *
+	 * @return The mask of the preserved bits.
+	 */
+	public long preservedMask() {
+		return preservedMask;
+	}
+
+	@Override
+	public String toString() {
+		return "RegisterDescriptor(register=" + register.toIntelSyntax() + ";slot=" + slot + ";shift=" + shift
+				+ ";width=" + width + ")";
+	}
+}
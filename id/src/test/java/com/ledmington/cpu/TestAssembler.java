@@ -0,0 +1,113 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.ledmington.cpu.x86.Instruction;
+
+final class TestAssembler extends X64Encodings {
+
+	private static Stream<Arguments> instAndIntelSyntax() {
+		return X64_ENCODINGS.stream().map(x -> Arguments.of(x.instruction(), x.intelSyntax()));
+	}
+
+	@ParameterizedTest
+	@MethodSource("instAndIntelSyntax")
+	void singleInstruction(final Instruction inst, final String intelSyntax) {
+		final byte[] expected = InstructionEncoder.toHex(inst, false);
+		final byte[] actual = Assembler.assemble(intelSyntax, false);
+		assertArrayEquals(
+				expected,
+				actual,
+				() -> String.format(
+						"Expected '%s' to be assembled into %s but was %s.",
+						intelSyntax, Arrays.toString(expected), Arrays.toString(actual)));
+	}
+
+	@Test
+	void wholeProgram() {
+		final String source = X64_ENCODINGS.stream()
+				.map(X64EncodingTestCase::intelSyntax)
+				.collect(Collectors.joining("\n", "", "\n"));
+		final byte[] expected = InstructionEncoder.toHex(
+				false, X64_ENCODINGS.stream().map(X64EncodingTestCase::instruction).toArray(Instruction[]::new));
+		assertArrayEquals(expected, Assembler.assemble(source, false));
+	}
+
+	@Test
+	void labelsAndComments() {
+		final String source = String.join(
+				"\n",
+				"; a simple countdown",
+				"start:",
+				"  mov ecx,0x0000000a   # counter",
+				"loop: dec ecx",
+				"  jne loop",
+				"  call end",
+				"  jmp start",
+				"end: ret");
+		final byte[] expected = {
+			(byte) 0xb9, 0x0a, 0x00, 0x00, 0x00, // mov ecx,10
+			(byte) 0xff, (byte) 0xc9, // dec ecx
+			0x0f, (byte) 0x85, (byte) 0xf8, (byte) 0xff, (byte) 0xff, (byte) 0xff, // jne loop
+			(byte) 0xe8, 0x05, 0x00, 0x00, 0x00, // call end
+			(byte) 0xe9, (byte) 0xe9, (byte) 0xff, (byte) 0xff, (byte) 0xff, // jmp start
+			(byte) 0xc3 // ret
+		};
+		final byte[] actual = Assembler.assemble(source);
+		assertArrayEquals(
+				expected,
+				actual,
+				() -> String.format("Expected %s but was %s.", Arrays.toString(expected), Arrays.toString(actual)));
+	}
+
+	@Test
+	void byteDirective() {
+		final byte[] expected = {0x01, 0x02, (byte) 0xff, (byte) 0x90};
+		assertArrayEquals(expected, Assembler.assemble(".intel_syntax noprefix\n.byte 1,0x02,255\nnop\n"));
+	}
+
+	@ParameterizedTest
+	@ValueSource(
+			strings = {
+				"xyz eax,ebx",
+				"jmp nowhere",
+				"a:\na:\nnop",
+				"mov eax,label",
+				"add eax,1",
+				"mov eax,DWORD PTR [rax+rbx*3]",
+				"mov eax,ebx ebx",
+				".unknown",
+				".byte 256"
+			})
+	void invalid(final String source) {
+		assertThrows(IllegalArgumentException.class, () -> Assembler.assemble(source));
+	}
+}
@@ -21,6 +21,8 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
@@ -28,6 +30,7 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -158,4 +161,32 @@ final class TestDecoding extends X64Encodings {
 				() -> InstructionChecker.check(actual),
 				() -> String.format("Expected '%s' to be valid but it wasn't.", intelSyntax));
 	}
+
+	@ParameterizedTest
+	@MethodSource("instAndIntelSyntax")
+	void toIntelSyntaxShortHex(final Instruction inst, final String intelSyntax) throws IOException {
+		// segmented addresses are always printed in full
+		final String expected =
+				intelSyntax.contains("s:0x") ? intelSyntax : intelSyntax.replaceAll("0x0+([0-9a-f])", "0x$1");
+		final StringWriter sw = new StringWriter();
+		InstructionEncoder.toIntelSyntax(sw, inst, false, 0, true);
+		final String actual = sw.toString();
+		assertEquals(
+				expected,
+				actual,
+				() -> String.format(
+						"Expected '%s' to be encoded as '%s' but was '%s'.", inst.toString(), expected, actual));
+	}
+
+	@Test
+	void toIntelSyntaxIntoSameBuilder() {
+		final StringBuilder sb = new StringBuilder();
+		for (final X64EncodingTestCase x : X64_ENCODINGS) {
+			InstructionEncoder.toIntelSyntax(sb, x.instruction(), false, 0, false);
+			sb.append('\n');
+		}
+		final String expected =
+				X64_ENCODINGS.stream().map(X64EncodingTestCase::intelSyntax).collect(Collectors.joining("\n", "", "\n"));
+		assertEquals(expected, sb.toString());
+	}
 }
@@ -0,0 +1,77 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.cpu.x86.Instruction;
+
+final class TestStreamingEncoder extends X64Encodings {
+
+	private static final Instruction[] ALL_INSTRUCTIONS =
+			X64_ENCODINGS.stream().map(X64EncodingTestCase::instruction).toArray(Instruction[]::new);
+
+	@Test
+	void sameAsToHex() {
+		final byte[] expected = InstructionEncoder.toHex(true, ALL_INSTRUCTIONS);
+		final StreamingEncoder enc = new StreamingEncoder(true);
+		final ByteBuffer bb = ByteBuffer.allocate(expected.length);
+		final int written = enc.encode(bb, ALL_INSTRUCTIONS);
+		assertEquals(expected.length, written, () -> String.format("Expected %,d bytes but were %,d.", expected.length, written));
+		assertArrayEquals(expected, bb.array());
+	}
+
+	@Test
+	void cachedEncodingsAreTheSame() {
+		final byte[] expected = InstructionEncoder.toHex(true, ALL_INSTRUCTIONS);
+		final StreamingEncoder enc = new StreamingEncoder(true, 4);
+		final ByteBuffer bb = ByteBuffer.allocate(expected.length);
+		for (int i = 0; i < 3; i++) {
+			bb.clear();
+			enc.encode(bb, ALL_INSTRUCTIONS);
+			assertArrayEquals(expected, bb.array(), () -> "Encoding changed after caching.");
+		}
+	}
+
+	@Test
+	void encodeIntoSegment() {
+		final byte[] expected = InstructionEncoder.toHex(true, ALL_INSTRUCTIONS);
+		final StreamingEncoder enc = new StreamingEncoder(true);
+		final long offset = 7L;
+		try (Arena arena = Arena.ofConfined()) {
+			final MemorySegment seg = arena.allocate(offset + expected.length);
+			final long end = enc.encode(seg, offset, ALL_INSTRUCTIONS);
+			assertEquals(offset + expected.length, end);
+			final byte[] actual = seg.asSlice(offset).toArray(ValueLayout.JAVA_BYTE);
+			assertArrayEquals(
+					expected,
+					actual,
+					() -> String.format(
+							"Expected %s but was %s.", Arrays.toString(expected), Arrays.toString(actual)));
+		}
+	}
+}
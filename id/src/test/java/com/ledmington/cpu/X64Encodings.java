@@ -149,6 +149,7 @@ import static com.ledmington.cpu.x86.RegisterZMM.ZMM2;
 import static com.ledmington.cpu.x86.SegmentRegister.CS;
 import static com.ledmington.cpu.x86.SegmentRegister.DS;
 import static com.ledmington.cpu.x86.SegmentRegister.ES;
+import static com.ledmington.cpu.x86.SegmentRegister.FS;
 import static com.ledmington.cpu.x86.SegmentRegister.GS;
 
 import java.util.Collection;
@@ -169,7 +170,7 @@ import com.ledmington.cpu.x86.SegmentedAddress;
 import com.ledmington.utils.BitUtils;
 
 @SuppressWarnings("PMD.UseUtilityClass")
-public sealed class X64Encodings permits TestDecoding, TestDecodeIncompleteInstruction {
+public sealed class X64Encodings permits TestAssembler, TestDecoding, TestDecodeIncompleteInstruction, TestStreamingEncoder {
 
 	private static final Immediate one = new Immediate((byte) 1);
 	private static final Immediate bimm = new Immediate((byte) 0x12);
@@ -681,7 +682,30 @@ public sealed class X64Encodings permits TestDecoding, TestDecodeIncompleteInstr
 										.displacement(0x0000004b)
 										.build()),
 						"mov rax,QWORD PTR [rbx+0x0000004b]",
-						"48 8b 83 4b 00 00 00"));
+						"48 8b 83 4b 00 00 00"),
+				test(
+						new GeneralInstruction(
+								Opcode.MOV,
+								RAX,
+								IndirectOperand.builder()
+										.pointer(QWORD_PTR)
+										.segment(FS)
+										.base(RBX)
+										.displacement((byte) 0x4b)
+										.build()),
+						"mov rax,QWORD PTR fs:[rbx+0x4b]",
+						"64 48 8b 43 4b"),
+				test(
+						new GeneralInstruction(
+								Opcode.MOV,
+								IndirectOperand.builder()
+										.pointer(QWORD_PTR)
+										.segment(GS)
+										.base(RBX)
+										.build(),
+								RAX),
+						"mov QWORD PTR gs:[rbx],rax",
+						"65 48 89 03"));
 	}
 
 	private static List<X64EncodingTestCase> movsxd() {
@@ -7290,6 +7314,38 @@ public sealed class X64Encodings permits TestDecoding, TestDecodeIncompleteInstr
 										.build()),
 						"cmps DWORD PTR ds:[rsi],DWORD PTR es:[rdi]",
 						"a7"),
+				test(
+						new GeneralInstruction(
+								LegacyPrefix.REP,
+								Opcode.CMPS,
+								IndirectOperand.builder()
+										.pointer(BYTE_PTR)
+										.segment(DS)
+										.base(RSI)
+										.build(),
+								IndirectOperand.builder()
+										.pointer(BYTE_PTR)
+										.segment(ES)
+										.base(RDI)
+										.build()),
+						"rep cmps BYTE PTR ds:[rsi],BYTE PTR es:[rdi]",
+						"f3 a6"),
+				test(
+						new GeneralInstruction(
+								LegacyPrefix.REPNZ,
+								Opcode.CMPS,
+								IndirectOperand.builder()
+										.pointer(DWORD_PTR)
+										.segment(DS)
+										.base(RSI)
+										.build(),
+								IndirectOperand.builder()
+										.pointer(DWORD_PTR)
+										.segment(ES)
+										.base(RDI)
+										.build()),
+						"repnz cmps DWORD PTR ds:[rsi],DWORD PTR es:[rdi]",
+						"f2 a7"),
 				// Lods
 				test(
 						new GeneralInstruction(
@@ -7336,6 +7392,30 @@ public sealed class X64Encodings permits TestDecoding, TestDecodeIncompleteInstr
 										.build()),
 						"scas eax,DWORD PTR es:[rdi]",
 						"af"),
+				test(
+						new GeneralInstruction(
+								LegacyPrefix.REPNZ,
+								Opcode.SCAS,
+								AL,
+								IndirectOperand.builder()
+										.pointer(BYTE_PTR)
+										.segment(ES)
+										.base(RDI)
+										.build()),
+						"repnz scas al,BYTE PTR es:[rdi]",
+						"f2 ae"),
+				test(
+						new GeneralInstruction(
+								LegacyPrefix.REP,
+								Opcode.SCAS,
+								EAX,
+								IndirectOperand.builder()
+										.pointer(DWORD_PTR)
+										.segment(ES)
+										.base(RDI)
+										.build()),
+						"rep scas eax,DWORD PTR es:[rdi]",
+						"f3 af"),
 				//  Movdqa
 				test(
 						new GeneralInstruction(
@@ -246,6 +246,58 @@ final class TestIndirectOperand {
 		assertEquals(expected, actual, () -> String.format("Expected '%s' but was '%s'.", expected, actual));
 	}
 
+	@ParameterizedTest
+	@MethodSource("correctIndirectOperands")
+	void precomputedAddressing(final IndirectOperand io, final String intelSyntax) {
+		final AddressingForm expected;
+		if (!io.hasIndex()) {
+			if (!io.hasBase()) {
+				expected = AddressingForm.DISPLACEMENT;
+			} else if (!io.hasDisplacement()) {
+				expected = AddressingForm.BASE;
+			} else {
+				expected =
+						io.getBase() == Register64.RIP ? AddressingForm.RIP_RELATIVE : AddressingForm.BASE_DISPLACEMENT;
+			}
+		} else {
+			expected =
+					io.hasBase()
+							? AddressingForm.BASE_INDEX_SCALE_DISPLACEMENT
+							: AddressingForm.INDEX_SCALE_DISPLACEMENT;
+		}
+		assertEquals(expected, io.getAddressingForm(), intelSyntax);
+		assertEquals(io.hasScale() ? io.getScale() : 1, 1 << io.getScaleShift());
+		assertEquals(io.hasDisplacement() ? (long) io.getDisplacement() : 0L, io.getSignedDisplacement());
+		if (io.hasBase()) {
+			assertEquals(((GeneralPurposeRegister) io.getBase()).descriptor(), io.getBaseDescriptor(), intelSyntax);
+		}
+		if (io.hasIndex()) {
+			assertEquals(((GeneralPurposeRegister) io.getIndex()).descriptor(), io.getIndexDescriptor(), intelSyntax);
+		}
+	}
+
+	@ParameterizedTest
+	@MethodSource("ripRelativeOperands")
+	void ripRelative(final IndirectOperand io) {
+		assertEquals(AddressingForm.RIP_RELATIVE, io.getAddressingForm());
+		assertEquals(-8L, io.getSignedDisplacement());
+	}
+
+	private static Stream<Arguments> ripRelativeOperands() {
+		return Stream.of(
+						IndirectOperand.builder()
+								.pointer(PointerSize.QWORD_PTR)
+								.base(Register64.RIP)
+								.displacement((byte) -8)
+								.build(),
+						IndirectOperand.builder()
+								.pointer(PointerSize.DWORD_PTR)
+								.base(Register64.RIP)
+								.displacement(-8)
+								.build())
+				.map(Arguments::of);
+	}
+
 	private static Stream<Arguments> wrongIndirectOperands() {
 		return Stream.<Supplier<IndirectOperandBuilder>>of(
 						() -> IndirectOperand.builder().scale(-1),
@@ -287,6 +287,46 @@ final class TestRegisters {
 						"Expected %s to be encoded as 0x%02x but was 0x%02x.", expected, registerCode, encoded));
 	}
 
+	private static Stream<Arguments> subRegisters() {
+		return Stream.of(
+				Arguments.of(Register8.AL, Register64.RAX, 0),
+				Arguments.of(Register8.AH, Register64.RAX, 8),
+				Arguments.of(Register8.BH, Register64.RBX, 8),
+				Arguments.of(Register8.SPL, Register64.RSP, 0),
+				Arguments.of(Register8.SIL, Register64.RSI, 0),
+				Arguments.of(Register8.DIL, Register64.RDI, 0),
+				Arguments.of(Register8.R15B, Register64.R15, 0),
+				Arguments.of(Register16.AX, Register64.RAX, 0),
+				Arguments.of(Register16.BP, Register64.RBP, 0),
+				Arguments.of(Register16.R9W, Register64.R9, 0),
+				Arguments.of(Register32.ECX, Register64.RCX, 0),
+				Arguments.of(Register32.EDI, Register64.RDI, 0),
+				Arguments.of(Register32.R12D, Register64.R12, 0),
+				Arguments.of(Register32.EIP, Register64.RIP, 0));
+	}
+
+	@ParameterizedTest
+	@MethodSource("subRegisters")
+	void descriptorsShareTheSlotOfTheParentRegister(
+			final GeneralPurposeRegister r, final Register64 parent, final int shift) {
+		final RegisterDescriptor d = r.descriptor();
+		assertEquals(parent.descriptor().slot(), d.slot());
+		assertEquals(shift, d.shift());
+		assertEquals(r.bits(), d.width());
+		assertEquals(r.bits() >= 32, d.zeroExtends());
+		assertEquals(-1L >>> (64 - r.bits()), d.mask());
+	}
+
+	@Test
+	void descriptorSlotsAreUnique() {
+		final long distinct = Arrays.stream(Register64.values())
+				.mapToInt(r -> r.descriptor().slot())
+				.distinct()
+				.count();
+		assertEquals(Register64.values().length, distinct);
+		assertEquals(RegisterDescriptor.NUM_SLOTS, distinct);
+	}
+
 	@Test
 	void nullExtensionRegister8() {
 		assertThrows(NullPointerException.class, () -> Register8.requiresExtension(null));
@@ -0,0 +1,146 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.mem;
+
+/**
+ * A Memory which supports atomic read-modify-write operations on 1, 2, 4 or 8 contiguous bytes (little-endian), so
+ * that it can be shared between threads executing LOCK-prefixed instructions.
+ *
+ * <p>Every operation returns the zero-extended value which was in memory before the update. The default
+ * implementations retry {@link #compareAndExchange(MemoryAddress, int, long, long)} until it succeeds: they are atomic
+ * only if that method is.
+ */
+public interface AtomicMemory extends Memory {
+
+	/** The update applied by {@link #getAndApply(MemoryAddress, int, Operation, long)}. */
+	enum Operation {
+
+		/** Adds the operand to the value in memory. */
+		ADD,
+
+		/** Replaces the value in memory with the operand. */
+		EXCHANGE,
+
+		/** Computes the bitwise AND between the value in memory and the operand. */
+		AND,
+
+		/** Computes the bitwise OR between the value in memory and the operand. */
+		OR,
+
+		/** Computes the bitwise XOR between the value in memory and the operand. */
+		XOR;
+
+		/**
+		 * Computes the new value, without truncating it.
+		 *
+		 * @param value The value in memory.
+		 * @param operand The operand of the update.
+		 * @return The new value.
+		 */
+		public long apply(final long value, final long operand) {
+			return switch (this) {
+				case ADD -> value + operand;
+				case EXCHANGE -> operand;
+				case AND -> value & operand;
+				case OR -> value | operand;
+				case XOR -> value ^ operand;
+			};
+		}
+	}
+
+	/**
+	 * Atomically replaces the {@code size} bytes at the given address with the result of the given operation.
+	 *
+	 * @param address The address of the first byte.
+	 * @param size The number of bytes: 1, 2, 4 or 8.
+	 * @param op The operation to apply.
+	 * @param operand The second operand of the operation.
+	 * @return The zero-extended value which was in memory before the update.
+	 */
+	default long getAndApply(final MemoryAddress address, final int size, final Operation op, final long operand) {
+		final long mask = Memory.sizeMask(size);
+		long expected = compareAndExchange(address, size, 0L, 0L);
+		while (true) {
+			final long witness = compareAndExchange(address, size, expected, op.apply(expected, operand) & mask);
+			if (witness == expected) {
+				return expected;
+			}
+			expected = witness;
+		}
+	}
+
+	/**
+	 * Atomically adds the given value to the {@code size} bytes at the given address.
+	 *
+	 * @param address The address of the first byte.
+	 * @param size The number of bytes: 1, 2, 4 or 8.
+	 * @param delta The value to be added.
+	 * @return The zero-extended value which was in memory before the update.
+	 */
+	default long getAndAdd(final MemoryAddress address, final int size, final long delta) {
+		return getAndApply(address, size, Operation.ADD, delta);
+	}
+
+	/**
+	 * Atomically replaces the {@code size} bytes at the given address with the given value.
+	 *
+	 * @param address The address of the first byte.
+	 * @param size The number of bytes: 1, 2, 4 or 8.
+	 * @param newValue The value to be written.
+	 * @return The zero-extended value which was in memory before the update.
+	 */
+	default long getAndSet(final MemoryAddress address, final int size, final long newValue) {
+		return getAndApply(address, size, Operation.EXCHANGE, newValue);
+	}
+
+	/**
+	 * Atomically computes the bitwise AND between the {@code size} bytes at the given address and the given value.
+	 *
+	 * @param address The address of the first byte.
+	 * @param size The number of bytes: 1, 2, 4 or 8.
+	 * @param mask The second operand.
+	 * @return The zero-extended value which was in memory before the update.
+	 */
+	default long getAndBitwiseAnd(final MemoryAddress address, final int size, final long mask) {
+		return getAndApply(address, size, Operation.AND, mask);
+	}
+
+	/**
+	 * Atomically computes the bitwise OR between the {@code size} bytes at the given address and the given value.
+	 *
+	 * @param address The address of the first byte.
+	 * @param size The number of bytes: 1, 2, 4 or 8.
+	 * @param mask The second operand.
+	 * @return The zero-extended value which was in memory before the update.
+	 */
+	default long getAndBitwiseOr(final MemoryAddress address, final int size, final long mask) {
+		return getAndApply(address, size, Operation.OR, mask);
+	}
+
+	/**
+	 * Atomically computes the bitwise XOR between the {@code size} bytes at the given address and the given value.
+	 *
+	 * @param address The address of the first byte.
+	 * @param size The number of bytes: 1, 2, 4 or 8.
+	 * @param mask The second operand.
+	 * @return The zero-extended value which was in memory before the update.
+	 */
+	default long getAndBitwiseXor(final MemoryAddress address, final int size, final long mask) {
+		return getAndApply(address, size, Operation.XOR, mask);
+	}
+}
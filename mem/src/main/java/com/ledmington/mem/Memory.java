@@ -17,6 +17,9 @@
  */
 package com.ledmington.mem;
 
+import java.lang.foreign.MemorySegment;
+import java.util.Objects;
+
 import com.ledmington.utils.BitUtils;
 
 /**
@@ -84,6 +87,66 @@ public interface Memory {
 		return x;
 	}
 
+	/**
+	 * Reads a single byte from the given address. Behaves like {@link #read(MemoryAddress)}, but lets the hot paths of
+	 * the emulator avoid building a {@link MemoryAddress} for every access: implementations should override it.
+	 *
+	 * @param address The 64-bit address to read from.
+	 * @return The byte word contained at the given address.
+	 */
+	default byte read(final long address) {
+		return read(new MemoryAddress(address));
+	}
+
+	/**
+	 * Reads 2 contiguous bytes (little-endian) starting at the given address. Behaves like
+	 * {@link #read2(MemoryAddress)}.
+	 *
+	 * @param address The 64-bit address to read from.
+	 * @return The 2-byte value that was stored at the given address.
+	 */
+	default short read2(final long address) {
+		return read2(new MemoryAddress(address));
+	}
+
+	/**
+	 * Reads 4 contiguous bytes (little-endian) starting at the given address. Behaves like
+	 * {@link #read4(MemoryAddress)}.
+	 *
+	 * @param address The 64-bit address to read from.
+	 * @return The 4-byte value that was stored at the given address.
+	 */
+	default int read4(final long address) {
+		return read4(new MemoryAddress(address));
+	}
+
+	/**
+	 * Reads 8 contiguous bytes (little-endian) starting at the given address. Behaves like
+	 * {@link #read8(MemoryAddress)}.
+	 *
+	 * @param address The 64-bit address to read from.
+	 * @return The 8-byte value that was stored at the given address.
+	 */
+	default long read8(final long address) {
+		return read8(new MemoryAddress(address));
+	}
+
+	/**
+	 * Reads {@code length} contiguous bytes starting at the given address into the given array. Implementations should
+	 * override this to copy whole blocks at a time.
+	 *
+	 * @param address The address to start reading from.
+	 * @param dst The array to be filled.
+	 * @param offset The index of the first element of the array to be filled.
+	 * @param length The number of bytes to read.
+	 */
+	default void read(final MemoryAddress address, final byte[] dst, final int offset, final int length) {
+		Objects.checkFromIndexSize(offset, length, dst.length);
+		for (int i = 0; i < length; i++) {
+			dst[offset + i] = read(address.plus(i));
+		}
+	}
+
 	/**
 	 * Writes the given byte word at the given address, overwriting any value previously stored at that location.
 	 *
@@ -99,8 +162,22 @@ public interface Memory {
 	 * @param values THe array of values to write contiguously.
 	 */
 	default void write(final MemoryAddress address, final byte[] values) {
-		for (int i = 0; i < values.length; i++) {
-			write(address.plus(i), values[i]);
+		write(address, values, 0, values.length);
+	}
+
+	/**
+	 * Writes {@code length} bytes of the given array contiguously in memory. Implementations should override this to
+	 * copy whole blocks at a time.
+	 *
+	 * @param address The address to start writing from.
+	 * @param src The array containing the values to write.
+	 * @param offset The index of the first element of the array to be written.
+	 * @param length The number of bytes to write.
+	 */
+	default void write(final MemoryAddress address, final byte[] src, final int offset, final int length) {
+		Objects.checkFromIndexSize(offset, length, src.length);
+		for (int i = 0; i < length; i++) {
+			write(address.plus(i), src[offset + i]);
 		}
 	}
 
@@ -134,6 +211,89 @@ public interface Memory {
 		write(address, BitUtils.asLEBytes(value));
 	}
 
+	/**
+	 * Writes the given byte at the given address. Behaves like {@link #write(MemoryAddress, byte)}.
+	 *
+	 * @param address The 64-bit address to write at.
+	 * @param value The value to write.
+	 */
+	default void write(final long address, final byte value) {
+		write(new MemoryAddress(address), value);
+	}
+
+	/**
+	 * Writes a 2-byte value at the given address (little-endian). Behaves like {@link #write(MemoryAddress, short)}.
+	 *
+	 * @param address The 64-bit address to write the value at.
+	 * @param value The value to be written.
+	 */
+	default void write(final long address, final short value) {
+		write(new MemoryAddress(address), value);
+	}
+
+	/**
+	 * Writes a 4-byte value at the given address (little-endian). Behaves like {@link #write(MemoryAddress, int)}.
+	 *
+	 * @param address The 64-bit address to write the value at.
+	 * @param value The value to be written.
+	 */
+	default void write(final long address, final int value) {
+		write(new MemoryAddress(address), value);
+	}
+
+	/**
+	 * Writes an 8-byte value at the given address (little-endian). Behaves like {@link #write(MemoryAddress, long)}.
+	 *
+	 * @param address The 64-bit address to write the value at.
+	 * @param value The value to be written.
+	 */
+	default void write(final long address, final long value) {
+		write(new MemoryAddress(address), value);
+	}
+
+	/**
+	 * Compares the {@code size} contiguous bytes (little-endian) starting at the given address with the expected value
+	 * and, only if they are equal, replaces them with the new value. The default implementation is not atomic:
+	 * memories which can be shared between threads override it.
+	 *
+	 * @param address The address of the first byte.
+	 * @param size The number of bytes: 1, 2, 4 or 8.
+	 * @param expected The value expected to be in memory.
+	 * @param newValue The value to be written.
+	 * @return The zero-extended value which was in memory, equal to the (truncated) expected one if the exchange
+	 *     happened.
+	 */
+	default long compareAndExchange(
+			final MemoryAddress address, final int size, final long expected, final long newValue) {
+		final long mask = Memory.sizeMask(size);
+		long witness = 0L;
+		for (int i = 0; i < size; i++) {
+			witness |= BitUtils.asLong(read(address.plus(i))) << (8 * i);
+		}
+		if (witness == (expected & mask)) {
+			for (int i = 0; i < size; i++) {
+				write(address.plus(i), BitUtils.asByte(newValue >>> (8 * i)));
+			}
+		}
+		return witness;
+	}
+
+	/**
+	 * Returns the mask of the lowest {@code size} bytes of a long.
+	 *
+	 * @param size The number of bytes: 1, 2, 4 or 8.
+	 * @return The mask.
+	 */
+	static long sizeMask(final int size) {
+		return switch (size) {
+			case 1 -> 0xffL;
+			case 2 -> 0xffffL;
+			case 4 -> 0xffffffffL;
+			case 8 -> 0xffffffffffffffffL;
+			default -> throw new IllegalArgumentException(String.format("Invalid access size: %,d bytes.", size));
+		};
+	}
+
 	/**
 	 * Checks whether the given address is initialized or not. A memory address is said to be initialized if it has been
 	 * written to at least once.
@@ -142,4 +302,38 @@ public interface Memory {
 	 * @return True if it is initialized, false otherwise.
 	 */
 	boolean isInitialized(MemoryAddress address);
+
+	/**
+	 * Checks whether the given address is initialized or not. Behaves like {@link #isInitialized(MemoryAddress)}.
+	 *
+	 * @param address The 64-bit address to be checked.
+	 * @return True if it is initialized, false otherwise.
+	 */
+	default boolean isInitialized(final long address) {
+		return isInitialized(new MemoryAddress(address));
+	}
+
+	/**
+	 * Makes the given address range a view of the given segment, like a memory-mapped file, replacing its previous
+	 * contents. The bytes past the end of the segment read as zero. Writes to a shared mapping go straight into the
+	 * segment, while the first write to each page of a private mapping gives that page its own copy.
+	 *
+	 * @param start The first address of the range, aligned to a page.
+	 * @param numBytes The length of the address range.
+	 * @param segment The segment backing the range.
+	 * @param shared True for a shared mapping, false for a private (copy-on-write) one.
+	 * @throws UnsupportedOperationException If this memory cannot map segments.
+	 */
+	default void map(
+			final MemoryAddress start, final long numBytes, final MemorySegment segment, final boolean shared) {
+		throw new UnsupportedOperationException("This memory cannot map segments.");
+	}
+
+	/**
+	 * Releases the given address range, which reads as never written afterwards. By default, nothing is released.
+	 *
+	 * @param start The first address of the range, aligned to a page.
+	 * @param numBytes The length of the address range.
+	 */
+	default void unmap(final MemoryAddress start, final long numBytes) {}
 }
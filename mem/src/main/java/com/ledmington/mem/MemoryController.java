@@ -17,9 +17,14 @@
  */
 package com.ledmington.mem;
 
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import com.ledmington.mem.exc.AccessToUninitializedMemoryException;
 import com.ledmington.mem.exc.IllegalExecutionException;
@@ -31,7 +36,10 @@ import com.ledmington.utils.SuppressFBWarnings;
 import com.ledmington.utils.TerminalUtils;
 
 /** This is the part of the memory which implements read-write-execute permissions. */
-public final class MemoryController implements Memory {
+public final class MemoryController implements AtomicMemory {
+
+	/** The size of the blocks used to fill large ranges, so that a huge mapping does not need a huge array. */
+	private static final int INITIALIZATION_BLOCK_SIZE = 64 * 1024;
 
 	private final Memory mem;
 	private final IntervalArray readableAddresses;
@@ -42,6 +50,46 @@ public final class MemoryController implements Memory {
 	private final boolean breakOnWrongPermissions;
 	private final boolean breakWhenReadingUninitializedMemory;
 
+	// Striped, so that reading them from another thread does not slow down the emulation
+	private final LongAdder readChecks;
+	private final LongAdder writeChecks;
+	private final LongAdder executeChecks;
+
+	// Incremented whenever permissions or mappings change, so that callers can cache the result of a check
+	private final ChangeLog changes;
+
+	/** The versions of the permissions and the address ranges changed by the most recent versions. */
+	private static final class ChangeLog {
+
+		// A power of two, so that the slot of a version is found with a mask
+		private static final int SIZE = 64;
+
+		private final AtomicLong version = new AtomicLong(0L);
+		private final long[] starts = new long[SIZE];
+		private final long[] ends = new long[SIZE];
+
+		synchronized void record(final long start, final long numBytes) {
+			final int slot = (int) ((version.get() + 1L) & (SIZE - 1));
+			starts[slot] = start;
+			ends[slot] = start + numBytes;
+			version.incrementAndGet();
+		}
+
+		synchronized boolean overlapsSince(final long since, final long start, final long end) {
+			final long current = version.get();
+			if (since > current || current - since > SIZE) {
+				return true;
+			}
+			for (long v = since + 1L; v <= current; v++) {
+				final int slot = (int) (v & (SIZE - 1));
+				if (starts[slot] < end && start < ends[slot]) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
 	/**
 	 * Creates a MemoryController with the given initializer.
 	 *
@@ -69,6 +117,23 @@ public final class MemoryController implements Memory {
 		this.readableAddresses = new IntervalArray(defaultReadable);
 		this.writableAddresses = new IntervalArray(defaultWritable);
 		this.executableAddresses = new IntervalArray(defaultExecutable);
+		this.readChecks = new LongAdder();
+		this.writeChecks = new LongAdder();
+		this.executeChecks = new LongAdder();
+		this.changes = new ChangeLog();
+	}
+
+	private MemoryController(final MemoryController other, final Memory memory) {
+		this.mem = Objects.requireNonNull(memory);
+		this.breakOnWrongPermissions = other.breakOnWrongPermissions;
+		this.breakWhenReadingUninitializedMemory = other.breakWhenReadingUninitializedMemory;
+		this.readableAddresses = other.readableAddresses;
+		this.writableAddresses = other.writableAddresses;
+		this.executableAddresses = other.executableAddresses;
+		this.readChecks = other.readChecks;
+		this.writeChecks = other.writeChecks;
+		this.executeChecks = other.executeChecks;
+		this.changes = other.changes;
 	}
 
 	/**
@@ -97,12 +162,16 @@ public final class MemoryController implements Memory {
 		this(memory, true, true, false, false, false);
 	}
 
-	private boolean canRead(final MemoryAddress address) {
-		return readableAddresses.get(address.address());
-	}
-
-	private boolean canWrite(final MemoryAddress address) {
-		return writableAddresses.get(address.address());
+	/**
+	 * Returns a view of this controller whose accesses reach the underlying memory through the given wrapper. The view
+	 * shares permissions, mappings and counters with this controller, so a change made through one is seen by the
+	 * other.
+	 *
+	 * @param wrapper The function wrapping the underlying memory.
+	 * @return A new MemoryController sharing the state of this one.
+	 */
+	public MemoryController withMemory(final UnaryOperator<Memory> wrapper) {
+		return new MemoryController(this, wrapper.apply(mem));
 	}
 
 	private boolean canExecute(final MemoryAddress address) {
@@ -275,26 +344,36 @@ public final class MemoryController implements Memory {
 		readableAddresses.set(start.address(), numBytes, readable);
 		writableAddresses.set(start.address(), numBytes, writeable);
 		executableAddresses.set(start.address(), numBytes, executable);
+		changes.record(start.address(), numBytes);
 	}
 
 	private void checkRead(final MemoryAddress address, final int length) {
+		checkRead(address.address(), length);
+	}
+
+	private void checkRead(final long address, final int length) {
 		if (!breakOnWrongPermissions) {
 			return;
 		}
+		readChecks.increment();
 		for (int i = 0; i < length; i++) {
-			if (!canRead(address.plus(i))) {
-				reportIllegalRead(address, length);
+			if (!readableAddresses.get(address + i)) {
+				reportIllegalRead(new MemoryAddress(address), length);
 			}
 		}
 	}
 
 	private void checkInitialized(final MemoryAddress address, final int length) {
+		checkInitialized(address.address(), length);
+	}
+
+	private void checkInitialized(final long address, final int length) {
 		if (!breakWhenReadingUninitializedMemory) {
 			return;
 		}
 		for (int i = 0; i < length; i++) {
-			if (!isInitialized(address.plus(i))) {
-				reportAccessToUninitialized(address, length);
+			if (!mem.isInitialized(address + i)) {
+				reportAccessToUninitialized(new MemoryAddress(address), length);
 			}
 		}
 	}
@@ -306,6 +385,34 @@ public final class MemoryController implements Memory {
 		return this.mem.read(address);
 	}
 
+	@Override
+	public byte read(final long address) {
+		checkRead(address, 1);
+		checkInitialized(address, 1);
+		return this.mem.read(address);
+	}
+
+	@Override
+	public short read2(final long address) {
+		checkRead(address, 2);
+		checkInitialized(address, 2);
+		return this.mem.read2(address);
+	}
+
+	@Override
+	public int read4(final long address) {
+		checkRead(address, 4);
+		checkInitialized(address, 4);
+		return this.mem.read4(address);
+	}
+
+	@Override
+	public long read8(final long address) {
+		checkRead(address, 8);
+		checkInitialized(address, 8);
+		return this.mem.read8(address);
+	}
+
 	/**
 	 * Reads 8 contiguous bytes starting from the given address (little-endian).
 	 *
@@ -334,6 +441,7 @@ public final class MemoryController implements Memory {
 		if (!breakOnWrongPermissions) {
 			return;
 		}
+		executeChecks.increment();
 		for (int i = 0; i < 1; i++) {
 			if (!canExecute(address.plus(i))) {
 				reportIllegalExecution(address);
@@ -353,13 +461,161 @@ public final class MemoryController implements Memory {
 		return mem.read(address);
 	}
 
+	/**
+	 * Returns how many contiguous bytes, starting from the given address and up to the given maximum, can be fetched
+	 * as code: that is, how many of them are executable and initialized. Each call counts as a single execute check.
+	 * The result stays valid until {@link #getPermissionsVersion()} changes, since initialized bytes never become
+	 * uninitialized without unmapping them.
+	 *
+	 * @param start The address of the first byte.
+	 * @param maxBytes The maximum number of bytes to be checked.
+	 * @return The number of bytes which can be fetched with {@link #fetchCode(MemoryAddress, byte[], int, int)}.
+	 */
+	@SuppressWarnings("PMD.AvoidLiteralsInIfCondition")
+	public long getExecutableBytes(final MemoryAddress start, final long maxBytes) {
+		if (maxBytes < 0L) {
+			throw new IllegalArgumentException(String.format("Invalid number of bytes: %,d.", maxBytes));
+		}
+		long numBytes = maxBytes;
+		if (breakOnWrongPermissions) {
+			executeChecks.increment();
+			numBytes = executableAddresses.getRunLength(start.address(), numBytes);
+		}
+		return initializedRunLength(start, numBytes);
+	}
+
+	private long initializedRunLength(final MemoryAddress start, final long maxBytes) {
+		if (!breakWhenReadingUninitializedMemory) {
+			return maxBytes;
+		}
+		long i = 0L;
+		while (i < maxBytes && isInitialized(start.plus(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Reads the given range of code without checking it again: the range must have been validated with
+	 * {@link #getExecutableBytes(MemoryAddress, long)} before.
+	 *
+	 * @param address The address of the first byte.
+	 * @param dst The array to copy the bytes into.
+	 * @param offset The index of the first byte to be written in the array.
+	 * @param length The number of bytes to be read.
+	 */
+	public void fetchCode(final MemoryAddress address, final byte[] dst, final int offset, final int length) {
+		mem.read(address, dst, offset, length);
+	}
+
+	/**
+	 * Returns the current version of the permissions and of the mappings of this memory, which changes every time any
+	 * of them is modified.
+	 *
+	 * @return The version of the permissions.
+	 */
+	public long getPermissionsVersion() {
+		return changes.version.get();
+	}
+
+	/**
+	 * Checks whether the permissions or the mappings of the given range may have changed since the given version, so
+	 * that callers caching something about a range do not need to drop it on every unrelated change. Only the most
+	 * recent changes are remembered: a range is always reported as changed since an older version.
+	 *
+	 * @param version A version returned by {@link #getPermissionsVersion()}.
+	 * @param start The start of the address range.
+	 * @param numBytes The length of the address range.
+	 * @return True if the range may have changed, false if it surely did not.
+	 */
+	public boolean hasChangedSince(final long version, final MemoryAddress start, final long numBytes) {
+		return changes.overlapsSince(version, start.address(), start.address() + numBytes);
+	}
+
+	/**
+	 * Returns how many contiguous bytes, starting from the given address and up to the given maximum, can be read: that
+	 * is, how many of them are readable and initialized. Each call counts as a single read check.
+	 *
+	 * @param start The address of the first byte.
+	 * @param maxBytes The maximum number of bytes to be checked.
+	 * @return The number of bytes which can be read with {@link #readValidated(MemoryAddress, byte[], int, int)}.
+	 */
+	@SuppressWarnings("PMD.AvoidLiteralsInIfCondition")
+	public long getReadableBytes(final MemoryAddress start, final long maxBytes) {
+		if (maxBytes < 0L) {
+			throw new IllegalArgumentException(String.format("Invalid number of bytes: %,d.", maxBytes));
+		}
+		long numBytes = maxBytes;
+		if (breakOnWrongPermissions) {
+			readChecks.increment();
+			numBytes = readableAddresses.getRunLength(start.address(), numBytes);
+		}
+		return initializedRunLength(start, numBytes);
+	}
+
+	/**
+	 * Returns how many contiguous bytes, starting from the given address and up to the given maximum, are writable.
+	 * Each call counts as a single write check.
+	 *
+	 * @param start The address of the first byte.
+	 * @param maxBytes The maximum number of bytes to be checked.
+	 * @return The number of bytes which can be written with {@link #initialize(MemoryAddress, byte[], int, int)}.
+	 */
+	@SuppressWarnings("PMD.AvoidLiteralsInIfCondition")
+	public long getWritableBytes(final MemoryAddress start, final long maxBytes) {
+		if (maxBytes < 0L) {
+			throw new IllegalArgumentException(String.format("Invalid number of bytes: %,d.", maxBytes));
+		}
+		if (!breakOnWrongPermissions) {
+			return maxBytes;
+		}
+		writeChecks.increment();
+		return writableAddresses.getRunLength(start.address(), maxBytes);
+	}
+
+	/**
+	 * Checks whether at least one byte in the given range is writable. Counts as a single write check.
+	 *
+	 * @param start The address of the first byte.
+	 * @param numBytes The number of bytes to be checked.
+	 * @return True if at least one byte in the range can be written, false otherwise.
+	 */
+	public boolean isAnyWritable(final MemoryAddress start, final long numBytes) {
+		if (numBytes < 0L) {
+			throw new IllegalArgumentException(String.format("Invalid number of bytes: %,d.", numBytes));
+		}
+		if (!breakOnWrongPermissions) {
+			return numBytes > 0L;
+		}
+		writeChecks.increment();
+		return writableAddresses.isAnySet(start.address(), numBytes);
+	}
+
+	/**
+	 * Reads the given range without checking it again: the range must have been validated with
+	 * {@link #getReadableBytes(MemoryAddress, long)} before.
+	 *
+	 * @param address The address of the first byte.
+	 * @param dst The array to copy the bytes into.
+	 * @param offset The index of the first byte to be written in the array.
+	 * @param length The number of bytes to be read.
+	 */
+	public void readValidated(final MemoryAddress address, final byte[] dst, final int offset, final int length) {
+		mem.read(address, dst, offset, length);
+	}
+
 	private void checkWrite(final MemoryAddress address, final int length) {
+		checkWrite(address.address(), length);
+	}
+
+	private void checkWrite(final long address, final int length) {
 		if (!breakOnWrongPermissions) {
 			return;
 		}
+		writeChecks.increment();
 		for (int i = 0; i < length; i++) {
-			if (!canWrite(address.plus(i))) {
-				reportIllegalWrite(address, length);
+			if (!writableAddresses.get(address + i)) {
+				reportIllegalWrite(new MemoryAddress(address), length);
 			}
 		}
 	}
@@ -370,6 +626,43 @@ public final class MemoryController implements Memory {
 		mem.write(address, value);
 	}
 
+	@Override
+	public void write(final long address, final byte value) {
+		checkWrite(address, 1);
+		mem.write(address, value);
+	}
+
+	@Override
+	public void write(final long address, final short value) {
+		checkWrite(address, 2);
+		mem.write(address, value);
+	}
+
+	@Override
+	public void write(final long address, final int value) {
+		checkWrite(address, 4);
+		mem.write(address, value);
+	}
+
+	@Override
+	public void write(final long address, final long value) {
+		checkWrite(address, 8);
+		mem.write(address, value);
+	}
+
+	@Override
+	public void read(final MemoryAddress address, final byte[] dst, final int offset, final int length) {
+		checkRead(address, length);
+		checkInitialized(address, length);
+		mem.read(address, dst, offset, length);
+	}
+
+	@Override
+	public void write(final MemoryAddress address, final byte[] src, final int offset, final int length) {
+		checkWrite(address, length);
+		mem.write(address, src, offset, length);
+	}
+
 	/**
 	 * Writes 8 contiguous bytes at the given address (little-endian).
 	 *
@@ -382,11 +675,57 @@ public final class MemoryController implements Memory {
 		initialize(address, BitUtils.asLEBytes(value));
 	}
 
+	@Override
+	public long compareAndExchange(
+			final MemoryAddress address, final int size, final long expected, final long newValue) {
+		checkRead(address, size);
+		checkInitialized(address, size);
+		checkWrite(address, size);
+		return mem.compareAndExchange(address, size, expected, newValue);
+	}
+
+	@Override
+	public long getAndApply(final MemoryAddress address, final int size, final Operation op, final long operand) {
+		checkRead(address, size);
+		checkInitialized(address, size);
+		checkWrite(address, size);
+		return mem instanceof final AtomicMemory am
+				? am.getAndApply(address, size, op, operand)
+				: AtomicMemory.super.getAndApply(address, size, op, operand);
+	}
+
 	@Override
 	public boolean isInitialized(final MemoryAddress address) {
 		return mem.isInitialized(address);
 	}
 
+	/**
+	 * Maps the given segment in memory without checking nor modifying permissions, which are still enforced page by
+	 * page on every access.
+	 *
+	 * @param start The first address of the range, aligned to a page.
+	 * @param numBytes The length of the address range.
+	 * @param segment The segment backing the range.
+	 * @param shared True for a shared mapping, false for a private (copy-on-write) one.
+	 */
+	@Override
+	public void map(final MemoryAddress start, final long numBytes, final MemorySegment segment, final boolean shared) {
+		mem.map(start, numBytes, segment, shared);
+		changes.record(start.address(), numBytes);
+	}
+
+	/**
+	 * Releases the given address range without modifying permissions.
+	 *
+	 * @param start The first address of the range, aligned to a page.
+	 * @param numBytes The length of the address range.
+	 */
+	@Override
+	public void unmap(final MemoryAddress start, final long numBytes) {
+		mem.unmap(start, numBytes);
+		changes.record(start.address(), numBytes);
+	}
+
 	/**
 	 * Writes the given value in the memory without checking nor modifying permissions.
 	 *
@@ -395,8 +734,10 @@ public final class MemoryController implements Memory {
 	 * @param value The 8-bit value to be written in each byte.
 	 */
 	public void initialize(final MemoryAddress start, final long numBytes, final byte value) {
-		for (long i = 0L; i < numBytes; i++) {
-			mem.write(start.plus(i), value);
+		final byte[] block = new byte[(int) Math.min(numBytes, INITIALIZATION_BLOCK_SIZE)];
+		Arrays.fill(block, value);
+		for (long i = 0L; i < numBytes; i += block.length) {
+			mem.write(start.plus(i), block, 0, (int) Math.min(block.length, numBytes - i));
 		}
 	}
 
@@ -437,9 +778,19 @@ public final class MemoryController implements Memory {
 	 * @param values The non-null array of 8-bit values to be written.
 	 */
 	public void initialize(final MemoryAddress start, final byte[] values) {
-		for (int i = 0; i < values.length; i++) {
-			mem.write(start.plus(i), values[i]);
-		}
+		mem.write(start, values, 0, values.length);
+	}
+
+	/**
+	 * Writes the given range of bytes in the memory without checking nor modifying permissions.
+	 *
+	 * @param start The start of the address range.
+	 * @param values The non-null array containing the 8-bit values to be written.
+	 * @param offset The index of the first value to be written.
+	 * @param length The number of values to be written.
+	 */
+	public void initialize(final MemoryAddress start, final byte[] values, final int offset, final int length) {
+		mem.write(start, values, offset, length);
 	}
 
 	/**
@@ -452,6 +803,36 @@ public final class MemoryController implements Memory {
 		mem.write(address, value);
 	}
 
+	/**
+	 * Returns the number of read accesses whose permissions were checked. Accesses are not checked when this
+	 * controller does not break on wrong permissions.
+	 *
+	 * @return The number of read permission checks.
+	 */
+	public long getReadChecks() {
+		return readChecks.sum();
+	}
+
+	/**
+	 * Returns the number of write accesses whose permissions were checked. Accesses are not checked when this
+	 * controller does not break on wrong permissions.
+	 *
+	 * @return The number of write permission checks.
+	 */
+	public long getWriteChecks() {
+		return writeChecks.sum();
+	}
+
+	/**
+	 * Returns the number of instruction fetches whose permissions were checked. Accesses are not checked when this
+	 * controller does not break on wrong permissions.
+	 *
+	 * @return The number of execute permission checks.
+	 */
+	public long getExecuteChecks() {
+		return executeChecks.sum();
+	}
+
 	@Override
 	public String toString() {
 		return "MemoryController(mem=" + mem + ";canRead="
@@ -17,25 +17,54 @@
  */
 package com.ledmington.mem;
 
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import com.ledmington.utils.BitUtils;
+
 /**
  * An implementation of {@link Memory} which allocates pages (contiguous blocks) of memory instead of single bytes, to
  * optimize sequential accesses.
+ *
+ * <p>Instances can be shared between threads: pages are allocated atomically and the {@link AtomicMemory} operations
+ * are implemented with {@link VarHandle} views of the page bytes. Plain reads and writes are not ordered with respect
+ * to other threads, exactly as non-LOCKed accesses on a real machine.
+ *
+ * <p>Ranges of addresses can also be views of host memory, like memory-mapped files, through
+ * {@link #map(MemoryAddress, long, MemorySegment, boolean)}: their contents are never copied on the Java heap, except
+ * for the pages written by a private mapping.
  */
-public final class PagedMemory implements Memory {
+public final class PagedMemory implements AtomicMemory {
 
 	private static final long DEFAULT_PAGE_SIZE = 4096L; // 4 KiB
 
+	private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+	private static final VarHandle SHORTS =
+			MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
 	private final MemoryInitializer initializer;
 	private final long pageSize;
 	private final long pageSizeMask;
 	private final Map<MemoryAddress, Page> pages = new ConcurrentHashMap<>();
+	private final Map<MemoryAddress, MappedPage> mappedPages = new ConcurrentHashMap<>();
+	private final LongAdder pageFaults = new LongAdder();
+
+	/** Serializes the atomic accesses which are misaligned or cross a page boundary, like a split lock. */
+	private final Lock splitLock = new ReentrantLock();
 
 	private static final class Page {
 
@@ -50,6 +79,14 @@ public final class PagedMemory implements Memory {
 			}
 		}
 
+		/* default */ Page(final long numBytes, final MappedPage mapped) {
+			this.bytes = new byte[Math.toIntExact(numBytes)];
+			this.initialized = new boolean[Math.toIntExact(numBytes)];
+			MemorySegment.copy(
+					mapped.segment(), ValueLayout.JAVA_BYTE, 0L, bytes, 0, (int) mapped.segment().byteSize());
+			Arrays.fill(this.initialized, true);
+		}
+
 		@Override
 		public String toString() {
 			return "Page(bytes="
@@ -86,6 +123,34 @@ public final class PagedMemory implements Memory {
 		}
 	}
 
+	/**
+	 * A page which is a view of (a slice of) a host segment. The segment may be shorter than a page, when the mapped
+	 * file ends before.
+	 */
+	private record MappedPage(MemorySegment segment, boolean shared) {
+
+		byte get(final int idx) {
+			return idx < segment.byteSize() ? segment.get(ValueLayout.JAVA_BYTE, idx) : 0;
+		}
+
+		void set(final int idx, final byte value) {
+			if (idx < segment.byteSize()) {
+				segment.set(ValueLayout.JAVA_BYTE, idx, value);
+			}
+		}
+
+		void read(final int idx, final byte[] dst, final int offset, final int length) {
+			final int n = (int) Math.max(0L, Math.min(length, segment.byteSize() - idx));
+			MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, idx, dst, offset, n);
+			Arrays.fill(dst, offset + n, offset + length, (byte) 0);
+		}
+
+		void write(final int idx, final byte[] src, final int offset, final int length) {
+			final int n = (int) Math.max(0L, Math.min(length, segment.byteSize() - idx));
+			MemorySegment.copy(src, offset, segment, ValueLayout.JAVA_BYTE, idx, n);
+		}
+	}
+
 	/**
 	 * Creates a new {@link PagedMemory} with the given {@link MemoryInitializer} and page size.
 	 *
@@ -122,43 +187,415 @@ public final class PagedMemory implements Memory {
 		return new MemoryAddress(address.address() & (~this.pageSizeMask));
 	}
 
+	/** Returns the mapping of the given page, or null. Private mappings already copied are shadowed by their page. */
+	private MappedPage getMappedPage(final MemoryAddress alignedAddress) {
+		return this.mappedPages.isEmpty() ? null : this.mappedPages.get(alignedAddress);
+	}
+
 	@Override
 	public byte read(final MemoryAddress address) {
 		// TODO: add overloaded versions of read2, read4 and read8
-		final MemoryAddress alignedAddress = getAlignedAddress(address);
-		if (!this.pages.containsKey(alignedAddress)) {
+		final MemoryAddress aligned = getAlignedAddress(address);
+		final Page page = this.pages.get(aligned);
+		final int idx = Math.toIntExact(getLocalAddress(address).address());
+		if (page == null) {
+			final MappedPage mapped = getMappedPage(aligned);
+			if (mapped != null) {
+				return mapped.get(idx);
+			}
+			pageFaults.increment();
 			return this.initializer.get();
 		}
-		final MemoryAddress localAddress = getLocalAddress(address);
-		return this.pages.get(alignedAddress).bytes[Math.toIntExact(localAddress.address())];
+		return page.bytes[idx];
+	}
+
+	/**
+	 * Returns the allocated page containing the whole given access, or null if the access crosses a page boundary or
+	 * the page is not allocated: such accesses take the slower path, byte by byte.
+	 */
+	private Page getPage(final long address, final int size) {
+		if ((address & ~this.pageSizeMask) + size > pageSize) {
+			return null;
+		}
+		return this.pages.get(new MemoryAddress(address & this.pageSizeMask));
+	}
+
+	/** Returns the allocated (or copied) page to be written, or null if it is shared or the access is split. */
+	private Page getWritablePage(final long address, final int size) {
+		if ((address & ~this.pageSizeMask) + size > pageSize) {
+			return null;
+		}
+		return getWritablePage(new MemoryAddress(address & this.pageSizeMask));
+	}
+
+	private int localIndex(final long address) {
+		return (int) (address & ~this.pageSizeMask);
+	}
+
+	@Override
+	public byte read(final long address) {
+		final Page page = getPage(address, 1);
+		return page == null ? read(new MemoryAddress(address)) : page.bytes[localIndex(address)];
+	}
+
+	@Override
+	public short read2(final long address) {
+		final Page page = getPage(address, 2);
+		return page == null ? read2(new MemoryAddress(address)) : (short) SHORTS.get(page.bytes, localIndex(address));
+	}
+
+	@Override
+	public int read4(final long address) {
+		final Page page = getPage(address, 4);
+		return page == null ? read4(new MemoryAddress(address)) : (int) INTS.get(page.bytes, localIndex(address));
+	}
+
+	@Override
+	public long read8(final long address) {
+		final Page page = getPage(address, 8);
+		return page == null ? read8(new MemoryAddress(address)) : (long) LONGS.get(page.bytes, localIndex(address));
+	}
+
+	@Override
+	public void write(final long address, final byte value) {
+		final Page page = getWritablePage(address, 1);
+		if (page == null) {
+			write(new MemoryAddress(address), value);
+			return;
+		}
+		final int idx = localIndex(address);
+		page.initialized[idx] = true;
+		page.bytes[idx] = value;
+	}
+
+	@Override
+	public void write(final long address, final short value) {
+		final Page page = getWritablePage(address, 2);
+		if (page == null) {
+			write(new MemoryAddress(address), value);
+			return;
+		}
+		final int idx = localIndex(address);
+		markInitialized(page, idx, 2);
+		SHORTS.set(page.bytes, idx, value);
+	}
+
+	@Override
+	public void write(final long address, final int value) {
+		final Page page = getWritablePage(address, 4);
+		if (page == null) {
+			write(new MemoryAddress(address), value);
+			return;
+		}
+		final int idx = localIndex(address);
+		markInitialized(page, idx, 4);
+		INTS.set(page.bytes, idx, value);
+	}
+
+	@Override
+	public void write(final long address, final long value) {
+		final Page page = getWritablePage(address, 8);
+		if (page == null) {
+			write(new MemoryAddress(address), value);
+			return;
+		}
+		final int idx = localIndex(address);
+		markInitialized(page, idx, 8);
+		LONGS.set(page.bytes, idx, value);
+	}
+
+	@Override
+	public boolean isInitialized(final long address) {
+		final Page page = getPage(address, 1);
+		return page == null ? isInitialized(new MemoryAddress(address)) : page.initialized[localIndex(address)];
+	}
+
+	/**
+	 * Returns the page to be written, allocating it (or copying it from a private mapping) if needed. Returns null if
+	 * the page belongs to a shared mapping, which is written in place.
+	 */
+	private Page getWritablePage(final MemoryAddress alignedAddress) {
+		final Page page = this.pages.get(alignedAddress);
+		if (page != null) {
+			return page;
+		}
+		final MappedPage mapped = getMappedPage(alignedAddress);
+		if (mapped != null && mapped.shared()) {
+			return null;
+		}
+		// Two threads writing to the same new page must end up with the same one
+		return this.pages.computeIfAbsent(alignedAddress, _ -> {
+			pageFaults.increment();
+			return mapped == null ? new Page(pageSize, initializer) : new Page(pageSize, mapped);
+		});
 	}
 
 	@Override
 	public void write(final MemoryAddress address, final byte value) {
-		// TODO: add overloaded versions of write2, write4, write8 and writeN
-		final MemoryAddress alignedAddress = getAlignedAddress(address);
-		if (!this.pages.containsKey(alignedAddress)) {
-			this.pages.put(alignedAddress, new Page(pageSize, initializer));
+		// TODO: add overloaded versions of write2, write4 and write8
+		final MemoryAddress aligned = getAlignedAddress(address);
+		final Page page = getWritablePage(aligned);
+		final int idx = Math.toIntExact(getLocalAddress(address).address());
+		if (page == null) {
+			this.mappedPages.get(aligned).set(idx, value);
+			return;
+		}
+		page.initialized[idx] = true;
+		page.bytes[idx] = value;
+	}
+
+	@Override
+	public void read(final MemoryAddress address, final byte[] dst, final int offset, final int length) {
+		Objects.checkFromIndexSize(offset, length, dst.length);
+		int done = 0;
+		while (done < length) {
+			final MemoryAddress current = address.plus(done);
+			final int idx = Math.toIntExact(getLocalAddress(current).address());
+			final int n = (int) Math.min(length - done, pageSize - idx);
+			final MemoryAddress aligned = getAlignedAddress(current);
+			final Page page = this.pages.get(aligned);
+			final MappedPage mapped = page == null ? getMappedPage(aligned) : null;
+			if (mapped != null) {
+				mapped.read(idx, dst, offset + done, n);
+			} else if (page == null) {
+				pageFaults.increment();
+				for (int i = 0; i < n; i++) {
+					dst[offset + done + i] = this.initializer.get();
+				}
+			} else {
+				System.arraycopy(page.bytes, idx, dst, offset + done, n);
+			}
+			done += n;
+		}
+	}
+
+	@Override
+	public void write(final MemoryAddress address, final byte[] src, final int offset, final int length) {
+		Objects.checkFromIndexSize(offset, length, src.length);
+		int done = 0;
+		while (done < length) {
+			final MemoryAddress current = address.plus(done);
+			final int idx = Math.toIntExact(getLocalAddress(current).address());
+			final int n = (int) Math.min(length - done, pageSize - idx);
+			final MemoryAddress aligned = getAlignedAddress(current);
+			final Page page = getWritablePage(aligned);
+			if (page == null) {
+				this.mappedPages.get(aligned).write(idx, src, offset + done, n);
+			} else {
+				System.arraycopy(src, offset + done, page.bytes, idx, n);
+				Arrays.fill(page.initialized, idx, idx + n, true);
+			}
+			done += n;
+		}
+	}
+
+	/** Checks whether the given access is naturally aligned and fits in a single page. */
+	private boolean isAligned(final MemoryAddress address, final int size) {
+		return (address.address() & (size - 1)) == 0L
+				&& getLocalAddress(address).address() + size <= pageSize
+				&& pageSize >= Long.BYTES;
+	}
+
+	private static void markInitialized(final Page page, final int idx, final int size) {
+		for (int i = 0; i < size; i++) {
+			page.initialized[idx + i] = true;
 		}
-		final MemoryAddress localAddress = getLocalAddress(address);
-		this.pages.get(alignedAddress).initialized[Math.toIntExact(localAddress.address())] = true;
-		this.pages.get(alignedAddress).bytes[Math.toIntExact(localAddress.address())] = value;
+	}
+
+	@Override
+	public long compareAndExchange(
+			final MemoryAddress address, final int size, final long expected, final long newValue) {
+		final long mask = Memory.sizeMask(size);
+		final Page page = isAligned(address, size) ? getWritablePage(getAlignedAddress(address)) : null;
+		if (page == null) {
+			// Misaligned accesses and shared mappings are serialized
+			splitLock.lock();
+			try {
+				return AtomicMemory.super.compareAndExchange(address, size, expected, newValue);
+			} finally {
+				splitLock.unlock();
+			}
+		}
+
+		final int idx = Math.toIntExact(getLocalAddress(address).address());
+		final long witness = compareAndExchange(page.bytes, idx, size, expected, newValue);
+		if (witness == (expected & mask)) {
+			markInitialized(page, idx, size);
+		}
+		return witness;
+	}
+
+	@Override
+	public long getAndApply(final MemoryAddress address, final int size, final Operation op, final long operand) {
+		Objects.requireNonNull(op);
+		final Page page = isAligned(address, size) ? getWritablePage(getAlignedAddress(address)) : null;
+		if (page == null) {
+			// Misaligned accesses and shared mappings are serialized
+			splitLock.lock();
+			try {
+				return AtomicMemory.super.getAndApply(address, size, op, operand);
+			} finally {
+				splitLock.unlock();
+			}
+		}
+		if (size == 2) {
+			// Byte array views have no atomic 16-bit updates: we retry the compare-and-exchange
+			return AtomicMemory.super.getAndApply(address, size, op, operand);
+		}
+
+		final int idx = Math.toIntExact(getLocalAddress(address).address());
+		final long old = getAndApply(page.bytes, idx, size, op, operand);
+		markInitialized(page, idx, size);
+		return old;
+	}
+
+	@SuppressWarnings("PMD.NcssCount")
+	private static long getAndApply(
+			final byte[] bytes, final int idx, final int size, final Operation op, final long operand) {
+		return switch (size) {
+			case 1 -> {
+				final byte x = BitUtils.asByte(operand);
+				yield BitUtils.asLong(
+						switch (op) {
+							case ADD -> (byte) BYTES.getAndAdd(bytes, idx, x);
+							case EXCHANGE -> (byte) BYTES.getAndSet(bytes, idx, x);
+							case AND -> (byte) BYTES.getAndBitwiseAnd(bytes, idx, x);
+							case OR -> (byte) BYTES.getAndBitwiseOr(bytes, idx, x);
+							case XOR -> (byte) BYTES.getAndBitwiseXor(bytes, idx, x);
+						});
+			}
+			case 4 -> {
+				final int x = BitUtils.asInt(operand);
+				yield BitUtils.asLong(
+						switch (op) {
+							case ADD -> (int) INTS.getAndAdd(bytes, idx, x);
+							case EXCHANGE -> (int) INTS.getAndSet(bytes, idx, x);
+							case AND -> (int) INTS.getAndBitwiseAnd(bytes, idx, x);
+							case OR -> (int) INTS.getAndBitwiseOr(bytes, idx, x);
+							case XOR -> (int) INTS.getAndBitwiseXor(bytes, idx, x);
+						});
+			}
+			case 8 ->
+				switch (op) {
+					case ADD -> (long) LONGS.getAndAdd(bytes, idx, operand);
+					case EXCHANGE -> (long) LONGS.getAndSet(bytes, idx, operand);
+					case AND -> (long) LONGS.getAndBitwiseAnd(bytes, idx, operand);
+					case OR -> (long) LONGS.getAndBitwiseOr(bytes, idx, operand);
+					case XOR -> (long) LONGS.getAndBitwiseXor(bytes, idx, operand);
+				};
+			default -> throw new IllegalArgumentException(String.format("Invalid access size: %,d bytes.", size));
+		};
+	}
+
+	private static long compareAndExchange(
+			final byte[] bytes, final int idx, final int size, final long expected, final long newValue) {
+		return switch (size) {
+			case 1 -> {
+				final byte b = (byte) BYTES.compareAndExchange(
+						bytes, idx, BitUtils.asByte(expected), BitUtils.asByte(newValue));
+				yield BitUtils.asLong(b);
+			}
+			case 2 -> {
+				// Byte array views have no atomic 16-bit accesses: we exchange the enclosing 32-bit word instead
+				final int base = idx & ~3;
+				final int shift = 8 * (idx - base);
+				final int mask = 0xffff << shift;
+				final int replacement = BitUtils.asInt(BitUtils.asShort(newValue)) << shift;
+				int word = (int) INTS.getVolatile(bytes, base);
+				while ((word & mask) >>> shift == (int) (expected & 0xffffL)) {
+					final int witness = (int) INTS.compareAndExchange(bytes, base, word, (word & ~mask) | replacement);
+					if (witness == word) {
+						break;
+					}
+					word = witness;
+				}
+				yield BitUtils.asLong((word & mask) >>> shift);
+			}
+			case 4 -> {
+				final int x =
+						(int) INTS.compareAndExchange(bytes, idx, BitUtils.asInt(expected), BitUtils.asInt(newValue));
+				yield BitUtils.asLong(x);
+			}
+			default -> (long) LONGS.compareAndExchange(bytes, idx, expected, newValue);
+		};
 	}
 
 	@Override
 	public boolean isInitialized(final MemoryAddress address) {
-		final MemoryAddress alignedAddress = getAlignedAddress(address);
-		if (!this.pages.containsKey(alignedAddress)) {
-			return false;
+		final MemoryAddress aligned = getAlignedAddress(address);
+		final Page page = this.pages.get(aligned);
+		if (page == null) {
+			return getMappedPage(aligned) != null;
+		}
+		return page.initialized[Math.toIntExact(getLocalAddress(address).address())];
+	}
+
+	private void checkRange(final MemoryAddress start, final long numBytes) {
+		if ((start.address() & ~this.pageSizeMask) != 0L) {
+			throw new IllegalArgumentException(
+					String.format("Address 0x%016x is not aligned to a page of %,d bytes.", start.address(), pageSize));
+		}
+		if (numBytes < 0L) {
+			throw new IllegalArgumentException(String.format("Invalid number of bytes: %,d.", numBytes));
+		}
+	}
+
+	@Override
+	public void map(final MemoryAddress start, final long numBytes, final MemorySegment segment, final boolean shared) {
+		checkRange(start, numBytes);
+		Objects.requireNonNull(segment);
+		for (long offset = 0L; offset < numBytes; offset += pageSize) {
+			final long sliceStart = Math.min(offset, segment.byteSize());
+			final long sliceSize = Math.min(pageSize, segment.byteSize() - sliceStart);
+			final MemoryAddress aligned = start.plus(offset);
+			this.mappedPages.put(aligned, new MappedPage(segment.asSlice(sliceStart, sliceSize), shared));
+			// The previous contents of the page are replaced
+			this.pages.remove(aligned);
+		}
+	}
+
+	@Override
+	public void unmap(final MemoryAddress start, final long numBytes) {
+		checkRange(start, numBytes);
+		for (long offset = 0L; offset < numBytes; offset += pageSize) {
+			final MemoryAddress aligned = start.plus(offset);
+			this.pages.remove(aligned);
+			this.mappedPages.remove(aligned);
 		}
-		final MemoryAddress localAddress = getLocalAddress(address);
-		return this.pages.get(alignedAddress).initialized[Math.toIntExact(localAddress.address())];
+	}
+
+	/**
+	 * Returns the number of accesses which hit a page not allocated yet: reads of such pages and the writes which
+	 * allocated them.
+	 *
+	 * @return The number of page faults.
+	 */
+	public long getPageFaults() {
+		return pageFaults.sum();
+	}
+
+	/**
+	 * Returns the number of pages currently allocated.
+	 *
+	 * @return The number of allocated pages.
+	 */
+	public long getAllocatedPages() {
+		return pages.size();
+	}
+
+	/**
+	 * Returns the number of pages which are views of a mapped segment, including the private ones already copied.
+	 *
+	 * @return The number of mapped pages.
+	 */
+	public long getMappedPages() {
+		return mappedPages.size();
 	}
 
 	@Override
 	public String toString() {
 		return "PagedMemory(initializer=" + initializer + ";pageSize=" + pageSize + ";pageSizeMask=" + pageSizeMask
-				+ ";pages=" + pages + ")";
+				+ ";pages=" + pages + ";mappedPages=" + mappedPages.size() + ")";
 	}
 
 	@Override
@@ -82,4 +82,24 @@ abstract sealed class TestMemory permits TestMemoryController, TestRandomAccessM
 		final long actual = mem.read8(address);
 		assertEquals(value, actual, () -> String.format("Expected 0x%08x but was 0x%08x.", value, actual));
 	}
+
+	@ParameterizedTest
+	@MethodSource("randomMemoryLocations")
+	void longAddressesMatchMemoryAddresses(final MemoryAddress address) {
+		final Memory mem = getMemory();
+		final long a = address.address();
+		mem.write(a, 0x0102030405060708L);
+		assertEquals(0x0102030405060708L, mem.read8(address));
+		mem.write(a + 1L, 0x11223344);
+		assertEquals(0x11223344, mem.read4(address.plus(1L)));
+		mem.write(a + 2L, (short) 0x5566);
+		assertEquals((short) 0x5566, mem.read2(address.plus(2L)));
+		mem.write(a + 3L, (byte) 0x77);
+		assertEquals((byte) 0x77, mem.read(address.plus(3L)));
+		assertEquals(mem.read8(address), mem.read8(a));
+		assertEquals(mem.read4(address), mem.read4(a));
+		assertEquals(mem.read2(address), mem.read2(a));
+		assertEquals(mem.read(address), mem.read(a));
+		assertEquals(mem.isInitialized(address), mem.isInitialized(a));
+	}
 }
@@ -18,8 +18,13 @@
 package com.ledmington.mem;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -68,4 +73,141 @@ final class TestMemoryController extends TestMemory {
 		mem.initialize(address, 8, (byte) 0x00);
 		assertThrows(IllegalWriteException.class, () -> mem.write(address, 0L));
 	}
+
+	@Test
+	void countsPermissionChecks() {
+		final MemoryController mem =
+				new MemoryController(new RandomAccessMemory(MemoryInitializer.random()), true, false, true, true, true);
+		final MemoryAddress address = new MemoryAddress(0x1000L);
+		mem.write(address, 0L);
+		mem.read8(address);
+		mem.read(address);
+		mem.readCode(address);
+		assertEquals(2L, mem.getReadChecks());
+		assertEquals(1L, mem.getWriteChecks());
+		assertEquals(1L, mem.getExecuteChecks());
+	}
+
+	@Test
+	void noChecksCountedWhenDisabled() {
+		final MemoryController mem =
+				new MemoryController(new RandomAccessMemory(MemoryInitializer.random()), false, false);
+		final MemoryAddress address = new MemoryAddress(0x1000L);
+		mem.write(address, 0L);
+		mem.read8(address);
+		assertEquals(0L, mem.getReadChecks());
+		assertEquals(0L, mem.getWriteChecks());
+	}
+
+	@Test
+	void executableBytesStopAtFirstNonExecutableOne() {
+		final MemoryController mem = new MemoryController(new RandomAccessMemory(MemoryInitializer.random()));
+		final MemoryAddress address = new MemoryAddress(0x1000L);
+		mem.setPermissions(address, 0x20L, true, false, true);
+		mem.initialize(address, 0x30L, (byte) 0x90);
+		assertEquals(0x20L, mem.getExecutableBytes(address, 0x1000L));
+		assertEquals(0x10L, mem.getExecutableBytes(address.plus(0x10L), 0x1000L));
+		assertEquals(0x4L, mem.getExecutableBytes(address, 0x4L));
+		assertEquals(0L, mem.getExecutableBytes(address.plus(0x20L), 0x1000L));
+		assertEquals(4L, mem.getExecuteChecks());
+	}
+
+	@Test
+	void executableBytesStopAtFirstUninitializedOne() {
+		final MemoryController mem = new MemoryController(new RandomAccessMemory(MemoryInitializer.random()));
+		final MemoryAddress address = new MemoryAddress(0x1000L);
+		mem.setPermissions(address, 0x20L, true, false, true);
+		mem.initialize(address, 0x8L, (byte) 0x90);
+		assertEquals(0x8L, mem.getExecutableBytes(address, 0x1000L));
+	}
+
+	@Test
+	void readableBytesStopAtFirstNonReadableOrUninitializedOne() {
+		final MemoryController mem = new MemoryController(new RandomAccessMemory(MemoryInitializer.random()));
+		final MemoryAddress address = new MemoryAddress(0x1000L);
+		mem.setPermissions(address, 0x20L, true, false, false);
+		mem.initialize(address, 0x18L, (byte) 0x00);
+		assertEquals(0x18L, mem.getReadableBytes(address, 0x1000L));
+		mem.initialize(address, 0x30L, (byte) 0x00);
+		assertEquals(0x20L, mem.getReadableBytes(address, 0x1000L));
+		assertEquals(0x4L, mem.getReadableBytes(address, 0x4L));
+		assertEquals(3L, mem.getReadChecks());
+	}
+
+	@Test
+	void writableBytesStopAtFirstNonWritableOne() {
+		final MemoryController mem = new MemoryController(new RandomAccessMemory(MemoryInitializer.random()));
+		final MemoryAddress address = new MemoryAddress(0x1000L);
+		mem.setPermissions(address, 0x20L, false, true, false);
+		assertEquals(0x20L, mem.getWritableBytes(address, 0x1000L));
+		assertEquals(0x8L, mem.getWritableBytes(address.plus(0x18L), 0x1000L));
+		assertEquals(0L, mem.getWritableBytes(address.plus(0x20L), 0x1000L));
+		assertEquals(3L, mem.getWriteChecks());
+	}
+
+	@Test
+	void anyWritableByteInRange() {
+		final MemoryController mem = new MemoryController(new RandomAccessMemory(MemoryInitializer.random()));
+		final MemoryAddress address = new MemoryAddress(0x1000L);
+		mem.setPermissions(address, 0x20L, true, false, true);
+		mem.setPermissions(address.plus(0x10L), 0x8L, true, true, true);
+		assertFalse(mem.isAnyWritable(address, 0x10L));
+		assertTrue(mem.isAnyWritable(address, 0x20L));
+		assertFalse(mem.isAnyWritable(address.plus(0x18L), 0x8L));
+		assertEquals(3L, mem.getWriteChecks());
+	}
+
+	@Test
+	void permissionsVersionChangesWithPermissions() {
+		final MemoryController mem = new MemoryController(new RandomAccessMemory(MemoryInitializer.random()));
+		final long before = mem.getPermissionsVersion();
+		mem.initialize(new MemoryAddress(0x1000L), 0x10L, (byte) 0x00);
+		assertEquals(before, mem.getPermissionsVersion());
+		mem.setPermissions(new MemoryAddress(0x1000L), 0x10L, true, false, true);
+		assertNotEquals(before, mem.getPermissionsVersion());
+	}
+
+	@Test
+	void viewSharesPermissionsAndMemory() {
+		final MemoryController mem = new MemoryController(new RandomAccessMemory(MemoryInitializer.random()));
+		final int[] wraps = {0};
+		final MemoryController view = mem.withMemory(m -> {
+			wraps[0]++;
+			return m;
+		});
+		assertEquals(1, wraps[0]);
+		final MemoryAddress address = new MemoryAddress(0x1000L);
+		assertThrows(IllegalWriteException.class, () -> view.write(address, (byte) 0x12));
+
+		final long before = mem.getPermissionsVersion();
+		view.setPermissions(address, 0x10L, true, true, false);
+		assertNotEquals(before, mem.getPermissionsVersion());
+		view.write(address, 0x1122334455667788L);
+		assertEquals(0x1122334455667788L, mem.read8(address));
+		assertEquals(mem.getWriteChecks(), view.getWriteChecks());
+	}
+
+	@Test
+	void changedRangesSinceVersion() {
+		final MemoryController mem = new MemoryController(new RandomAccessMemory(MemoryInitializer.random()));
+		final MemoryAddress code = new MemoryAddress(0x1000L);
+		final long before = mem.getPermissionsVersion();
+		assertFalse(mem.hasChangedSince(before, code, 0x100L));
+
+		mem.setPermissions(new MemoryAddress(0x2000L), 0x10L, true, true, false);
+		assertFalse(mem.hasChangedSince(before, code, 0x100L));
+		assertTrue(mem.hasChangedSince(before, new MemoryAddress(0x1ff0L), 0x11L));
+		assertFalse(mem.hasChangedSince(before, new MemoryAddress(0x1ff0L), 0x10L));
+
+		mem.setPermissions(code.plus(0xffL), 1L, true, false, true);
+		assertTrue(mem.hasChangedSince(before, code, 0x100L));
+		assertFalse(mem.hasChangedSince(mem.getPermissionsVersion(), code, 0x100L));
+
+		// Versions older than the remembered changes are always reported as changed
+		final long old = mem.getPermissionsVersion();
+		for (int i = 0; i < 100; i++) {
+			mem.setPermissions(new MemoryAddress(0x10_0000L + i), 1L, true, true, false);
+		}
+		assertTrue(mem.hasChangedSince(old, code, 0x100L));
+	}
 }
@@ -17,9 +17,261 @@
  */
 package com.ledmington.mem;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
 final class TestPagedMemory extends TestMemory {
 	@Override
 	protected Memory getMemory() {
 		return new PagedMemory(MemoryInitializer.random());
 	}
+
+	@Test
+	void countsPageFaultsAndAllocations() {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		mem.read(new MemoryAddress(0L));
+		mem.write(new MemoryAddress(1L), (byte) 1);
+		mem.write(new MemoryAddress(2L), (byte) 2);
+		mem.read(new MemoryAddress(3L));
+		mem.write(new MemoryAddress(0x100L), (byte) 3);
+		assertEquals(3L, mem.getPageFaults());
+		assertEquals(2L, mem.getAllocatedPages());
+	}
+
+	@Test
+	void longAddressAccessesAcrossPages() {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		for (long a = 0L; a < 16L; a++) {
+			mem.write(0x100L + a * 16L + a, 0x0102030405060708L);
+			assertEquals(0x0102030405060708L, mem.read8(0x100L + a * 16L + a));
+			assertEquals(0x0102030405060708L, mem.read8(new MemoryAddress(0x100L + a * 16L + a)));
+			assertEquals(0x05060708, mem.read4(0x100L + a * 16L + a));
+			assertTrue(mem.isInitialized(0x100L + a * 16L + a + 7L));
+			assertFalse(mem.isInitialized(0x100L + a * 16L + a + 8L));
+		}
+	}
+
+	@Test
+	void longAddressWritesGoThroughSharedMappings() {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		try (Arena arena = Arena.ofConfined()) {
+			final MemorySegment segment = arena.allocate(16L);
+			mem.map(new MemoryAddress(0x20L), 16L, segment, true);
+			mem.write(0x24L, 0x12345678);
+			assertEquals(0x12345678, segment.get(ValueLayout.JAVA_INT_UNALIGNED, 4L));
+			assertEquals(0x12345678, mem.read4(0x24L));
+			assertEquals(0L, mem.getAllocatedPages());
+		}
+	}
+
+	@Test
+	void bulkTransfersAcrossPages() {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		final byte[] src = new byte[50];
+		for (int i = 0; i < src.length; i++) {
+			src[i] = (byte) (i + 1);
+		}
+		mem.write(new MemoryAddress(5L), src, 3, 40);
+		assertEquals(3L, mem.getAllocatedPages());
+		for (int i = 0; i < 40; i++) {
+			assertEquals(src[3 + i], mem.read(new MemoryAddress(5L + i)));
+		}
+		assertTrue(mem.isInitialized(new MemoryAddress(44L)));
+
+		final byte[] dst = new byte[64];
+		mem.read(new MemoryAddress(0L), dst, 10, 50);
+		for (int i = 0; i < 50; i++) {
+			assertEquals(i >= 5 && i < 45 ? src[i - 2] : 0, dst[10 + i]);
+		}
+	}
+
+	private static MemorySegment segmentOf(final int length) {
+		final MemorySegment seg = Arena.ofAuto().allocate(length);
+		for (int i = 0; i < length; i++) {
+			seg.set(ValueLayout.JAVA_BYTE, i, (byte) (i + 1));
+		}
+		return seg;
+	}
+
+	@Test
+	void readMappedSegment() {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.random(), 16L);
+		mem.map(new MemoryAddress(0x100L), 48L, segmentOf(40), false);
+		assertEquals(3L, mem.getMappedPages());
+		assertEquals(0L, mem.getAllocatedPages());
+		for (int i = 0; i < 40; i++) {
+			assertEquals((byte) (i + 1), mem.read(new MemoryAddress(0x100L + i)));
+			assertTrue(mem.isInitialized(new MemoryAddress(0x100L + i)));
+		}
+		// Past the end of the segment
+		assertEquals((byte) 0, mem.read(new MemoryAddress(0x100L + 45L)));
+
+		final byte[] dst = new byte[48];
+		mem.read(new MemoryAddress(0x100L), dst, 0, dst.length);
+		for (int i = 0; i < dst.length; i++) {
+			assertEquals(i < 40 ? (byte) (i + 1) : 0, dst[i]);
+		}
+	}
+
+	@Test
+	void privateMappingIsCopiedOnWrite() {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		final MemorySegment seg = segmentOf(32);
+		mem.map(new MemoryAddress(0x100L), 32L, seg, false);
+		mem.write(new MemoryAddress(0x112L), (byte) 0x55);
+		assertEquals((byte) 0x55, mem.read(new MemoryAddress(0x112L)));
+		assertEquals((byte) 20, mem.read(new MemoryAddress(0x113L)));
+		assertEquals((byte) 19, seg.get(ValueLayout.JAVA_BYTE, 18L));
+		assertEquals(1L, mem.getAllocatedPages());
+	}
+
+	@Test
+	void sharedMappingIsWrittenThrough() {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		final MemorySegment seg = segmentOf(32);
+		mem.map(new MemoryAddress(0x100L), 32L, seg, true);
+		mem.write(new MemoryAddress(0x112L), (byte) 0x55);
+		mem.write(new MemoryAddress(0x10eL), new byte[] {1, 2, 3, 4}, 0, 4);
+		assertEquals(2L, mem.compareAndExchange(new MemoryAddress(0x10fL), 1, 2L, 7L));
+		assertEquals(0x55L, mem.getAndAdd(new MemoryAddress(0x112L), 1, 1L));
+		assertEquals((byte) 0x56, seg.get(ValueLayout.JAVA_BYTE, 18L));
+		assertEquals((byte) 7, seg.get(ValueLayout.JAVA_BYTE, 15L));
+		assertEquals((byte) 3, seg.get(ValueLayout.JAVA_BYTE, 16L));
+		assertEquals(0L, mem.getAllocatedPages());
+	}
+
+	@Test
+	void unmapReleasesPages() {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		mem.map(new MemoryAddress(0x100L), 32L, segmentOf(32), false);
+		mem.write(new MemoryAddress(0x100L), (byte) 0x55);
+		mem.unmap(new MemoryAddress(0x100L), 32L);
+		assertEquals(0L, mem.getMappedPages());
+		assertEquals(0L, mem.getAllocatedPages());
+		assertEquals((byte) 0, mem.read(new MemoryAddress(0x100L)));
+		assertFalse(mem.isInitialized(new MemoryAddress(0x110L)));
+		assertThrows(IllegalArgumentException.class, () -> mem.unmap(new MemoryAddress(0x101L), 16L));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 2, 4, 8})
+	void compareAndExchangeSucceeds(final int size) {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		final MemoryAddress address = new MemoryAddress(0x10L);
+		mem.write(address, 0x0807060504030201L);
+		final long expected = 0x0807060504030201L & Memory.sizeMask(size);
+		assertEquals(expected, mem.compareAndExchange(address, size, expected, -1L));
+		assertEquals(
+				(0x0807060504030201L & ~Memory.sizeMask(size)) | Memory.sizeMask(size), mem.read8(address));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 2, 4, 8})
+	void compareAndExchangeFails(final int size) {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		final MemoryAddress address = new MemoryAddress(0x10L);
+		mem.write(address, 0x0807060504030201L);
+		final long witness = mem.compareAndExchange(address, size, 0L, -1L);
+		assertEquals(0x0807060504030201L & Memory.sizeMask(size), witness);
+		assertEquals(0x0807060504030201L, mem.read8(address));
+	}
+
+	@Test
+	void compareAndExchangeAcrossPages() {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		final MemoryAddress address = new MemoryAddress(0x0eL);
+		mem.write(address, 0x1122334455667788L);
+		assertEquals(0x1122334455667788L, mem.compareAndExchange(address, 8, 0x1122334455667788L, 42L));
+		assertEquals(42L, mem.read8(address));
+		assertTrue(mem.isInitialized(new MemoryAddress(0x15L)));
+	}
+
+	@Test
+	void concurrentIncrementsAreNotLost() throws InterruptedException {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero());
+		final MemoryAddress address = new MemoryAddress(0x1000L);
+		mem.write(address, 0L);
+		final int numThreads = 4;
+		final int increments = 10_000;
+		final List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < numThreads; t++) {
+			threads.add(Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < increments; i++) {
+					long old;
+					do {
+						old = mem.read8(address);
+					} while (mem.compareAndExchange(address, 8, old, old + 1L) != old);
+				}
+			}));
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		assertEquals((long) numThreads * increments, mem.read8(address));
+	}
+
+	private static Stream<Arguments> atomicOperations() {
+		return Stream.of(AtomicMemory.Operation.values())
+				.flatMap(op -> IntStream.of(1, 2, 4, 8).mapToObj(size -> Arguments.of(op, size)));
+	}
+
+	@ParameterizedTest
+	@MethodSource("atomicOperations")
+	void getAndApply(final AtomicMemory.Operation op, final int size) {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		final MemoryAddress address = new MemoryAddress(0x10L);
+		final long initial = 0x8877665544332211L;
+		final long operand = 0x0f0f0f0f0f0f0f0fL;
+		mem.write(address, initial);
+		final long mask = Memory.sizeMask(size);
+		assertEquals(initial & mask, mem.getAndApply(address, size, op, operand));
+		assertEquals((initial & ~mask) | (op.apply(initial, operand) & mask), mem.read8(address));
+	}
+
+	@Test
+	void getAndAddAcrossPages() {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero(), 16L);
+		final MemoryAddress address = new MemoryAddress(0x0cL);
+		mem.write(address, 0x00000000ffffffffL);
+		assertEquals(0x00000000ffffffffL, mem.getAndAdd(address, 8, 1L));
+		assertEquals(0x0000000100000000L, mem.read8(address));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 2, 4, 8})
+	void concurrentGetAndAdd(final int size) throws InterruptedException {
+		final PagedMemory mem = new PagedMemory(MemoryInitializer.zero());
+		final MemoryAddress address = new MemoryAddress(0x1000L);
+		mem.write(address, 0L);
+		final int numThreads = 4;
+		final int increments = 50;
+		final List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < numThreads; t++) {
+			threads.add(Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < increments; i++) {
+					mem.getAndAdd(address, size, 1L);
+				}
+			}));
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		assertEquals((long) numThreads * increments, mem.read8(address));
+	}
 }
@@ -149,6 +149,7 @@ public final class Main {
 		final byte[] content = ((LoadableSection) s).getLoadableContent();
 		final ReadOnlyByteBuffer b = new ReadOnlyByteBufferV1(content, true, 1L);
 		String functionName = "";
+		final StringBuilder line = new StringBuilder();
 		while (b.getPosition() < content.length) {
 			final long currentPosition = startOfSection + b.getPosition();
 			final boolean hasFunctionName = functionNames.containsKey(currentPosition);
@@ -163,6 +164,7 @@ public final class Main {
 
 			final long startOfInstruction = b.getPosition();
 			final Instruction inst = InstructionDecoder.fromHex(b);
+			line.setLength(0);
 			final long endOfInstruction = b.getPosition();
 			final long lengthOfInstruction = endOfInstruction - startOfInstruction;
 			out.printf("%8x:\t", startOfSection + startOfInstruction);
@@ -183,11 +185,10 @@ public final class Main {
 				final long computedOffset = startOfSection + endOfInstruction + displacement;
 				final long gotSectionAddress =
 						st.getSectionByName(".got.plt").orElseThrow().header().getVirtualAddress();
+				InstructionEncoder.toIntelSyntax(line, inst, true, 6, true);
 				out.printf(
 						"%s        # %x <_GLOBAL_OFFSET_TABLE_+0x%x>%n",
-						InstructionEncoder.toIntelSyntax(inst, true, 6, true),
-						computedOffset,
-						computedOffset - gotSectionAddress);
+						line, computedOffset, computedOffset - gotSectionAddress);
 			} else if (isJumpWithImmediate(inst)) {
 				// conditional jumps and 'call' instructions need to be printed differently: instead of just the
 				// immediate, we need to add it to the current IP and display the name of the function it points to.
@@ -198,7 +199,8 @@ public final class Main {
 						"%-6s %x <%s+0x%x>%n",
 						inst.opcode().mnemonic(), actualPointedAddress, functionName, offsetFromStartOfFunction);
 			} else {
-				out.printf("%s%n", InstructionEncoder.toIntelSyntax(inst, true, 6, true));
+				InstructionEncoder.toIntelSyntax(line, inst, true, 6, true);
+				out.append(line).println();
 			}
 
 			if (lengthOfInstruction >= 8L) {
@@ -0,0 +1,150 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.utils;
+
+import java.io.PrintWriter;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free, multiple-producers single-consumer ring buffer of lines, drained by a background thread which
+ * writes them in batches, flushing the underlying writer once per batch.
+ *
+ * <p>Producers never take locks: each one claims a slot with a single atomic increment and publishes its line with a
+ * release store. When the buffer is full, producers wait for the drain thread to make room.
+ */
+final class AsyncLineWriter {
+
+	private static final int MAX_BATCH_SIZE = 1024;
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+	private final AtomicReferenceArray<String> slots;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong(0L);
+	private final Thread drainer;
+	private volatile long head = 0L;
+	private volatile boolean running = true;
+	private volatile PrintWriter out;
+
+	/**
+	 * Creates a new AsyncLineWriter and starts its drain thread.
+	 *
+	 * @param out The writer where to write the lines.
+	 * @param capacity The maximum number of lines which can be waiting to be written. Must be a power of two.
+	 */
+	AsyncLineWriter(final PrintWriter out, final int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException(
+					String.format("Invalid capacity: expected a power of two but was %,d.", capacity));
+		}
+		this.out = Objects.requireNonNull(out);
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.mask = capacity - 1;
+		this.drainer = Thread.ofPlatform()
+				.name("MiniLogger-drain")
+				.daemon(true)
+				.unstarted(this::drainLoop);
+		this.drainer.start();
+	}
+
+	/**
+	 * Changes the writer where lines are written. Lines already enqueued may be written to either one.
+	 *
+	 * @param newOut The new writer.
+	 */
+	void setWriter(final PrintWriter newOut) {
+		this.out = Objects.requireNonNull(newOut);
+	}
+
+	/**
+	 * Enqueues the given line to be written.
+	 *
+	 * @param line The line to be written, without the trailing newline.
+	 */
+	void add(final String line) {
+		Objects.requireNonNull(line);
+		final long seq = tail.getAndIncrement();
+		while (seq - head >= slots.length()) {
+			// buffer full: wait for the drain thread to make room
+			LockSupport.unpark(drainer);
+			Thread.onSpinWait();
+		}
+		slots.setRelease((int) seq & mask, line);
+	}
+
+	private void drainLoop() {
+		while (running || head != tail.get()) {
+			if (drainBatch() == 0) {
+				LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+			}
+		}
+	}
+
+	private int drainBatch() {
+		final PrintWriter pw = out;
+		long h = head;
+		int n = 0;
+		while (n < MAX_BATCH_SIZE) {
+			final int idx = (int) h & mask;
+			final String line = slots.getAcquire(idx);
+			if (line == null) {
+				break;
+			}
+			slots.setPlain(idx, null);
+			pw.println(line);
+			h++;
+			n++;
+		}
+		if (n > 0) {
+			pw.flush();
+			// publishing the new head also publishes the cleared slots
+			head = h;
+		}
+		return n;
+	}
+
+	/** Blocks until all the lines enqueued before this call have been written and flushed. */
+	void flush() {
+		final long target = tail.get();
+		while (head < target && drainer.isAlive()) {
+			LockSupport.unpark(drainer);
+			Thread.onSpinWait();
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes all the remaining lines and stops the drain thread.
+	 *
+	 * @throws InterruptedException If interrupted while waiting for the drain thread to terminate.
+	 */
+	void close() throws InterruptedException {
+		running = false;
+		LockSupport.unpark(drainer);
+		drainer.join();
+		out.flush();
+	}
+
+	@Override
+	public String toString() {
+		return "AsyncLineWriter(capacity=" + slots.length() + ";head=" + head + ";tail=" + tail.get() + ")";
+	}
+}
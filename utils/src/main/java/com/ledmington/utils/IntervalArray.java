@@ -83,6 +83,57 @@ public final class IntervalArray {
 		return false;
 	}
 
+	/**
+	 * Returns the number of consecutive values set to {@code true} starting from the given address, up to the given
+	 * maximum.
+	 *
+	 * @param start The address of the first value.
+	 * @param maxLength The maximum number of values to look at.
+	 * @return The length of the run of {@code true} values starting at the given address, capped to maxLength.
+	 */
+	public long getRunLength(final long start, final long maxLength) {
+		if (maxLength < 0L) {
+			throw new IllegalArgumentException("Negative maximum length.");
+		}
+		long length = 0L;
+		// Blocks are sorted, so adjacent blocks are visited one after the other
+		for (final Block b : blocks) {
+			if (length == maxLength) {
+				break;
+			}
+			final long next = start + length;
+			if (b.contains(next)) {
+				// The number of values after 'next' in this block, which does not overflow even for a full block
+				final long after = b.end() - next;
+				length = Long.compareUnsigned(after, maxLength - length - 1L) >= 0 ? maxLength : length + after + 1L;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Checks whether at least one of the values in the given range is set to {@code true}.
+	 *
+	 * @param start The address of the first value.
+	 * @param numValues The number of values to look at.
+	 * @return True if at least one value in the range is {@code true}, false otherwise.
+	 */
+	public boolean isAnySet(final long start, final long numValues) {
+		if (numValues < 0L) {
+			throw new IllegalArgumentException("Negative number of values.");
+		}
+		if (numValues == 0L) {
+			return false;
+		}
+		final long last = start + numValues - 1L;
+		for (final Block b : blocks) {
+			if (Long.compareUnsigned(b.start(), last) <= 0 && Long.compareUnsigned(b.end(), start) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Sets the boolean values in the given range to value. Equivalent to calling {@code value ? set(start, numBytes) :
 	 * reset(start, numBytes)}.
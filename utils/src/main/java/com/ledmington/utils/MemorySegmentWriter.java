@@ -0,0 +1,154 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.utils;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * A WriteOnlyByteBuffer which writes directly into a caller-supplied {@link MemorySegment} (or {@link ByteBuffer}),
+ * without ever resizing or copying it. Writing past the end of the segment throws an
+ * {@link IndexOutOfBoundsException}.
+ */
+public final class MemorySegmentWriter implements WriteOnlyByteBuffer {
+
+	private final MemorySegment seg;
+	private final ValueLayout.OfShort shortLayout;
+	private final ValueLayout.OfInt intLayout;
+	private final ValueLayout.OfLong longLayout;
+	private int position = 0;
+	private int size = 0;
+
+	/**
+	 * Creates a new MemorySegmentWriter which writes inside the given segment, starting at offset 0.
+	 *
+	 * @param seg The segment to write into.
+	 * @param isLittleEndian The endianness: true for little-endian, false for big-endian.
+	 */
+	@SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The segment is meant to be externally modifiable.")
+	public MemorySegmentWriter(final MemorySegment seg, final boolean isLittleEndian) {
+		this.seg = Objects.requireNonNull(seg);
+		final ByteOrder order = isLittleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		this.shortLayout = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(order);
+		this.intLayout = ValueLayout.JAVA_INT_UNALIGNED.withOrder(order);
+		this.longLayout = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(order);
+	}
+
+	/**
+	 * Creates a new MemorySegmentWriter which writes inside the remaining bytes of the given ByteBuffer. The position
+	 * of the ByteBuffer is not modified.
+	 *
+	 * @param bb The buffer to write into.
+	 * @param isLittleEndian The endianness: true for little-endian, false for big-endian.
+	 */
+	public MemorySegmentWriter(final ByteBuffer bb, final boolean isLittleEndian) {
+		this(MemorySegment.ofBuffer(Objects.requireNonNull(bb)), isLittleEndian);
+	}
+
+	private void advance(final int numBytes) {
+		position += numBytes;
+		size = Math.max(size, position);
+	}
+
+	@Override
+	public void write(final byte b) {
+		seg.set(ValueLayout.JAVA_BYTE, position, b);
+		advance(1);
+	}
+
+	@Override
+	public void write(final short s) {
+		seg.set(shortLayout, position, s);
+		advance(2);
+	}
+
+	@Override
+	public void write(final int x) {
+		seg.set(intLayout, position, x);
+		advance(4);
+	}
+
+	@Override
+	public void write(final long x) {
+		seg.set(longLayout, position, x);
+		advance(8);
+	}
+
+	@Override
+	public void write(final byte... bytes) {
+		MemorySegment.copy(bytes, 0, seg, ValueLayout.JAVA_BYTE, position, bytes.length);
+		advance(bytes.length);
+	}
+
+	@Override
+	public void write(final int... ints) {
+		for (final int x : ints) {
+			write(x);
+		}
+	}
+
+	@Override
+	public void write(final long... longs) {
+		for (final long x : longs) {
+			write(x);
+		}
+	}
+
+	/**
+	 * Returns a copy of the bytes written so far, from offset 0 up to the highest position ever reached.
+	 *
+	 * @return A copy of the written bytes.
+	 */
+	@Override
+	public byte[] array() {
+		return seg.asSlice(0L, size).toArray(ValueLayout.JAVA_BYTE);
+	}
+
+	@Override
+	public int getPosition() {
+		return position;
+	}
+
+	@Override
+	public void setPosition(final int newPosition) {
+		if (newPosition < 0 || newPosition > seg.byteSize()) {
+			throw new IndexOutOfBoundsException(String.format(
+					"Invalid position %,d for a segment of %,d bytes.", newPosition, seg.byteSize()));
+		}
+		position = newPosition;
+		size = Math.max(size, newPosition);
+	}
+
+	/**
+	 * Returns the number of bytes of the underlying segment, capped to {@link Integer#MAX_VALUE}.
+	 *
+	 * @return The size of the underlying segment.
+	 */
+	@Override
+	public int getSize() {
+		return (int) Math.min(seg.byteSize(), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public String toString() {
+		return "MemorySegmentWriter(seg=" + seg + ";position=" + position + ";size=" + size + ")";
+	}
+}
@@ -19,11 +19,13 @@ package com.ledmington.utils;
 
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * Personal implementation of a simple Logger that mimics the behavior of the {@link java.util.logging.Logger} class.
@@ -38,8 +40,18 @@ public final class MiniLogger {
 	private static LoggingLevel minimumLevel = LoggingLevel.DEBUG;
 	private static final char NEWLINE = '\n';
 	private static final Lock mutex = new ReentrantLock();
+	private static final int ASYNC_BUFFER_CAPACITY = 1 << 16;
+	private static final String[] LEVEL_TAGS = Arrays.stream(LoggingLevel.values())
+			.map(l -> '[' + getColor(l) + l.name() + TerminalUtils.ANSI_RESET + ']')
+			.toArray(String[]::new);
+	private static volatile CachedTimestamp lastTimestamp = new CachedTimestamp(-1L, "");
+	private static volatile AsyncLineWriter asyncWriter = null;
+	private static boolean shutdownHookRegistered = false;
 
-	private final String loggerName;
+	private final String nameTag;
+
+	// The formatted timestamp is recomputed at most once per millisecond
+	private record CachedTimestamp(long millis, String formatted) {}
 
 	/** Specifies the level for all MiniLoggers. */
 	public enum LoggingLevel {
@@ -86,55 +98,139 @@ public final class MiniLogger {
 	 * @param pw A non-null PrintWriter. Defaults to System.console().writer() if available, otherwise System.out.
 	 */
 	public static void setWriter(final PrintWriter pw) {
-		stdout = new PrintWriter(Objects.requireNonNull(pw));
+		final PrintWriter newWriter = new PrintWriter(Objects.requireNonNull(pw));
+		try {
+			mutex.lock();
+			final AsyncLineWriter aw = asyncWriter;
+			if (aw != null) {
+				aw.flush();
+				aw.setWriter(newWriter);
+			}
+			stdout = newWriter;
+		} finally {
+			mutex.unlock();
+		}
+	}
+
+	/**
+	 * Checks whether messages with the given level are currently being logged.
+	 *
+	 * @param level The logging level to check.
+	 * @return True if messages with the given level are logged, false otherwise.
+	 */
+	public static boolean isEnabled(final LoggingLevel level) {
+		return level.ordinal() >= minimumLevel.ordinal();
+	}
+
+	/**
+	 * Enables or disables the asynchronous mode for all MiniLogger instances. In asynchronous mode, logging threads
+	 * only enqueue their messages in a lock-free buffer, while a background thread writes them in batches. Pending
+	 * messages are written when calling {@link #flush()} and at JVM shutdown.
+	 *
+	 * @param enabled True to enable asynchronous mode, false to go back to writing each message immediately.
+	 */
+	public static void setAsync(final boolean enabled) {
+		try {
+			mutex.lock();
+			if (enabled && asyncWriter == null) {
+				asyncWriter = new AsyncLineWriter(stdout, ASYNC_BUFFER_CAPACITY);
+				if (!shutdownHookRegistered) {
+					Runtime.getRuntime().addShutdownHook(new Thread(MiniLogger::flush, "MiniLogger-shutdown"));
+					shutdownHookRegistered = true;
+				}
+			} else if (!enabled && asyncWriter != null) {
+				final AsyncLineWriter aw = asyncWriter;
+				asyncWriter = null;
+				aw.close();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			mutex.unlock();
+		}
+	}
+
+	/** Blocks until all the messages logged so far have been written. */
+	public static void flush() {
+		final AsyncLineWriter aw = asyncWriter;
+		if (aw != null) {
+			aw.flush();
+		}
+		try {
+			mutex.lock();
+			stdout.flush();
+		} finally {
+			mutex.unlock();
+		}
+	}
+
+	private static String getColor(final LoggingLevel level) {
+		return switch (level) {
+			case DEBUG -> TerminalUtils.ANSI_WHITE;
+			case INFO -> TerminalUtils.ANSI_CYAN;
+			case WARNING -> TerminalUtils.ANSI_YELLOW;
+			case ERROR -> TerminalUtils.ANSI_RED;
+		};
 	}
 
 	private MiniLogger(final String name) {
 		Objects.requireNonNull(name);
-		this.loggerName = name;
+		this.nameTag = '[' + name + ']';
 	}
 
-	private String getFormattedTime() {
-		long t = System.currentTimeMillis() - BEGINNING;
-		final long milliseconds = t % 1000;
+	private static String getFormattedTime() {
+		final long now = System.currentTimeMillis() - BEGINNING;
+		final CachedTimestamp cached = lastTimestamp;
+		if (cached.millis() == now) {
+			return cached.formatted();
+		}
+
+		long t = now;
+		final int milliseconds = (int) (t % 1000);
 		t /= 1000;
-		final long seconds = t % 60;
+		final int seconds = (int) (t % 60);
 		t /= 60;
-		final long minutes = t % 60;
+		final int minutes = (int) (t % 60);
 		t /= 60;
-		final long hours = t % 24;
-
-		return String.format("%02d:%02d:%02d.%03d", hours, minutes, seconds, milliseconds);
+		final int hours = (int) (t % 24);
+
+		final char[] v = {
+			(char) ('0' + hours / 10),
+			(char) ('0' + hours % 10),
+			':',
+			(char) ('0' + minutes / 10),
+			(char) ('0' + minutes % 10),
+			':',
+			(char) ('0' + seconds / 10),
+			(char) ('0' + seconds % 10),
+			'.',
+			(char) ('0' + milliseconds / 100),
+			(char) ('0' + milliseconds / 10 % 10),
+			(char) ('0' + milliseconds % 10)
+		};
+		final String formatted = new String(v);
+		lastTimestamp = new CachedTimestamp(now, formatted);
+		return formatted;
 	}
 
-	private String getFormattedHeader(final LoggingLevel tag) {
-		Objects.requireNonNull(tag);
-
-		final String color =
-				switch (tag) {
-					case DEBUG -> TerminalUtils.ANSI_WHITE;
-					case INFO -> TerminalUtils.ANSI_CYAN;
-					case WARNING -> TerminalUtils.ANSI_YELLOW;
-					case ERROR -> TerminalUtils.ANSI_RED;
-				};
-
-		return '['
-				+ getFormattedTime()
-				+ ']'
-				+ '['
-				+ Thread.currentThread().getName()
-				+ ']'
-				+ '['
-				+ loggerName
-				+ ']'
-				+ '['
-				+ color
-				+ tag.name()
-				+ TerminalUtils.ANSI_RESET
-				+ ']';
+	private void appendHeader(final StringBuilder sb, final LoggingLevel tag) {
+		sb.append('[')
+				.append(getFormattedTime())
+				.append("][")
+				.append(Thread.currentThread().getName())
+				.append(']')
+				.append(nameTag)
+				.append(LEVEL_TAGS[tag.ordinal()])
+				.append(' ');
 	}
 
-	private void outputActual(final String line) {
+	private static void outputActual(final String line) {
+		final AsyncLineWriter aw = asyncWriter;
+		if (aw != null) {
+			aw.add(line);
+			return;
+		}
+
 		try {
 			mutex.lock();
 
@@ -149,20 +245,49 @@ public final class MiniLogger {
 	private void log(final String msg, final LoggingLevel tag) {
 		Objects.requireNonNull(msg);
 
-		final String coloredHeader = getFormattedHeader(tag);
-
-		final StringBuilder sb = new StringBuilder();
-		sb.append(coloredHeader).append(' ');
-		for (final char c : msg.toCharArray()) {
-			sb.append(c);
-			if (c == NEWLINE) {
-				sb.append(coloredHeader).append(' ');
-			}
+		final StringBuilder sb = new StringBuilder(64 + msg.length());
+		appendHeader(sb, tag);
+		int start = 0;
+		int end = msg.indexOf(NEWLINE);
+		while (end >= 0) {
+			sb.append(msg, start, end + 1);
+			appendHeader(sb, tag);
+			start = end + 1;
+			end = msg.indexOf(NEWLINE, start);
 		}
+		sb.append(msg, start, msg.length());
 
 		outputActual(sb.toString());
 	}
 
+	/**
+	 * Checks whether messages with logging level DEBUG are currently being logged. Useful to guard expensive
+	 * computations needed only to build a debug message.
+	 *
+	 * @return True if DEBUG messages are logged, false otherwise.
+	 */
+	public boolean isDebugEnabled() {
+		return minimumLevel == LoggingLevel.DEBUG;
+	}
+
+	/**
+	 * Checks whether messages with logging level INFO are currently being logged.
+	 *
+	 * @return True if INFO messages are logged, false otherwise.
+	 */
+	public boolean isInfoEnabled() {
+		return minimumLevel == LoggingLevel.DEBUG || minimumLevel == LoggingLevel.INFO;
+	}
+
+	/**
+	 * Checks whether messages with logging level WARNING are currently being logged.
+	 *
+	 * @return True if WARNING messages are logged, false otherwise.
+	 */
+	public boolean isWarningEnabled() {
+		return minimumLevel != LoggingLevel.ERROR;
+	}
+
 	/**
 	 * Logs a message with logging level DEBUG.
 	 *
@@ -188,6 +313,18 @@ public final class MiniLogger {
 		log(String.format(formatString, args), LoggingLevel.DEBUG);
 	}
 
+	/**
+	 * Logs a message with logging level DEBUG. The message is computed only if it is going to be printed.
+	 *
+	 * @param msg The supplier of the string to be printed.
+	 */
+	public void debug(final Supplier<String> msg) {
+		if (!isDebugEnabled()) {
+			return;
+		}
+		log(msg.get(), LoggingLevel.DEBUG);
+	}
+
 	/**
 	 * Logs a message with logging level INFO.
 	 *
@@ -213,6 +350,18 @@ public final class MiniLogger {
 		log(String.format(formatString, args), LoggingLevel.INFO);
 	}
 
+	/**
+	 * Logs a message with logging level INFO. The message is computed only if it is going to be printed.
+	 *
+	 * @param msg The supplier of the string to be printed.
+	 */
+	public void info(final Supplier<String> msg) {
+		if (!isInfoEnabled()) {
+			return;
+		}
+		log(msg.get(), LoggingLevel.INFO);
+	}
+
 	/**
 	 * Logs a message with logging level WARNING.
 	 *
@@ -238,6 +387,18 @@ public final class MiniLogger {
 		log(String.format(formatString, args), LoggingLevel.WARNING);
 	}
 
+	/**
+	 * Logs a message with logging level WARNING. The message is computed only if it is going to be printed.
+	 *
+	 * @param msg The supplier of the string to be printed.
+	 */
+	public void warning(final Supplier<String> msg) {
+		if (!isWarningEnabled()) {
+			return;
+		}
+		log(msg.get(), LoggingLevel.WARNING);
+	}
+
 	/**
 	 * Logs a message with logging level ERROR.
 	 *
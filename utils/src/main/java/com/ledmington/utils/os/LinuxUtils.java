@@ -17,30 +17,88 @@
  */
 package com.ledmington.utils.os;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
 import com.ledmington.utils.ProcessUtils;
 
-/** Linux-specific implementation of OSUtils. */
+/**
+ * Linux-specific implementation of OSUtils.
+ *
+ * <p>The IDs are read once from {@code /proc/self/status}, the first time one of them is needed. Only when that file
+ * is not available (for example, on other Unix systems) the {@code id} command is run instead.
+ */
 public final class LinuxUtils implements OSUtils {
 
+	private static final Path STATUS = Path.of("/proc", "self", "status");
+
 	/* default */ LinuxUtils() {}
 
+	/** Holds the IDs of this process, read only when the class is first accessed. */
+	private static final class IDs {
+
+		private static final int USER;
+		private static final int EFFECTIVE_USER;
+		private static final int GROUP;
+		private static final int EFFECTIVE_GROUP;
+
+		static {
+			List<String> status;
+			try {
+				status = Files.readAllLines(STATUS, StandardCharsets.UTF_8);
+			} catch (final IOException e) {
+				status = List.of();
+			}
+			final int[] uids = parseIDs(status, "Uid:");
+			final int[] gids = parseIDs(status, "Gid:");
+			USER = uids == null ? Integer.parseInt(ProcessUtils.run("id", "-u", "-r")) : uids[0];
+			EFFECTIVE_USER = uids == null ? Integer.parseInt(ProcessUtils.run("id", "-u")) : uids[1];
+			GROUP = gids == null ? Integer.parseInt(ProcessUtils.run("id", "-g", "-r")) : gids[0];
+			EFFECTIVE_GROUP = gids == null ? Integer.parseInt(ProcessUtils.run("id", "-g")) : gids[1];
+		}
+
+		private IDs() {}
+	}
+
+	/**
+	 * Parses the real and the effective ID from the line of {@code /proc/self/status} with the given key, which looks
+	 * like {@code "Uid:\t1000\t1000\t1000\t1000"}.
+	 *
+	 * @param status The lines of {@code /proc/self/status}.
+	 * @param key The key at the start of the line to be parsed, including the colon.
+	 * @return The real and the effective IDs, or null if the line is missing.
+	 */
+	@SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
+	private static int[] parseIDs(final List<String> status, final String key) {
+		for (final String line : status) {
+			if (line.startsWith(key)) {
+				final String[] fields = line.substring(key.length()).trim().split("\\s+");
+				return new int[] {Integer.parseInt(fields[0]), Integer.parseInt(fields[1])};
+			}
+		}
+		return null;
+	}
+
 	@Override
 	public int getUserID() {
-		return Integer.parseInt(ProcessUtils.run("id", "-u"));
+		return IDs.USER;
 	}
 
 	@Override
 	public int getEffectiveUserID() {
-		return Integer.parseInt(ProcessUtils.run("id", "-u", "-r"));
+		return IDs.EFFECTIVE_USER;
 	}
 
 	@Override
 	public int getGroupID() {
-		return Integer.parseInt(ProcessUtils.run("id", "-g"));
+		return IDs.GROUP;
 	}
 
 	@Override
 	public int getEffectiveGroupID() {
-		return Integer.parseInt(ProcessUtils.run("id", "-g", "-r"));
+		return IDs.EFFECTIVE_GROUP;
 	}
 }
@@ -217,4 +217,46 @@ final class TestIntervalArray {
 					() -> String.format("Expected value at address 0x%016x to be true but it was false.", finalX));
 		}
 	}
+
+	@Test
+	void runLengths() {
+		final IntervalArray ia = new IntervalArray(false);
+		ia.set(0x1000L, 0x10L);
+		// Adjacent, but not merged
+		ia.set(0x1010L, 0x10L);
+		ia.set(0x1030L, 0x10L);
+		assertEquals(0x20L, ia.getRunLength(0x1000L, 0x100L));
+		assertEquals(0x1bL, ia.getRunLength(0x1005L, 0x100L));
+		assertEquals(0x8L, ia.getRunLength(0x1005L, 0x8L));
+		assertEquals(0L, ia.getRunLength(0x1020L, 0x100L));
+		assertEquals(0L, ia.getRunLength(0x1000L, 0L));
+		assertEquals(0x10L, ia.getRunLength(0x1030L, 0x100L));
+	}
+
+	@Test
+	void runLengthOfFullArray() {
+		final IntervalArray ia = new IntervalArray(true);
+		assertEquals(4096L, ia.getRunLength(0L, 4096L));
+		assertEquals(1L, ia.getRunLength(0xffff_ffff_ffff_ffffL, 4096L));
+		assertEquals(Long.MAX_VALUE, ia.getRunLength(0L, Long.MAX_VALUE));
+	}
+
+	@Test
+	void anySet() {
+		final IntervalArray ia = new IntervalArray(false);
+		ia.set(0x1010L, 0x10L);
+		assertFalse(ia.isAnySet(0x1000L, 0x10L));
+		assertTrue(ia.isAnySet(0x1000L, 0x11L));
+		assertTrue(ia.isAnySet(0x1015L, 0x2L));
+		assertTrue(ia.isAnySet(0x101fL, 0x100L));
+		assertFalse(ia.isAnySet(0x1020L, 0x100L));
+		assertFalse(ia.isAnySet(0x1010L, 0L));
+		assertThrows(IllegalArgumentException.class, () -> ia.isAnySet(0x1010L, -1L));
+	}
+
+	@Test
+	void negativeRunLength() {
+		final IntervalArray ia = new IntervalArray(true);
+		assertThrows(IllegalArgumentException.class, () -> ia.getRunLength(0L, -1L));
+	}
 }
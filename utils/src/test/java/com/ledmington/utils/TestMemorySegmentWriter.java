@@ -0,0 +1,85 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+final class TestMemorySegmentWriter {
+
+	private static final RandomGenerator rng =
+			RandomGeneratorFactory.getDefault().create(42);
+
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	void mixed(final boolean endianness) {
+		final int length = 15 * 20;
+		final ByteBuffer ref = ByteBuffer.allocate(length);
+		ref.order(endianness ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+		final WriteOnlyByteBuffer bb = new MemorySegmentWriter(ByteBuffer.allocate(length), endianness);
+		for (int i = 0; i < 20; i++) {
+			final byte b = BitUtils.asByte(rng.nextInt());
+			final short s = BitUtils.asShort(rng.nextInt());
+			final int x = rng.nextInt();
+			final long y = rng.nextLong();
+			ref.put(b).putShort(s).putInt(x).putLong(y);
+			bb.write(b);
+			bb.write(s);
+			bb.write(x);
+			bb.write(y);
+		}
+		assertArrayEquals(
+				ref.array(),
+				bb.array(),
+				() -> String.format(
+						"Expected byte array to be %s but was %s.",
+						Arrays.toString(ref.array()), Arrays.toString(bb.array())));
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	void writesAtBufferPosition(final boolean endianness) {
+		final ByteBuffer buffer = ByteBuffer.allocate(8);
+		buffer.position(4);
+		final WriteOnlyByteBuffer bb = new MemorySegmentWriter(buffer, endianness);
+		bb.write((byte) 1, (byte) 2, (byte) 3, (byte) 4);
+		final byte[] expected = {0, 0, 0, 0, 1, 2, 3, 4};
+		assertArrayEquals(
+				expected,
+				buffer.array(),
+				() -> String.format(
+						"Expected buffer to be %s but was %s.",
+						Arrays.toString(expected), Arrays.toString(buffer.array())));
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	void cannotWritePastTheEnd(final boolean endianness) {
+		final WriteOnlyByteBuffer bb = new MemorySegmentWriter(ByteBuffer.allocate(3), endianness);
+		assertThrows(IndexOutOfBoundsException.class, () -> bb.write(0x12345678));
+	}
+}
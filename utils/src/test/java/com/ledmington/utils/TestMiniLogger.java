@@ -0,0 +1,121 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.ledmington.utils.MiniLogger.LoggingLevel;
+
+final class TestMiniLogger {
+
+	private final MiniLogger logger = MiniLogger.getLogger("test");
+	private final StringWriter sw = new StringWriter();
+
+	@BeforeEach
+	void setup() {
+		MiniLogger.setWriter(new PrintWriter(sw));
+	}
+
+	@AfterEach
+	void teardown() {
+		MiniLogger.setAsync(false);
+		MiniLogger.setMinimumLevel(LoggingLevel.DEBUG);
+		MiniLogger.setWriter(new PrintWriter(System.out, false, StandardCharsets.UTF_8));
+	}
+
+	@ParameterizedTest
+	@EnumSource(LoggingLevel.class)
+	void levelChecks(final LoggingLevel level) {
+		MiniLogger.setMinimumLevel(level);
+		assertEquals(level == LoggingLevel.DEBUG, logger.isDebugEnabled());
+		assertEquals(level.compareTo(LoggingLevel.INFO) <= 0, logger.isInfoEnabled());
+		assertEquals(level.compareTo(LoggingLevel.WARNING) <= 0, logger.isWarningEnabled());
+		for (final LoggingLevel other : LoggingLevel.values()) {
+			assertEquals(other.compareTo(level) >= 0, MiniLogger.isEnabled(other));
+		}
+	}
+
+	@Test
+	void supplierIsNotCalledWhenDisabled() {
+		MiniLogger.setMinimumLevel(LoggingLevel.ERROR);
+		final AtomicInteger calls = new AtomicInteger(0);
+		logger.debug(() -> "debug " + calls.incrementAndGet());
+		logger.info(() -> "info " + calls.incrementAndGet());
+		logger.warning(() -> "warning " + calls.incrementAndGet());
+		assertEquals(0, calls.get(), () -> String.format("Expected no calls but were %,d.", calls.get()));
+		assertTrue(sw.toString().isEmpty(), () -> String.format("Expected no output but was '%s'.", sw));
+	}
+
+	@Test
+	void supplierIsCalledWhenEnabled() {
+		MiniLogger.setMinimumLevel(LoggingLevel.DEBUG);
+		logger.debug(() -> "lazy message");
+		assertTrue(sw.toString().contains("lazy message"), () -> String.format("Unexpected output '%s'.", sw));
+	}
+
+	@Test
+	void asyncModeWritesEverythingInOrder() throws InterruptedException {
+		MiniLogger.setMinimumLevel(LoggingLevel.DEBUG);
+		MiniLogger.setAsync(true);
+		final int numThreads = 4;
+		final int linesPerThread = 10_000;
+		final List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < numThreads; t++) {
+			final int id = t;
+			threads.add(Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < linesPerThread; i++) {
+					logger.info("thread %d line %d", id, i);
+				}
+			}));
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		MiniLogger.flush();
+
+		final List<String> lines = sw.toString().lines().toList();
+		assertEquals(
+				numThreads * linesPerThread,
+				lines.size(),
+				() -> String.format("Expected %,d lines but were %,d.", numThreads * linesPerThread, lines.size()));
+		for (int t = 0; t < numThreads; t++) {
+			final String prefix = "thread " + t + " line ";
+			final List<Integer> seen = lines.stream()
+					.filter(l -> l.contains(prefix))
+					.map(l -> Integer.parseInt(l.substring(l.indexOf(prefix) + prefix.length())))
+					.toList();
+			final List<Integer> expected = IntStream.range(0, linesPerThread).boxed().toList();
+			assertEquals(expected, seen, "Lines of the same thread must be written in order.");
+		}
+	}
+}
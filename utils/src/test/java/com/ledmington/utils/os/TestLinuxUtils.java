@@ -0,0 +1,55 @@
+/*
+ * emu - Processor Emulator
+ * Copyright (C) 2023-2026 Filippo Barbari <filippo.barbari@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.ledmington.utils.os;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.ledmington.utils.ProcessUtils;
+
+final class TestLinuxUtils {
+
+	private static final OSUtils os = new LinuxUtils();
+
+	@BeforeAll
+	static void onlyOnLinux() {
+		Assumptions.assumeTrue(!OSUtils.IS_WINDOWS, "not running on Linux, skipping.");
+	}
+
+	private static int id(final String... args) {
+		final String[] cmd = new String[args.length + 1];
+		cmd[0] = "id";
+		System.arraycopy(args, 0, cmd, 1, args.length);
+		return Integer.parseInt(ProcessUtils.run(cmd));
+	}
+
+	@Test
+	void userIDs() {
+		assertEquals(id("-u", "-r"), os.getUserID());
+		assertEquals(id("-u"), os.getEffectiveUserID());
+	}
+
+	@Test
+	void groupIDs() {
+		assertEquals(id("-g", "-r"), os.getGroupID());
+		assertEquals(id("-g"), os.getEffectiveGroupID());
+	}
+}